@@ -0,0 +1,184 @@
+package com.example.seriestracker.data;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.seriestracker.data.dao.CollectionSortOrder;
+import com.example.seriestracker.data.dao.FtsSearch;
+import com.example.seriestracker.data.dao.SeriesDao;
+import com.example.seriestracker.data.dao.SeriesSortOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сортировки списков и проверки названий без учета регистра должны читать таблицы по индексам
+ * Series и Collection, без сортировки во временном B-дереве (EXPLAIN QUERY PLAN).
+ * Поиск, постраничное чтение для резервной копии и журнал изменений не должны просматривать
+ * таблицы целиком. SQL запросов DAO берется из констант SeriesDao, общих с @Query.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+    private SeriesDatabase database;
+
+    @Before
+    public void setUp() {
+        database = SeriesDatabase.createInMemory(ApplicationProvider.getApplicationContext());
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void seriesSortOrdersReadIndexInOrder() {
+        assertIndexedWithoutSort(SeriesSortOrder.NAME_ASC.toQuery(), "index_series_favorite_title_asc");
+        assertIndexedWithoutSort(SeriesSortOrder.NAME_DESC.toQuery(), "index_series_favorite_title_desc");
+        assertIndexedWithoutSort(SeriesSortOrder.EPISODES_ASC.toQuery(), "index_series_favorite_episodes_asc");
+        assertIndexedWithoutSort(SeriesSortOrder.EPISODES_DESC.toQuery(), "index_series_favorite_episodes_desc");
+    }
+
+    @Test
+    public void seriesStatusFilterSearchesStatusIndex() {
+        // Отфильтрованные по статусу строки ищутся по индексу, сортируется только найденное
+        List<String> plan = explain(SeriesSortOrder.NAME_ASC.withStatusFilter("watching").toQuery());
+        assertTrue(plan.toString(), contains(plan, "SEARCH series USING INDEX index_series_status"));
+    }
+
+    @Test
+    public void collectionSortOrdersReadIndexInOrder() {
+        assertIndexedWithoutSort(CollectionSortOrder.NAME_ASC.toQuery(), "index_collections_favorite_name_asc");
+        assertIndexedWithoutSort(CollectionSortOrder.NAME_DESC.toQuery(), "index_collections_favorite_name_desc");
+        assertIndexedWithoutSort(CollectionSortOrder.SERIES_COUNT_ASC.toQuery(), "index_collections_favorite_count_asc");
+        assertIndexedWithoutSort(CollectionSortOrder.SERIES_COUNT_DESC.toQuery(), "index_collections_favorite_count_desc");
+    }
+
+    @Test
+    public void caseInsensitiveLookupsSearchIndex() {
+        assertIndexedWithoutSort(query(SeriesDao.COLLECTION_EXISTS, "Избранное"), "index_collections_name");
+        assertIndexedWithoutSort(query(SeriesDao.SERIES_EXISTS, "Lost"), "index_series_title");
+        assertIndexedWithoutSort(query(SeriesDao.COLLECTION_EXISTS_EXCLUDE_ID, "Избранное", 1),
+                "index_collections_name");
+
+        // Проверки при восстановлении
+        assertIndexedWithoutSort(query(SeriesDao.COLLECTION_BY_NAME, "Избранное"), "index_collections_name");
+        assertIndexedWithoutSort(query(SeriesDao.SERIES_BY_TITLE, "Lost"), "index_series_title");
+    }
+
+    @Test
+    public void ftsSearchUsesFullTextIndex() {
+        // Строки находятся по индексу FTS, а сами записи - по docid, без просмотра таблиц
+        String matchQuery = FtsSearch.toMatchQuery("lost");
+        String titleMatchQuery = FtsSearch.toColumnMatchQuery("lost", "title");
+        SupportSQLiteQuery seriesSearch = query(SeriesDao.SEARCH_SERIES, matchQuery, titleMatchQuery, 50, 0);
+        assertFullTextSearch(seriesSearch, "series_fts", "s");
+        // Совпадения в названии отбираются один раз, а не заново для каждой найденной строки
+        List<String> plan = explain(seriesSearch);
+        assertFalse(seriesSearch.getSql() + " -> " + plan, contains(plan, "CORRELATED"));
+        assertFullTextSearch(query(SeriesDao.SEARCH_COLLECTIONS, matchQuery, 50, 0), "collections_fts", "c");
+    }
+
+    @Test
+    public void backupPagesSeekByKey() {
+        // Каждая страница начинается с поиска по ключу и читается в порядке ключа
+        assertRowIdSeekWithoutSort(query(SeriesDao.COLLECTIONS_PAGE, 100, 500), "collections");
+        assertRowIdSeekWithoutSort(query(SeriesDao.SERIES_PAGE, 100, 500), "series");
+        assertRowIdSeekWithoutSort(query(SeriesDao.MEDIA_FILES_PAGE, 100, 500), "media_files");
+
+        // Связи - по первичному ключу (seriesId, collectionId)
+        assertIndexedWithoutSort(query(SeriesDao.RELATIONS_PAGE, 100, 2, 500),
+                "sqlite_autoindex_series_collection_cross_ref_1");
+    }
+
+    @Test
+    public void changeJournalReadsSearchIdRange() {
+        // Читается только диапазон журнала после прошлой копии; сортируются только его строки
+        assertJournalRangeSearch(query(SeriesDao.CHANGED_ROW_IDS, "series", 100, 200));
+        assertJournalRangeSearch(query(SeriesDao.CHANGED_RELATION_KEYS, 100, 200));
+    }
+
+    private static SupportSQLiteQuery query(String sql, Object... args) {
+        // Именованные параметры SQLite нумерует по первому появлению - в порядке аргументов метода DAO
+        return new SimpleSQLiteQuery(sql, args);
+    }
+
+    private void assertFullTextSearch(SupportSQLiteQuery query, String ftsTable, String tableAlias) {
+        List<String> plan = explain(query);
+        String message = query.getSql() + " -> " + plan;
+        assertTrue(message, contains(plan, ftsTable + " VIRTUAL TABLE INDEX"));
+        // INDEX 0 - полный просмотр таблицы FTS
+        assertFalse(message, contains(plan, ftsTable + " VIRTUAL TABLE INDEX 0:"));
+        assertTrue(message, contains(plan, "SEARCH " + tableAlias + " USING INTEGER PRIMARY KEY"));
+    }
+
+    private void assertRowIdSeekWithoutSort(SupportSQLiteQuery query, String table) {
+        List<String> plan = explain(query);
+        String message = query.getSql() + " -> " + plan;
+        assertTrue(message, contains(plan, "SEARCH " + table + " USING INTEGER PRIMARY KEY (rowid>?)"));
+        assertFalse(message, contains(plan, "USE TEMP B-TREE"));
+    }
+
+    private void assertJournalRangeSearch(SupportSQLiteQuery query) {
+        List<String> plan = explain(query);
+        String message = query.getSql() + " -> " + plan;
+        assertTrue(message, contains(plan, "SEARCH change_journal USING INTEGER PRIMARY KEY (rowid>? AND rowid<?)"));
+    }
+
+    private void assertIndexedWithoutSort(SupportSQLiteQuery query, String index) {
+        List<String> plan = explain(query);
+        String message = query.getSql() + " -> " + plan;
+        assertTrue(message, contains(plan, "USING INDEX " + index) || contains(plan, "USING COVERING INDEX " + index));
+        assertFalse(message, contains(plan, "USE TEMP B-TREE"));
+    }
+
+    private List<String> explain(SupportSQLiteQuery query) {
+        SupportSQLiteQuery explainQuery = new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        };
+
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase().query(explainQuery)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        }
+        return plan;
+    }
+
+    private static boolean contains(List<String> plan, String step) {
+        for (String detail : plan) {
+            if (detail.contains(step)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
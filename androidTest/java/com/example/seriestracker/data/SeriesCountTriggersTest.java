@@ -0,0 +1,88 @@
+package com.example.seriestracker.data;
+
+import static org.junit.Assert.assertEquals;
+
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.seriestracker.data.dao.SeriesDao;
+import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * collections.seriesCount, который поддерживают триггеры, должен совпадать с числом связей коллекции
+ */
+@RunWith(AndroidJUnit4.class)
+public class SeriesCountTriggersTest {
+    private SeriesDatabase database;
+    private SeriesDao dao;
+
+    @Before
+    public void setUp() {
+        database = SeriesDatabase.createInMemory(ApplicationProvider.getApplicationContext());
+        dao = database.seriesDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void upsertOfExportedRelationsKeepsSeriesCount() {
+        long collectionId = dao.insertCollectionSync(new Collection("Избранное"));
+        long firstId = dao.insertSeriesSync(new Series("Lost"));
+        long secondId = dao.insertSeriesSync(new Series("Dark"));
+        dao.insertCrossRefsSync(Collections.singletonList(new SeriesCollectionCrossRef(firstId, collectionId)));
+        assertSeriesCountMatchesRelations(collectionId, 1);
+
+        // Инкрементальная копия выгружает измененную связь повторно вместе с новой
+        SeriesCollectionCrossRef changed = new SeriesCollectionCrossRef(firstId, collectionId);
+        changed.setIsWatched(true);
+        SeriesCollectionCrossRef added = new SeriesCollectionCrossRef(secondId, collectionId);
+        dao.upsertCrossRefsSync(Arrays.asList(changed, added));
+        assertSeriesCountMatchesRelations(collectionId, 2);
+
+        // Повторное применение той же копии ничего не меняет
+        dao.upsertCrossRefsSync(Arrays.asList(changed, added));
+        assertSeriesCountMatchesRelations(collectionId, 2);
+        assertEquals(1, queryLong("SELECT isWatched FROM series_collection_cross_ref " +
+                "WHERE seriesId = " + firstId + " AND collectionId = " + collectionId));
+    }
+
+    @Test
+    public void deleteOfRelationsKeepsSeriesCount() {
+        long collectionId = dao.insertCollectionSync(new Collection("Досмотреть"));
+        long seriesId = dao.insertSeriesSync(new Series("Severance"));
+        SeriesCollectionCrossRef relation = new SeriesCollectionCrossRef(seriesId, collectionId);
+        dao.insertCrossRefsSync(Collections.singletonList(relation));
+
+        dao.deleteCrossRefsSync(Collections.singletonList(relation));
+        assertSeriesCountMatchesRelations(collectionId, 0);
+    }
+
+    private void assertSeriesCountMatchesRelations(long collectionId, long expected) {
+        long relations = queryLong("SELECT COUNT(*) FROM series_collection_cross_ref WHERE collectionId = " + collectionId);
+        long seriesCount = queryLong("SELECT seriesCount FROM collections WHERE id = " + collectionId);
+        assertEquals(expected, relations);
+        assertEquals(relations, seriesCount);
+    }
+
+    private long queryLong(String sql) {
+        try (Cursor cursor = database.getOpenHelper().getReadableDatabase().query(sql)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
\ No newline at end of file
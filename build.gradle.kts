@@ -40,6 +40,15 @@ android {
     kotlinOptions {
         jvmTarget = "1.8"
     }
+
+    testOptions {
+        // Log и другие методы android.jar в локальных тестах возвращают значения по умолчанию
+        unitTests.isReturnDefaultValues = true
+        unitTests.all {
+            // Бенчмарки пропускаются, если не запущены с ./gradlew testDebugUnitTest -Pbenchmarks
+            it.systemProperty("seriestracker.benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
 }
 
 dependencies {
@@ -56,6 +65,10 @@ dependencies {
     implementation("androidx.room:room-runtime:$room_version")
     kapt("androidx.room:room-compiler:$room_version")
     implementation("androidx.room:room-ktx:$room_version")
+    implementation("androidx.room:room-paging:$room_version")
+
+    // Paging для постраничной загрузки длинных списков
+    implementation("androidx.paging:paging-runtime:3.2.1")
 
     // ViewModel и LiveData
     implementation("androidx.lifecycle:lifecycle-viewmodel-ktx:2.7.0")
@@ -69,6 +82,10 @@ dependencies {
     // Для загрузки изображений
     implementation("com.github.bumptech.glide:glide:4.16.0")
     kapt("com.github.bumptech.glide:compiler:4.16.0")
+    // RecyclerViewPreloader для предзагрузки обложек при прокрутке списков
+    implementation("com.github.bumptech.glide:recyclerview-integration:4.16.0") {
+        isTransitive = false
+    }
 
     // Для круглых изображений
     implementation("de.hdodenhof:circleimageview:3.1.0")
@@ -4,6 +4,7 @@ import android.app.Application;
 import android.content.SharedPreferences;
 
 import com.example.seriestracker.data.backup.AutoBackupManager;
+import com.example.seriestracker.data.media.MediaImporter;
 import com.example.seriestracker.data.repository.SeriesRepository;
 
 public class SeriesTrackerApp extends Application {
@@ -20,6 +21,9 @@ public class SeriesTrackerApp extends Application {
 
         // Проверяем наличие бэкапов при запуске приложения
         checkForBackupsOnStartup(backupManager, repository);
+
+        // Удаляем недокопированные файлы отмененных импортов
+        MediaImporter.getInstance(this).cleanupStaleImports();
     }
 
     private SeriesRepository initializeRepository() {
@@ -0,0 +1,275 @@
+package com.example.seriestracker.data;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общие потоки для работы с базой данных.
+ *
+ * - writer: один поток, все записи выполняются строго по очереди (SQLite допускает одного писателя);
+ * - readers: ограниченный пул для чтения. В режиме WAL читатели не ждут писателя и друг друга,
+ *   поэтому снимок для резервной копии и поиск из UI выполняются параллельно с записью;
+ * - jobs: один поток для длительных операций (резервное копирование, восстановление),
+ *   которые сами ставят задачи в writer и readers и ждут их результата.
+ *
+ * Для writer и readers ведутся метрики: глубина очереди, время ожидания и выполнения задач.
+ */
+public final class DatabaseExecutors {
+    private static final String TAG = "DatabaseExecutors";
+
+    // Room в режиме WAL открывает до 4 соединений для чтения, больше потоков не нужно
+    private static final int READER_POOL_SIZE =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Задачи дольше этого порога (ожидание + выполнение) пишутся в лог
+    private static final long SLOW_TASK_MS = 500;
+
+    private static volatile DatabaseExecutors instance;
+
+    private final MeteredExecutor writer;
+    private final MeteredExecutor readers;
+    private final ExecutorService jobs;
+
+    private DatabaseExecutors() {
+        writer = new MeteredExecutor("db-writer", 1);
+        readers = new MeteredExecutor("db-reader", READER_POOL_SIZE);
+        jobs = Executors.newSingleThreadExecutor(new NamedThreadFactory("db-jobs"));
+    }
+
+    public static DatabaseExecutors getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseExecutors.class) {
+                if (instance == null) {
+                    instance = new DatabaseExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Очередь записи: вставки, обновления, удаления и транзакции
+     */
+    public ExecutorService writer() {
+        return writer;
+    }
+
+    /**
+     * Пул чтения: запросы *Sync, поиск, страницы резервной копии, запросы LiveData Room
+     */
+    public ExecutorService readers() {
+        return readers;
+    }
+
+    /**
+     * Поток для длительных операций, которые ждут результатов writer и readers.
+     * Такие операции нельзя запускать в самих writer/readers - пул заблокирует сам себя.
+     */
+    public ExecutorService jobs() {
+        return jobs;
+    }
+
+    public Stats getWriterStats() {
+        return writer.snapshot();
+    }
+
+    public Stats getReaderStats() {
+        return readers.snapshot();
+    }
+
+    public void logStats() {
+        Log.i(TAG, getWriterStats().toString());
+        Log.i(TAG, getReaderStats().toString());
+    }
+
+    /**
+     * Снимок метрик одной очереди
+     */
+    public static final class Stats {
+        public final String name;
+        public final long completedTasks;
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final long averageWaitMs;
+        public final long maxWaitMs;
+        public final long averageRunMs;
+        public final long maxRunMs;
+
+        Stats(String name, long completedTasks, int queueDepth, int maxQueueDepth,
+              long averageWaitMs, long maxWaitMs, long averageRunMs, long maxRunMs) {
+            this.name = name;
+            this.completedTasks = completedTasks;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.averageRunMs = averageRunMs;
+            this.maxRunMs = maxRunMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %d tasks, queue %d (max %d), wait avg %d ms / max %d ms, run avg %d ms / max %d ms",
+                    name, completedTasks, queueDepth, maxQueueDepth,
+                    averageWaitMs, maxWaitMs, averageRunMs, maxRunMs);
+        }
+    }
+
+    /**
+     * Пул с замером времени ожидания в очереди и времени выполнения задач.
+     * submit из потока самого пула выполняет задачу сразу: иначе вложенный *Sync вызов
+     * ждал бы свободного потока, которого при занятом пуле может не появиться.
+     */
+    private static final class MeteredExecutor extends ThreadPoolExecutor {
+        private final String name;
+        private final ThreadLocal<Boolean> ownThread = new ThreadLocal<>();
+        private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong completedTasks = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        MeteredExecutor(String name, int threads) {
+            super(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(name));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            int depth = queueDepth.incrementAndGet();
+            updateMax(maxQueueDepth, depth);
+            super.execute(new TimedTask(command, System.nanoTime()));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            if (isOwnThread()) {
+                FutureTask<T> future = new FutureTask<>(task);
+                future.run();
+                return future;
+            }
+            return super.submit(task);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            if (isOwnThread()) {
+                FutureTask<?> future = new FutureTask<>(task, null);
+                future.run();
+                return future;
+            }
+            return super.submit(task);
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            super.beforeExecute(thread, runnable);
+            ownThread.set(Boolean.TRUE);
+            queueDepth.decrementAndGet();
+            long now = System.nanoTime();
+            startTime.set(now);
+            if (runnable instanceof TimedTask) {
+                long waitNanos = now - ((TimedTask) runnable).enqueuedAt;
+                totalWaitNanos.addAndGet(waitNanos);
+                updateMax(maxWaitNanos, waitNanos);
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            long end = System.nanoTime();
+            long runNanos = end - startTime.get();
+            totalRunNanos.addAndGet(runNanos);
+            updateMax(maxRunNanos, runNanos);
+            completedTasks.incrementAndGet();
+
+            if (runnable instanceof TimedTask) {
+                long totalMs = TimeUnit.NANOSECONDS.toMillis(end - ((TimedTask) runnable).enqueuedAt);
+                if (totalMs >= SLOW_TASK_MS) {
+                    Log.w(TAG, String.format(Locale.US, "%s: slow task, waited %d ms, ran %d ms, queue %d",
+                            name, totalMs - TimeUnit.NANOSECONDS.toMillis(runNanos),
+                            TimeUnit.NANOSECONDS.toMillis(runNanos), queueDepth.get()));
+                }
+            }
+        }
+
+        Stats snapshot() {
+            long completed = completedTasks.get();
+            long divisor = Math.max(1, completed);
+            return new Stats(name, completed, queueDepth.get(), maxQueueDepth.get(),
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / divisor),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                    TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / divisor),
+                    TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+        }
+
+        private boolean isOwnThread() {
+            return Boolean.TRUE.equals(ownThread.get());
+        }
+
+        private static void updateMax(AtomicInteger max, int value) {
+            int current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // повторяем, пока не запишем максимум
+            }
+        }
+
+        private static void updateMax(AtomicLong max, long value) {
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // повторяем, пока не запишем максимум
+            }
+        }
+    }
+
+    /**
+     * Задача с временем постановки в очередь
+     */
+    private static final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedAt;
+
+        TimedTask(Runnable delegate, long enqueuedAt) {
+            this.delegate = delegate;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+        }
+    }
+}
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.example.seriestracker.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
@@ -11,14 +13,18 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.seriestracker.data.dao.SeriesDao;
+import com.example.seriestracker.data.entities.ChangeJournalEntry;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.CollectionFts;
 import com.example.seriestracker.data.entities.MediaFile;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesFts;
 import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
 
 @Database(
-        entities = {Series.class, Collection.class, SeriesCollectionCrossRef.class,  MediaFile.class},
-        version = 11,
+        entities = {Series.class, Collection.class, SeriesCollectionCrossRef.class,  MediaFile.class,
+                ChangeJournalEntry.class, SeriesFts.class, CollectionFts.class},
+        version = 17,
         exportSchema = false
 )
 public abstract class SeriesDatabase extends RoomDatabase {
@@ -54,6 +60,260 @@ public abstract class SeriesDatabase extends RoomDatabase {
         }
     };
 
+    // Миграция с версии 11 на 12: журнал изменений для инкрементального резервного копирования
+    private static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS change_journal (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "tableName TEXT, " +
+                    "rowId INTEGER NOT NULL, " +
+                    "secondaryId INTEGER NOT NULL)");
+        }
+    };
+
+    // Миграция с версии 12 на 13: полнотекстовые индексы для поиска.
+    // SQL повторяет то, что Room генерирует для SeriesFts и CollectionFts
+    private static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `series_fts` USING FTS4(" +
+                    "`title` TEXT, `notes` TEXT, `genre` TEXT, `description` TEXT, " +
+                    "tokenize=unicode61, content=`series`)");
+            createFtsContentSyncTriggers(database, "series_fts", "series",
+                    "title", "notes", "genre", "description");
+            database.execSQL("INSERT INTO series_fts(series_fts) VALUES ('rebuild')");
+
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `collections_fts` USING FTS4(" +
+                    "`name` TEXT, tokenize=unicode61, content=`collections`)");
+            createFtsContentSyncTriggers(database, "collections_fts", "collections", "name");
+            database.execSQL("INSERT INTO collections_fts(collections_fts) VALUES ('rebuild')");
+        }
+    };
+
+    // Миграция с версии 13 на 14: title сравнивается без учета регистра (COLLATE NOCASE)
+    // и индексы под сортировки списка сериалов. Сменить collation колонки в SQLite можно
+    // только пересозданием таблицы; Room выполняет миграции с отключенными внешними ключами,
+    // поэтому DROP TABLE не удаляет каскадно связи и медиафайлы
+    private static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Уникальный индекс становится регистронезависимым: названия, отличающиеся только
+            // регистром, получают суффикс с ID вместо потери строк при копировании
+            database.execSQL("UPDATE series SET title = title || ' (' || id || ')' " +
+                    "WHERE title IS NOT NULL AND id NOT IN " +
+                    "(SELECT MIN(id) FROM series WHERE title IS NOT NULL GROUP BY title COLLATE NOCASE)");
+
+            String columns = "`id`, `title`, `imageUri`, `isWatched`, `notes`, `createdAt`, `description`, " +
+                    "`status`, `isFavorite`, `rating`, `genre`, `seasons`, `episodes`";
+            database.execSQL("CREATE TABLE IF NOT EXISTS `series_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT COLLATE NOCASE, " +
+                    "`imageUri` TEXT, `isWatched` INTEGER NOT NULL, `notes` TEXT, `createdAt` INTEGER NOT NULL, " +
+                    "`description` TEXT, `status` TEXT, `isFavorite` INTEGER NOT NULL, `rating` INTEGER NOT NULL, " +
+                    "`genre` TEXT, `seasons` INTEGER NOT NULL, `episodes` INTEGER NOT NULL)");
+            database.execSQL("INSERT INTO `series_new` (" + columns + ") SELECT " + columns + " FROM `series`");
+            database.execSQL("DROP TABLE `series`");
+            database.execSQL("ALTER TABLE `series_new` RENAME TO `series`");
+
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_series_title` ON `series` (`title`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_series_favorite_title_asc` " +
+                    "ON `series` (`isFavorite` DESC, `title` ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_series_favorite_title_desc` " +
+                    "ON `series` (`isFavorite` DESC, `title` DESC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_series_favorite_episodes_asc` " +
+                    "ON `series` (`isFavorite` DESC, `episodes` ASC, `title` ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_series_favorite_episodes_desc` " +
+                    "ON `series` (`isFavorite` DESC, `episodes` DESC, `title` ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_series_status` ON `series` (`status`)");
+
+            // Триггеры удаляются вместе со старой таблицей. ID сохранены, поэтому series_fts
+            // перестраивать не нужно. Триггеры журнала изменений для series пропадают тоже: их заново
+            // создает setChangeJournalEnabled (AutoBackupManager.syncChangeJournal при запуске),
+            // он видит неполный набор триггеров и пересоздает его
+            createFtsContentSyncTriggers(database, "series_fts", "series",
+                    "title", "notes", "genre", "description");
+        }
+    };
+
+    // Миграция с версии 14 на 15: name коллекций сравнивается без учета регистра (COLLATE NOCASE)
+    // и индексы для проверки существования и сортировки списка. Таблица пересоздается так же,
+    // как series в MIGRATION_13_14
+    private static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            String columns = "`id`, `name`, `createdAt`, `isFavorite`, `colors`, `seriesCount`";
+            database.execSQL("CREATE TABLE IF NOT EXISTS `collections_new` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT COLLATE NOCASE, " +
+                    "`createdAt` INTEGER NOT NULL, `isFavorite` INTEGER NOT NULL, `colors` TEXT, " +
+                    "`seriesCount` INTEGER NOT NULL)");
+            database.execSQL("INSERT INTO `collections_new` (" + columns + ") SELECT " + columns + " FROM `collections`");
+            database.execSQL("DROP TABLE `collections`");
+            database.execSQL("ALTER TABLE `collections_new` RENAME TO `collections`");
+
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_collections_name` ON `collections` (`name`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_collections_favorite_name_asc` " +
+                    "ON `collections` (`isFavorite` DESC, `name` ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_collections_favorite_name_desc` " +
+                    "ON `collections` (`isFavorite` DESC, `name` DESC)");
+
+            createFtsContentSyncTriggers(database, "collections_fts", "collections", "name");
+        }
+    };
+
+    /**
+     * Создает триггеры синхронизации FTS-таблицы с таблицей содержимого с теми же именами,
+     * что и у Room, чтобы проверка схемы после миграции совпадала
+     */
+    private static void createFtsContentSyncTriggers(SupportSQLiteDatabase db, String ftsTable,
+                                                     String contentTable, String... columns) {
+        String columnList = "`" + String.join("`, `", columns) + "`";
+        StringBuilder newValues = new StringBuilder();
+        for (String column : columns) {
+            newValues.append(", NEW.`").append(column).append("`");
+        }
+        String prefix = "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable + "_";
+
+        db.execSQL(prefix + "BEFORE_UPDATE BEFORE UPDATE ON `" + contentTable + "` BEGIN " +
+                "DELETE FROM `" + ftsTable + "` WHERE `docid`=OLD.`rowid`; END");
+        db.execSQL(prefix + "BEFORE_DELETE BEFORE DELETE ON `" + contentTable + "` BEGIN " +
+                "DELETE FROM `" + ftsTable + "` WHERE `docid`=OLD.`rowid`; END");
+        db.execSQL(prefix + "AFTER_UPDATE AFTER UPDATE ON `" + contentTable + "` BEGIN " +
+                "INSERT INTO `" + ftsTable + "`(`docid`, " + columnList + ") " +
+                "VALUES (NEW.`rowid`" + newValues + "); END");
+        db.execSQL(prefix + "AFTER_INSERT AFTER INSERT ON `" + contentTable + "` BEGIN " +
+                "INSERT INTO `" + ftsTable + "`(`docid`, " + columnList + ") " +
+                "VALUES (NEW.`rowid`" + newValues + "); END");
+    }
+
+    // Миграция с версии 15 на 16: collections.seriesCount хранится в таблице и поддерживается
+    // триггерами, индексы для сортировки по количеству сериалов
+    private static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("UPDATE collections SET seriesCount = " +
+                    "(SELECT COUNT(*) FROM series_collection_cross_ref WHERE collectionId = collections.id)");
+            createSeriesCountTriggers(database);
+
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_collections_favorite_count_asc` " +
+                    "ON `collections` (`isFavorite` DESC, `seriesCount` ASC, `name` ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_collections_favorite_count_desc` " +
+                    "ON `collections` (`isFavorite` DESC, `seriesCount` DESC, `name` ASC)");
+        }
+    };
+
+    // Путь к превью медиафайла (MediaThumbnails)
+    private static final Migration MIGRATION_16_17 = new Migration(16, 17) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE media_files ADD COLUMN thumbnailPath TEXT");
+        }
+    };
+
+    // Триггеры счетчиков сериалов создаются при каждом открытии БД (IF NOT EXISTS),
+    // поэтому они есть и после миграции, и после пересоздания БД.
+    // Триггеры журнала изменений создаются только вместе с автоматическими копиями (setChangeJournalEnabled)
+    private static final RoomDatabase.Callback TRIGGERS_CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            createSeriesCountTriggers(db);
+        }
+    };
+
+    // Таблицы журнала изменений: имя, столбец ID и второй столбец ключа (для связей)
+    private static final String[][] JOURNAL_TABLES = {
+            {"series", "id", null},
+            {"collections", "id", null},
+            {"media_files", "id", null},
+            {"series_collection_cross_ref", "seriesId", "collectionId"}
+    };
+    private static final String[][] JOURNAL_EVENTS = {{"insert", "INSERT", "NEW"}, {"update", "UPDATE", "NEW"}, {"delete", "DELETE", "OLD"}};
+
+    /**
+     * Создает триггеры, поддерживающие collections.seriesCount равным числу связей коллекции.
+     * Вставка и удаление связи меняют счетчик на 1. Room записывает seriesCount вместе с остальными
+     * полями при вставке и обновлении коллекции (значение из восстановленной копии или устаревшего
+     * объекта), поэтому после таких записей счетчик пересчитывается. Обновление коллекции Room
+     * всегда включает name, а триггеры связей меняют только seriesCount - пересчет срабатывает
+     * только на записи из приложения.
+     */
+    private static void createSeriesCountTriggers(SupportSQLiteDatabase db) {
+        String recount = "UPDATE collections SET seriesCount = " +
+                "(SELECT COUNT(*) FROM series_collection_cross_ref WHERE collectionId = NEW.id) WHERE id = NEW.id; ";
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS series_count_relation_insert " +
+                "AFTER INSERT ON series_collection_cross_ref BEGIN " +
+                "UPDATE collections SET seriesCount = seriesCount + 1 WHERE id = NEW.collectionId; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS series_count_relation_delete " +
+                "AFTER DELETE ON series_collection_cross_ref BEGIN " +
+                "UPDATE collections SET seriesCount = seriesCount - 1 WHERE id = OLD.collectionId; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS series_count_relation_move " +
+                "AFTER UPDATE OF collectionId ON series_collection_cross_ref " +
+                "WHEN OLD.collectionId <> NEW.collectionId BEGIN " +
+                "UPDATE collections SET seriesCount = seriesCount - 1 WHERE id = OLD.collectionId; " +
+                "UPDATE collections SET seriesCount = seriesCount + 1 WHERE id = NEW.collectionId; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS series_count_collection_insert " +
+                "AFTER INSERT ON collections BEGIN " + recount + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS series_count_collection_update " +
+                "AFTER UPDATE OF name ON collections BEGIN " + recount + "END");
+    }
+
+    /**
+     * Создает триггеры AFTER INSERT/UPDATE/DELETE, записывающие ключ измененной строки в change_journal
+     */
+    private static void createJournalTriggers(SupportSQLiteDatabase db, String table,
+                                              String idColumn, String secondaryIdColumn) {
+        for (String[] event : JOURNAL_EVENTS) {
+            String row = event[2];
+            String secondaryId = secondaryIdColumn != null ? row + "." + secondaryIdColumn : "0";
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS journal_" + table + "_" + event[0] +
+                    " AFTER " + event[1] + " ON " + table + " BEGIN " +
+                    "INSERT INTO change_journal (tableName, rowId, secondaryId) VALUES ('" +
+                    table + "', " + row + "." + idColumn + ", " + secondaryId + "); END");
+        }
+    }
+
+    /**
+     * Включает или выключает журнал изменений. Журнал нужен только инкрементальным копиям и очищается
+     * только ими, поэтому его триггеры существуют, пока включены автоматические копии: иначе журнал
+     * рос бы на каждой записи. При выключении журнал очищается.
+     * Вызывается в потоке writer.
+     * @return true, если состояние журнала изменилось (после включения в журнале нет более ранних изменений)
+     */
+    public boolean setChangeJournalEnabled(boolean enabled) {
+        SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+        int triggerCount = countJournalTriggers(db);
+        if (triggerCount == (enabled ? JOURNAL_TABLES.length * JOURNAL_EVENTS.length : 0)) {
+            return false;
+        }
+
+        db.beginTransaction();
+        try {
+            for (String[] table : JOURNAL_TABLES) {
+                if (enabled) {
+                    createJournalTriggers(db, table[0], table[1], table[2]);
+                } else {
+                    for (String[] event : JOURNAL_EVENTS) {
+                        db.execSQL("DROP TRIGGER IF EXISTS journal_" + table[0] + "_" + event[0]);
+                    }
+                }
+            }
+            if (!enabled) {
+                db.execSQL("DELETE FROM change_journal");
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.i("SeriesDatabase", "Change journal " + (enabled ? "enabled" : "disabled"));
+        return true;
+    }
+
+    private static int countJournalTriggers(SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name GLOB 'journal_*'")) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
     private static volatile SeriesDatabase INSTANCE;
 
     public static SeriesDatabase getDatabase(final Context context) {
@@ -65,7 +325,13 @@ public abstract class SeriesDatabase extends RoomDatabase {
                                     SeriesDatabase.class,
                                     "series_database"
                             )
-                            .addMigrations(MIGRATION_1_2)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_11_12, MIGRATION_12_13,
+                                    MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17)
+                            .addCallback(TRIGGERS_CALLBACK)
+                            // WAL: читатели не блокируются записью, запросы LiveData и *Sync
+                            // выполняются в общем пуле чтения (см. DatabaseExecutors)
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .setQueryExecutor(DatabaseExecutors.getInstance().readers())
                             .fallbackToDestructiveMigration()  // Удалит БД при ошибках
                             .build();
                 }
@@ -74,4 +340,15 @@ public abstract class SeriesDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    /**
+     * БД в памяти с теми же триггерами, что и рабочая; для инструментальных тестов
+     */
+    @VisibleForTesting
+    static SeriesDatabase createInMemory(Context context) {
+        return Room.inMemoryDatabaseBuilder(context.getApplicationContext(), SeriesDatabase.class)
+                .addCallback(TRIGGERS_CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+    }
+
 }
\ No newline at end of file
@@ -8,35 +8,52 @@ import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.os.Build;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
 import android.provider.OpenableColumns;
 import android.util.Log;
-import java.util.UUID;
 
+import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
-
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.room.InvalidationTracker;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.example.seriestracker.data.DatabaseExecutors;
+import com.example.seriestracker.data.SeriesDatabase;
+
+import com.example.seriestracker.data.entities.ChangeJournalEntry;
 import com.example.seriestracker.data.entities.Collection;
 import com.example.seriestracker.data.entities.Series;
 import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
 import com.example.seriestracker.data.entities.MediaFile;
 import com.example.seriestracker.data.repository.SeriesRepository;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
+import java.io.Reader;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import android.content.ContentResolver;
 import android.net.Uri;
@@ -52,11 +69,33 @@ public class AutoBackupManager {
     private static final String KEY_AUTO_BACKUP_ENABLED = "auto_backup_enabled";
     private static final String KEY_FIRST_LAUNCH = "first_launch";
 
+    // Состояние инкрементального резервного копирования
+    private static final String KEY_BASE_BACKUP = "base_backup_name";       // JSON последнего полного снимка
+    private static final String KEY_DELTA_SEQUENCE = "delta_sequence";      // Номер последней инкрементальной копии
+    private static final String KEY_LAST_JOURNAL_ID = "last_change_journal_id"; // Журнал учтен до этого ID
+    private static final String DELTA_SUFFIX = "_delta_";
+
+    // После стольких инкрементальных копий снова делается полный снимок
+    private static final int FULL_BACKUP_INTERVAL = 20;
+
+    // Автоматическая копия запускается через WorkManager после паузы в изменениях
+    private static final String AUTO_BACKUP_WORK_NAME = "auto_backup";
+    private static final long BACKUP_QUIET_PERIOD_MINUTES = 5;
+
+    // Размер страницы при потоковом чтении данных из БД для резервной копии
+    private static final int BACKUP_PAGE_SIZE = 500;
+
+    // Разделы JSON объединенной копии в порядке записи (createConsolidatedBackup)
+    private static final String[] CONSOLIDATION_SECTIONS = {"collections", "series", "relations", "mediaFiles"};
+
     private final Context context;
     private final SeriesRepository repository;
     private final Gson gson;
     private final ExecutorService executor;
+    // Параллельное копирование обложек и медиафайлов при резервном копировании и восстановлении
+    private final MediaCopyStage mediaCopyStage;
     private final SharedPreferences prefs;
+    private final InvalidationTracker.Observer dataChangeObserver;
 
     private static AutoBackupManager instance;
 
@@ -71,11 +110,25 @@ public class AutoBackupManager {
         this.context = context.getApplicationContext();
         this.repository = repository;
         this.gson = new Gson();
-        this.executor = Executors.newSingleThreadExecutor();
+        // Длительные операции выполняются в общем потоке заданий, запросы к БД - в writer и readers
+        this.executor = DatabaseExecutors.getInstance().jobs();
+        this.mediaCopyStage = new MediaCopyStage();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
 
         // Помечаем первый запуск, если нужно
         checkFirstLaunch();
+        // Журнал изменений мог остаться от прежней версии или пропасть при пересоздании БД
+        executor.execute(this::syncChangeJournal);
+
+        // Любое изменение основных таблиц планирует автоматическую копию
+        this.dataChangeObserver = new InvalidationTracker.Observer(
+                "series", "collections", "series_collection_cross_ref", "media_files") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                onDataCreatedOrUpdated("update", String.join(", ", tables));
+            }
+        };
+        SeriesDatabase.getDatabase(this.context).getInvalidationTracker().addObserver(dataChangeObserver);
     }
 
     private void checkFirstLaunch() {
@@ -88,617 +141,861 @@ public class AutoBackupManager {
     }
 
     /**
-     * Вызывается ТОЛЬКО при создании или изменении данных (не при удалении)
+     * Вызывается при изменении данных. Сама копия не создается, а только планируется:
+     * серия изменений дает одну копию после паузы (см. scheduleAutoBackup).
      */
     public void onDataCreatedOrUpdated(String changeType, String dataType) {
-        if (!isAutoBackupEnabled() || "delete".equals(changeType)) {
-            return; // Не делаем бэкап при удалении
+        if (!isAutoBackupEnabled()) {
+            return;
         }
 
-        executor.execute(() -> {
-            try {
-                createBackup();
-            } catch (Exception e) {
-                Log.e(TAG, "Auto backup failed", e);
-            }
-        });
+        Log.d(TAG, "Data changed (" + changeType + ": " + dataType + "), scheduling auto backup");
+        scheduleAutoBackup();
+    }
+
+    /**
+     * Планирует автоматическую копию как уникальную работу WorkManager.
+     * Каждый вызов заменяет еще не выполненную работу (REPLACE) и заново отсчитывает
+     * BACKUP_QUIET_PERIOD_MINUTES, поэтому копия создается один раз после того, как изменения
+     * прекратились, и только когда устройство простаивает и заряжается.
+     */
+    public void scheduleAutoBackup() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BackupWorker.class)
+                .setInitialDelay(BACKUP_QUIET_PERIOD_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(AUTO_BACKUP_WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    /**
+     * Состояние запланированной автоматической копии: ENQUEUED - ожидает паузы и условий,
+     * RUNNING - выполняется, null - не запланирована
+     */
+    public LiveData<WorkInfo.State> getAutoBackupState() {
+        return Transformations.map(
+                WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(AUTO_BACKUP_WORK_NAME),
+                workInfos -> {
+                    if (workInfos != null) {
+                        for (WorkInfo workInfo : workInfos) {
+                            if (!workInfo.getState().isFinished()) {
+                                return workInfo.getState();
+                            }
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Создает автоматическую (инкрементальную) копию в текущем потоке. Вызывается из BackupWorker.
+     */
+    boolean createAutoBackupSync() {
+        try {
+            return createBackup(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Auto backup failed", e);
+            return false;
+        }
     }
 
     public void createManualBackup() {
         executor.execute(() -> {
             try {
-                createBackup();
+                createBackup(false);
             } catch (Exception e) {
                 Log.e(TAG, "Manual backup failed", e);
             }
         });
     }
 
-    private void createBackup() {
-        try {
-            Log.d(TAG, "Creating backup...");
-
-            // Получаем данные
-            List<Collection> collections = repository.getAllCollectionsSync();
-            List<Series> series = repository.getAllSeriesSync();
-            List<SeriesCollectionCrossRef> relations = repository.getAllRelationsSync();
-            List<MediaFile> mediaFiles = repository.getAllMediaFilesSync();
+    /**
+     * Создает резервную копию. Автоматические копии инкрементальные: в них попадают только
+     * строки, измененные с прошлой копии (по журналу изменений). Ручная копия, первая копия
+     * и каждая FULL_BACKUP_INTERVAL-я копия - полный снимок.
+     * Синхронизирован: ручная копия и запуск BackupWorker не выполняются одновременно.
+     */
+    private synchronized boolean createBackup(boolean incremental) {
+        String baseName = prefs.getString(KEY_BASE_BACKUP, null);
+        int sequence = prefs.getInt(KEY_DELTA_SEQUENCE, 0);
 
-            if (collections == null || series == null || relations == null || mediaFiles == null) {
-                Log.e(TAG, "Failed to get data for backup");
-                return;
+        if (incremental && baseName != null && sequence < FULL_BACKUP_INTERVAL
+                && new File(getBackupDirectory(), baseName).exists()) {
+            if (createDeltaBackup(baseName, sequence + 1)) {
+                return true;
             }
+            Log.w(TAG, "Incremental backup failed, creating full backup");
+        }
 
-            Log.d(TAG, "Data retrieved: " +
-                    collections.size() + " collections, " +
-                    series.size() + " series, " +
-                    relations.size() + " relations, " +
-                    mediaFiles.size() + " media files");
+        return createFullBackup();
+    }
+
+    private boolean createFullBackup() {
+        try {
+            Log.d(TAG, "Creating backup...");
 
-            // Создаем временную директорию для резервной копии
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
                     .format(new Date());
-            File tempBackupDir = new File(context.getCacheDir(), "temp_backup_" + timeStamp);
-            if (!tempBackupDir.exists() && !tempBackupDir.mkdirs()) {
-                Log.e(TAG, "Failed to create temporary backup directory");
-                return;
-            }
-
-            // Обновляем пути к медиафайлам, копируя файлы в директорию резервной копии
-            List<MediaFile> updatedMediaFiles = new ArrayList<>();
-            for (MediaFile mediaFile : mediaFiles) {
-                MediaFile updatedMediaFile = new MediaFile(
-                        mediaFile.getSeriesId(),
-                        mediaFile.getFileUri(),
-                        mediaFile.getFileType(),
-                        mediaFile.getFileName()
-                );
-                updatedMediaFile.setId(mediaFile.getId());
-                updatedMediaFile.setFilePath(mediaFile.getFilePath());
-                updatedMediaFile.setFileSize(mediaFile.getFileSize());
-                updatedMediaFile.setCreatedAt(mediaFile.getCreatedAt());
-                updatedMediaFile.setDescription(mediaFile.getDescription());
-
-                if (mediaFile.getFileUri() != null) {
-                    try {
-                        Uri fileUri = Uri.parse(mediaFile.getFileUri());
-                        String newRelativePath;
-
-                        // Проверяем, является ли URI внутренним файлом приложения (восстановленным из бэкапа)
-                        if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith(context.getFilesDir().getAbsolutePath())) {
-                            // Если это внутренний файл, передаем пустое имя файла, чтобы метод сам извлек оригинальное имя
-                            newRelativePath = BackupFileManager.copyInternalFileToBackupDir(
-                                    context,
-                                    mediaFile.getFileUri(),
-                                    "", // Передаем пустое имя файла, чтобы извлечь оригинальное имя из пути
-                                    tempBackupDir.getAbsolutePath(),
-                                    true // Всегда копируем файлы, даже если они уже существуют
-                            );
-                        } else {
-                            // Иначе это URI из галереи или другого источника
-                            newRelativePath = BackupFileManager.copyFileToBackupDir(
-                                    context,
-                                    fileUri,
-                                    mediaFile.getFileName(),
-                                    tempBackupDir.getAbsolutePath(),
-                                    true // Всегда копируем файлы, даже если они уже существуют
-                            );
-                        }
-
-                        if (newRelativePath != null) {
-                            updatedMediaFile.setFileUri(newRelativePath); // Сохраняем относительный путь
-                        }
-                    } catch (Exception e) {
-                        Log.w(TAG, "Could not backup media file: " + mediaFile.getFileName(), e);
-                        // Используем оригинальный URI, если не удалось скопировать файл
-                        updatedMediaFile.setFileUri(mediaFile.getFileUri());
-                    }
-                }
-                updatedMediaFiles.add(updatedMediaFile);
-            }
-
-            // Обновляем пути к изображениям обложек сериалов
-            List<Series> updatedSeries = new ArrayList<>();
-            for (Series seriesItem : series) {
-                Series updatedSeriesItem = new Series();
-                updatedSeriesItem.setId(seriesItem.getId());
-                updatedSeriesItem.setTitle(seriesItem.getTitle());
-                updatedSeriesItem.setIsWatched(seriesItem.getIsWatched());
-                updatedSeriesItem.setNotes(seriesItem.getNotes());
-                updatedSeriesItem.setCreatedAt(seriesItem.getCreatedAt());
-                updatedSeriesItem.setStatus(seriesItem.getStatus());
-                updatedSeriesItem.setIsFavorite(seriesItem.getIsFavorite());
-                updatedSeriesItem.setRating(seriesItem.getRating());
-                updatedSeriesItem.setGenre(seriesItem.getGenre());
-                updatedSeriesItem.setSeasons(seriesItem.getSeasons());
-                updatedSeriesItem.setEpisodes(seriesItem.getEpisodes());
-
-                if (seriesItem.getImageUri() != null) {
-                    try {
-                        String newRelativePath;
-
-                        // Проверяем, является ли URI внутренним файлом приложения (восстановленным из бэкапа)
-                        if (seriesItem.getImageUri() != null && seriesItem.getImageUri().startsWith(context.getFilesDir().getAbsolutePath())) {
-                            Log.d(TAG, "Backing up internal file: " + seriesItem.getImageUri());
-                            // Если это внутренний файл, передаем пустое имя файла, чтобы метод сам извлек оригинальное имя
-                            newRelativePath = BackupFileManager.copyInternalFileToBackupDir(
-                                    context,
-                                    seriesItem.getImageUri(),
-                                    "", // Передаем пустое имя файла, чтобы извлечь оригинальное имя из пути
-                                    tempBackupDir.getAbsolutePath(),
-                                    true // Всегда копируем файлы, даже если они уже существуют
-                            );
-                        } else {
-                            Uri imageUri = Uri.parse(seriesItem.getImageUri());
-
-                            // Получаем оригинальное имя файла из URI
-                            String originalFileName = getFileNameFromUri(context, imageUri);
-                            Log.d(TAG, "Original file name from URI: " + originalFileName + " for series: " + seriesItem.getTitle());
-
-                            if (originalFileName == null || originalFileName.isEmpty()) {
-                                // Если не удалось получить оригинальное имя, используем имя по умолчанию
-                                originalFileName = "series_cover_" + seriesItem.getId() + ".jpg";
-                                Log.w(TAG, "Using default file name: " + originalFileName);
-                            }
-
-                            newRelativePath = BackupFileManager.copyFileToBackupDir(
-                                    context,
-                                    imageUri,
-                                    originalFileName,
-                                    tempBackupDir.getAbsolutePath(),
-                                    true // Всегда копируем файлы, даже если они уже существуют
-                            );
-                        }
-
-                        if (newRelativePath != null) {
-                            updatedSeriesItem.setImageUri(newRelativePath); // Сохраняем относительный путь
-                            Log.d(TAG, "Successfully backed up cover image: " + newRelativePath);
-                        } else {
-                            Log.w(TAG, "Failed to backup cover image for series: " + seriesItem.getTitle());
-                        }
-                    } catch (Exception e) {
-                        Log.w(TAG, "Could not backup series cover: " + seriesItem.getTitle(), e);
-                        // Используем оригинальный URI, если не удалось скопировать файл
-                        updatedSeriesItem.setImageUri(seriesItem.getImageUri());
-                    }
-                } else {
-                    updatedSeriesItem.setImageUri(seriesItem.getImageUri());
-                }
-                updatedSeries.add(updatedSeriesItem);
-            }
-
-            // Создаем объект бэкапа
-            BackupData backupData = new BackupData();
-            backupData.collections = collections;
-            backupData.series = updatedSeries;
-            backupData.relations = relations;
-            backupData.mediaFiles = updatedMediaFiles;
-            backupData.timestamp = System.currentTimeMillis();
-            backupData.version = 1;
-
-            // Конвертируем в JSON
-            String json = gson.toJson(backupData);
 
             // Создаем директорию
             File backupDir = getBackupDirectory();
             if (!backupDir.exists() && !backupDir.mkdirs()) {
                 Log.e(TAG, "Failed to create backup directory");
-                return;
+                return false;
             }
 
-            // Сохраняем JSON файл
-            String jsonFileName = "backup_" + timeStamp + ".json";
-            File jsonFile = new File(backupDir, jsonFileName);
+            // Обложки и медиафайлы хранятся один раз в blobs/ под именем по хешу содержимого
+            BackupBlobStore blobStore = new BackupBlobStore(context, backupDir, gson);
 
-            try (FileOutputStream fos = new FileOutputStream(jsonFile);
-                 OutputStreamWriter writer = new OutputStreamWriter(fos)) {
-                writer.write(json);
-                writer.flush();
-            }
+            // Изменения с ID журнала больше этого попадут в следующую инкрементальную копию
+            long journalId = repository.getLastChangeJournalIdSync();
 
-            // Создаем ZIP архив, содержащий JSON и файлы
+            // ZIP пишется в том же проходе: блобы добавляются по мере записи JSON, JSON - в конце
+            String jsonFileName = "backup_" + timeStamp + ".json";
+            File jsonFile = new File(backupDir, jsonFileName);
             String zipFileName = "backup_" + timeStamp + ".zip";
             File zipFile = new File(backupDir, zipFileName);
 
-            // Создаем временную директорию для архивации
-            File combinedBackupDir = new File(context.getCacheDir(), "combined_backup_" + timeStamp);
-            if (combinedBackupDir.exists()) {
-                deleteDirectory(combinedBackupDir);
-            }
-
-            if (combinedBackupDir.mkdirs()) {
-                // Копируем JSON файл в комбинированную директорию
-                File jsonInCombined = new File(combinedBackupDir, jsonFile.getName());
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(jsonFile);
-                     java.io.FileOutputStream fos = new java.io.FileOutputStream(jsonInCombined)) {
-                    byte[] buffer = new byte[4096];
-                    int length;
-                    while ((length = fis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, length);
-                    }
-                }
-
-                // Копируем директорию с файлами из временной папки в комбинированную директорию
-                File backupFilesDir = new File(tempBackupDir, "files");
-                if (backupFilesDir.exists() && backupFilesDir.listFiles() != null && backupFilesDir.listFiles().length > 0) {
-                    File filesInCombined = new File(combinedBackupDir, "files");
-                    copyDirectory(backupFilesDir, filesInCombined);
-                    Log.d(TAG, "Files directory copied to combined backup: " + filesInCombined.getAbsolutePath());
-                } else {
-                    Log.d(TAG, "No files directory found or empty in temp backup");
-                }
-
-                // Создаем ZIP архив из комбинированной директории
-                File createdZip = BackupFileManager.createZipBackup(combinedBackupDir.getAbsolutePath(), zipFile.getAbsolutePath());
-                if (createdZip != null) {
-                    Log.d(TAG, "ZIP backup created successfully: " + zipFile.getAbsolutePath());
-                } else {
-                    Log.w(TAG, "Failed to create ZIP backup, continuing with regular backup");
+            boolean zipCreated;
+            try (BackupZipWriter zipWriter = new BackupZipWriter(zipFile, blobStore)) {
+                // Сохраняем JSON файл потоково, не собирая весь BackupData в памяти
+                boolean written = writeBackupJson(jsonFile, blobStore, zipWriter);
+                blobStore.saveIndex();
+                if (!written) {
+                    Log.e(TAG, "Failed to get data for backup");
+                    jsonFile.delete();
+                    zipWriter.close();
+                    zipFile.delete();
+                    return false;
                 }
 
-                // Очищаем временную комбинированную директорию
-                deleteDirectory(combinedBackupDir);
+                zipWriter.addFile(jsonFile.getName(), jsonFile);
+                zipCreated = zipWriter.finish();
             }
 
-            // Перемещаем папку с файлами в постоянную папку резервных копий с timestamp
-            File backupFilesDir = new File(tempBackupDir, "files");
-            if (backupFilesDir.exists()) {
-                File targetFilesDir = new File(backupDir, "files_" + timeStamp);
-                if (!backupFilesDir.renameTo(targetFilesDir)) {
-                    // Если rename не работает, копируем
-                    copyDirectory(backupFilesDir, targetFilesDir);
-                    deleteDirectory(backupFilesDir);
-                }
-            }
+            Log.d(TAG, "Blob store: " + blobStore.getStoredCount() + " new files stored, " +
+                    blobStore.getReusedCount() + " unchanged files reused");
 
-            // Удаляем временную основную директорию
-            deleteDirectory(tempBackupDir);
+            if (zipCreated) {
+                Log.d(TAG, "ZIP backup created successfully: " + zipFile.getAbsolutePath());
+                deleteOldSnapshotZips(backupDir, zipFile);
+            } else {
+                Log.w(TAG, "Failed to create ZIP backup, continuing with regular backup");
+            }
 
             // Сохраняем время бэкапа
             prefs.edit().putLong(KEY_LAST_AUTO_BACKUP, System.currentTimeMillis()).apply();
 
+            // Новый снимок становится основой для следующих инкрементальных копий
+            if (journalId >= 0) {
+                prefs.edit()
+                        .putString(KEY_BASE_BACKUP, jsonFileName)
+                        .putInt(KEY_DELTA_SEQUENCE, 0)
+                        .putLong(KEY_LAST_JOURNAL_ID, journalId)
+                        .apply();
+                repository.deleteChangeJournalSync(journalId);
+            }
+
             Log.i(TAG, "Backup created successfully: " + zipFile.getAbsolutePath());
+            collectUnusedBlobs(backupDir);
+            return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Error creating backup", e);
+            return false;
         }
     }
 
-    public boolean restoreFromFile(File backupFile) {
-        try {
-            Log.d(TAG, "Starting restore from: " + backupFile.getAbsolutePath());
+    /**
+     * Удаляет ZIP архивы прежних полных снимков. Архив - самодостаточная копия снимка для переноса
+     * на другое устройство, в нем полная копия всех файлов. Снимки и их восстановление используют
+     * JSON и blobs/, поэтому хранится только архив последнего снимка. Если новый архив записать
+     * не удалось, прежние остаются.
+     */
+    private void deleteOldSnapshotZips(File backupDir, File currentZipFile) {
+        File[] zipFiles = backupDir.listFiles((dir, name) -> name.startsWith("backup_") && name.endsWith(".zip"));
+        if (zipFiles == null) {
+            return;
+        }
+        for (File zipFile : zipFiles) {
+            if (!zipFile.equals(currentZipFile) && zipFile.delete()) {
+                Log.d(TAG, "Deleted previous snapshot ZIP: " + zipFile.getName());
+            }
+        }
+    }
+
+    /**
+     * Сборка мусора в blobs/: помечаются блобы, на которые ссылаются оставшиеся резервные копии
+     * (снимки и их инкрементальные копии), остальные удаляются вместе с записями индекса.
+     * Такие блобы остаются от удаленных копий, прерванных попыток и замененных обложек и медиафайлов.
+     * ZIP-архивы содержат собственные копии файлов и на blobs/ не ссылаются.
+     * Выполняется после полного снимка: все копии читаются целиком, делать это после каждой
+     * инкрементальной копии слишком дорого. Если какую-то копию прочитать не удалось, ничего не удаляется.
+     */
+    private void collectUnusedBlobs(File backupDir) {
+        Set<String> referenced = new HashSet<>();
+        if (!markReferencedBlobs(backupDir, referenced)) {
+            Log.w(TAG, "Skipping blob cleanup: not every backup could be read");
+            return;
+        }
+        BackupBlobStore blobStore = new BackupBlobStore(context, backupDir, gson);
+        int removed = blobStore.removeUnreferenced(referenced);
+        blobStore.saveIndex();
+        Log.d(TAG, "Blob cleanup: " + removed + " unused files removed, " + referenced.size() + " in use");
+    }
 
-            // Читаем файл
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.FileReader(backupFile));
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
+    private boolean markReferencedBlobs(File directory, Set<String> referenced) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return true;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (!BackupBlobStore.BLOB_DIR_NAME.equals(file.getName())
+                        && !markReferencedBlobs(file, referenced)) {
+                    return false;
+                }
+            } else if (file.getName().endsWith(".json")) {
+                try (Reader reader = BackupJsonReader.openReader(new FileInputStream(file))) {
+                    new BackupJsonReader(gson).read(reader, new BlobReferenceHandler(referenced));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error reading backup for blob cleanup: " + file.getName(), e);
+                    return false;
+                }
             }
-            reader.close();
+        }
+        return true;
+    }
 
-            String json = jsonBuilder.toString();
-            Log.d(TAG, "Backup JSON length: " + json.length());
+    /**
+     * Создает инкрементальную копию "<полный снимок>_delta_NNN.json" рядом с полным снимком.
+     * ZIP для инкрементальных копий не создается: файлы, на которые они ссылаются,
+     * лежат в общем хранилище blobs/.
+     * @return false, если копию создать не удалось и нужен полный снимок
+     */
+    private boolean createDeltaBackup(String baseName, int sequence) {
+        long afterId = prefs.getLong(KEY_LAST_JOURNAL_ID, 0);
+        long upToId = repository.getLastChangeJournalIdSync();
+        if (upToId < 0) {
+            return false;
+        }
+        if (upToId <= afterId) {
+            Log.d(TAG, "No changes since last backup");
+            return true;
+        }
 
-            // Парсим JSON
-            Type type = new TypeToken<BackupData>() {}.getType();
-            BackupData backupData = gson.fromJson(json, type);
+        File backupDir = getBackupDirectory();
+        File jsonFile = new File(backupDir, getDeltaFileName(baseName, sequence));
+        BackupBlobStore blobStore = new BackupBlobStore(context, backupDir, gson);
 
-            if (backupData == null) {
-                Log.e(TAG, "Failed to parse backup file");
+        try {
+            boolean written = writeDeltaJson(jsonFile, blobStore, afterId, upToId);
+            blobStore.saveIndex();
+            if (!written) {
+                Log.e(TAG, "Failed to get changed data for incremental backup");
+                jsonFile.delete();
                 return false;
             }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing incremental backup", e);
+            jsonFile.delete();
+            return false;
+        }
 
-            Log.d(TAG, "Parsed backup: " +
-                    (backupData.collections != null ? backupData.collections.size() : 0) + " collections, " +
-
-                    (backupData.series != null ? backupData.series.size() : 0) + " series, " +
-                    (backupData.mediaFiles != null ? backupData.mediaFiles.size() : 0) + " media files");
+        prefs.edit()
+                .putInt(KEY_DELTA_SEQUENCE, sequence)
+                .putLong(KEY_LAST_JOURNAL_ID, upToId)
+                .putLong(KEY_LAST_AUTO_BACKUP, System.currentTimeMillis())
+                .apply();
+        repository.deleteChangeJournalSync(upToId);
 
-            // Очищаем текущие данные
-            repository.deleteAllData();
+        Log.i(TAG, "Incremental backup created successfully: " + jsonFile.getAbsolutePath());
+        return true;
+    }
 
-            // Мапы для соответствия старых и новых ID
-            Map<Long, Long> collectionIdMap = new HashMap<>();
-            Map<Long, Long> seriesIdMap = new HashMap<>();
+    /**
+     * Записывает инкрементальную копию: строки, измененные после afterId по журналу.
+     * Сначала пишутся ключи удаленных строк (их уже нет в БД), затем текущее состояние
+     * остальных. Удаления идут первыми, чтобы при восстановлении освободить уникальные
+     * названия до вставки новых строк.
+     * @return false, если не удалось получить данные из БД
+     */
+    private boolean writeDeltaJson(File jsonFile, BackupBlobStore blobStore, long afterId, long upToId) throws IOException {
+        MediaCopyStage.Report copyReport = new MediaCopyStage.Report();
+        List<Long> collectionIds = repository.getChangedRowIdsSync("collections", afterId, upToId);
+        List<Long> seriesIds = repository.getChangedRowIdsSync("series", afterId, upToId);
+        List<Long> mediaIds = repository.getChangedRowIdsSync("media_files", afterId, upToId);
+        List<ChangeJournalEntry> relationKeys = repository.getChangedRelationKeysSync(afterId, upToId);
+        if (collectionIds == null || seriesIds == null || mediaIds == null || relationKeys == null) {
+            return false;
+        }
 
-            // Восстанавливаем коллекции
-            if (backupData.collections != null) {
-                for (Collection collection : backupData.collections) {
-                    long oldId = collection.getId();
-                    // Сбрасываем ID для новой вставки
-                    collection.setId(0);
-                    long newId = repository.insertCollectionSync(collection);
-                    if (newId > 0) {
-                        collectionIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored collection: " + collection.getName() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
-                }
-            }
+        List<Long> deletedCollectionIds = findDeletedIds(collectionIds, repository::getExistingCollectionIdsSync);
+        List<Long> deletedSeriesIds = findDeletedIds(seriesIds, repository::getExistingSeriesIdsSync);
+        List<Long> deletedMediaIds = findDeletedIds(mediaIds, repository::getExistingMediaFileIdsSync);
+        if (deletedCollectionIds == null || deletedSeriesIds == null || deletedMediaIds == null) {
+            return false;
+        }
 
-            // Восстанавливаем сериалы
-            if (backupData.series != null) {
-                for (Series series : backupData.series) {
-                    Series updatedSeries = new Series();
-                    updatedSeries.setTitle(series.getTitle());
-                    updatedSeries.setIsWatched(series.getIsWatched());
-                    updatedSeries.setNotes(series.getNotes());
-                    updatedSeries.setCreatedAt(series.getCreatedAt());
-                    updatedSeries.setStatus(series.getStatus());
-                    updatedSeries.setIsFavorite(series.getIsFavorite());
-                    updatedSeries.setRating(series.getRating());
-                    updatedSeries.setGenre(series.getGenre());
-                    updatedSeries.setSeasons(series.getSeasons());
-                    updatedSeries.setEpisodes(series.getEpisodes());
-
-                    // Восстанавливаем файл обложки, если путь является относительным (означает, что это файл из резервной копии)
-                    if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                        String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                context,
-                                series.getImageUri(),
-                                backupFile.getParent()
-                        );
-                        if (restoredPath != null) {
-                            updatedSeries.setImageUri(restoredPath);
-                        } else {
-                            // Если не удалось восстановить файл, оставляем оригинальный путь
-                            updatedSeries.setImageUri(series.getImageUri());
-                        }
-                    } else {
-                        // Это обычный URI, оставляем без изменений
-                        updatedSeries.setImageUri(series.getImageUri());
-                    }
+        List<SeriesCollectionCrossRef> deletedRelations = new ArrayList<>();
+        List<SeriesCollectionCrossRef> currentRelations = new ArrayList<>();
+        if (!splitChangedRelations(relationKeys, deletedRelations, currentRelations)) {
+            return false;
+        }
 
-                    long oldId = series.getId();
-                    // Сбрасываем ID для новой вставки
-                    updatedSeries.setId(0);
-                    long newId = repository.insertSeriesSync(updatedSeries);
-                    if (newId > 0) {
-                        seriesIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored series: " + updatedSeries.getTitle() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
-                }
+        try (BackupJsonWriter writer = new BackupJsonWriter(gson, new FileOutputStream(jsonFile))) {
+            // Удаленные строки
+            writer.beginArray("deletedRelations");
+            for (SeriesCollectionCrossRef relation : deletedRelations) {
+                writer.write(relation, SeriesCollectionCrossRef.class);
             }
+            writer.endArray();
+            writeIdArray(writer, "deletedMediaFiles", deletedMediaIds);
+            writeIdArray(writer, "deletedSeries", deletedSeriesIds);
+            writeIdArray(writer, "deletedCollections", deletedCollectionIds);
 
-            // Восстанавливаем связи
-            if (backupData.relations != null) {
-                for (SeriesCollectionCrossRef relation : backupData.relations) {
-                    Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
-                    Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+            // Добавленные и измененные строки
+            if (!writeRowsByIds(writer, "collections", collectionIds,
+                    repository::getCollectionsByIdsSync, rows -> rows, Collection.class)) {
+                return false;
+            }
+            if (!writeRowsByIds(writer, "series", seriesIds, repository::getSeriesByIdsSync,
+                    rows -> prepareSeriesPageForBackup(rows, blobStore, copyReport), Series.class)) {
+                return false;
+            }
 
-                    if (newSeriesId != null && newCollectionId != null) {
-                        SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
-                                newSeriesId, newCollectionId);
-                        newRelation.setIsWatched(relation.getIsWatched());
-                        repository.insertCrossRefSync(newRelation);
-                        Log.d(TAG, "Restored relation: series " + newSeriesId +
-                                " -> collection " + newCollectionId);
-                    }
-                }
+            writer.beginArray("relations");
+            for (SeriesCollectionCrossRef relation : currentRelations) {
+                writer.write(relation, SeriesCollectionCrossRef.class);
             }
+            writer.endArray();
 
-            // Восстанавливаем медиафайлы
-            if (backupData.mediaFiles != null) {
-                for (MediaFile mediaFile : backupData.mediaFiles) {
-                    Long oldSeriesId = mediaFile.getSeriesId();
-                    Long newSeriesId = seriesIdMap.get(oldSeriesId);
-
-                    if (newSeriesId != null) {
-                        // Если путь к файлу является относительным (означает, что это файл из резервной копии)
-                        if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith("files/")) {
-                            String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                    context,
-                                    mediaFile.getFileUri(),
-                                    backupFile.getParent()
-                            );
-                            if (restoredPath != null) {
-                                mediaFile.setFileUri(restoredPath);
-                                mediaFile.setFilePath(restoredPath);
-                            } else {
-                                // Если не удалось восстановить файл, оставляем оригинальный путь
-                                mediaFile.setFileUri(mediaFile.getFileUri());
-                            }
-                        }
-                        // Обновляем ID сериала для нового файла
-                        mediaFile.setSeriesId(newSeriesId);
-                        // Сбрасываем ID для новой вставки
-                        mediaFile.setId(0);
-
-                        long newMediaId = repository.insertMediaFileSync(mediaFile);
-                        if (newMediaId > 0) {
-                            Log.d(TAG, "Restored media file: " + mediaFile.getFileName() +
-                                    " for series ID: " + newSeriesId);
-                        }
-                    }
-                }
+            if (!writeRowsByIds(writer, "mediaFiles", mediaIds, repository::getMediaFilesByIdsSync,
+                    rows -> prepareMediaFilesPageForBackup(rows, blobStore, copyReport), MediaFile.class)) {
+                return false;
             }
-            Log.i(TAG, "Restore completed successfully");
-            return true;
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error restoring from backup", e);
-            return false;
+            writer.finish(System.currentTimeMillis(), 1);
         }
+
+        Log.d(TAG, "Incremental backup JSON written: " +
+                collectionIds.size() + " collections, " +
+                seriesIds.size() + " series, " +
+                relationKeys.size() + " relations, " +
+                mediaIds.size() + " media files changed");
+        copyReport.log("Incremental backup");
+        // Очереди записи и чтения БД: видно, ждала ли копия другие задачи
+        DatabaseExecutors.getInstance().logStats();
+        return true;
     }
 
     /**
-     * Восстановление из резервной копии, используя URI, предоставленный через системный диалог
+     * Возвращает ID из списка измененных, которых уже нет в БД
+     * @return null, если не удалось выполнить запрос
      */
-    public boolean restoreFromUri(Uri backupUri) {
-        // Check if this is a ZIP backup
-        if (isZipBackupUri(backupUri)) {
-            return restoreFromZipUri(backupUri);
-        }
-
-        // Handle JSON backup files
-        try {
-            Log.d(TAG, "Starting restore from URI: " + backupUri.toString());
+    private List<Long> findDeletedIds(List<Long> changedIds, Function<List<Long>, List<Long>> existingIdsQuery) {
+        List<Long> deletedIds = new ArrayList<>();
+        for (int start = 0; start < changedIds.size(); start += BACKUP_PAGE_SIZE) {
+            List<Long> chunk = changedIds.subList(start, Math.min(start + BACKUP_PAGE_SIZE, changedIds.size()));
+            List<Long> existingIds = existingIdsQuery.apply(chunk);
+            if (existingIds == null) {
+                return null;
+            }
 
-            ContentResolver contentResolver = context.getContentResolver();
+            Set<Long> existing = new HashSet<>(existingIds);
+            for (Long id : chunk) {
+                if (!existing.contains(id)) {
+                    deletedIds.add(id);
+                }
+            }
+        }
+        return deletedIds;
+    }
 
-            // Создаем временную директорию для распаковки бэкапа
-            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
-                    .format(new Date());
-            File tempRestoreDir = new File(context.getCacheDir(), "temp_restore_" + timeStamp);
-            if (!tempRestoreDir.exists() && !tempRestoreDir.mkdirs()) {
-                Log.e(TAG, "Failed to create temporary restore directory");
+    /**
+     * Сверяет ключи связей из журнала с текущими связями тех же сериалов
+     * и раскладывает их на удаленные и существующие
+     * @return false, если не удалось выполнить запрос
+     */
+    private boolean splitChangedRelations(List<ChangeJournalEntry> relationKeys,
+                                          List<SeriesCollectionCrossRef> deletedRelations,
+                                          List<SeriesCollectionCrossRef> currentRelations) {
+        for (int start = 0; start < relationKeys.size(); start += BACKUP_PAGE_SIZE) {
+            List<ChangeJournalEntry> chunk = relationKeys.subList(start, Math.min(start + BACKUP_PAGE_SIZE, relationKeys.size()));
+
+            Set<Long> seriesIds = new LinkedHashSet<>();
+            for (ChangeJournalEntry key : chunk) {
+                seriesIds.add(key.getRowId());
+            }
+            List<SeriesCollectionCrossRef> relations = repository.getRelationsForSeriesListSync(new ArrayList<>(seriesIds));
+            if (relations == null) {
                 return false;
             }
-            // Читаем файл через ContentResolver
-            StringBuilder jsonBuilder = new StringBuilder();
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(contentResolver.openInputStream(backupUri)))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    jsonBuilder.append(line);
-                }
+
+            Map<String, SeriesCollectionCrossRef> relationsByKey = new HashMap<>();
+            for (SeriesCollectionCrossRef relation : relations) {
+                relationsByKey.put(relation.getSeriesId() + ":" + relation.getCollectionId(), relation);
             }
 
-            String json = jsonBuilder.toString();
-            Log.d(TAG, "Backup JSON length: " + json.length());
+            for (ChangeJournalEntry key : chunk) {
+                SeriesCollectionCrossRef relation = relationsByKey.get(key.getRowId() + ":" + key.getSecondaryId());
+                if (relation != null) {
+                    currentRelations.add(relation);
+                } else {
+                    deletedRelations.add(new SeriesCollectionCrossRef(key.getRowId(), key.getSecondaryId()));
+                }
+            }
+        }
+        return true;
+    }
 
-            // Парсим JSON
-            Type type = new TypeToken<BackupData>() {}.getType();
-            BackupData backupData = gson.fromJson(json, type);
+    private static void writeIdArray(BackupJsonWriter writer, String name, List<Long> ids) throws IOException {
+        writer.beginArray(name);
+        for (Long id : ids) {
+            writer.write(id, Long.class);
+        }
+        writer.endArray();
+    }
 
-            if (backupData == null) {
-                Log.e(TAG, "Failed to parse backup file from URI");
+    /**
+     * Пишет массив с текущим состоянием строк по списку ID, выбирая их из БД порциями
+     * @return false, если не удалось получить данные из БД
+     */
+    private <T> boolean writeRowsByIds(BackupJsonWriter writer, String name, List<Long> ids,
+                                       Function<List<Long>, List<T>> rowsQuery,
+                                       Function<List<T>, List<T>> prepare, Class<T> type) throws IOException {
+        writer.beginArray(name);
+        for (int start = 0; start < ids.size(); start += BACKUP_PAGE_SIZE) {
+            List<T> rows = rowsQuery.apply(ids.subList(start, Math.min(start + BACKUP_PAGE_SIZE, ids.size())));
+            if (rows == null) {
                 return false;
             }
+            for (T row : prepare.apply(rows)) {
+                writer.write(row, type);
+            }
+        }
+        writer.endArray();
+        return true;
+    }
 
-            Log.d(TAG, "Parsed backup from URI: " +
-                    (backupData.collections != null ? backupData.collections.size() : 0) + " collections, " +
-                    (backupData.series != null ? backupData.series.size() : 0) + " series, " +
-                    (backupData.mediaFiles != null ? backupData.mediaFiles.size() : 0) + " media files");
+    /**
+     * Имя инкрементальной копии: "backup_<время>_delta_NNN.json" для снимка "backup_<время>.json"
+     */
+    private static boolean isDeltaBackup(String fileName) {
+        return fileName.contains(DELTA_SUFFIX);
+    }
 
-            // Очищаем текущие данные
-            repository.deleteAllData();
+    private static String getDeltaFileName(String baseName, int sequence) {
+        String baseWithoutExtension = baseName.endsWith(".json")
+                ? baseName.substring(0, baseName.length() - 5) : baseName;
+        return String.format(Locale.US, "%s%s%03d.json", baseWithoutExtension, DELTA_SUFFIX, sequence);
+    }
 
-            // Мапы для соответствия старых и новых ID
-            Map<Long, Long> collectionIdMap = new HashMap<>();
-            Map<Long, Long> seriesIdMap = new HashMap<>();
+    /**
+     * Возвращает файлы для восстановления по порядку: для инкрементальной копии - полный снимок
+     * и все копии цепочки до нее включительно, для полного снимка - его самого и все существующие
+     * инкрементальные копии после него (в списке копий они не показываются, см. findBackupFiles)
+     * @return null, если снимок или одна из промежуточных копий не найдены
+     */
+    private List<File> getBackupChain(File backupFile) {
+        List<File> chain = new ArrayList<>();
+        String name = backupFile.getName();
+        int deltaIndex = name.lastIndexOf(DELTA_SUFFIX);
+        if (!name.endsWith(".json")) {
+            chain.add(backupFile);
+            return chain;
+        }
+        if (deltaIndex < 0) {
+            chain.add(backupFile);
+            File deltaFile;
+            while ((deltaFile = new File(backupFile.getParentFile(),
+                    getDeltaFileName(name, chain.size()))).exists()) {
+                chain.add(deltaFile);
+            }
+            return chain;
+        }
 
-            // Восстанавливаем коллекции
-            if (backupData.collections != null) {
-                for (Collection collection : backupData.collections) {
-                    long oldId = collection.getId();
-                    // Сбрасываем ID для новой вставки
-                    collection.setId(0);
-                    long newId = repository.insertCollectionSync(collection);
-                    if (newId > 0) {
-                        collectionIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored collection from URI: " + collection.getName() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
-                }
+        int sequence;
+        try {
+            sequence = Integer.parseInt(name.substring(deltaIndex + DELTA_SUFFIX.length(), name.length() - 5));
+        } catch (NumberFormatException e) {
+            chain.add(backupFile);
+            return chain;
+        }
+
+        String baseName = name.substring(0, deltaIndex) + ".json";
+        File baseFile = new File(backupFile.getParentFile(), baseName);
+        if (!baseFile.exists()) {
+            Log.e(TAG, "Full backup not found: " + baseFile.getAbsolutePath());
+            return null;
+        }
+        chain.add(baseFile);
+
+        for (int i = 1; i <= sequence; i++) {
+            File deltaFile = new File(backupFile.getParentFile(), getDeltaFileName(baseName, i));
+            if (!deltaFile.exists()) {
+                Log.e(TAG, "Incremental backup is missing: " + deltaFile.getAbsolutePath());
+                return null;
             }
+            chain.add(deltaFile);
+        }
+        return chain;
+    }
 
-            // Восстанавливаем сериалы
-            if (backupData.series != null) {
-                for (Series series : backupData.series) {
-                    Series updatedSeries = new Series();
-                    updatedSeries.setTitle(series.getTitle());
-                    updatedSeries.setIsWatched(series.getIsWatched());
-                    updatedSeries.setNotes(series.getNotes());
-                    updatedSeries.setCreatedAt(series.getCreatedAt());
-                    updatedSeries.setStatus(series.getStatus());
-                    updatedSeries.setIsFavorite(series.getIsFavorite());
-                    updatedSeries.setRating(series.getRating());
-                    updatedSeries.setGenre(series.getGenre());
-                    updatedSeries.setSeasons(series.getSeasons());
-                    updatedSeries.setEpisodes(series.getEpisodes());
-
-                    // Восстанавливаем файл обложки, если путь является относительным (означает, что это файл из резервной копии)
-                    if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                        String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                context,
-                                series.getImageUri(),
-                                tempRestoreDir.getAbsolutePath()
-                        );
-                        if (restoredPath != null) {
-                            updatedSeries.setImageUri(restoredPath);
-                        } else {
-                            // Если не удалось восстановить файл, оставляем оригинальный путь
-                            updatedSeries.setImageUri(series.getImageUri());
-                        }
-                    } else {
-                        // Это обычный URI, оставляем без изменений
-                        updatedSeries.setImageUri(series.getImageUri());
-                    }
+    /**
+     * Сбрасывает состояние инкрементального копирования после восстановления с заменой
+     * (ID в БД больше не совпадают с ID последнего снимка) и при переключении журнала:
+     * журнал очищается, а следующая автоматическая копия будет полной
+     */
+    private void resetIncrementalBackupState() {
+        prefs.edit()
+                .remove(KEY_BASE_BACKUP)
+                .remove(KEY_DELTA_SEQUENCE)
+                .remove(KEY_LAST_JOURNAL_ID)
+                .apply();
+        repository.clearChangeJournalSync();
+    }
 
-                    long oldId = series.getId();
-                    // Сбрасываем ID для новой вставки
-                    updatedSeries.setId(0);
-                    long newId = repository.insertSeriesSync(updatedSeries);
-                    if (newId > 0) {
-                        seriesIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored series from URI: " + updatedSeries.getTitle() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
+    /**
+     * Потоково записывает JSON резервной копии.
+     * Данные читаются из БД страницами по BACKUP_PAGE_SIZE записей и сразу пишутся в файл,
+     * обложки и медиафайлы страницы сохраняются в хранилище blobs/ параллельно (MediaCopyStage).
+     * @param zipWriter архив, в который сразу добавляются блобы, на которые ссылается JSON
+     * @return false, если не удалось получить данные из БД
+     */
+    private boolean writeBackupJson(File jsonFile, BackupBlobStore blobStore, BackupZipWriter zipWriter) throws IOException {
+        MediaCopyStage.Report copyReport = new MediaCopyStage.Report();
+        int collectionCount = 0;
+        int seriesCount = 0;
+        int relationCount = 0;
+        int mediaCount = 0;
+
+        try (BackupJsonWriter writer = new BackupJsonWriter(gson, new FileOutputStream(jsonFile))) {
+            // Коллекции
+            writer.beginArray("collections");
+            long lastCollectionId = 0;
+            while (true) {
+                List<Collection> page = repository.getCollectionsPageSync(lastCollectionId, BACKUP_PAGE_SIZE);
+                if (page == null) {
+                    return false;
+                }
+                for (Collection collection : page) {
+                    writer.write(collection, Collection.class);
+                    lastCollectionId = collection.getId();
+                }
+                collectionCount += page.size();
+                if (page.size() < BACKUP_PAGE_SIZE) {
+                    break;
                 }
             }
+            writer.endArray();
 
-            // Восстанавливаем связи
-            if (backupData.relations != null) {
-                for (SeriesCollectionCrossRef relation : backupData.relations) {
-                    Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
-                    Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
-
-                    if (newSeriesId != null && newCollectionId != null) {
-                        SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
-                                newSeriesId, newCollectionId);
-                        newRelation.setIsWatched(relation.getIsWatched());
-                        repository.insertCrossRefSync(newRelation);
-                        Log.d(TAG, "Restored relation from URI: series " + newSeriesId +
-                                " -> collection " + newCollectionId);
+            // Сериалы (вместе с копированием обложек)
+            writer.beginArray("series");
+            long lastSeriesId = 0;
+            while (true) {
+                List<Series> page = repository.getSeriesPageSync(lastSeriesId, BACKUP_PAGE_SIZE);
+                if (page == null) {
+                    return false;
+                }
+                for (Series preparedSeries : prepareSeriesPageForBackup(page, blobStore, copyReport)) {
+                    if (BackupBlobStore.isBlobPath(preparedSeries.getImageUri())) {
+                        zipWriter.addBlob(preparedSeries.getImageUri());
                     }
+                    writer.write(preparedSeries, Series.class);
+                    lastSeriesId = preparedSeries.getId();
+                }
+                seriesCount += page.size();
+                if (page.size() < BACKUP_PAGE_SIZE) {
+                    break;
                 }
             }
+            writer.endArray();
 
-            // Восстанавливаем медиафайлы
-            if (backupData.mediaFiles != null) {
-                for (MediaFile mediaFile : backupData.mediaFiles) {
-                    Long oldSeriesId = mediaFile.getSeriesId();
-                    Long newSeriesId = seriesIdMap.get(oldSeriesId);
-
-                    if (newSeriesId != null) {
-                        // Если путь к файлу является относительным (означает, что это файл из резервной копии)
-                        if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith("files/")) {
-                            String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                    context,
-                                    mediaFile.getFileUri(),
-                                    tempRestoreDir.getAbsolutePath()
-                            );
-                            if (restoredPath != null) {
-                                mediaFile.setFileUri(restoredPath);
-                                mediaFile.setFilePath(restoredPath);
-                            } else {
-                                // Если не удалось восстановить файл, оставляем оригинальный путь
-                                mediaFile.setFileUri(mediaFile.getFileUri());
-                            }
-                        }
+            // Связи
+            writer.beginArray("relations");
+            long lastRelationSeriesId = 0;
+            long lastRelationCollectionId = 0;
+            while (true) {
+                List<SeriesCollectionCrossRef> page = repository.getRelationsPageSync(
+                        lastRelationSeriesId, lastRelationCollectionId, BACKUP_PAGE_SIZE);
+                if (page == null) {
+                    return false;
+                }
+                for (SeriesCollectionCrossRef relation : page) {
+                    writer.write(relation, SeriesCollectionCrossRef.class);
+                    lastRelationSeriesId = relation.getSeriesId();
+                    lastRelationCollectionId = relation.getCollectionId();
+                }
+                relationCount += page.size();
+                if (page.size() < BACKUP_PAGE_SIZE) {
+                    break;
+                }
+            }
+            writer.endArray();
+
+            // Медиафайлы (вместе с копированием самих файлов)
+            writer.beginArray("mediaFiles");
+            long lastMediaId = 0;
+            while (true) {
+                List<MediaFile> page = repository.getMediaFilesPageSync(lastMediaId, BACKUP_PAGE_SIZE);
+                if (page == null) {
+                    return false;
+                }
+                for (MediaFile preparedMediaFile : prepareMediaFilesPageForBackup(page, blobStore, copyReport)) {
+                    if (BackupBlobStore.isBlobPath(preparedMediaFile.getFileUri())) {
+                        zipWriter.addBlob(preparedMediaFile.getFileUri());
+                    }
+                    writer.write(preparedMediaFile, MediaFile.class);
+                    lastMediaId = preparedMediaFile.getId();
+                }
+                mediaCount += page.size();
+                if (page.size() < BACKUP_PAGE_SIZE) {
+                    break;
+                }
+            }
+            writer.endArray();
+
+            writer.finish(System.currentTimeMillis(), 1);
+        }
+
+        Log.d(TAG, "Backup JSON written: " +
+                collectionCount + " collections, " +
+                seriesCount + " series, " +
+                relationCount + " relations, " +
+                mediaCount + " media files");
+        copyReport.log("Backup");
+        DatabaseExecutors.getInstance().logStats();
+        return true;
+    }
+
+    /**
+     * Сохраняет медиафайлы страницы в хранилище резервных копий параллельно
+     * и возвращает записи со ссылками на блобы
+     */
+    private List<MediaFile> prepareMediaFilesPageForBackup(List<MediaFile> page, BackupBlobStore blobStore,
+                                                           MediaCopyStage.Report copyReport) {
+        List<String> blobPaths = mediaCopyStage.copyAll(page, MediaFile::getFileUri,
+                mediaFile -> storeMediaFileForBackup(mediaFile, blobStore), copyReport);
+
+        List<MediaFile> preparedPage = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            preparedPage.add(prepareMediaFileForBackup(page.get(i), blobPaths.get(i)));
+        }
+        return preparedPage;
+    }
+
+    /**
+     * Копирует медиафайл в хранилище резервных копий
+     * @return относительный путь "blobs/..." или null, если файл не удалось сохранить
+     */
+    private String storeMediaFileForBackup(MediaFile mediaFile, BackupBlobStore blobStore) {
+        String extension = BackupBlobStore.extensionOf(mediaFile.getFileName());
+
+        // Проверяем, является ли URI внутренним файлом приложения (восстановленным из бэкапа)
+        if (mediaFile.getFileUri().startsWith(context.getFilesDir().getAbsolutePath())) {
+            if (extension.isEmpty()) {
+                extension = BackupBlobStore.extensionOf(mediaFile.getFileUri());
+            }
+            return blobStore.putFile(new File(mediaFile.getFileUri()), extension);
+        }
+
+        // Иначе это URI из галереи или другого источника
+        return blobStore.putUri(Uri.parse(mediaFile.getFileUri()), extension);
+    }
+
+    /**
+     * Возвращает копию записи медиафайла со ссылкой на блоб
+     * @param blobPath путь к блобу или null, если файл не удалось сохранить (остается оригинальный URI)
+     */
+    private MediaFile prepareMediaFileForBackup(MediaFile mediaFile, String blobPath) {
+        MediaFile updatedMediaFile = new MediaFile(
+                mediaFile.getSeriesId(),
+                mediaFile.getFileUri(),
+                mediaFile.getFileType(),
+                mediaFile.getFileName()
+        );
+        updatedMediaFile.setId(mediaFile.getId());
+        updatedMediaFile.setFilePath(mediaFile.getFilePath());
+        updatedMediaFile.setFileSize(mediaFile.getFileSize());
+        updatedMediaFile.setCreatedAt(mediaFile.getCreatedAt());
+        updatedMediaFile.setDescription(mediaFile.getDescription());
+
+        if (blobPath != null) {
+            updatedMediaFile.setFileUri(blobPath); // Сохраняем относительный путь
+        }
+        return updatedMediaFile;
+    }
+
+    /**
+     * Сохраняет обложки страницы сериалов в хранилище резервных копий параллельно
+     * и возвращает записи со ссылками на блобы
+     */
+    private List<Series> prepareSeriesPageForBackup(List<Series> page, BackupBlobStore blobStore,
+                                                    MediaCopyStage.Report copyReport) {
+        List<String> blobPaths = mediaCopyStage.copyAll(page, Series::getImageUri,
+                seriesItem -> storeSeriesCoverForBackup(seriesItem, blobStore), copyReport);
+
+        List<Series> preparedPage = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            preparedPage.add(prepareSeriesForBackup(page.get(i), blobPaths.get(i)));
+        }
+        return preparedPage;
+    }
+
+    /**
+     * Копирует обложку сериала в хранилище резервных копий
+     * @return относительный путь "blobs/..." или null, если обложку не удалось сохранить
+     */
+    private String storeSeriesCoverForBackup(Series seriesItem, BackupBlobStore blobStore) {
+        // Проверяем, является ли URI внутренним файлом приложения (восстановленным из бэкапа)
+        if (seriesItem.getImageUri().startsWith(context.getFilesDir().getAbsolutePath())) {
+            return blobStore.putFile(new File(seriesItem.getImageUri()),
+                    BackupBlobStore.extensionOf(seriesItem.getImageUri()));
+        }
+
+        Uri imageUri = Uri.parse(seriesItem.getImageUri());
+
+        // Расширение берем из оригинального имени файла
+        String extension = BackupBlobStore.extensionOf(getFileNameFromUri(context, imageUri));
+        if (extension.isEmpty() || ".dat".equals(extension)) {
+            extension = ".jpg";
+        }
+        return blobStore.putUri(imageUri, extension);
+    }
 
-                        // Обновляем ID сериала для нового файла
-                        mediaFile.setSeriesId(newSeriesId);
-                        // Сбрасываем ID для новой вставки
-                        mediaFile.setId(0);
+    /**
+     * Возвращает копию сериала со ссылкой на блоб обложки
+     * @param blobPath путь к блобу или null, если обложку не удалось сохранить (остается оригинальный URI)
+     */
+    private Series prepareSeriesForBackup(Series seriesItem, String blobPath) {
+        Series updatedSeriesItem = new Series();
+        updatedSeriesItem.setId(seriesItem.getId());
+        updatedSeriesItem.setTitle(seriesItem.getTitle());
+        updatedSeriesItem.setIsWatched(seriesItem.getIsWatched());
+        updatedSeriesItem.setNotes(seriesItem.getNotes());
+        updatedSeriesItem.setCreatedAt(seriesItem.getCreatedAt());
+        updatedSeriesItem.setStatus(seriesItem.getStatus());
+        updatedSeriesItem.setIsFavorite(seriesItem.getIsFavorite());
+        updatedSeriesItem.setRating(seriesItem.getRating());
+        updatedSeriesItem.setGenre(seriesItem.getGenre());
+        updatedSeriesItem.setSeasons(seriesItem.getSeasons());
+        updatedSeriesItem.setEpisodes(seriesItem.getEpisodes());
+        updatedSeriesItem.setImageUri(blobPath != null ? blobPath : seriesItem.getImageUri());
+        return updatedSeriesItem;
+    }
+
+    public boolean restoreFromFile(File backupFile) {
+        try {
+            Log.d(TAG, "Starting restore from: " + backupFile.getAbsolutePath());
+
+            // Инкрементальная копия восстанавливается вместе со снимком и предыдущими копиями цепочки
+            List<File> chain = getBackupChain(backupFile);
+            if (chain == null) {
+                Log.e(TAG, "Backup chain is incomplete: " + backupFile.getName());
+                return false;
+            }
 
-                        long newMediaId = repository.insertMediaFileSync(mediaFile);
-                        if (newMediaId > 0) {
-                            Log.d(TAG, "Restored media file from URI: " + mediaFile.getFileName() +
-                                    " for series ID: " + newSeriesId);
+            PrefetchingFileResolver fileResolver = new PrefetchingFileResolver(relativePath ->
+                    BackupFileManager.restoreFileFromBackup(context, relativePath, backupFile.getParent()));
+            BackupJsonReader jsonReader = new BackupJsonReader(gson);
+            ReplaceRestoreHandler snapshotHandler = new ReplaceRestoreHandler(fileResolver);
+
+            // Снимок и все копии цепочки применяются одной транзакцией: если какой-то файл
+            // поврежден или оборван, текущие данные остаются нетронутыми
+            boolean restored = repository.runInTransactionSync(() -> {
+                for (int i = 0; i < chain.size(); i++) {
+                    BackupJsonReader.Handler handler = i == 0
+                            ? snapshotHandler
+                            : new DeltaRestoreHandler(snapshotHandler, fileResolver);
+
+                    // Читаем файл потоково, записи вставляются по мере разбора
+                    try (Reader reader = BackupJsonReader.openReader(new FileInputStream(chain.get(i)))) {
+                        if (!jsonReader.read(reader, handler)) {
+                            Log.e(TAG, "Failed to parse backup file: " + chain.get(i).getName());
+                            return false;
                         }
                     }
                 }
+                return true;
+            });
+
+            fileResolver.logReport("Restore");
+            DatabaseExecutors.getInstance().logStats();
+            if (!restored) {
+                Log.e(TAG, "Restore rolled back, current data kept: " + backupFile.getName());
+                return false;
+            }
+            resetIncrementalBackupState();
+            Log.i(TAG, "Restore completed successfully, incremental backups applied: " + (chain.size() - 1));
+            return true;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring from backup", e);
+            return false;
+        }
+    }
+
+    /**
+     * Восстановление из резервной копии, используя URI, предоставленный через системный диалог
+     */
+    public boolean restoreFromUri(Uri backupUri) {
+        // Check if this is a ZIP backup
+        if (isZipBackupUri(backupUri)) {
+            return restoreFromZipUri(backupUri);
+        }
+
+        // Handle JSON backup files
+        try {
+            Log.d(TAG, "Starting restore from URI: " + backupUri.toString());
+
+            // Инкрементальная копия без своего снимка заменила бы данные только измененными строками,
+            // а соседние файлы цепочки по URI недоступны
+            String fileName = getFileNameFromUri(context, backupUri);
+            if (fileName != null && isDeltaBackup(fileName)) {
+                Log.e(TAG, "Incremental backup cannot be restored without its full backup: " + fileName);
+                return false;
+            }
+
+            ContentResolver contentResolver = context.getContentResolver();
+
+            // Создаем временную директорию для распаковки бэкапа
+            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
+                    .format(new Date());
+            File tempRestoreDir = new File(context.getCacheDir(), "temp_restore_" + timeStamp);
+            if (!tempRestoreDir.exists() && !tempRestoreDir.mkdirs()) {
+                Log.e(TAG, "Failed to create temporary restore directory");
+                return false;
+            }
+
+            InputStream inputStream = contentResolver.openInputStream(backupUri);
+            if (inputStream == null) {
+                Log.e(TAG, "Input stream is null for URI: " + backupUri);
+                deleteDirectory(tempRestoreDir);
+                return false;
             }
 
+            // Читаем файл через ContentResolver потоково
+            boolean restored;
+            try (Reader reader = BackupJsonReader.openReader(inputStream)) {
+                restored = restoreBackupStream(reader, relativePath ->
+                        BackupFileManager.restoreFileFromBackup(context, relativePath, tempRestoreDir.getAbsolutePath()));
+            }
 
             // Удаляем временную директорию
             deleteDirectory(tempRestoreDir);
 
+            if (!restored) {
+                Log.e(TAG, "Failed to parse backup file from URI");
+                return false;
+            }
+
             Log.i(TAG, "Restore from URI completed successfully");
             return true;
 
@@ -812,8 +1109,12 @@ public class AutoBackupManager {
         if (files != null) {
             for (File file : files) {
                 if (file.isDirectory()) {
-                    findBackupFiles(file, backupFiles);
-                } else if (file.getName().endsWith(".json")) {
+                    // В хранилище блобов лежит только индекс, это не резервная копия
+                    if (!BackupBlobStore.BLOB_DIR_NAME.equals(file.getName())) {
+                        findBackupFiles(file, backupFiles);
+                    }
+                } else if (file.getName().endsWith(".json") && !isDeltaBackup(file.getName())) {
+                    // Инкрементальные копии восстанавливаются только вместе со своим снимком (getBackupChain)
                     backupFiles.add(file);
                 }
             }
@@ -836,6 +1137,21 @@ public class AutoBackupManager {
 
     public void setAutoBackupEnabled(boolean enabled) {
         prefs.edit().putBoolean(KEY_AUTO_BACKUP_ENABLED, enabled).apply();
+        if (!enabled) {
+            WorkManager.getInstance(context).cancelUniqueWork(AUTO_BACKUP_WORK_NAME);
+        }
+        executor.execute(this::syncChangeJournal);
+    }
+
+    /**
+     * Журнал изменений ведется, только пока включены автоматические копии: выключенный журнал
+     * очищается, а после включения в нем нет изменений, сделанных раньше. В обоих случаях
+     * инкрементальная цепочка прерывается и следующая автоматическая копия будет полной.
+     */
+    private void syncChangeJournal() {
+        if (repository.setChangeJournalEnabledSync(isAutoBackupEnabled())) {
+            resetIncrementalBackupState();
+        }
     }
 
     public boolean isAutoBackupEnabled() {
@@ -860,7 +1176,8 @@ public class AutoBackupManager {
     }
 
     public void cleanup() {
-        executor.shutdown();
+        // Поток заданий общий для приложения и не останавливается
+        mediaCopyStage.shutdown();
     }
 
     public static class BackupData {
@@ -931,108 +1248,6 @@ public class AutoBackupManager {
         return new File(context.getFilesDir(), "backups").getAbsolutePath();
     }
 
-    /**
-     * Копирует содержимое одной директории в другую
-     */
-    private void copyDirectory(File sourceDir, File targetDir) {
-        if (!targetDir.exists() && !targetDir.mkdirs()) {
-            Log.e(TAG, "Failed to create target directory: " + targetDir.getAbsolutePath());
-            return;
-        }
-
-        File[] files = sourceDir.listFiles();
-        if (files == null) {
-            return;
-        }
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                File targetSubDir = new File(targetDir, file.getName());
-                copyDirectory(file, targetSubDir);
-            } else {
-                File targetFile = new File(targetDir, file.getName());
-
-                // Для избежания конфликта имен генерируем уникальное имя при необходимости
-                File finalTargetFile = targetFile;
-                if (targetFile.exists()) {
-                    String nameWithoutExtension = "";
-                    String extension = "";
-                    String fileName = file.getName();
-                    int dotIndex = fileName.lastIndexOf('.');
-                    if (dotIndex > 0) {
-                        nameWithoutExtension = fileName.substring(0, dotIndex);
-                        extension = fileName.substring(dotIndex);
-                    } else {
-                        nameWithoutExtension = fileName;
-                        extension = "";
-                    }
-
-                    String uniqueFileName = nameWithoutExtension + "_" + java.util.UUID.randomUUID().toString() + extension;
-                    finalTargetFile = new File(targetDir, uniqueFileName);
-                }
-
-                try {
-                    java.nio.file.Files.copy(file.toPath(), finalTargetFile.toPath(),
-                            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error copying file: " + file.getAbsolutePath() + " to " + finalTargetFile.getAbsolutePath(), e);
-
-                    // Резервный способ копирования
-                    try (java.io.FileInputStream fis = new java.io.FileInputStream(file);
-                         java.io.FileOutputStream fos = new java.io.FileOutputStream(finalTargetFile)) {
-                        byte[] buffer = new byte[4096];
-                        int length;
-                        while ((length = fis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, length);
-                        }
-                    } catch (Exception copyEx) {
-                        Log.e(TAG, "Error copying file (fallback): " + file.getAbsolutePath(), copyEx);
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Проверяет, совпадает ли содержимое двух файлов
-     */
-    private boolean areFilesContentEqual(File file1, File file2) {
-        try (java.io.FileInputStream stream1 = new java.io.FileInputStream(file1);
-             java.io.FileInputStream stream2 = new java.io.FileInputStream(file2)) {
-
-            // Сравниваем размеры файлов
-            if (file1.length() != file2.length()) {
-                return false;
-            }
-
-            // Сравниваем содержимое побайтово
-            byte[] buffer1 = new byte[4096];
-            byte[] buffer2 = new byte[4096];
-
-            int bytesRead1, bytesRead2;
-            while ((bytesRead1 = stream1.read(buffer1)) != -1) {
-                bytesRead2 = stream2.read(buffer2);
-
-                if (bytesRead1 != bytesRead2) {
-                    return false;
-                }
-
-                // Сравниваем буферы
-                for (int i = 0; i < bytesRead1; i++) {
-                    if (buffer1[i] != buffer2[i]) {
-                        return false;
-                    }
-                }
-            }
-
-            return true;
-        } catch (Exception e) {
-            Log.w(TAG, "Error comparing file content: " + e.getMessage());
-            // Если не можем сравнить, предполагаем, что файлы разные
-            return false;
-        }
-    }
-
     /**
      * Рекурсивно удаляет директорию и все её содержимое
      */
@@ -1062,22 +1277,27 @@ public class AutoBackupManager {
         try {
             Log.d(TAG, "Starting restore from ZIP URI: " + backupUri.toString());
 
-            ContentResolver contentResolver = context.getContentResolver();
+            // Открываем архив напрямую через файловый дескриптор провайдера
+            ZipBackupArchive archive = openZipArchive(backupUri);
+            if (archive != null) {
+                try (ZipBackupArchive zipArchive = archive) {
+                    return restoreFromZipArchive(zipArchive);
+                }
+            }
 
-            // Создаем временный файл для хранения загруженного ZIP
+            // Провайдер отдает только поток без произвольного доступа - копируем архив в кэш
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
                     .format(new Date());
             File tempZipFile = new File(context.getCacheDir(), "temp_backup_" + timeStamp + ".zip");
 
-            // Копируем ZIP файл из URI во временный локальный файл
-            try (java.io.InputStream inputStream = contentResolver.openInputStream(backupUri);
+            try (java.io.InputStream inputStream = context.getContentResolver().openInputStream(backupUri);
                  java.io.FileOutputStream outputStream = new java.io.FileOutputStream(tempZipFile)) {
                 if (inputStream == null) {
                     Log.e(TAG, "Input stream is null for URI: " + backupUri);
                     return false;
                 }
 
-                byte[] buffer = new byte[4096];
+                byte[] buffer = new byte[64 * 1024];
                 int bytesRead;
                 while ((bytesRead = inputStream.read(buffer)) != -1) {
                     outputStream.write(buffer, 0, bytesRead);
@@ -1085,44 +1305,35 @@ public class AutoBackupManager {
                 outputStream.flush();
             }
 
-            // Создаем временную директорию для извлечения ZIP
-            File extractDir = new File(context.getCacheDir(), "extracted_backup_" + timeStamp);
-            if (!extractDir.exists() && !extractDir.mkdirs()) {
-                Log.e(TAG, "Failed to create extraction directory");
-                return false;
-            }
-
-            // Извлекаем ZIP файл
-            boolean extracted = BackupFileManager.extractZipBackup(tempZipFile.getAbsolutePath(), extractDir.getAbsolutePath());
-            if (!extracted) {
-                Log.e(TAG, "Failed to extract ZIP backup");
-                return false;
-            }
-
-            // Находим JSON файл в извлеченной директории
-            File[] jsonFiles = extractDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (jsonFiles == null || jsonFiles.length == 0) {
-                Log.e(TAG, "No JSON backup file found in ZIP archive");
-                return false;
+            try (ZipBackupArchive zipArchive = new ZipBackupArchive(tempZipFile)) {
+                return restoreFromZipArchive(zipArchive);
+            } finally {
+                tempZipFile.delete();
             }
 
-            File jsonFile = jsonFiles[0]; // Берем первый найденный JSON файл
-
-            // Теперь используем метод восстановления из JSON файла с указанием правильной директории
-            boolean success = restoreFromJsonFile(jsonFile, extractDir);
-
-            // Очищаем временные файлы
-            tempZipFile.delete();
-            deleteDirectory(extractDir);
-
-            return success;
-
         } catch (Exception e) {
             Log.e(TAG, "Error restoring from ZIP backup URI", e);
             return false;
         }
     }
 
+    /**
+     * Открывает ZIP архив по URI без копирования, через путь /proc/self/fd дескриптора провайдера.
+     * ZipFile открывает файл заново по этому пути, поэтому исходный дескриптор сразу закрывается.
+     * @return архив или null, если провайдер не поддерживает произвольный доступ (например, pipe)
+     */
+    private ZipBackupArchive openZipArchive(Uri backupUri) {
+        try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(backupUri, "r")) {
+            if (descriptor == null) {
+                return null;
+            }
+            return new ZipBackupArchive(new File("/proc/self/fd/" + descriptor.getFd()));
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "Cannot open ZIP backup URI for random access: " + backupUri, e);
+            return null;
+        }
+    }
+
     /**
      * Проверяет, является ли файл ZIP архивом
      */
@@ -1139,7 +1350,10 @@ public class AutoBackupManager {
     }
 
     /**
-     * Восстановление из всех доступных резервных копий
+     * Восстановление из всех доступных резервных копий.
+     * Каждый JSON снимок объединяется вместе со своими инкрементальными копиями (getBackupChain):
+     * их удаления и обновления применяются к снимку при чтении (BackupChainReader),
+     * поэтому в объединение попадает последнее состояние цепочки
      */
     public boolean restoreFromAllBackups() {
         try {
@@ -1154,46 +1368,64 @@ public class AutoBackupManager {
             // Сортируем файлы по времени модификации (от старых к новым)
             java.util.Arrays.sort(backupFiles, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
 
-            // Очищаем текущие данные
-            repository.deleteAllData();
-
             // Мапы для соответствия старых и новых ID
             Map<Long, Long> collectionIdMap = new HashMap<>();
             Map<Long, Long> seriesIdMap = new HashMap<>();
 
-            boolean success = true;
+            // Очистка и объединение всех копий выполняются одной транзакцией: если какую-то копию
+            // не удалось прочитать, изменения откатываются и текущие данные остаются нетронутыми
+            boolean success = repository.runInTransactionSync(() -> {
+                if (!repository.deleteAllData()) {
+                    return false;
+                }
 
-            // Обрабатываем каждую резервную копию
-            for (File backupFile : backupFiles) {
-                Log.d(TAG, "Processing backup file: " + backupFile.getName());
-
-                if (isZipBackupFile(backupFile)) {
-                    // Временно извлекаем ZIP для обработки
-                    String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
-                            .format(new Date());
-                    File extractDir = new File(context.getCacheDir(), "temp_extract_" + timeStamp);
-
-                    boolean extracted = BackupFileManager.extractZipBackup(backupFile.getAbsolutePath(), extractDir.getAbsolutePath());
-                    if (!extracted) {
-                        Log.e(TAG, "Failed to extract ZIP backup: " + backupFile.getName());
-                        continue;
+                boolean processed = true;
+                // Обрабатываем каждую резервную копию
+                for (File backupFile : backupFiles) {
+                    Log.d(TAG, "Processing backup file: " + backupFile.getName());
+
+                    if (isZipBackupFile(backupFile)) {
+                        // Читаем JSON и медиафайлы прямо из архива
+                        try (ZipBackupArchive archive = new ZipBackupArchive(backupFile);
+                             Reader reader = archive.openManifest()) {
+                            if (reader != null) {
+                                processed &= processBackupFile(backupFile.getName(), reader, new ArrayList<>(),
+                                        collectionIdMap, seriesIdMap,
+                                        relativePath -> archive.restoreFile(context, relativePath));
+                            }
+                        } catch (IOException e) {
+                            Log.e(TAG, "Failed to open ZIP backup: " + backupFile.getName(), e);
+                            processed = false;
+                        }
+                    } else {
+                        List<File> chain = getBackupChain(backupFile);
+                        if (chain == null) {
+                            return false;
+                        }
+                        try (Reader reader = BackupJsonReader.openReader(new FileInputStream(backupFile))) {
+                            processed &= processBackupFile(backupFile.getName(), reader, chain.subList(1, chain.size()),
+                                    collectionIdMap, seriesIdMap,
+                                    relativePath -> BackupFileManager.restoreFileFromBackup(context, relativePath, backupFile.getParent()));
+                        } catch (IOException e) {
+                            Log.e(TAG, "Error reading backup file: " + backupFile.getName(), e);
+                            processed = false;
+                        }
                     }
-
-                    // Находим JSON файл в извлеченной папке
-                    File[] jsonFiles = extractDir.listFiles((dir, name) -> name.endsWith(".json"));
-                    if (jsonFiles != null && jsonFiles.length > 0) {
-                        success &= processBackupFile(jsonFiles[0], collectionIdMap, seriesIdMap);
+                    if (!processed) {
+                        // Транзакция все равно будет откачена, остальные копии не читаем
+                        return false;
                     }
-
-                    // Удаляем временную папку
-                    deleteDirectory(extractDir);
-                } else {
-                    success &= processBackupFile(backupFile, collectionIdMap, seriesIdMap);
                 }
-            }
+                return true;
+            });
 
+            if (!success) {
+                Log.e(TAG, "Restore from all backups rolled back, current data kept");
+                return false;
+            }
+            resetIncrementalBackupState();
             Log.i(TAG, "Restore from all backups completed");
-            return success;
+            return true;
 
         } catch (Exception e) {
             Log.e(TAG, "Error restoring from all backups", e);
@@ -1203,207 +1435,26 @@ public class AutoBackupManager {
 
     /**
      * Обработка одного файла резервной копии и объединение с существующими данными
+     * @param deltaFiles инкрементальные копии снимка, которые применяются к нему при чтении
+     * @return false, если файл не прочитан или какую-то запись не удалось сохранить
      */
-    private boolean processBackupFile(File backupFile, Map<Long, Long> collectionIdMap, Map<Long, Long> seriesIdMap) {
+    private boolean processBackupFile(String backupName, Reader reader, List<File> deltaFiles,
+                                      Map<Long, Long> collectionIdMap, Map<Long, Long> seriesIdMap,
+                                      BackupFileResolver fileResolver) {
         try {
-            Log.d(TAG, "Processing backup file: " + backupFile.getAbsolutePath());
-
-            // Читаем файл
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.FileReader(backupFile));
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
-            }
-            reader.close();
+            Log.d(TAG, "Processing backup file: " + backupName + ", incremental backups: " + deltaFiles.size());
 
-            String json = jsonBuilder.toString();
-            Log.d(TAG, "Backup JSON length: " + json.length());
-
-            // Парсим JSON
-            Type type = new TypeToken<BackupData>() {}.getType();
-            BackupData backupData = gson.fromJson(json, type);
-
-            if (backupData == null) {
-                Log.e(TAG, "Failed to parse backup file: " + backupFile.getName());
+            boolean processed = new BackupChainReader(new BackupJsonReader(gson)).read(reader, deltaFiles,
+                    new MergeRestoreHandler(collectionIdMap, seriesIdMap, fileResolver));
+            if (!processed) {
+                Log.e(TAG, "Failed to parse backup file: " + backupName);
                 return false;
             }
 
-            Log.d(TAG, "Parsed backup: " +
-                    (backupData.collections != null ? backupData.collections.size() : 0) + " collections, " +
-                    (backupData.series != null ? backupData.series.size() : 0) + " series, " +
-                    (backupData.mediaFiles != null ? backupData.mediaFiles.size() : 0) + " media files");
-
-            // Восстанавливаем коллекции
-            if (backupData.collections != null) {
-                for (Collection collectionData : backupData.collections) {
-                    // Проверяем, не существует ли коллекция с таким же названием
-                    Collection existingCollection = repository.getCollectionByNameSync(collectionData.getName());
-                    if (existingCollection != null) {
-                        // Коллекция с таким именем уже существует, обновляем мапу
-                        collectionIdMap.put(collectionData.getId(), existingCollection.getId());
-                        Log.d(TAG, "Collection already exists: " + collectionData.getName());
-                    } else {
-                        long oldId = collectionData.getId();
-
-                        // Создаем новый объект Collection с правильными методами
-                        Collection newCollection = new Collection();
-                        newCollection.setName(collectionData.getName());
-                        newCollection.setCreatedAt(collectionData.getCreatedAt());
-                        newCollection.setFavorite(collectionData.isFavorite()); // Используем isFavorite()
-                        newCollection.setColors(collectionData.getColors());
-
-                        // Сбрасываем ID для новой вставки
-                        newCollection.setId(0);
-                        long newId = repository.insertCollectionSync(newCollection);
-                        if (newId > 0) {
-                            collectionIdMap.put(oldId, newId);
-                            Log.d(TAG, "Restored collection: " + newCollection.getName() +
-                                    " (old: " + oldId + ", new: " + newId + ")");
-                        }
-                    }
-                }
-            }
-
-            // Восстанавливаем сериалы
-            if (backupData.series != null) {
-                for (Series series : backupData.series) {
-                    // Проверяем, не существует ли серия с таким же названием
-                    Series existingSeries = repository.getSeriesByTitleSync(series.getTitle());
-                    if (existingSeries != null) {
-                        // Серия с таким названием уже существует, обновляем мапу
-                        seriesIdMap.put(series.getId(), existingSeries.getId());
-                        Log.d(TAG, "Series already exists: " + series.getTitle());
-
-                        // Восстанавливаем файл обложки, если путь является относительным (означает, что это файл из резервной копии)
-                        if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                            String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                    context,
-                                    series.getImageUri(),
-                                    backupFile.getParent()
-                            );
-                            if (restoredPath != null) {
-                                // Обновляем URI обложки для существующей серии
-                                existingSeries.setImageUri(restoredPath);
-                                repository.updateSeriesSync(existingSeries);
-                            }
-                        }
-                    } else {
-                        Series updatedSeries = new Series();
-                        updatedSeries.setTitle(series.getTitle());
-                        updatedSeries.setIsWatched(series.getIsWatched());
-                        updatedSeries.setNotes(series.getNotes());
-                        updatedSeries.setCreatedAt(series.getCreatedAt());
-                        updatedSeries.setStatus(series.getStatus());
-                        updatedSeries.setIsFavorite(series.getIsFavorite());
-                        updatedSeries.setRating(series.getRating());
-                        updatedSeries.setGenre(series.getGenre());
-                        updatedSeries.setSeasons(series.getSeasons());
-                        updatedSeries.setEpisodes(series.getEpisodes());
-
-                        // Восстанавливаем файл обложки, если путь является относительным (означает, что это файл из резервной копии)
-                        if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                            String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                    context,
-                                    series.getImageUri(),
-                                    backupFile.getParent()
-                            );
-                            if (restoredPath != null) {
-                                updatedSeries.setImageUri(restoredPath);
-                            } else {
-                                // Если не удалось восстановить файл, оставляем оригинальный путь
-                                updatedSeries.setImageUri(series.getImageUri());
-                            }
-                        } else {
-                            // Это обычный URI, оставляем без изменений
-                            updatedSeries.setImageUri(series.getImageUri());
-                        }
-
-                        long oldId = series.getId();
-                        // Сбрасываем ID для новой вставки
-                        updatedSeries.setId(0);
-                        long newId = repository.insertSeriesSync(updatedSeries);
-                        if (newId > 0) {
-                            seriesIdMap.put(oldId, newId);
-                            Log.d(TAG, "Restored series: " + updatedSeries.getTitle() +
-                                    " (old: " + oldId + ", new: " + newId + ")");
-                        }
-                    }
-                }
-            }
-
-            // Восстанавливаем связи
-            if (backupData.relations != null) {
-                for (SeriesCollectionCrossRef relation : backupData.relations) {
-                    Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
-                    Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
-
-                    if (newSeriesId != null && newCollectionId != null) {
-                        // Проверяем, не существует ли связь
-                        boolean relationExists = repository.checkRelationExistsSync(newSeriesId, newCollectionId);
-                        if (!relationExists) {
-                            SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
-                                    newSeriesId, newCollectionId);
-                            newRelation.setIsWatched(relation.getIsWatched());
-                            repository.insertCrossRefSync(newRelation);
-                            Log.d(TAG, "Restored relation: series " + newSeriesId +
-                                    " -> collection " + newCollectionId);
-                        } else {
-                            Log.d(TAG, "Relation already exists: series " + newSeriesId +
-                                    " -> collection " + newCollectionId);
-                        }
-                    }
-                }
-            }
-
-            // Восстанавливаем медиафайлы
-            if (backupData.mediaFiles != null) {
-                for (MediaFile mediaFile : backupData.mediaFiles) {
-                    Long oldSeriesId = mediaFile.getSeriesId();
-                    Long newSeriesId = seriesIdMap.get(oldSeriesId);
-
-                    if (newSeriesId != null) {
-                        // Проверяем, не существует ли медиафайл с таким же URI
-                        MediaFile existingMediaFile = repository.getMediaFileByUriAndSeriesSync(mediaFile.getFileUri(), newSeriesId);
-                        if (existingMediaFile != null) {
-                            Log.d(TAG, "Media file already exists: " + mediaFile.getFileName() +
-                                    " for series ID: " + newSeriesId);
-                        } else {
-                            // Если путь к файлу является относительным (означает, что это файл из резервной копии)
-                            if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith("files/")) {
-                                String restoredPath = BackupFileManager.restoreFileFromBackup(
-                                        context,
-                                        mediaFile.getFileUri(),
-                                        backupFile.getParent()
-                                );
-                                if (restoredPath != null) {
-                                    mediaFile.setFileUri(restoredPath);
-                                    mediaFile.setFilePath(restoredPath);
-                                } else {
-                                    // Если не удалось восстановить файл, оставляем оригинальный путь
-                                    mediaFile.setFileUri(mediaFile.getFileUri());
-                                }
-                            }
-                            // Обновляем ID сериала для нового файла
-                            mediaFile.setSeriesId(newSeriesId);
-                            // Сбрасываем ID для новой вставки
-                            mediaFile.setId(0);
-
-                            long newMediaId = repository.insertMediaFileSync(mediaFile);
-                            if (newMediaId > 0) {
-                                Log.d(TAG, "Restored media file: " + mediaFile.getFileName() +
-                                        " for series ID: " + newSeriesId);
-                            }
-                        }
-                    }
-                }
-            }
-
             return true;
 
         } catch (Exception e) {
-            Log.e(TAG, "Error processing backup file: " + backupFile.getName(), e);
+            Log.e(TAG, "Error processing backup file: " + backupName, e);
             return false;
         }
     }
@@ -1471,9 +1522,20 @@ public class AutoBackupManager {
         return fileName;
     }
     /**
-     * Создает объединенную резервную копию из всех доступных резервных копий
+     * Создает объединенную резервную копию из всех доступных полных снимков.
+     * Инкрементальные копии в getAvailableBackups не входят, они применяются к своему снимку
+     * при чтении (getBackupChain, BackupChainReader).
+     *
+     * Объединение пишется потоково (BackupJsonWriter, BackupZipWriter): для каждого раздела JSON
+     * копии читаются отдельным проходом, в памяти остаются только таблицы новых ID и ключи
+     * уже записанных записей (ConsolidatedData). Файлы копий складываются во временное
+     * хранилище блобов, поэтому одинаковые файлы из разных копий попадают в архив один раз.
+     * @return ZIP архив или null, если какую-то копию не удалось прочитать
      */
     public File createConsolidatedBackup() {
+        File tempBackupDir = null;
+        File zipFile = null;
+        boolean zipCreated = false;
         try {
             Log.d(TAG, "Starting creation of consolidated backup");
 
@@ -1486,688 +1548,1122 @@ public class AutoBackupManager {
             // Сортируем файлы по времени модификации (от старых к новым)
             java.util.Arrays.sort(backupFiles, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
 
-            // Создаем объект объединенных данных
-            BackupData consolidatedData = new BackupData();
-            consolidatedData.collections = new ArrayList<>();
-            consolidatedData.series = new ArrayList<>();
-            consolidatedData.relations = new ArrayList<>();
-            consolidatedData.mediaFiles = new ArrayList<>();
-            consolidatedData.timestamp = System.currentTimeMillis();
-            consolidatedData.version = 1;
-
-            // Мапы для соответствия старых и новых ID
-            Map<Long, Long> collectionIdMap = new HashMap<>();
-            Map<Long, Long> seriesIdMap = new HashMap<>();
+            List<ConsolidationInput> inputs = new ArrayList<>();
+            for (File backupFile : backupFiles) {
+                List<File> chain = getBackupChain(backupFile);
+                if (chain == null) {
+                    // Без недостающей копии объединение потеряло бы часть изменений
+                    Log.e(TAG, "Incremental backup chain is incomplete: " + backupFile.getName());
+                    return null;
+                }
+                inputs.add(new ConsolidationInput(backupFile, chain.subList(1, chain.size())));
+            }
 
-            // Временная директория для объединенных файлов
+            // Временная директория для JSON и файлов объединенной копии
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
                     .format(new Date());
-            File tempBackupDir = new File(context.getCacheDir(), "consolidated_backup_" + timeStamp);
+            tempBackupDir = new File(context.getCacheDir(), "consolidated_backup_" + timeStamp);
             if (!tempBackupDir.exists() && !tempBackupDir.mkdirs()) {
                 Log.e(TAG, "Failed to create temporary consolidated backup directory");
                 return null;
             }
 
-            File tempFilesDir = new File(tempBackupDir, "files");
-            if (!tempFilesDir.exists() && !tempFilesDir.mkdirs()) {
-                Log.e(TAG, "Failed to create temporary files directory");
+            // Создаем директорию для сохранения объединенной резервной копии
+            File backupDir = getBackupDirectory();
+            if (!backupDir.exists() && !backupDir.mkdirs()) {
+                Log.e(TAG, "Failed to create backup directory");
                 return null;
             }
 
-            // Обрабатываем каждую резервную копию
-            for (File backupFile : backupFiles) {
-                Log.d(TAG, "Processing backup file for consolidation: " + backupFile.getName());
+            BackupBlobStore fileStore = new BackupBlobStore(context, tempBackupDir, gson);
+            File jsonFile = new File(tempBackupDir, "consolidated_backup_" + timeStamp + ".json");
+            zipFile = new File(backupDir, "consolidated_backup_" + timeStamp + ".zip");
 
-                if (isZipBackupFile(backupFile)) {
-                    // Временно извлекаем ZIP для обработки
-                    File extractDir = new File(context.getCacheDir(), "temp_extract_" + System.currentTimeMillis());
+            // Как и у полного снимка, файлы добавляются в архив по мере записи JSON, JSON - в конце
+            try (BackupZipWriter zipWriter = new BackupZipWriter(zipFile, fileStore)) {
+                boolean written;
+                try (BackupJsonWriter writer = new BackupJsonWriter(gson, new FileOutputStream(jsonFile))) {
+                    written = writeConsolidatedJson(inputs, writer,
+                            new ConsolidatedData(writer, fileStore, zipWriter), new File(tempBackupDir, "staging"));
+                }
+                if (!written) {
+                    return null;
+                }
 
-                    boolean extracted = BackupFileManager.extractZipBackup(backupFile.getAbsolutePath(), extractDir.getAbsolutePath());
-                    if (!extracted) {
-                        Log.e(TAG, "Failed to extract ZIP backup: " + backupFile.getName());
-                        continue;
-                    }
+                zipWriter.addFile(jsonFile.getName(), jsonFile);
+                zipCreated = zipWriter.finish();
+            }
 
-                    // Находим JSON файл в извлеченной папке
-                    File[] jsonFiles = extractDir.listFiles((dir, name) -> name.endsWith(".json"));
-                    if (jsonFiles != null && jsonFiles.length > 0) {
-                        processBackupFileForConsolidation(jsonFiles[0], consolidatedData, collectionIdMap, seriesIdMap, tempFilesDir);
-                    }
+            if (!zipCreated) {
+                Log.w(TAG, "Failed to create consolidated ZIP backup");
+                return null;
+            }
 
-                    // Удаляем временную папку
-                    deleteDirectory(extractDir);
-                } else {
-                    processBackupFileForConsolidation(backupFile, consolidatedData, collectionIdMap, seriesIdMap, tempFilesDir);
+            Log.i(TAG, "Consolidated backup created successfully: " + zipFile.getAbsolutePath());
+            return zipFile;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error creating consolidated backup", e);
+            return null;
+        } finally {
+            if (zipFile != null && !zipCreated) {
+                zipFile.delete();
+            }
+            // Удаляем временные файлы
+            if (tempBackupDir != null) {
+                deleteDirectory(tempBackupDir);
+            }
+        }
+    }
+
+    /**
+     * Записывает разделы объединенной копии. Каждый раздел - отдельный проход по всем копиям:
+     * коллекции и сериалы получают новые ID раньше, чем читаются ссылающиеся на них связи и медиафайлы.
+     * @return false, если какую-то копию не удалось прочитать
+     */
+    private boolean writeConsolidatedJson(List<ConsolidationInput> inputs, BackupJsonWriter writer,
+                                          ConsolidatedData consolidatedData, File stagingDir) throws IOException {
+        for (String section : CONSOLIDATION_SECTIONS) {
+            writer.beginArray(section);
+            for (ConsolidationInput input : inputs) {
+                if (!readForConsolidation(input, section, consolidatedData, stagingDir)) {
+                    return false;
                 }
             }
+            consolidatedData.finishSection(section);
+            writer.endArray();
+        }
+        writer.finish(System.currentTimeMillis(), 1);
 
-            // Создаем директорию для сохранения объединенной резервной копии
-            File backupDir = getBackupDirectory();
-            if (!backupDir.exists() && !backupDir.mkdirs()) {
-                Log.e(TAG, "Failed to create backup directory");
-                return null;
+        Log.d(TAG, "Consolidated " + inputs.size() + " backups: " + consolidatedData.getCollectionCount() +
+                " collections, " + consolidatedData.getSeriesCount() + " series, " +
+                consolidatedData.getRelationCount() + " relations, " +
+                consolidatedData.getMediaFileCount() + " media files");
+        return true;
+    }
+
+    /**
+     * Читает одну копию (снимок вместе с инкрементальными копиями) и передает записи раздела
+     * section в объединенную копию
+     */
+    private boolean readForConsolidation(ConsolidationInput input, String section,
+                                         ConsolidatedData consolidatedData, File stagingDir) {
+        String backupName = input.backupFile.getName();
+        BackupChainReader chainReader = new BackupChainReader(new BackupJsonReader(gson));
+        try {
+            boolean processed;
+            if (isZipBackupFile(input.backupFile)) {
+                // Из архива распаковываются только файлы, на которые ссылается JSON
+                try (ZipBackupArchive archive = new ZipBackupArchive(input.backupFile);
+                     Reader reader = archive.openManifest()) {
+                    if (reader == null) {
+                        Log.w(TAG, "No backup JSON in ZIP, skipping: " + backupName);
+                        return true;
+                    }
+                    processed = chainReader.read(reader, input.deltaFiles, new ConsolidationHandler(
+                            input, section, consolidatedData, new ZipConsolidationSource(archive, stagingDir)));
+                }
+            } else {
+                try (Reader reader = BackupJsonReader.openReader(new FileInputStream(input.backupFile))) {
+                    processed = chainReader.read(reader, input.deltaFiles, new ConsolidationHandler(
+                            input, section, consolidatedData, relativePath -> {
+                                File sourceFile = new File(input.backupFile.getParent(), relativePath);
+                                return sourceFile.exists() ? sourceFile : null;
+                            }));
+                }
+            }
+
+            if (!processed) {
+                Log.e(TAG, "Failed to parse backup file: " + backupName);
+            }
+            return processed;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing backup file for consolidation: " + backupName, e);
+            return false;
+        }
+    }
+
+    /**
+     * Восстановление из ZIP файла
+     */
+    public boolean restoreFromZipFile(File zipFile) {
+        try {
+            Log.d(TAG, "Starting restore from ZIP file: " + zipFile.getAbsolutePath());
+
+            try (ZipBackupArchive archive = new ZipBackupArchive(zipFile)) {
+                return restoreFromZipArchive(archive);
             }
 
-            // Сохраняем объединенные данные в JSON
-            String fileName = "consolidated_backup_" + timeStamp + ".json";
-            File consolidatedJsonFile = new File(backupDir, fileName);
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring from ZIP file", e);
+            return false;
+        }
+    }
 
-            try (FileOutputStream fos = new FileOutputStream(consolidatedJsonFile);
-                 OutputStreamWriter writer = new OutputStreamWriter(fos)) {
-                writer.write(gson.toJson(consolidatedData));
-                writer.flush();
+    /**
+     * Восстановление из открытого ZIP архива: JSON читается потоково прямо из архива,
+     * медиафайлы распаковываются по одному по мере того, как на них ссылаются записи
+     */
+    private boolean restoreFromZipArchive(ZipBackupArchive archive) throws IOException {
+        try (Reader reader = archive.openManifest()) {
+            if (reader == null) {
+                Log.e(TAG, "No JSON backup file found in ZIP archive");
+                return false;
             }
 
-            // Создаем ZIP архив, содержащий JSON и файлы
-            String zipFileName = "consolidated_backup_" + timeStamp + ".zip";
-            File zipFile = new File(backupDir, zipFileName);
+            boolean restored = restoreBackupStream(reader, relativePath ->
+                    archive.restoreFile(context, relativePath));
+            if (!restored) {
+                Log.e(TAG, "Failed to parse backup file");
+                return false;
+            }
+        }
 
-            // Создаем временную директорию для архивации
-            File combinedBackupDir = new File(context.getCacheDir(), "combined_consolidated_" + timeStamp);
-            if (combinedBackupDir.exists()) {
-                deleteDirectory(combinedBackupDir);
-            }
-            if (combinedBackupDir.mkdirs()) {
-                // Копируем JSON файл в комбинированную директорию
-                File jsonInCombined = new File(combinedBackupDir, consolidatedJsonFile.getName());
-                try (java.io.FileInputStream fis = new java.io.FileInputStream(consolidatedJsonFile);
-                     java.io.FileOutputStream fos = new java.io.FileOutputStream(jsonInCombined)) {
-                    byte[] buffer = new byte[4096];
-                    int length;
-                    while ((length = fis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, length);
-                    }
-                }
+        Log.i(TAG, "Restore completed successfully");
+        return true;
+    }
 
-                // Копируем директорию файлов, если она существует
-                if (tempFilesDir.exists()) {
-                    copyDirectory(tempFilesDir, new File(combinedBackupDir, "files"));
-                }
+    /**
+     * Восстанавливает файл, на который ссылается относительный путь "files/..." или "blobs/..." в резервной копии
+     */
+    private interface BackupFileResolver {
+        /**
+         * @return абсолютный путь к восстановленному файлу или null, если файл не найден
+         */
+        String restoreFile(String relativeFilePath);
+
+        /**
+         * Заранее восстанавливает файлы пачки записей, к которым затем обратится restoreFile
+         */
+        default void prefetch(List<String> relativeFilePaths) {
+        }
+    }
 
-                // Создаем ZIP архив
-                File createdZip = BackupFileManager.createZipBackup(combinedBackupDir.getAbsolutePath(), zipFile.getAbsolutePath());
-                if (createdZip != null) {
-                    Log.d(TAG, "Consolidated ZIP backup created successfully: " + zipFile.getAbsolutePath());
-                } else {
-                    Log.w(TAG, "Failed to create consolidated ZIP backup");
-                    return null;
-                }
+    /**
+     * Восстанавливает файлы пачки записей параллельно через MediaCopyStage до того,
+     * как обработчик начнет их перебирать. Пути вне пачки восстанавливаются сразу при запросе.
+     */
+    private class PrefetchingFileResolver implements BackupFileResolver {
+        private final BackupFileResolver fileResolver;
+        private final MediaCopyStage.Report copyReport = new MediaCopyStage.Report();
+        // Относительный путь -> восстановленный файл (null, если восстановить не удалось)
+        private final Map<String, String> prefetched = new HashMap<>();
+
+        PrefetchingFileResolver(BackupFileResolver fileResolver) {
+            this.fileResolver = fileResolver;
+        }
 
-                // Очищаем временную директорию
-                deleteDirectory(combinedBackupDir);
+        @Override
+        public void prefetch(List<String> relativeFilePaths) {
+            prefetched.clear();
+            List<String> uniquePaths = new ArrayList<>(new LinkedHashSet<>(relativeFilePaths));
+            List<String> restoredPaths = mediaCopyStage.copyAll(uniquePaths, relativePath -> relativePath,
+                    fileResolver::restoreFile, copyReport);
+            for (int i = 0; i < uniquePaths.size(); i++) {
+                prefetched.put(uniquePaths.get(i), restoredPaths.get(i));
             }
+        }
 
-            // Удаляем временные файлы
-            deleteDirectory(tempBackupDir);
+        @Override
+        public String restoreFile(String relativeFilePath) {
+            // Каждый восстановленный файл выдается один раз, повторная ссылка получает свою копию
+            if (prefetched.containsKey(relativeFilePath)) {
+                return prefetched.remove(relativeFilePath);
+            }
+            return fileResolver.restoreFile(relativeFilePath);
+        }
 
-            Log.i(TAG, "Consolidated backup created successfully: " + zipFile.getAbsolutePath());
-            return zipFile;
+        void logReport(String operation) {
+            copyReport.log(operation);
+        }
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating consolidated backup", e);
-            return null;
+    /**
+     * Полное восстановление из потока JSON: очищает текущие данные и вставляет записи по мере чтения.
+     * Очистка и все вставки выполняются одной транзакцией, которая откатывается при ошибке чтения
+     * или разбора, поэтому оборванный или поврежденный файл оставляет текущие данные нетронутыми.
+     * @return false, если поток не удалось разобрать или записать в БД
+     */
+    private boolean restoreBackupStream(Reader reader, BackupFileResolver fileResolver) {
+        BackupJsonReader jsonReader = new BackupJsonReader(gson);
+        PrefetchingFileResolver prefetchingResolver = new PrefetchingFileResolver(fileResolver);
+        boolean restored = repository.runInTransactionSync(() ->
+                jsonReader.read(reader, new ReplaceRestoreHandler(prefetchingResolver)));
+        prefetchingResolver.logReport("Restore");
+        DatabaseExecutors.getInstance().logStats();
+        if (restored) {
+            resetIncrementalBackupState();
         }
+        return restored;
     }
 
     /**
-     * Обработка одного файла резервной копии для объединения
+     * Прерывает восстановление, если пакетная запись в БД не удалась. Ошибка вложенной транзакции
+     * все равно откатила бы транзакцию восстановления целиком, и без исключения restore вернул бы успех.
      */
-    private void processBackupFileForConsolidation(File backupFile, BackupData consolidatedData,
-                                                   Map<Long, Long> collectionIdMap, Map<Long, Long> seriesIdMap,
-                                                   File targetFilesDir) {
-        try {
-            Log.d(TAG, "Processing backup file for consolidation: " + backupFile.getAbsolutePath());
+    private static void checkWritten(boolean written, String what) throws IOException {
+        if (!written) {
+            throw new IOException("Failed to write " + what + " during restore");
+        }
+    }
 
-            // Читаем файл
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.FileReader(backupFile));
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
+    /**
+     * Собирает относительные пути "files/..." и "blobs/..." файлов пачки записей
+     * @param uriOf URI файла записи или null, если запись будет пропущена
+     */
+    private static <T> List<String> collectBackupPaths(List<T> batch, Function<T, String> uriOf) {
+        List<String> relativePaths = new ArrayList<>();
+        for (T item : batch) {
+            String uri = uriOf.apply(item);
+            if (BackupFileManager.isBackupFilePath(uri)) {
+                relativePaths.add(uri);
             }
-            reader.close();
+        }
+        return relativePaths;
+    }
 
-            String json = jsonBuilder.toString();
-            Log.d(TAG, "Backup JSON length: " + json.length());
+    /**
+     * Возвращает путь к восстановленному файлу для относительного пути "files/..." или "blobs/...",
+     * или исходный URI, если это обычный URI или файл не удалось восстановить
+     */
+    private static String resolveBackupPath(String uri, BackupFileResolver fileResolver) {
+        if (BackupFileManager.isBackupFilePath(uri)) {
+            String restoredPath = fileResolver.restoreFile(uri);
+            if (restoredPath != null) {
+                return restoredPath;
+            }
+        }
+        return uri;
+    }
 
-            // Парсим JSON
-            Type type = new TypeToken<BackupData>() {}.getType();
-            BackupData backupData = gson.fromJson(json, type);
+    /**
+     * Копирует поля сериала из резервной копии в новый объект (без ID и обложки)
+     */
+    private static Series copySeriesForRestore(Series series) {
+        Series updatedSeries = new Series();
+        updatedSeries.setTitle(series.getTitle());
+        updatedSeries.setIsWatched(series.getIsWatched());
+        updatedSeries.setNotes(series.getNotes());
+        updatedSeries.setCreatedAt(series.getCreatedAt());
+        updatedSeries.setStatus(series.getStatus());
+        updatedSeries.setIsFavorite(series.getIsFavorite());
+        updatedSeries.setRating(series.getRating());
+        updatedSeries.setGenre(series.getGenre());
+        updatedSeries.setSeasons(series.getSeasons());
+        updatedSeries.setEpisodes(series.getEpisodes());
+        return updatedSeries;
+    }
 
-            if (backupData == null) {
-                Log.e(TAG, "Failed to parse backup file: " + backupFile.getName());
-                return;
+    /**
+     * Вставляет восстановленные сериалы. Названия уникальны без учета регистра (MIGRATION_13_14),
+     * а в копиях, сделанных до этого, могут быть сериалы, отличающиеся только регистром ("Lost" и "LOST").
+     * Как и при миграции, такой сериал получает суффикс с ID (здесь - ID из копии), а не теряется.
+     * @return новые ID по порядку списка (-1 для пропущенных) или null, если запись не удалась
+     */
+    private List<Long> insertRestoredSeries(List<Series> seriesList, List<Long> oldIds) {
+        List<Long> insertedIds = repository.insertSeriesListSync(seriesList);
+        if (insertedIds == null) {
+            return null;
+        }
+
+        List<Long> newIds = new ArrayList<>(insertedIds);
+        List<Series> renamed = new ArrayList<>();
+        List<Integer> renamedPositions = new ArrayList<>();
+        for (int i = 0; i < newIds.size(); i++) {
+            Series series = seriesList.get(i);
+            if (newIds.get(i) <= 0 && series.getTitle() != null) {
+                series.setTitle(series.getTitle() + " (" + oldIds.get(i) + ")");
+                renamed.add(series);
+                renamedPositions.add(i);
             }
+        }
+        if (renamed.isEmpty()) {
+            return newIds;
+        }
 
-            Log.d(TAG, "Parsed backup: " +
-                    (backupData.collections != null ? backupData.collections.size() : 0) + " collections, " +
-                    (backupData.series != null ? backupData.series.size() : 0) + " series, " +
-                    (backupData.mediaFiles != null ? backupData.mediaFiles.size() : 0) + " media files");
-
-            // Обрабатываем коллекции
-            if (backupData.collections != null) {
-                for (Collection collection : backupData.collections) {
-                    // Проверяем, не существует ли коллекция с таким же названием
-                    boolean exists = false;
-                    for (Collection existingCollection : consolidatedData.collections) {
-                        if (existingCollection.getName().equals(collection.getName())) {
-                            exists = true;
-                            break;
-                        }
-                    }
+        List<Long> renamedIds = repository.insertSeriesListSync(renamed);
+        if (renamedIds == null) {
+            return null;
+        }
+        for (int i = 0; i < renamedIds.size(); i++) {
+            newIds.set(renamedPositions.get(i), renamedIds.get(i));
+        }
+        Log.w(TAG, "Renamed series with case-insensitive duplicate titles: " + renamed.size());
+        return newIds;
+    }
 
-                    if (!exists) {
-                        // Добавляем коллекцию и обновляем мапу ID
-                        Collection newCollection = new Collection();
-                        newCollection.setName(collection.getName());
-                        newCollection.setCreatedAt(collection.getCreatedAt());
-                        newCollection.setFavorite(collection.isFavorite());
-                        newCollection.setId(0); // Сбрасываем ID
-
-                        long oldId = collection.getId();
-                        consolidatedData.collections.add(newCollection);
-                        collectionIdMap.put(oldId, (long) consolidatedData.collections.size()); // Используем индекс как временный ID
-                    }
-                }
+    /**
+     * Восстановление с заменой текущих данных
+     */
+    private class ReplaceRestoreHandler implements BackupJsonReader.Handler {
+        // Мапы для соответствия старых и новых ID
+        private final Map<Long, Long> collectionIdMap = new HashMap<>();
+        private final Map<Long, Long> seriesIdMap = new HashMap<>();
+        private final Map<Long, Long> mediaFileIdMap = new HashMap<>();
+        private final BackupFileResolver fileResolver;
+
+        ReplaceRestoreHandler(BackupFileResolver fileResolver) {
+            this.fileResolver = fileResolver;
+        }
+
+        @Override
+        public void onBegin() throws IOException {
+            // Очищаем текущие данные в транзакции восстановления, состояние инкрементальных копий
+            // сбрасывается только после ее фиксации
+            checkWritten(repository.deleteAllData(), "data cleanup");
+        }
+
+        @Override
+        public void onCollections(List<Collection> batch) throws IOException {
+            List<Long> oldIds = new ArrayList<>(batch.size());
+            for (Collection collection : batch) {
+                oldIds.add(collection.getId());
+                // Сбрасываем ID для новой вставки
+                collection.setId(0);
             }
 
-            // Обрабатываем сериалы
-            if (backupData.series != null) {
-                for (Series series : backupData.series) {
-                    // Проверяем, не существует ли серия с таким же названием
-                    boolean exists = false;
-                    for (Series existingSeries : consolidatedData.series) {
-                        if (existingSeries.getTitle().equals(series.getTitle())) {
-                            exists = true;
-                            // Обновляем обложку, если она отличается и новая не пустая
-                            if (series.getImageUri() != null && !series.getImageUri().isEmpty()
-                                    && (existingSeries.getImageUri() == null || existingSeries.getImageUri().isEmpty())) {
-                                existingSeries.setImageUri(series.getImageUri());
-                            }
-                            break;
-                        }
-                    }
+            List<Long> newIds = repository.insertCollectionsSync(batch);
+            checkWritten(newIds != null, "collections");
+            putIdMappings(collectionIdMap, oldIds, newIds);
+            Log.d(TAG, "Restored collections batch: " + batch.size());
+        }
 
-                    if (!exists) {
-                        Series newSeries = new Series();
-                        newSeries.setTitle(series.getTitle());
-                        newSeries.setIsWatched(series.getIsWatched());
-                        newSeries.setNotes(series.getNotes());
-                        newSeries.setCreatedAt(series.getCreatedAt());
-                        newSeries.setStatus(series.getStatus());
-                        newSeries.setIsFavorite(series.getIsFavorite());
-                        newSeries.setRating(series.getRating());
-                        newSeries.setGenre(series.getGenre());
-                        newSeries.setSeasons(series.getSeasons());
-                        newSeries.setEpisodes(series.getEpisodes());
-
-                        // Обрабатываем файл обложки, если путь является относительным
-                        if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                            // Копируем файл в целевую директорию
-                            File sourceFile = new File(backupFile.getParent(), series.getImageUri());
-                            if (sourceFile.exists()) {
-                                // Копируем файл в целевую директорию
-                                File destFile = new File(targetFilesDir, sourceFile.getName());
-
-                                // Проверяем, существует ли файл с таким же именем
-                                if (destFile.exists()) {
-                                    // Проверяем, совпадает ли содержимое файлов
-                                    if (areFilesContentEqual(sourceFile, destFile)) {
-                                        // Файл с тем же содержимым уже существует, используем существующий путь
-                                        newSeries.setImageUri("files/" + destFile.getName());
-                                    } else {
-                                        // Создаем уникальное имя
-                                        String nameWithoutExtension = "";
-                                        String extension = "";
-                                        int dotIndex = destFile.getName().lastIndexOf('.');
-                                        if (dotIndex > 0) {
-                                            nameWithoutExtension = destFile.getName().substring(0, dotIndex);
-                                            extension = destFile.getName().substring(dotIndex);
-                                        } else {
-                                            nameWithoutExtension = destFile.getName();
-                                            extension = "";
-                                        }
-
-                                        String uniqueFileName = nameWithoutExtension + "_" + java.util.UUID.randomUUID().toString() + extension;
-                                        File uniqueDestFile = new File(targetFilesDir, uniqueFileName);
-
-                                        java.nio.file.Files.copy(sourceFile.toPath(), uniqueDestFile.toPath(),
-                                                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                                        newSeries.setImageUri("files/" + uniqueDestFile.getName());
-                                    }
-                                } else {
-                                    // Копируем файл
-                                    java.nio.file.Files.copy(sourceFile.toPath(), destFile.toPath(),
-                                            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                                    newSeries.setImageUri("files/" + destFile.getName());
-                                }
-                            } else {
-                                // Если файл не существует, оставляем оригинальный путь
-                                newSeries.setImageUri(series.getImageUri());
-                            }
-                        } else {
-                            // Это обычный URI, оставляем без изменений
-                            newSeries.setImageUri(series.getImageUri());
-                        }
+        @Override
+        public void onSeries(List<Series> batch) throws IOException {
+            fileResolver.prefetch(collectBackupPaths(batch, Series::getImageUri));
 
-                        newSeries.setId(0); // Сбрасываем ID
+            List<Long> oldIds = new ArrayList<>(batch.size());
+            List<Series> restoredSeries = new ArrayList<>(batch.size());
+            for (Series series : batch) {
+                Series updatedSeries = copySeriesForRestore(series);
+                // Восстанавливаем файл обложки, если путь является относительным
+                updatedSeries.setImageUri(resolveBackupPath(series.getImageUri(), fileResolver));
+                // Сбрасываем ID для новой вставки
+                updatedSeries.setId(0);
 
-                        long oldId = series.getId();
-                        consolidatedData.series.add(newSeries);
-                        seriesIdMap.put(oldId, (long) consolidatedData.series.size()); // Используем индекс как временный ID
-                    }
-                }
+                oldIds.add(series.getId());
+                restoredSeries.add(updatedSeries);
             }
 
-            // Обрабатываем связи
-            if (backupData.relations != null) {
-                for (SeriesCollectionCrossRef relation : backupData.relations) {
-                    Long mappedSeriesId = seriesIdMap.get(relation.getSeriesId());
-                    Long mappedCollectionId = collectionIdMap.get(relation.getCollectionId());
-
-                    if (mappedSeriesId != null && mappedCollectionId != null) {
-                        // Проверяем, не существует ли связь
-                        boolean relationExists = false;
-                        for (SeriesCollectionCrossRef existingRelation : consolidatedData.relations) {
-                            if (existingRelation.getSeriesId() == mappedSeriesId &&
-                                    existingRelation.getCollectionId() == mappedCollectionId) {
-                                relationExists = true;
-                                break;
-                            }
-                        }
+            List<Long> newIds = insertRestoredSeries(restoredSeries, oldIds);
+            checkWritten(newIds != null, "series");
+            putIdMappings(seriesIdMap, oldIds, newIds);
+            Log.d(TAG, "Restored series batch: " + batch.size());
+        }
 
-                        if (!relationExists) {
-                            SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
-                                    mappedSeriesId, mappedCollectionId);
-                            newRelation.setIsWatched(relation.getIsWatched());
-                            consolidatedData.relations.add(newRelation);
-                        }
-                    }
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+            List<SeriesCollectionCrossRef> newRelations = new ArrayList<>(batch.size());
+            for (SeriesCollectionCrossRef relation : batch) {
+                Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
+                Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+
+                if (newSeriesId != null && newCollectionId != null) {
+                    SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
+                            newSeriesId, newCollectionId);
+                    newRelation.setIsWatched(relation.getIsWatched());
+                    newRelations.add(newRelation);
                 }
             }
 
-            // Обрабатываем медиафайлы
-            if (backupData.mediaFiles != null) {
-                for (MediaFile mediaFile : backupData.mediaFiles) {
-                    Long oldSeriesId = mediaFile.getSeriesId();
-                    Long mappedSeriesId = seriesIdMap.get(oldSeriesId);
-
-                    if (mappedSeriesId != null) {
-                        // Проверяем, не существует ли медиафайл с таким же URI и серией
-                        boolean exists = false;
-                        for (MediaFile existingMediaFile : consolidatedData.mediaFiles) {
-                            if (existingMediaFile.getFileUri() != null && mediaFile.getFileUri() != null &&
-                                    existingMediaFile.getFileUri().equals(mediaFile.getFileUri()) &&
-                                    existingMediaFile.getSeriesId() == mappedSeriesId) {
-                                exists = true;
-                                break;
-                            }
-                        }
-
-                        if (!exists) {
-                            MediaFile newMediaFile = new MediaFile(
-                                    mappedSeriesId,
-                                    mediaFile.getFileUri(),
-                                    mediaFile.getFileType(),
-                                    mediaFile.getFileName()
-                            );
-                            newMediaFile.setFilePath(mediaFile.getFilePath());
-                            newMediaFile.setFileSize(mediaFile.getFileSize());
-                            newMediaFile.setCreatedAt(mediaFile.getCreatedAt());
-                            newMediaFile.setDescription(mediaFile.getDescription());
-                            newMediaFile.setId(0); // Сбрасываем ID
-
-                            // Обрабатываем файл, если путь является относительным
-                            if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith("files/")) {
-                                File sourceFile = new File(backupFile.getParent(), mediaFile.getFileUri());
-                                if (sourceFile.exists()) {
-                                    // Копируем файл в целевую директорию
-                                    File destFile = new File(targetFilesDir, sourceFile.getName());
-
-                                    // Проверяем, существует ли файл с таким же именем
-                                    if (destFile.exists()) {
-                                        // Проверяем, совпадает ли содержимое файлов
-                                        if (areFilesContentEqual(sourceFile, destFile)) {
-                                            // Файл с тем же содержимым уже существует, используем существующий путь
-                                            newMediaFile.setFileUri("files/" + destFile.getName());
-                                        } else {
-                                            // Создаем уникальное имя
-                                            String nameWithoutExtension = "";
-                                            String extension = "";
-                                            int dotIndex = destFile.getName().lastIndexOf('.');
-                                            if (dotIndex > 0) {
-                                                nameWithoutExtension = destFile.getName().substring(0, dotIndex);
-                                                extension = destFile.getName().substring(dotIndex);
-                                            } else {
-                                                nameWithoutExtension = destFile.getName();
-                                                extension = "";
-                                            }
-
-                                            String uniqueFileName = nameWithoutExtension + "_" + java.util.UUID.randomUUID().toString() + extension;
-                                            File uniqueDestFile = new File(targetFilesDir, uniqueFileName);
-
-                                            java.nio.file.Files.copy(sourceFile.toPath(), uniqueDestFile.toPath(),
-                                                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                                            newMediaFile.setFileUri("files/" + uniqueDestFile.getName());
-                                        }
-                                    } else {
-                                        // Копируем файл
-                                        java.nio.file.Files.copy(sourceFile.toPath(), destFile.toPath(),
-                                                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                                        newMediaFile.setFileUri("files/" + destFile.getName());
-                                    }
-                                } else {
-                                    // Если файл не существует, оставляем оригинальный путь
-                                    newMediaFile.setFileUri(mediaFile.getFileUri());
-                                }
-                            }
+            if (!newRelations.isEmpty()) {
+                checkWritten(repository.insertCrossRefsSync(newRelations), "relations");
+            }
+            Log.d(TAG, "Restored relations batch: " + newRelations.size());
+        }
 
-                            consolidatedData.mediaFiles.add(newMediaFile);
-                        }
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) throws IOException {
+            fileResolver.prefetch(collectBackupPaths(batch, mediaFile ->
+                    seriesIdMap.containsKey(mediaFile.getSeriesId()) ? mediaFile.getFileUri() : null));
+
+            List<Long> oldIds = new ArrayList<>(batch.size());
+            List<MediaFile> newMediaFiles = new ArrayList<>(batch.size());
+            for (MediaFile mediaFile : batch) {
+                Long newSeriesId = seriesIdMap.get(mediaFile.getSeriesId());
+                if (newSeriesId == null) {
+                    continue;
+                }
+                oldIds.add(mediaFile.getId());
+
+                // Если путь к файлу является относительным (означает, что это файл из резервной копии)
+                if (BackupFileManager.isBackupFilePath(mediaFile.getFileUri())) {
+                    String restoredPath = fileResolver.restoreFile(mediaFile.getFileUri());
+                    if (restoredPath != null) {
+                        mediaFile.setFileUri(restoredPath);
+                        mediaFile.setFilePath(restoredPath);
                     }
                 }
+                // Обновляем ID сериала для нового файла
+                mediaFile.setSeriesId(newSeriesId);
+                // Сбрасываем ID для новой вставки
+                mediaFile.setId(0);
+
+                newMediaFiles.add(mediaFile);
             }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing backup file for consolidation: " + backupFile.getName(), e);
+            if (!newMediaFiles.isEmpty()) {
+                List<Long> newIds = repository.insertMediaFilesSync(newMediaFiles);
+                checkWritten(newIds != null, "media files");
+                putIdMappings(mediaFileIdMap, oldIds, newIds);
+            }
+            Log.d(TAG, "Restored media files batch: " + newMediaFiles.size());
         }
     }
 
     /**
-     * Восстановление из ZIP файла
+     * Применение инкрементальной копии поверх восстановленного полного снимка.
+     * ID из копии сопоставляются с новыми через мапы, заполненные при восстановлении
+     * снимка и предыдущих копий цепочки; строки без соответствия вставляются как новые.
      */
-    public boolean restoreFromZipFile(File zipFile) {
-        try {
-            Log.d(TAG, "Starting restore from ZIP file: " + zipFile.getAbsolutePath());
+    private class DeltaRestoreHandler implements BackupJsonReader.Handler {
+        private final Map<Long, Long> collectionIdMap;
+        private final Map<Long, Long> seriesIdMap;
+        private final Map<Long, Long> mediaFileIdMap;
+        private final BackupFileResolver fileResolver;
+
+        DeltaRestoreHandler(ReplaceRestoreHandler snapshotHandler, BackupFileResolver fileResolver) {
+            this.collectionIdMap = snapshotHandler.collectionIdMap;
+            this.seriesIdMap = snapshotHandler.seriesIdMap;
+            this.mediaFileIdMap = snapshotHandler.mediaFileIdMap;
+            this.fileResolver = fileResolver;
+        }
 
-            // Создаем временную директорию для извлечения ZIP
-            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault())
-                    .format(new Date());
-            File extractDir = new File(context.getCacheDir(), "extracted_backup_" + timeStamp);
-            if (!extractDir.exists() && !extractDir.mkdirs()) {
-                Log.e(TAG, "Failed to create extraction directory");
-                return false;
+        @Override
+        public void onDeletedRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+            List<SeriesCollectionCrossRef> relations = new ArrayList<>(batch.size());
+            for (SeriesCollectionCrossRef relation : batch) {
+                Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
+                Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+                if (newSeriesId != null && newCollectionId != null) {
+                    relations.add(new SeriesCollectionCrossRef(newSeriesId, newCollectionId));
+                }
             }
+            if (!relations.isEmpty()) {
+                checkWritten(repository.deleteCrossRefsSync(relations), "deleted relations");
+            }
+        }
 
-            // Извлекаем ZIP файл
-            boolean extracted = BackupFileManager.extractZipBackup(zipFile.getAbsolutePath(), extractDir.getAbsolutePath());
-            if (!extracted) {
-                Log.e(TAG, "Failed to extract ZIP backup");
-                return false;
+        @Override
+        public void onDeletedMediaFiles(List<Long> batch) throws IOException {
+            List<Long> ids = removeIdMappings(mediaFileIdMap, batch);
+            if (!ids.isEmpty()) {
+                checkWritten(repository.deleteMediaFilesByIdsSync(ids), "deleted media files");
             }
+        }
 
-            // Находим JSON файл в извлеченной директории
-            File[] jsonFiles = extractDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (jsonFiles == null || jsonFiles.length == 0) {
-                Log.e(TAG, "No JSON backup file found in ZIP archive");
-                return false;
+        @Override
+        public void onDeletedSeries(List<Long> batch) throws IOException {
+            List<Long> ids = removeIdMappings(seriesIdMap, batch);
+            if (!ids.isEmpty()) {
+                checkWritten(repository.deleteSeriesByIdsSync(ids), "deleted series");
             }
+        }
 
-            File jsonFile = jsonFiles[0];
+        @Override
+        public void onDeletedCollections(List<Long> batch) throws IOException {
+            List<Long> ids = removeIdMappings(collectionIdMap, batch);
+            if (!ids.isEmpty()) {
+                checkWritten(repository.deleteCollectionsByIdsSync(ids), "deleted collections");
+            }
+        }
 
-            // Теперь используем метод восстановления из JSON файла с указанием правильной директории
-            boolean success = restoreFromJsonFile(jsonFile, extractDir);
+        @Override
+        public void onCollections(List<Collection> batch) throws IOException {
+            List<Collection> updated = new ArrayList<>();
+            List<Collection> inserted = new ArrayList<>();
+            List<Long> insertedOldIds = new ArrayList<>();
+            for (Collection collection : batch) {
+                Long newId = collectionIdMap.get(collection.getId());
+                if (newId != null) {
+                    collection.setId(newId);
+                    updated.add(collection);
+                } else {
+                    insertedOldIds.add(collection.getId());
+                    collection.setId(0);
+                    inserted.add(collection);
+                }
+            }
 
-            // Удаляем временную директорию
-            deleteDirectory(extractDir);
+            if (!updated.isEmpty()) {
+                checkWritten(repository.updateCollectionsSync(updated), "collections");
+            }
+            if (!inserted.isEmpty()) {
+                List<Long> newIds = repository.insertCollectionsSync(inserted);
+                checkWritten(newIds != null, "collections");
+                putIdMappings(collectionIdMap, insertedOldIds, newIds);
+            }
+        }
 
-            return success;
+        @Override
+        public void onSeries(List<Series> batch) throws IOException {
+            fileResolver.prefetch(collectBackupPaths(batch, Series::getImageUri));
+
+            List<Series> updated = new ArrayList<>();
+            List<Series> inserted = new ArrayList<>();
+            List<Long> insertedOldIds = new ArrayList<>();
+            for (Series series : batch) {
+                Series restoredSeries = copySeriesForRestore(series);
+                restoredSeries.setImageUri(resolveBackupPath(series.getImageUri(), fileResolver));
+
+                Long newId = seriesIdMap.get(series.getId());
+                if (newId != null) {
+                    restoredSeries.setId(newId);
+                    updated.add(restoredSeries);
+                } else {
+                    insertedOldIds.add(series.getId());
+                    inserted.add(restoredSeries);
+                }
+            }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error restoring from ZIP file", e);
-            return false;
+            if (!updated.isEmpty()) {
+                checkWritten(repository.updateSeriesListSync(updated), "series");
+            }
+            if (!inserted.isEmpty()) {
+                List<Long> newIds = insertRestoredSeries(inserted, insertedOldIds);
+                checkWritten(newIds != null, "series");
+                putIdMappings(seriesIdMap, insertedOldIds, newIds);
+            }
         }
-    }
 
-    /**
-     * Восстановление из JSON файла с указанием базовой директории для файлов
-     */
-    private boolean restoreFromJsonFile(File jsonFile, File baseDir) {
-        try {
-            Log.d(TAG, "Starting restore from JSON file with base dir: " + baseDir.getAbsolutePath());
-
-            // Читаем файл
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.FileReader(jsonFile));
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+            List<SeriesCollectionCrossRef> relations = new ArrayList<>(batch.size());
+            for (SeriesCollectionCrossRef relation : batch) {
+                Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
+                Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+                if (newSeriesId != null && newCollectionId != null) {
+                    SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(newSeriesId, newCollectionId);
+                    newRelation.setIsWatched(relation.getIsWatched());
+                    relations.add(newRelation);
+                }
+            }
+            if (!relations.isEmpty()) {
+                // Существующая связь заменяется, чтобы обновить isWatched
+                checkWritten(repository.upsertCrossRefsSync(relations), "relations");
             }
-            reader.close();
+        }
 
-            String json = jsonBuilder.toString();
-            Log.d(TAG, "Backup JSON length: " + json.length());
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) throws IOException {
+            fileResolver.prefetch(collectBackupPaths(batch, mediaFile ->
+                    seriesIdMap.containsKey(mediaFile.getSeriesId()) ? mediaFile.getFileUri() : null));
+
+            List<MediaFile> updated = new ArrayList<>();
+            List<MediaFile> inserted = new ArrayList<>();
+            List<Long> insertedOldIds = new ArrayList<>();
+            for (MediaFile mediaFile : batch) {
+                Long newSeriesId = seriesIdMap.get(mediaFile.getSeriesId());
+                if (newSeriesId == null) {
+                    continue;
+                }
 
-            // Парсим JSON
-            Type type = new TypeToken<BackupData>() {}.getType();
-            BackupData backupData = gson.fromJson(json, type);
+                if (BackupFileManager.isBackupFilePath(mediaFile.getFileUri())) {
+                    String restoredPath = fileResolver.restoreFile(mediaFile.getFileUri());
+                    if (restoredPath != null) {
+                        mediaFile.setFileUri(restoredPath);
+                        mediaFile.setFilePath(restoredPath);
+                    }
+                }
+                mediaFile.setSeriesId(newSeriesId);
 
-            if (backupData == null) {
-                Log.e(TAG, "Failed to parse backup file");
-                return false;
+                Long newId = mediaFileIdMap.get(mediaFile.getId());
+                if (newId != null) {
+                    mediaFile.setId(newId);
+                    updated.add(mediaFile);
+                } else {
+                    insertedOldIds.add(mediaFile.getId());
+                    mediaFile.setId(0);
+                    inserted.add(mediaFile);
+                }
             }
 
-            Log.d(TAG, "Parsed backup: " +
-                    (backupData.collections != null ? backupData.collections.size() : 0) + " collections, " +
-                    (backupData.series != null ? backupData.series.size() : 0) + " series, " +
-                    (backupData.mediaFiles != null ? backupData.mediaFiles.size() : 0) + " media files");
+            if (!updated.isEmpty()) {
+                checkWritten(repository.updateMediaFilesSync(updated), "media files");
+            }
+            if (!inserted.isEmpty()) {
+                List<Long> newIds = repository.insertMediaFilesSync(inserted);
+                checkWritten(newIds != null, "media files");
+                putIdMappings(mediaFileIdMap, insertedOldIds, newIds);
+            }
+        }
+    }
 
-            // Очищаем текущие данные
-            repository.deleteAllData();
+    /**
+     * Убирает старые ID из мапы и возвращает соответствующие им новые ID
+     */
+    private static List<Long> removeIdMappings(Map<Long, Long> idMap, List<Long> oldIds) {
+        List<Long> newIds = new ArrayList<>(oldIds.size());
+        for (Long oldId : oldIds) {
+            Long newId = idMap.remove(oldId);
+            if (newId != null) {
+                newIds.add(newId);
+            }
+        }
+        return newIds;
+    }
 
-            // Мапы для соответствия старых и новых ID
-            Map<Long, Long> collectionIdMap = new HashMap<>();
-            Map<Long, Long> seriesIdMap = new HashMap<>();
+    /**
+     * Заполняет мапу старых и новых ID по результату пакетной вставки.
+     * Строки, пропущенные из-за конфликта (ID = -1), в мапу не попадают.
+     */
+    private static void putIdMappings(Map<Long, Long> idMap, List<Long> oldIds, List<Long> newIds) {
+        int count = Math.min(oldIds.size(), newIds.size());
+        for (int i = 0; i < count; i++) {
+            Long newId = newIds.get(i);
+            if (newId != null && newId > 0) {
+                idMap.put(oldIds.get(i), newId);
+            }
+        }
+    }
 
-            // Восстанавливаем коллекции
-            if (backupData.collections != null) {
-                for (Collection collection : backupData.collections) {
-                    long oldId = collection.getId();
-                    // Сбрасываем ID для новой вставки
-                    collection.setId(0);
-                    long newId = repository.insertCollectionSync(collection);
-                    if (newId > 0) {
-                        collectionIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored collection: " + collection.getName() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
+    /**
+     * Восстановление с объединением: существующие коллекции, сериалы, связи и медиафайлы не дублируются.
+     * Коллекции, сериалы и медиафайлы вставляются по одной строке, потому что перед каждой вставкой
+     * нужно найти уже существующую строку, в том числе вставленную раньше в этой же пачке.
+     * Отдельных фиксаций на строку при этом нет: обработчик вызывается внутри общей транзакции
+     * restoreFromAllBackups, и вставки и проверки выполняются в ее потоке writer без очереди.
+     * Поэтому каждая запись проверяется (checkWritten): неудачная вложенная транзакция все равно
+     * откатила бы общую при фиксации, и восстановление молча завершилось бы без данных.
+     */
+    private class MergeRestoreHandler implements BackupJsonReader.Handler {
+        private final Map<Long, Long> collectionIdMap;
+        private final Map<Long, Long> seriesIdMap;
+        private final BackupFileResolver fileResolver;
+
+        MergeRestoreHandler(Map<Long, Long> collectionIdMap, Map<Long, Long> seriesIdMap,
+                            BackupFileResolver fileResolver) {
+            this.collectionIdMap = collectionIdMap;
+            this.seriesIdMap = seriesIdMap;
+            this.fileResolver = fileResolver;
+        }
+
+        @Override
+        public void onCollections(List<Collection> batch) throws IOException {
+            for (Collection collectionData : batch) {
+                // Проверяем, не существует ли коллекция с таким же названием
+                Collection existingCollection = repository.getCollectionByNameSync(collectionData.getName());
+                if (existingCollection != null) {
+                    // Коллекция с таким именем уже существует, обновляем мапу
+                    collectionIdMap.put(collectionData.getId(), existingCollection.getId());
+                    continue;
                 }
+
+                long oldId = collectionData.getId();
+
+                Collection newCollection = new Collection();
+                newCollection.setName(collectionData.getName());
+                newCollection.setCreatedAt(collectionData.getCreatedAt());
+                newCollection.setFavorite(collectionData.isFavorite());
+                newCollection.setColors(collectionData.getColors());
+
+                // Сбрасываем ID для новой вставки
+                newCollection.setId(0);
+                long newId = repository.insertCollectionSync(newCollection);
+                checkWritten(newId > 0, "collection");
+                collectionIdMap.put(oldId, newId);
             }
+            Log.d(TAG, "Merged collections batch: " + batch.size());
+        }
 
-            // Восстанавливаем сериалы
-            if (backupData.series != null) {
-                for (Series series : backupData.series) {
-                    Series updatedSeries = new Series();
-                    updatedSeries.setTitle(series.getTitle());
-                    updatedSeries.setIsWatched(series.getIsWatched());
-                    updatedSeries.setNotes(series.getNotes());
-                    updatedSeries.setCreatedAt(series.getCreatedAt());
-                    updatedSeries.setStatus(series.getStatus());
-                    updatedSeries.setIsFavorite(series.getIsFavorite());
-                    updatedSeries.setRating(series.getRating());
-                    updatedSeries.setGenre(series.getGenre());
-                    updatedSeries.setSeasons(series.getSeasons());
-                    updatedSeries.setEpisodes(series.getEpisodes());
+        @Override
+        public void onSeries(List<Series> batch) throws IOException {
+            for (Series series : batch) {
+                // Проверяем, не существует ли серия с таким же названием
+                Series existingSeries = repository.getSeriesByTitleSync(series.getTitle());
+                if (existingSeries != null) {
+                    // Серия с таким названием уже существует, обновляем мапу
+                    seriesIdMap.put(series.getId(), existingSeries.getId());
 
                     // Восстанавливаем файл обложки, если путь является относительным
-                    if (series.getImageUri() != null && series.getImageUri().startsWith("files/")) {
-                        String restoredPath = restoreFileFromBackup(series.getImageUri(), baseDir);
+                    if (BackupFileManager.isBackupFilePath(series.getImageUri())) {
+                        String restoredPath = fileResolver.restoreFile(series.getImageUri());
                         if (restoredPath != null) {
-                            updatedSeries.setImageUri(restoredPath);
-                        } else {
-                            // Если не удалось восстановить файл, оставляем оригинальный путь
-                            updatedSeries.setImageUri(series.getImageUri());
+                            // Обновляем URI обложки для существующей серии
+                            existingSeries.setImageUri(restoredPath);
+                            checkWritten(repository.updateSeriesSync(existingSeries), "series cover");
                         }
-                    } else {
-                        // Это обычный URI, оставляем без изменений
-                        updatedSeries.setImageUri(series.getImageUri());
                     }
+                    continue;
+                }
 
-                    long oldId = series.getId();
-                    // Сбрасываем ID для новой вставки
-                    updatedSeries.setId(0);
-                    long newId = repository.insertSeriesSync(updatedSeries);
-                    if (newId > 0) {
-                        seriesIdMap.put(oldId, newId);
-                        Log.d(TAG, "Restored series: " + updatedSeries.getTitle() +
-                                " (old: " + oldId + ", new: " + newId + ")");
-                    }
+                Series updatedSeries = copySeriesForRestore(series);
+                updatedSeries.setImageUri(resolveBackupPath(series.getImageUri(), fileResolver));
+
+                long oldId = series.getId();
+                // Сбрасываем ID для новой вставки
+                updatedSeries.setId(0);
+                long newId = repository.insertSeriesSync(updatedSeries);
+                checkWritten(newId > 0, "series");
+                seriesIdMap.put(oldId, newId);
+            }
+            Log.d(TAG, "Merged series batch: " + batch.size());
+        }
+
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+            List<SeriesCollectionCrossRef> newRelations = new ArrayList<>(batch.size());
+            for (SeriesCollectionCrossRef relation : batch) {
+                Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
+                Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+
+                if (newSeriesId != null && newCollectionId != null) {
+                    SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
+                            newSeriesId, newCollectionId);
+                    newRelation.setIsWatched(relation.getIsWatched());
+                    newRelations.add(newRelation);
                 }
             }
 
-            // Восстанавливаем связи
-            if (backupData.relations != null) {
-                for (SeriesCollectionCrossRef relation : backupData.relations) {
-                    Long newSeriesId = seriesIdMap.get(relation.getSeriesId());
-                    Long newCollectionId = collectionIdMap.get(relation.getCollectionId());
+            // Уже существующие связи пропускаются при вставке (OnConflictStrategy.IGNORE)
+            if (!newRelations.isEmpty()) {
+                checkWritten(repository.insertCrossRefsSync(newRelations), "relations");
+            }
+            Log.d(TAG, "Merged relations batch: " + newRelations.size());
+        }
+
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) throws IOException {
+            for (MediaFile mediaFile : batch) {
+                Long newSeriesId = seriesIdMap.get(mediaFile.getSeriesId());
+                if (newSeriesId == null) {
+                    continue;
+                }
 
-                    if (newSeriesId != null && newCollectionId != null) {
-                        SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(
-                                newSeriesId, newCollectionId);
-                        newRelation.setIsWatched(relation.getIsWatched());
-                        repository.insertCrossRefSync(newRelation);
-                        Log.d(TAG, "Restored relation: series " + newSeriesId +
-                                " -> collection " + newCollectionId);
-                    }
+                // Проверяем, не существует ли медиафайл с таким же URI
+                MediaFile existingMediaFile = repository.getMediaFileByUriAndSeriesSync(mediaFile.getFileUri(), newSeriesId);
+                if (existingMediaFile != null) {
+                    continue;
                 }
-            }
 
-            // Восстанавливаем медиафайлы
-            if (backupData.mediaFiles != null) {
-                for (MediaFile mediaFile : backupData.mediaFiles) {
-                    Long oldSeriesId = mediaFile.getSeriesId();
-                    Long newSeriesId = seriesIdMap.get(oldSeriesId);
-
-                    if (newSeriesId != null) {
-                        // Если путь к файлу является относительным
-                        if (mediaFile.getFileUri() != null && mediaFile.getFileUri().startsWith("files/")) {
-                            String restoredPath = restoreFileFromBackup(mediaFile.getFileUri(), baseDir);
-                            if (restoredPath != null) {
-                                mediaFile.setFileUri(restoredPath);
-                                mediaFile.setFilePath(restoredPath);
-                            } else {
-                                // Если не удалось восстановить файл, оставляем оригинальный путь
-                                mediaFile.setFileUri(mediaFile.getFileUri());
-                            }
-                        }
-                        // Обновляем ID сериала для нового файла
-                        mediaFile.setSeriesId(newSeriesId);
-                        // Сбрасываем ID для новой вставки
-                        mediaFile.setId(0);
-
-                        long newMediaId = repository.insertMediaFileSync(mediaFile);
-                        if (newMediaId > 0) {
-                            Log.d(TAG, "Restored media file: " + mediaFile.getFileName() +
-                                    " for series ID: " + newSeriesId);
-                        }
+                // Если путь к файлу является относительным (означает, что это файл из резервной копии)
+                if (BackupFileManager.isBackupFilePath(mediaFile.getFileUri())) {
+                    String restoredPath = fileResolver.restoreFile(mediaFile.getFileUri());
+                    if (restoredPath != null) {
+                        mediaFile.setFileUri(restoredPath);
+                        mediaFile.setFilePath(restoredPath);
                     }
                 }
-            }
+                // Обновляем ID сериала для нового файла
+                mediaFile.setSeriesId(newSeriesId);
+                // Сбрасываем ID для новой вставки
+                mediaFile.setId(0);
 
-            Log.i(TAG, "Restore completed successfully");
-            return true;
+                checkWritten(repository.insertMediaFileSync(mediaFile) > 0, "media file");
+            }
+            Log.d(TAG, "Merged media files batch: " + batch.size());
+        }
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error restoring from backup", e);
-            return false;
+    /**
+     * Копия, участвующая в объединении, и соответствие ее ID новым ID объединенной копии
+     * (у каждой копии свое: ID разных копий совпадают)
+     */
+    private static class ConsolidationInput {
+        final File backupFile;
+        final List<File> deltaFiles;
+        final Map<Long, Long> collectionIdMap = new HashMap<>();
+        final Map<Long, Long> seriesIdMap = new HashMap<>();
+
+        ConsolidationInput(File backupFile, List<File> deltaFiles) {
+            this.backupFile = backupFile;
+            this.deltaFiles = deltaFiles;
         }
     }
 
     /**
-     * Восстанавливает файл из распакованного ZIP архива
+     * Передает в объединенную копию записи одного раздела, остальные разделы пропускаются
      */
-    private String restoreFileFromBackup(String relativeFilePath, File extractDir) {
-        try {
-            // Извлекаем имя файла из относительного пути
-            String fileName = extractFileName(relativeFilePath);
+    private static class ConsolidationHandler implements BackupJsonReader.Handler {
+        private final ConsolidationInput input;
+        private final String section;
+        private final ConsolidatedData consolidatedData;
+        private final ConsolidationSource fileSource;
+
+        ConsolidationHandler(ConsolidationInput input, String section, ConsolidatedData consolidatedData,
+                             ConsolidationSource fileSource) {
+            this.input = input;
+            this.section = section;
+            this.consolidatedData = consolidatedData;
+            this.fileSource = fileSource;
+        }
+
+        @Override
+        public void onCollections(List<Collection> batch) {
+            if (!"collections".equals(section)) {
+                return;
+            }
+            for (Collection collection : batch) {
+                consolidatedData.addCollection(input, collection);
+            }
+        }
 
-            // Ищем файл в извлеченной директории
-            File sourceFile = null;
+        @Override
+        public void onSeries(List<Series> batch) throws IOException {
+            if (!"series".equals(section)) {
+                return;
+            }
+            for (Series series : batch) {
+                consolidatedData.addSeries(input, series, fileSource);
+            }
+        }
 
-            // Сначала ищем в папке "files"
-            File filesDir = new File(extractDir, "files");
-            if (filesDir.exists()) {
-                sourceFile = new File(filesDir, fileName);
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) {
+            if (!"relations".equals(section)) {
+                return;
             }
+            for (SeriesCollectionCrossRef relation : batch) {
+                consolidatedData.addRelation(input, relation);
+            }
+        }
 
-            // Если не нашли в папке "files", ищем рекурсивно
-            if (sourceFile == null || !sourceFile.exists()) {
-                sourceFile = findFileRecursively(extractDir, fileName);
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) throws IOException {
+            if (!"mediaFiles".equals(section)) {
+                return;
+            }
+            for (MediaFile mediaFile : batch) {
+                consolidatedData.addMediaFile(input, mediaFile, fileSource);
             }
+        }
+    }
 
-            if (sourceFile == null || !sourceFile.exists()) {
-                Log.e(TAG, "Source file does not exist in extracted backup: " + fileName);
-                return null;
+    /**
+     * Потоковая запись объединенной копии. Дубликаты ищутся по ключам уже записанных записей:
+     * коллекции - по названию, сериалы - по названию, связи - по паре новых ID,
+     * медиафайлы - по сериалу и URI. Новые ID назначаются по порядку записи.
+     */
+    private static class ConsolidatedData {
+        private final BackupJsonWriter writer;
+        private final BackupBlobStore fileStore;
+        private final BackupZipWriter zipWriter;
+        private final Map<String, Long> collectionIdsByName = new HashMap<>();
+        private final Map<String, Long> seriesIdsByTitle = new HashMap<>();
+        // Сериалы без обложки пишутся в конце раздела: обложку может дать более новая копия
+        private final Map<Long, Series> seriesWithoutCover = new LinkedHashMap<>();
+        private final Set<String> relationKeys = new HashSet<>();
+        private final Set<String> mediaFileKeys = new HashSet<>();
+
+        ConsolidatedData(BackupJsonWriter writer, BackupBlobStore fileStore, BackupZipWriter zipWriter) {
+            this.writer = writer;
+            this.fileStore = fileStore;
+            this.zipWriter = zipWriter;
+        }
+
+        void addCollection(ConsolidationInput input, Collection collection) {
+            long oldId = collection.getId();
+            Long newId = collectionIdsByName.get(collection.getName());
+            if (newId == null) {
+                newId = (long) collectionIdsByName.size() + 1;
+                collectionIdsByName.put(collection.getName(), newId);
+                collection.setId(newId);
+                writer.write(collection, Collection.class);
             }
+            input.collectionIdMap.put(oldId, newId);
+        }
 
-            // Создаем подкаталог для медиафайлов во внутреннем хранилище приложения
-            File mediaDir = new File(context.getFilesDir(), "media");
-            if (!mediaDir.exists()) {
-                if (!mediaDir.mkdirs()) {
-                    Log.e(TAG, "Failed to create media directory: " + mediaDir.getAbsolutePath());
-                    return null;
+        void addSeries(ConsolidationInput input, Series series, ConsolidationSource fileSource) throws IOException {
+            Long newId = seriesIdsByTitle.get(series.getTitle());
+            if (newId != null) {
+                input.seriesIdMap.put(series.getId(), newId);
+                Series pendingSeries = seriesWithoutCover.get(newId);
+                if (pendingSeries != null && hasValue(series.getImageUri())) {
+                    pendingSeries.setImageUri(consolidateFile(series.getImageUri(), fileSource));
+                    writer.write(pendingSeries, Series.class);
+                    seriesWithoutCover.remove(newId);
                 }
+                return;
             }
 
-            // Генерируем уникальное имя файла
-            String uniqueFileName = UUID.randomUUID().toString() + "_" + fileName;
-            File destinationFile = new File(mediaDir, uniqueFileName);
+            newId = (long) seriesIdsByTitle.size() + 1;
+            seriesIdsByTitle.put(series.getTitle(), newId);
+            input.seriesIdMap.put(series.getId(), newId);
 
-            // Копируем файл
-            try (java.io.FileInputStream inputStream = new java.io.FileInputStream(sourceFile);
-                 java.io.FileOutputStream outputStream = new java.io.FileOutputStream(destinationFile)) {
+            Series newSeries = copySeriesForRestore(series);
+            newSeries.setId(newId);
+            if (hasValue(series.getImageUri())) {
+                newSeries.setImageUri(consolidateFile(series.getImageUri(), fileSource));
+                writer.write(newSeries, Series.class);
+            } else {
+                seriesWithoutCover.put(newId, newSeries);
+            }
+        }
 
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+        void addRelation(ConsolidationInput input, SeriesCollectionCrossRef relation) {
+            Long seriesId = input.seriesIdMap.get(relation.getSeriesId());
+            Long collectionId = input.collectionIdMap.get(relation.getCollectionId());
+            if (seriesId == null || collectionId == null || !relationKeys.add(seriesId + ":" + collectionId)) {
+                return;
+            }
+
+            SeriesCollectionCrossRef newRelation = new SeriesCollectionCrossRef(seriesId, collectionId);
+            newRelation.setIsWatched(relation.getIsWatched());
+            writer.write(newRelation, SeriesCollectionCrossRef.class);
+        }
+
+        void addMediaFile(ConsolidationInput input, MediaFile mediaFile, ConsolidationSource fileSource) throws IOException {
+            Long seriesId = input.seriesIdMap.get(mediaFile.getSeriesId());
+            if (seriesId == null || !mediaFileKeys.add(seriesId + ":" + mediaFile.getFileUri())) {
+                return;
+            }
+
+            MediaFile newMediaFile = new MediaFile(
+                    seriesId,
+                    consolidateFile(mediaFile.getFileUri(), fileSource),
+                    mediaFile.getFileType(),
+                    mediaFile.getFileName()
+            );
+            newMediaFile.setId(mediaFileKeys.size());
+            newMediaFile.setFilePath(mediaFile.getFilePath());
+            newMediaFile.setFileSize(mediaFile.getFileSize());
+            newMediaFile.setCreatedAt(mediaFile.getCreatedAt());
+            newMediaFile.setDescription(mediaFile.getDescription());
+            writer.write(newMediaFile, MediaFile.class);
+        }
+
+        /**
+         * Дописывает отложенные записи раздела
+         */
+        void finishSection(String section) {
+            if ("series".equals(section)) {
+                for (Series series : seriesWithoutCover.values()) {
+                    writer.write(series, Series.class);
                 }
-                outputStream.flush();
+                seriesWithoutCover.clear();
+            }
+        }
 
-                Log.d(TAG, "Successfully restored file from backup: " + destinationFile.getAbsolutePath());
-                return destinationFile.getAbsolutePath();
+        int getCollectionCount() {
+            return collectionIdsByName.size();
+        }
+
+        int getSeriesCount() {
+            return seriesIdsByTitle.size();
+        }
+
+        int getRelationCount() {
+            return relationKeys.size();
+        }
+
+        int getMediaFileCount() {
+            return mediaFileKeys.size();
+        }
+
+        /**
+         * Сохраняет файл резервной копии в хранилище объединенной копии и добавляет его в архив
+         * @return путь "blobs/..." в объединенной копии; обычный URI и путь к файлу,
+         *         которого нет в резервной копии, возвращаются без изменений
+         */
+        private String consolidateFile(String uri, ConsolidationSource fileSource) throws IOException {
+            if (!BackupFileManager.isBackupFilePath(uri)) {
+                return uri;
+            }
+            File sourceFile = fileSource.getFile(uri);
+            if (sourceFile == null) {
+                return uri;
+            }
+            try {
+                String blobPath = fileStore.putFile(sourceFile, BackupBlobStore.extensionOf(sourceFile.getName()));
+                if (blobPath == null) {
+                    return uri;
+                }
+                zipWriter.addBlob(blobPath);
+                return blobPath;
+            } finally {
+                fileSource.release(sourceFile);
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Error restoring file from backup: " + e.getMessage(), e);
-            return null;
+        }
+
+        private static boolean hasValue(String value) {
+            return value != null && !value.isEmpty();
         }
     }
 
     /**
-     * Рекурсивно ищет файл в директории
+     * Собирает пути "blobs/..." обложек и медиафайлов резервной копии (collectUnusedBlobs)
      */
-    private File findFileRecursively(File directory, String fileName) {
-        if (directory == null || !directory.exists()) {
-            return null;
+    private static class BlobReferenceHandler implements BackupJsonReader.Handler {
+        private final Set<String> referenced;
+
+        BlobReferenceHandler(Set<String> referenced) {
+            this.referenced = referenced;
         }
 
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return null;
+        @Override
+        public void onCollections(List<Collection> batch) {
         }
 
-        for (File file : files) {
-            if (file.isDirectory()) {
-                File found = findFileRecursively(file, fileName);
-                if (found != null) {
-                    return found;
+        @Override
+        public void onSeries(List<Series> batch) {
+            for (Series series : batch) {
+                if (BackupBlobStore.isBlobPath(series.getImageUri())) {
+                    referenced.add(series.getImageUri());
+                }
+            }
+        }
+
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) {
+        }
+
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) {
+            for (MediaFile mediaFile : batch) {
+                if (BackupBlobStore.isBlobPath(mediaFile.getFileUri())) {
+                    referenced.add(mediaFile.getFileUri());
                 }
-            } else if (file.getName().equals(fileName) || file.getName().endsWith(fileName)) {
-                return file;
             }
         }
-        return null;
     }
 
     /**
-     * Извлекает имя файла из пути в формате "files/filename.ext"
+     * Источник медиафайлов резервной копии для объединения
      */
-    private String extractFileName(String relativeFilePath) {
-        if (relativeFilePath.startsWith("files/")) {
-            return relativeFilePath.substring(6); // Убираем "files/"
+    private interface ConsolidationSource {
+        /**
+         * @return файл по относительному пути "files/..." или "blobs/..." или null, если его нет
+         */
+        File getFile(String relativePath) throws IOException;
+
+        /**
+         * Вызывается, когда файл, полученный из getFile, скопирован
+         */
+        default void release(File file) {
+        }
+    }
+
+    /**
+     * Источник медиафайлов из ZIP архива: каждая запись распаковывается во временный файл
+     * только на время копирования
+     */
+    private static class ZipConsolidationSource implements ConsolidationSource {
+        private final ZipBackupArchive archive;
+        private final File stagingDir;
+
+        ZipConsolidationSource(ZipBackupArchive archive, File stagingDir) {
+            this.archive = archive;
+            this.stagingDir = stagingDir;
+        }
+
+        @Override
+        public File getFile(String relativePath) throws IOException {
+            if (!stagingDir.exists() && !stagingDir.mkdirs()) {
+                throw new IOException("Failed to create staging directory: " + stagingDir.getAbsolutePath());
+            }
+            // Уникальное имя: хранилище блобов узнает уже сохраненный файл по пути, размеру и времени
+            File stagedFile = File.createTempFile("staged", BackupBlobStore.extensionOf(relativePath), stagingDir);
+            if (archive.extractEntry(relativePath, stagedFile)) {
+                return stagedFile;
+            }
+            stagedFile.delete();
+            return null;
+        }
+
+        @Override
+        public void release(File file) {
+            file.delete();
         }
-        return relativeFilePath;
     }
 }
\ No newline at end of file
@@ -0,0 +1,369 @@
+package com.example.seriestracker.data.backup;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Хранилище медиафайлов резервных копий, адресуемое по содержимому.
+ * Каждый файл хранится один раз под именем "blobs/<sha256>.<ext>", а JSON резервной копии
+ * ссылается на него по этому относительному пути. Неизмененные обложки и медиафайлы
+ * повторно не копируются.
+ *
+ * Чтобы не пересчитывать хеш для уже сохраненных файлов, хранилище ведет индекс
+ * "отпечаток источника -> путь блоба" (blobs/index.json). Отпечаток строится из пути,
+ * размера и времени изменения файла (для content:// URI - из URI и размера).
+ * В том же индексе хранится CRC-32 каждого блоба: он считается при сохранении
+ * и нужен для записи блоба в ZIP без сжатия (STORED) без лишнего чтения файла.
+ *
+ * putFile/putUri можно вызывать из нескольких потоков одновременно (см. MediaCopyStage).
+ *
+ * Блобы, на которые больше не ссылается ни одна резервная копия, удаляет removeUnreferenced
+ * (AutoBackupManager.collectUnusedBlobs после полного снимка).
+ */
+public class BackupBlobStore {
+    private static final String TAG = "BackupBlobStore";
+
+    public static final String BLOB_DIR_NAME = "blobs";
+    public static final String BLOB_PREFIX = BLOB_DIR_NAME + "/";
+
+    private static final String INDEX_FILE_NAME = "index.json";
+    private static final String TEMP_PREFIX = ".tmp_";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Context context;
+    private final File blobDir;
+    private final Gson gson;
+    private final Map<String, String> sourceIndex;
+    private final Map<String, Long> checksums;
+
+    private final AtomicInteger storedCount = new AtomicInteger();
+    private final AtomicInteger reusedCount = new AtomicInteger();
+
+    public BackupBlobStore(Context context, File backupDir, Gson gson) {
+        this.context = context;
+        this.blobDir = new File(backupDir, BLOB_DIR_NAME);
+        this.gson = gson;
+
+        IndexData index = loadIndex();
+        this.sourceIndex = new ConcurrentHashMap<>();
+        this.checksums = new ConcurrentHashMap<>();
+        if (index.sources != null) {
+            this.sourceIndex.putAll(index.sources);
+        }
+        if (index.checksums != null) {
+            this.checksums.putAll(index.checksums);
+        }
+    }
+
+    /**
+     * Содержимое blobs/index.json
+     */
+    private static class IndexData {
+        Map<String, String> sources;
+        Map<String, Long> checksums;
+    }
+
+    /**
+     * Сохраняет файл из внутреннего хранилища приложения
+     * @return относительный путь "blobs/..." или null при ошибке
+     */
+    public String putFile(File source, String extension) {
+        if (!source.exists()) {
+            Log.e(TAG, "Source file does not exist: " + source.getAbsolutePath());
+            return null;
+        }
+
+        String fingerprint = "file:" + source.getAbsolutePath() + ":" + source.length() + ":" + source.lastModified();
+        String cached = findCached(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        try (InputStream inputStream = new FileInputStream(source)) {
+            return store(inputStream, extension, fingerprint);
+        } catch (IOException e) {
+            Log.e(TAG, "Error storing file: " + source.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет файл по URI (галерея, другие приложения)
+     * @return относительный путь "blobs/..." или null при ошибке
+     */
+    public String putUri(Uri uri, String extension) {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return putFile(new File(uri.getPath()), extension);
+        }
+
+        long size = querySize(uri);
+        // Без размера отпечаток ненадежен, такие файлы всегда хешируются заново
+        String fingerprint = size >= 0 ? "uri:" + uri + ":" + size : null;
+        String cached = findCached(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                Log.e(TAG, "Input stream is null for URI: " + uri);
+                return null;
+            }
+            return store(inputStream, extension, fingerprint);
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Error storing URI: " + uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает файл блоба по относительному пути "blobs/..."
+     */
+    public File getBlobFile(String relativePath) {
+        return new File(blobDir, relativePath.substring(BLOB_PREFIX.length()));
+    }
+
+    public static boolean isBlobPath(String path) {
+        return path != null && path.startsWith(BLOB_PREFIX);
+    }
+
+    /**
+     * Возвращает CRC-32 блоба. Для блобов, сохраненных до появления контрольных сумм
+     * в индексе, CRC считается один раз и запоминается.
+     */
+    public long getCrc32(String relativePath) throws IOException {
+        Long cached = checksums.get(relativePath);
+        if (cached != null) {
+            return cached;
+        }
+
+        CRC32 crc = new CRC32();
+        try (InputStream inputStream = new FileInputStream(getBlobFile(relativePath))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+            }
+        }
+        checksums.put(relativePath, crc.getValue());
+        return crc.getValue();
+    }
+
+    /**
+     * Сохраняет индекс отпечатков на диск. Вызывается в конце резервного копирования.
+     */
+    public void saveIndex() {
+        File indexFile = new File(blobDir, INDEX_FILE_NAME);
+        File tempFile = new File(blobDir, TEMP_PREFIX + INDEX_FILE_NAME);
+        IndexData index = new IndexData();
+        index.sources = new HashMap<>(sourceIndex);
+        index.checksums = new HashMap<>(checksums);
+        try (Writer writer = new java.io.OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            gson.toJson(index, writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving blob index", e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(indexFile)) {
+            Log.e(TAG, "Failed to replace blob index");
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Удаляет блобы, которых нет в referenced, оставшиеся от прерванных записей временные файлы
+     * и записи индекса об удаленных блобах. Вызывается только между резервными копиями,
+     * иначе будет удален блоб, на который ссылается копия в процессе записи.
+     * @param referenced относительные пути "blobs/..." из всех оставшихся резервных копий
+     * @return число удаленных блобов
+     */
+    public int removeUnreferenced(Set<String> referenced) {
+        File[] files = blobDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory() || INDEX_FILE_NAME.equals(name)) {
+                continue;
+            }
+            if (name.startsWith(TEMP_PREFIX)) {
+                file.delete();
+            } else if (!referenced.contains(BLOB_PREFIX + name)) {
+                if (file.delete()) {
+                    removed++;
+                } else {
+                    Log.w(TAG, "Failed to delete unused blob: " + name);
+                }
+            }
+        }
+
+        sourceIndex.values().retainAll(referenced);
+        checksums.keySet().retainAll(referenced);
+        return removed;
+    }
+
+    public int getStoredCount() {
+        return storedCount.get();
+    }
+
+    public int getReusedCount() {
+        return reusedCount.get();
+    }
+
+    private String findCached(String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        String relativePath = sourceIndex.get(fingerprint);
+        if (relativePath != null && getBlobFile(relativePath).exists()) {
+            reusedCount.incrementAndGet();
+            return relativePath;
+        }
+        return null;
+    }
+
+    /**
+     * Копирует поток во временный файл, одновременно считая SHA-256 и CRC-32, затем переименовывает
+     * его в имя по хешу. Если блоб с таким содержимым уже есть, временный файл удаляется.
+     */
+    private String store(InputStream inputStream, String extension, String fingerprint) throws IOException {
+        if (!blobDir.exists() && !blobDir.mkdirs()) {
+            throw new IOException("Failed to create blob directory: " + blobDir.getAbsolutePath());
+        }
+
+        MessageDigest digest = newDigest();
+        CRC32 crc = new CRC32();
+        File tempFile = new File(blobDir, TEMP_PREFIX + UUID.randomUUID().toString());
+        try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+                crc.update(buffer, 0, bytesRead);
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        String blobName = toHex(digest.digest()) + normalizeExtension(extension);
+        File blobFile = new File(blobDir, blobName);
+        if (blobFile.exists()) {
+            // Такое содержимое уже хранится
+            tempFile.delete();
+            reusedCount.incrementAndGet();
+        } else if (tempFile.renameTo(blobFile)) {
+            // Если тот же файл параллельно сохранил другой поток, rename атомарно заменит
+            // блоб идентичным содержимым
+            storedCount.incrementAndGet();
+        } else {
+            tempFile.delete();
+            throw new IOException("Failed to move blob into place: " + blobFile.getAbsolutePath());
+        }
+
+        String relativePath = BLOB_PREFIX + blobName;
+        checksums.put(relativePath, crc.getValue());
+        if (fingerprint != null) {
+            sourceIndex.put(fingerprint, relativePath);
+        }
+        return relativePath;
+    }
+
+    private IndexData loadIndex() {
+        File indexFile = new File(blobDir, INDEX_FILE_NAME);
+        if (indexFile.exists()) {
+            try (Reader reader = BackupJsonReader.openReader(new FileInputStream(indexFile))) {
+                IndexData index = gson.fromJson(reader, IndexData.class);
+                if (index != null) {
+                    return index;
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Blob index is unreadable, starting with an empty one", e);
+            }
+        }
+        return new IndexData();
+    }
+
+    private long querySize(Uri uri) {
+        try (Cursor cursor = context.getContentResolver().query(
+                uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int columnIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                if (columnIndex >= 0 && !cursor.isNull(columnIndex)) {
+                    return cursor.getLong(columnIndex);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not query size for URI: " + uri, e);
+        }
+        return -1;
+    }
+
+    private static String normalizeExtension(String extension) {
+        if (extension == null || extension.isEmpty()) {
+            return "";
+        }
+        String normalized = extension.startsWith(".") ? extension : "." + extension;
+        return normalized.toLowerCase(java.util.Locale.ROOT);
+    }
+
+    /**
+     * Извлекает расширение (с точкой) из имени файла
+     */
+    public static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+            return fileName.substring(dotIndex);
+        }
+        return "";
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.example.seriestracker.data.backup;
+
+import android.util.Log;
+
+import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.MediaFile;
+import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Чтение цепочки "полный снимок + инкрементальные копии" как одного снимка ее итогового состояния.
+ *
+ * Инкрементальные копии содержат только измененные строки, поэтому они читаются в память целиком.
+ * Снимок читается потоком: обработчик получает последнюю версию каждой записи из цепочки,
+ * удаленные записи пропускаются, а добавленные после снимка передаются в конце своего раздела.
+ * ID остаются ID исходной базы, связи и медиафайлы ссылаются на них так же, как в снимке.
+ * Нужен там, где копии объединяются (restoreFromAllBackups, createConsolidatedBackup) и применить
+ * удаления и обновления инкрементальных копий к БД по их ID нельзя.
+ *
+ * Разделы снимка идут в порядке записи BackupJsonWriter: коллекции, сериалы, связи, медиафайлы.
+ */
+public class BackupChainReader {
+    private static final String TAG = "BackupChainReader";
+
+    private static final int COLLECTIONS = 0;
+    private static final int SERIES = 1;
+    private static final int RELATIONS = 2;
+    private static final int MEDIA_FILES = 3;
+    private static final int SECTION_COUNT = 4;
+
+    private final BackupJsonReader jsonReader;
+
+    public BackupChainReader(BackupJsonReader jsonReader) {
+        this.jsonReader = jsonReader;
+    }
+
+    /**
+     * @param snapshotReader полный снимок
+     * @param deltaFiles инкрементальные копии снимка по порядку (getBackupChain без первого файла)
+     * @return false, если снимок или какая-то копия не является резервной копией
+     */
+    public boolean read(Reader snapshotReader, List<File> deltaFiles, BackupJsonReader.Handler handler) throws IOException {
+        if (deltaFiles.isEmpty()) {
+            return jsonReader.read(snapshotReader, handler);
+        }
+
+        ChainChanges changes = new ChainChanges();
+        for (File deltaFile : deltaFiles) {
+            try (Reader reader = BackupJsonReader.openReader(new FileInputStream(deltaFile))) {
+                if (!jsonReader.read(reader, changes)) {
+                    Log.e(TAG, "Incremental backup is not readable: " + deltaFile.getName());
+                    return false;
+                }
+            }
+        }
+
+        FinalStateHandler finalState = new FinalStateHandler(changes, handler);
+        if (!jsonReader.read(snapshotReader, finalState)) {
+            return false;
+        }
+        finalState.finish();
+        return true;
+    }
+
+    private interface BatchConsumer<T> {
+        void accept(List<T> batch) throws IOException;
+    }
+
+    /**
+     * Итоговые изменения одного раздела: последняя версия измененных записей и ключи удаленных
+     */
+    private static final class SectionChanges<T> {
+        private final Function<T, Object> keyOf;
+        private final Map<Object, T> changed = new LinkedHashMap<>();
+        private final Set<Object> deleted = new HashSet<>();
+
+        SectionChanges(Function<T, Object> keyOf) {
+            this.keyOf = keyOf;
+        }
+
+        void put(List<T> batch) {
+            for (T record : batch) {
+                Object key = keyOf.apply(record);
+                deleted.remove(key);
+                changed.put(key, record);
+            }
+        }
+
+        void delete(Object key) {
+            changed.remove(key);
+            deleted.add(key);
+        }
+
+        boolean isDeleted(Object key) {
+            return deleted.contains(key);
+        }
+
+        /**
+         * Записи пачки снимка в их итоговом виде
+         */
+        List<T> apply(List<T> batch) {
+            List<T> result = new ArrayList<>(batch.size());
+            for (T record : batch) {
+                Object key = keyOf.apply(record);
+                if (deleted.contains(key)) {
+                    continue;
+                }
+                T latest = changed.remove(key);
+                result.add(latest != null ? latest : record);
+            }
+            return result;
+        }
+
+        /**
+         * Записи, которых нет в снимке (добавлены инкрементальными копиями)
+         */
+        List<T> takeRemaining() {
+            List<T> result = new ArrayList<>(changed.values());
+            changed.clear();
+            return result;
+        }
+    }
+
+    private static Object relationKey(SeriesCollectionCrossRef relation) {
+        return relation.getSeriesId() + ":" + relation.getCollectionId();
+    }
+
+    /**
+     * Собирает изменения всех инкрементальных копий цепочки по порядку
+     */
+    private static final class ChainChanges implements BackupJsonReader.Handler {
+        final SectionChanges<Collection> collections = new SectionChanges<>(Collection::getId);
+        final SectionChanges<Series> series = new SectionChanges<>(Series::getId);
+        final SectionChanges<SeriesCollectionCrossRef> relations =
+                new SectionChanges<>(BackupChainReader::relationKey);
+        final SectionChanges<MediaFile> mediaFiles = new SectionChanges<>(MediaFile::getId);
+
+        @Override
+        public void onCollections(List<Collection> batch) {
+            collections.put(batch);
+        }
+
+        @Override
+        public void onSeries(List<Series> batch) {
+            series.put(batch);
+        }
+
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) {
+            relations.put(batch);
+        }
+
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) {
+            mediaFiles.put(batch);
+        }
+
+        @Override
+        public void onDeletedCollections(List<Long> batch) {
+            for (Long id : batch) {
+                collections.delete(id);
+            }
+        }
+
+        @Override
+        public void onDeletedSeries(List<Long> batch) {
+            for (Long id : batch) {
+                series.delete(id);
+            }
+        }
+
+        @Override
+        public void onDeletedRelations(List<SeriesCollectionCrossRef> batch) {
+            for (SeriesCollectionCrossRef relation : batch) {
+                relations.delete(relationKey(relation));
+            }
+        }
+
+        @Override
+        public void onDeletedMediaFiles(List<Long> batch) {
+            for (Long id : batch) {
+                mediaFiles.delete(id);
+            }
+        }
+    }
+
+    /**
+     * Передает обработчику снимок с примененными изменениями. Записи, добавленные копиями,
+     * передаются перед первой пачкой следующего раздела (или в finish), чтобы сериалы
+     * были переданы раньше ссылающихся на них связей и медиафайлов.
+     */
+    private static final class FinalStateHandler implements BackupJsonReader.Handler {
+        private final ChainChanges changes;
+        private final BackupJsonReader.Handler target;
+        // Разделы с номером меньше этого уже завершены
+        private int finishedSections;
+
+        FinalStateHandler(ChainChanges changes, BackupJsonReader.Handler target) {
+            this.changes = changes;
+            this.target = target;
+        }
+
+        @Override
+        public void onBegin() throws IOException {
+            target.onBegin();
+        }
+
+        @Override
+        public void onCollections(List<Collection> batch) throws IOException {
+            finishSectionsBefore(COLLECTIONS);
+            deliver(changes.collections.apply(batch), target::onCollections);
+        }
+
+        @Override
+        public void onSeries(List<Series> batch) throws IOException {
+            finishSectionsBefore(SERIES);
+            deliver(changes.series.apply(batch), target::onSeries);
+        }
+
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+            finishSectionsBefore(RELATIONS);
+            deliver(withoutDeletedOwners(changes.relations.apply(batch)), target::onRelations);
+        }
+
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) throws IOException {
+            finishSectionsBefore(MEDIA_FILES);
+            deliver(withoutDeletedSeries(changes.mediaFiles.apply(batch)), target::onMediaFiles);
+        }
+
+        void finish() throws IOException {
+            finishSectionsBefore(SECTION_COUNT);
+        }
+
+        private void finishSectionsBefore(int section) throws IOException {
+            while (finishedSections < section) {
+                switch (finishedSections++) {
+                    case COLLECTIONS:
+                        deliver(changes.collections.takeRemaining(), target::onCollections);
+                        break;
+                    case SERIES:
+                        deliver(changes.series.takeRemaining(), target::onSeries);
+                        break;
+                    case RELATIONS:
+                        deliver(withoutDeletedOwners(changes.relations.takeRemaining()), target::onRelations);
+                        break;
+                    case MEDIA_FILES:
+                        deliver(withoutDeletedSeries(changes.mediaFiles.takeRemaining()), target::onMediaFiles);
+                        break;
+                }
+            }
+        }
+
+        // Связи и медиафайлы удаленных сериалов и коллекций удаляются каскадно
+        private List<SeriesCollectionCrossRef> withoutDeletedOwners(List<SeriesCollectionCrossRef> relations) {
+            List<SeriesCollectionCrossRef> result = new ArrayList<>(relations.size());
+            for (SeriesCollectionCrossRef relation : relations) {
+                if (!changes.series.isDeleted(relation.getSeriesId())
+                        && !changes.collections.isDeleted(relation.getCollectionId())) {
+                    result.add(relation);
+                }
+            }
+            return result;
+        }
+
+        private List<MediaFile> withoutDeletedSeries(List<MediaFile> mediaFiles) {
+            List<MediaFile> result = new ArrayList<>(mediaFiles.size());
+            for (MediaFile mediaFile : mediaFiles) {
+                if (!changes.series.isDeleted(mediaFile.getSeriesId())) {
+                    result.add(mediaFile);
+                }
+            }
+            return result;
+        }
+
+        private static <T> void deliver(List<T> batch, BatchConsumer<T> consumer) throws IOException {
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+    }
+}
\ No newline at end of file
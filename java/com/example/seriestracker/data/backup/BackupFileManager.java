@@ -11,6 +11,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.UUID;
 
 public class BackupFileManager {
@@ -250,13 +251,27 @@ public class BackupFileManager {
      * Восстанавливает файл из резервной копии во внутреннее хранилище приложения
      */
     public static String restoreFileFromBackup(Context context, String relativeFilePath, String backupDirPath) {
-        try {
-            File sourceFile = new File(backupDirPath, relativeFilePath);
-            if (!sourceFile.exists()) {
-                Log.e(TAG, "Source file does not exist in backup: " + sourceFile.getAbsolutePath());
-                return null;
-            }
+        File sourceFile = new File(backupDirPath, relativeFilePath);
+        if (!sourceFile.exists()) {
+            Log.e(TAG, "Source file does not exist in backup: " + sourceFile.getAbsolutePath());
+            return null;
+        }
 
+        try (FileInputStream inputStream = new FileInputStream(sourceFile)) {
+            return restoreStreamToMedia(context, inputStream, relativeFilePath);
+        } catch (IOException e) {
+            Log.e(TAG, "Error restoring file from backup: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет содержимое файла резервной копии (из папки или записи ZIP) в папку медиафайлов
+     * приложения под оригинальным именем
+     * @return абсолютный путь к восстановленному файлу или null при ошибке
+     */
+    public static String restoreStreamToMedia(Context context, InputStream inputStream, String relativeFilePath) {
+        try {
             // Создаем подкаталог для медиафайлов во внутреннем хранилище приложения
             File mediaDir = new File(context.getFilesDir(), "media");
             if (!mediaDir.exists()) {
@@ -266,8 +281,8 @@ public class BackupFileManager {
                 }
             }
 
-            // Извлекаем оригинальное имя файла из относительного пути
-            String fileName = extractOriginalFileName(relativeFilePath);
+            // Извлекаем оригинальное имя файла из относительного пути (без подкаталогов)
+            String fileName = new File(extractOriginalFileName(relativeFilePath)).getName();
 
             // Сохраняем с оригинальным именем (без UUID префикса)
             File destinationFile = new File(mediaDir, fileName);
@@ -286,27 +301,39 @@ public class BackupFileManager {
                 extension = "";
             }
 
-            // Проверяем и создаем уникальное имя, если файл уже существует
-            while (destinationFile.exists()) {
+            // Проверяем и создаем уникальное имя, если файл уже существует.
+            // createNewFile атомарно занимает имя, поэтому параллельные копирования не перезапишут друг друга
+            while (!destinationFile.createNewFile()) {
                 fileName = nameWithoutExtension + " (" + counter + ")" + extension;
                 destinationFile = new File(mediaDir, fileName);
                 counter++;
             }
 
             // Копируем файл
-            try (FileInputStream inputStream = new FileInputStream(sourceFile);
-                 FileOutputStream outputStream = new FileOutputStream(destinationFile)) {
-
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+            try (FileOutputStream outputStream = new FileOutputStream(destinationFile)) {
+                if (inputStream instanceof FileInputStream) {
+                    FileChannel sourceChannel = ((FileInputStream) inputStream).getChannel();
+                    FileChannel destinationChannel = outputStream.getChannel();
+                    long size = sourceChannel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += sourceChannel.transferTo(position, size - position, destinationChannel);
+                    }
+                } else {
+                    byte[] buffer = new byte[64 * 1024];
+                    int bytesRead;
+                    while ((bytesRead = inputStream.read(buffer)) != -1) {
+                        outputStream.write(buffer, 0, bytesRead);
+                    }
                 }
                 outputStream.flush();
-
-                Log.d(TAG, "Successfully restored file from backup: " + destinationFile.getAbsolutePath());
-                return destinationFile.getAbsolutePath();
+            } catch (IOException e) {
+                destinationFile.delete();
+                throw e;
             }
+
+            Log.d(TAG, "Successfully restored file from backup: " + destinationFile.getAbsolutePath());
+            return destinationFile.getAbsolutePath();
         } catch (IOException e) {
             Log.e(TAG, "Error restoring file from backup: " + e.getMessage(), e);
             return null;
@@ -341,6 +368,10 @@ public class BackupFileManager {
             // Если нет скобок с номером, возвращаем как есть
             return fileName;
         }
+        if (BackupBlobStore.isBlobPath(relativeFilePath)) {
+            // Блоб хранится под именем по хешу содержимого, номеров в скобках у него нет
+            return relativeFilePath.substring(BackupBlobStore.BLOB_PREFIX.length());
+        }
         return relativeFilePath;
     }
     /**
@@ -350,9 +381,19 @@ public class BackupFileManager {
         if (relativeFilePath.startsWith("files/")) {
             return relativeFilePath.substring(6); // Убираем "files/"
         }
+        if (BackupBlobStore.isBlobPath(relativeFilePath)) {
+            return relativeFilePath.substring(BackupBlobStore.BLOB_PREFIX.length());
+        }
         return relativeFilePath;
     }
 
+    /**
+     * Проверяет, ссылается ли путь на файл внутри резервной копии ("files/..." или "blobs/...")
+     */
+    public static boolean isBackupFilePath(String path) {
+        return path != null && (path.startsWith("files/") || BackupBlobStore.isBlobPath(path));
+    }
+
     /**
      * Извлекает оригинальное имя файла из UUID-префиксированного имени файла
      */
@@ -409,18 +450,25 @@ public class BackupFileManager {
             }
         } else {
             String entryName = file.getAbsolutePath().substring(basePath.length() + 1);
-            java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(entryName);
-            zos.putNextEntry(entry);
+            addEntryToZip(zos, file, entryName);
+        }
+    }
 
-            try (java.io.FileInputStream fis = new java.io.FileInputStream(file)) {
-                byte[] buffer = new byte[4096];
-                int length;
-                while ((length = fis.read(buffer)) > 0) {
-                    zos.write(buffer, 0, length);
-                }
+    /**
+     * Записывает один файл в ZIP архив под указанным именем
+     */
+    private static void addEntryToZip(java.util.zip.ZipOutputStream zos, File file, String entryName) throws IOException {
+        java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(entryName);
+        zos.putNextEntry(entry);
+
+        try (java.io.FileInputStream fis = new java.io.FileInputStream(file)) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = fis.read(buffer)) > 0) {
+                zos.write(buffer, 0, length);
             }
-            zos.closeEntry();
         }
+        zos.closeEntry();
     }
 
     /**
@@ -0,0 +1,176 @@
+package com.example.seriestracker.data.backup;
+
+import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.MediaFile;
+import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение JSON резервной копии через JsonReader.
+ * Записи декодируются по одной и передаются обработчику пачками по batchSize,
+ * поэтому объем памяти не зависит от размера файла.
+ *
+ * Массивы читаются в порядке следования в файле. BackupJsonWriter и Gson пишут их
+ * в порядке collections, series, relations, mediaFiles - связи и медиафайлы
+ * обрабатываются уже после того, как заполнены мапы ID коллекций и сериалов.
+ * Инкрементальные копии дополнительно начинаются с массивов deleted* (ID удаленных строк).
+ */
+public class BackupJsonReader {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Получатель пачек записей из резервной копии
+     */
+    public interface Handler {
+        /**
+         * Вызывается один раз, когда корневой объект резервной копии успешно открыт
+         */
+        default void onBegin() throws IOException {
+        }
+
+        void onCollections(List<Collection> batch) throws IOException;
+
+        void onSeries(List<Series> batch) throws IOException;
+
+        void onRelations(List<SeriesCollectionCrossRef> batch) throws IOException;
+
+        void onMediaFiles(List<MediaFile> batch) throws IOException;
+
+        // Удаленные записи есть только в инкрементальных копиях, полное восстановление их пропускает
+
+        default void onDeletedCollections(List<Long> batch) throws IOException {
+        }
+
+        default void onDeletedSeries(List<Long> batch) throws IOException {
+        }
+
+        default void onDeletedRelations(List<SeriesCollectionCrossRef> batch) throws IOException {
+        }
+
+        default void onDeletedMediaFiles(List<Long> batch) throws IOException {
+        }
+    }
+
+    private interface BatchConsumer<T> {
+        void accept(List<T> batch) throws IOException;
+    }
+
+    private final Gson gson;
+    private final int batchSize;
+
+    public BackupJsonReader(Gson gson) {
+        this(gson, DEFAULT_BATCH_SIZE);
+    }
+
+    public BackupJsonReader(Gson gson, int batchSize) {
+        this.gson = gson;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Открывает буферизованный UTF-8 Reader для потока резервной копии
+     */
+    public static Reader openReader(InputStream inputStream) {
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Читает резервную копию и передает записи обработчику
+     * @return false, если файл пустой или не является объектом резервной копии
+     */
+    public boolean read(Reader reader, Handler handler) throws IOException {
+        JsonReader jsonReader = gson.newJsonReader(reader);
+        jsonReader.setLenient(true);
+
+        try {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+        } catch (EOFException e) {
+            // Пустой файл
+            return false;
+        }
+
+        jsonReader.beginObject();
+        handler.onBegin();
+
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "collections":
+                    readArray(jsonReader, Collection.class, handler::onCollections);
+                    break;
+                case "series":
+                    readArray(jsonReader, Series.class, handler::onSeries);
+                    break;
+                case "relations":
+                    readArray(jsonReader, SeriesCollectionCrossRef.class, handler::onRelations);
+                    break;
+                case "mediaFiles":
+                    readArray(jsonReader, MediaFile.class, handler::onMediaFiles);
+                    break;
+                case "deletedCollections":
+                    readArray(jsonReader, Long.class, handler::onDeletedCollections);
+                    break;
+                case "deletedSeries":
+                    readArray(jsonReader, Long.class, handler::onDeletedSeries);
+                    break;
+                case "deletedRelations":
+                    readArray(jsonReader, SeriesCollectionCrossRef.class, handler::onDeletedRelations);
+                    break;
+                case "deletedMediaFiles":
+                    readArray(jsonReader, Long.class, handler::onDeletedMediaFiles);
+                    break;
+                default:
+                    // timestamp, version и неизвестные поля
+                    jsonReader.skipValue();
+                    break;
+            }
+        }
+
+        jsonReader.endObject();
+        return true;
+    }
+
+    private <T> void readArray(JsonReader jsonReader, Class<T> type, BatchConsumer<T> consumer) throws IOException {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        List<T> batch = new ArrayList<>(batchSize);
+
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            T record = adapter.read(jsonReader);
+            if (record != null) {
+                batch.add(record);
+            }
+            if (batch.size() >= batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        jsonReader.endArray();
+
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.seriestracker.data.backup;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковая запись JSON резервной копии через JsonWriter.
+ * Записи пишутся по одной сразу в буферизованный поток, поэтому весь BackupData
+ * не собирается в памяти. Формат файла совпадает с AutoBackupManager.BackupData.
+ */
+public class BackupJsonWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Gson gson;
+    private final Writer writer;
+    private final JsonWriter jsonWriter;
+    private boolean finished;
+
+    public BackupJsonWriter(Gson gson, OutputStream outputStream) throws IOException {
+        this.gson = gson;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.jsonWriter = gson.newJsonWriter(writer);
+        this.jsonWriter.beginObject();
+    }
+
+    /**
+     * Открывает массив записей с указанным именем поля (например "series")
+     */
+    public void beginArray(String name) throws IOException {
+        jsonWriter.name(name).beginArray();
+    }
+
+    /**
+     * Записывает одну запись в текущий массив
+     */
+    public void write(Object record, Type type) {
+        gson.toJson(record, type, jsonWriter);
+    }
+
+    public void endArray() throws IOException {
+        jsonWriter.endArray();
+    }
+
+    /**
+     * Дописывает служебные поля и закрывает корневой объект
+     */
+    public void finish(long timestamp, int version) throws IOException {
+        jsonWriter.name("timestamp").value(timestamp);
+        jsonWriter.name("version").value(version);
+        jsonWriter.endObject();
+        jsonWriter.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            jsonWriter.close();
+        } else {
+            // Документ не завершен (ошибка при записи) - просто закрываем поток
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.seriestracker.data.backup;
+
+import android.app.Application;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.seriestracker.data.repository.SeriesRepository;
+
+/**
+ * Фоновая задача автоматического резервного копирования.
+ * Планируется AutoBackupManager.scheduleAutoBackup() как уникальная работа,
+ * поэтому серия изменений данных приводит к одному запуску.
+ */
+public class BackupWorker extends Worker {
+    private static final String TAG = "BackupWorker";
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Application application = (Application) getApplicationContext();
+        AutoBackupManager backupManager = AutoBackupManager.getInstance(
+                application, SeriesRepository.getInstance(application));
+
+        if (!backupManager.isAutoBackupEnabled()) {
+            return Result.success();
+        }
+
+        if (backupManager.createAutoBackupSync()) {
+            return Result.success();
+        }
+
+        Log.w(TAG, "Auto backup failed, will retry");
+        return Result.retry();
+    }
+}
\ No newline at end of file
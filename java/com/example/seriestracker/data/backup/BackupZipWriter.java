@@ -0,0 +1,152 @@
+package com.example.seriestracker.data.backup;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Однопроходная запись ZIP резервной копии. Блобы добавляются в архив по мере того,
+ * как на них ссылается JSON, а сам JSON - последней записью, поэтому каждый файл
+ * читается для архива ровно один раз.
+ *
+ * Уже сжатые форматы (JPEG, PNG, MP4 и т.п.) пишутся без сжатия (STORED) с CRC из
+ * BackupBlobStore, остальное (JSON) - со сжатием (DEFLATED).
+ *
+ * Ошибка записи не прерывает резервное копирование: архив помечается неудачным,
+ * дальнейшие вызовы игнорируются, а finish() удаляет недописанный файл.
+ */
+public class BackupZipWriter implements Closeable {
+    private static final String TAG = "BackupZipWriter";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            ".jpg", ".jpeg", ".png", ".webp", ".gif", ".heic", ".heif",
+            ".mp4", ".m4v", ".mkv", ".webm", ".3gp", ".mov",
+            ".mp3", ".m4a", ".aac", ".ogg", ".zip"
+    ));
+
+    private final File zipFile;
+    private final BackupBlobStore blobStore;
+    private final Set<String> entryNames = new HashSet<>();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private ZipOutputStream zipOutputStream;
+    private boolean failed;
+
+    public BackupZipWriter(File zipFile, BackupBlobStore blobStore) {
+        this.zipFile = zipFile;
+        this.blobStore = blobStore;
+        try {
+            this.zipOutputStream = new ZipOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(zipFile), BUFFER_SIZE));
+        } catch (IOException e) {
+            fail("Failed to create ZIP file: " + zipFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Добавляет блоб по относительному пути "blobs/...". Повторное добавление игнорируется.
+     */
+    public void addBlob(String relativePath) {
+        if (failed || !entryNames.add(relativePath)) {
+            return;
+        }
+
+        File blobFile = blobStore.getBlobFile(relativePath);
+        if (!blobFile.exists()) {
+            Log.w(TAG, "Skipping missing blob: " + relativePath);
+            return;
+        }
+
+        try {
+            ZipEntry entry = new ZipEntry(relativePath);
+            if (isCompressedFormat(relativePath)) {
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(blobFile.length());
+                entry.setCompressedSize(blobFile.length());
+                entry.setCrc(blobStore.getCrc32(relativePath));
+            }
+            writeEntry(entry, blobFile);
+        } catch (IOException e) {
+            fail("Failed to add blob to ZIP: " + relativePath, e);
+        }
+    }
+
+    /**
+     * Добавляет файл со сжатием (используется для JSON резервной копии)
+     */
+    public void addFile(String entryName, File file) {
+        if (failed || !entryNames.add(entryName)) {
+            return;
+        }
+
+        try {
+            writeEntry(new ZipEntry(entryName), file);
+        } catch (IOException e) {
+            fail("Failed to add file to ZIP: " + entryName, e);
+        }
+    }
+
+    /**
+     * Завершает архив
+     * @return false, если архив не удалось записать (файл в этом случае удален)
+     */
+    public boolean finish() {
+        if (!failed) {
+            try {
+                zipOutputStream.close();
+                zipOutputStream = null;
+            } catch (IOException e) {
+                fail("Failed to finish ZIP file", e);
+            }
+        }
+        if (failed) {
+            close();
+            zipFile.delete();
+        }
+        return !failed;
+    }
+
+    @Override
+    public void close() {
+        if (zipOutputStream != null) {
+            try {
+                zipOutputStream.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing ZIP file", e);
+            }
+            zipOutputStream = null;
+        }
+    }
+
+    private void writeEntry(ZipEntry entry, File file) throws IOException {
+        zipOutputStream.putNextEntry(entry);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                zipOutputStream.write(buffer, 0, bytesRead);
+            }
+        }
+        zipOutputStream.closeEntry();
+    }
+
+    private void fail(String message, Exception e) {
+        Log.e(TAG, message, e);
+        failed = true;
+    }
+
+    private static boolean isCompressedFormat(String path) {
+        return COMPRESSED_EXTENSIONS.contains(BackupBlobStore.extensionOf(path).toLowerCase(Locale.ROOT));
+    }
+}
\ No newline at end of file
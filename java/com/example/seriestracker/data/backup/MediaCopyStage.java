@@ -0,0 +1,148 @@
+package com.example.seriestracker.data.backup;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Параллельное копирование медиафайлов при резервном копировании и восстановлении.
+ * Записи БД обрабатываются пачками: все файлы пачки копируются одновременно
+ * небольшим фиксированным пулом, а результаты возвращаются в порядке записей,
+ * поэтому JSON и вставки в БД по-прежнему идут последовательно.
+ *
+ * Флеш-память (UFS/eMMC) обслуживает несколько запросов одновременно, но после
+ * 3-4 параллельных потоков пропускная способность почти не растет, а ContentResolver
+ * начинает конкурировать с UI - поэтому пул ограничен четырьмя потоками.
+ * Потоки пула завершаются после простоя и не держат ресурсы между копированиями.
+ */
+public class MediaCopyStage {
+    private static final String TAG = "MediaCopyStage";
+
+    public static final int DEFAULT_PARALLELISM =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Копирование одного файла
+     */
+    public interface CopyTask<T> {
+        /**
+         * @return путь к скопированному файлу или null, если файл не удалось скопировать
+         */
+        String copy(T item) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    public MediaCopyStage() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public MediaCopyStage(int parallelism) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "media-copy-" + threadNumber.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Копирует файлы всех записей пачки параллельно и ждет завершения
+     * @param sourceOf путь к файлу записи; записи без файла (null) пропускаются
+     * @return результаты в порядке записей; null для записей без файла и для неудачных копирований
+     */
+    public <T> List<String> copyAll(List<T> items, Function<T, String> sourceOf, CopyTask<T> task, Report report) {
+        List<String> results = new ArrayList<>(Collections.nCopies(items.size(), (String) null));
+        List<Future<String>> futures = new ArrayList<>(Collections.nCopies(items.size(), (Future<String>) null));
+
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (sourceOf.apply(item) != null) {
+                futures.set(i, executor.submit(() -> task.copy(item)));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<String> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+
+            String source = sourceOf.apply(items.get(i));
+            try {
+                String result = future.get();
+                results.set(i, result);
+                if (result != null) {
+                    report.addCopied();
+                } else {
+                    report.addFailure(source, null);
+                }
+            } catch (ExecutionException e) {
+                report.addFailure(source, e.getCause());
+            } catch (InterruptedException e) {
+                // Копирование прервано - отменяем оставшиеся задачи
+                Thread.currentThread().interrupt();
+                for (int j = i; j < futures.size(); j++) {
+                    if (futures.get(j) != null) {
+                        futures.get(j).cancel(true);
+                    }
+                }
+                report.addFailure(source, e);
+                break;
+            }
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Итоги копирования за одну операцию резервного копирования или восстановления
+     */
+    public static class Report {
+        private final long startTime = System.currentTimeMillis();
+        private final List<String> failures = new ArrayList<>();
+        private int copiedCount;
+
+        synchronized void addCopied() {
+            copiedCount++;
+        }
+
+        synchronized void addFailure(String source, Throwable error) {
+            failures.add(error != null ? source + ": " + error : source);
+        }
+
+        public synchronized int getCopiedCount() {
+            return copiedCount;
+        }
+
+        public synchronized List<String> getFailures() {
+            return new ArrayList<>(failures);
+        }
+
+        /**
+         * Пишет в лог количество скопированных файлов, время и список ошибок
+         */
+        public synchronized void log(String operation) {
+            Log.i(TAG, operation + ": copied " + copiedCount + " media files, " + failures.size()
+                    + " failed in " + (System.currentTimeMillis() - startTime) + " ms");
+            for (String failure : failures) {
+                Log.w(TAG, operation + ": failed to copy " + failure);
+            }
+        }
+    }
+}
\ No newline at end of file
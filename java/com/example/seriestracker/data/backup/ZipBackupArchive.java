@@ -0,0 +1,158 @@
+package com.example.seriestracker.data.backup;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Чтение ZIP резервной копии без распаковки архива целиком.
+ * Архив открывается через ZipFile, который читает центральный каталог один раз,
+ * поэтому запись находится по имени за O(1), а JSON и медиафайлы читаются напрямую
+ * из архива. Распаковываются только те записи, на которые ссылается JSON, и сразу
+ * в место назначения.
+ */
+public class ZipBackupArchive implements Closeable {
+    private static final String TAG = "ZipBackupArchive";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipFile zipFile;
+    private final String name;
+    // Индекс "имя файла -> запись" для архивов, где медиафайлы лежат не по пути из JSON.
+    // Строится лениво, только если прямой поиск по имени записи не сработал.
+    private Map<String, ZipEntry> entriesByFileName;
+
+    public ZipBackupArchive(File file) throws IOException {
+        this.zipFile = new ZipFile(file);
+        this.name = file.getName();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Открывает JSON резервной копии внутри архива. Предпочитается JSON в корне архива.
+     * @return Reader для JSON или null, если JSON в архиве нет
+     */
+    public Reader openManifest() throws IOException {
+        ZipEntry manifest = null;
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String entryName = entry.getName();
+            if (entry.isDirectory() || !entryName.endsWith(".json") || isMediaEntry(entryName)) {
+                continue;
+            }
+            if (entryName.indexOf('/') < 0) {
+                manifest = entry;
+                break;
+            }
+            if (manifest == null) {
+                manifest = entry;
+            }
+        }
+
+        if (manifest == null) {
+            return null;
+        }
+        Log.d(TAG, "Reading backup manifest " + manifest.getName() + " from " + name);
+        return BackupJsonReader.openReader(zipFile.getInputStream(manifest));
+    }
+
+    /**
+     * Восстанавливает медиафайл по относительному пути "files/..." или "blobs/..."
+     * прямо из архива в папку медиафайлов приложения
+     * @return абсолютный путь к восстановленному файлу или null, если записи нет
+     */
+    public String restoreFile(Context context, String relativeFilePath) {
+        ZipEntry entry = findEntry(relativeFilePath);
+        if (entry == null) {
+            Log.e(TAG, "Entry does not exist in ZIP backup: " + relativeFilePath);
+            return null;
+        }
+
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return BackupFileManager.restoreStreamToMedia(context, inputStream, relativeFilePath);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading entry from ZIP backup: " + relativeFilePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Распаковывает одну запись архива в указанный файл
+     * @return false, если записи нет или ее не удалось прочитать
+     */
+    public boolean extractEntry(String relativeFilePath, File destFile) {
+        ZipEntry entry = findEntry(relativeFilePath);
+        if (entry == null) {
+            return false;
+        }
+
+        try (InputStream inputStream = zipFile.getInputStream(entry);
+             OutputStream outputStream = new FileOutputStream(destFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error extracting entry from ZIP backup: " + relativeFilePath, e);
+            destFile.delete();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+    private ZipEntry findEntry(String relativeFilePath) {
+        ZipEntry entry = zipFile.getEntry(relativeFilePath);
+        if (entry != null && !entry.isDirectory()) {
+            return entry;
+        }
+        return findEntryByFileName(relativeFilePath);
+    }
+
+    /**
+     * Старые архивы могли хранить файлы во вложенной папке - ищем по имени файла.
+     * Записи читаются из нескольких потоков (MediaCopyStage), поэтому индекс строится под блокировкой.
+     */
+    private synchronized ZipEntry findEntryByFileName(String relativeFilePath) {
+        if (entriesByFileName == null) {
+            entriesByFileName = new HashMap<>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry candidate = entries.nextElement();
+                if (!candidate.isDirectory()) {
+                    entriesByFileName.putIfAbsent(fileNameOf(candidate.getName()), candidate);
+                }
+            }
+        }
+        return entriesByFileName.get(fileNameOf(relativeFilePath));
+    }
+
+    private static boolean isMediaEntry(String entryName) {
+        return entryName.startsWith("files/") || BackupBlobStore.isBlobPath(entryName);
+    }
+
+    private static String fileNameOf(String path) {
+        int slashIndex = path.lastIndexOf('/');
+        return slashIndex >= 0 ? path.substring(slashIndex + 1) : path;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.seriestracker.data.dao;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+/**
+ * Порядок сортировки списка коллекций, выполняемой в SQLite.
+ * Избранные коллекции всегда идут первыми, как и в остальных запросах SeriesDao.
+ * Используется с SeriesDao.getCollectionsSorted вместо сортировки списка в памяти.
+ */
+public final class CollectionSortOrder {
+    public static final CollectionSortOrder NAME_ASC =
+            new CollectionSortOrder("c.name COLLATE NOCASE ASC");
+    public static final CollectionSortOrder NAME_DESC =
+            new CollectionSortOrder("c.name COLLATE NOCASE DESC");
+    public static final CollectionSortOrder SERIES_COUNT_ASC =
+            new CollectionSortOrder("c.seriesCount ASC, c.name COLLATE NOCASE ASC");
+    public static final CollectionSortOrder SERIES_COUNT_DESC =
+            new CollectionSortOrder("c.seriesCount DESC, c.name COLLATE NOCASE ASC");
+
+    private final String orderBy;
+
+    private CollectionSortOrder(String orderBy) {
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * Запрос коллекций в заданном порядке. seriesCount хранится в таблице, поэтому каждой
+     * сортировке соответствует индекс Collection и запрос читает таблицу без подсчета и сортировки.
+     */
+    public SupportSQLiteQuery toQuery() {
+        return new SimpleSQLiteQuery("SELECT * FROM collections c ORDER BY c.isFavorite DESC, " + orderBy);
+    }
+}
\ No newline at end of file
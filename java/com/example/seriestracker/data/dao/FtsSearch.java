@@ -0,0 +1,128 @@
+package com.example.seriestracker.data.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.regex.Pattern;
+
+/**
+ * Построение запросов MATCH и ранжирование результатов полнотекстового поиска.
+ *
+ * Пользовательский ввод разбивается на слова, каждое превращается в префиксный терм "слово*",
+ * поэтому операторы FTS (кавычки, OR, NEAR, -) в запросе не интерпретируются.
+ * Регистр и диакритику учитывает токенизатор unicode61, приводить запрос к нижнему регистру не нужно.
+ *
+ * FTS4 не умеет ранжировать сам, поэтому DAO возвращает matchinfo(..., 'pcx'),
+ * а оценка считается здесь: каждая колонка, где встретилось слово, дает свой вес,
+ * а доля совпадений этой строки среди всех совпадений колонки (не больше 1) поднимает
+ * строки, где слово встречается чаще или оно редкое. Поэтому совпадение в названии
+ * всегда важнее совпадения в заметках.
+ */
+public final class FtsSearch {
+    // Веса колонок series_fts в порядке объявления в SeriesFts: title, notes, genre, description
+    public static final double[] SERIES_WEIGHTS = {10.0, 1.0, 4.0, 2.0};
+    // collections_fts: name
+    public static final double[] COLLECTION_WEIGHTS = {1.0};
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private FtsSearch() {
+    }
+
+    /**
+     * Преобразует пользовательский ввод в выражение MATCH
+     * @return выражение вида "word1*" "word2*" или null, если в запросе нет ни одного слова
+     */
+    public static String toMatchQuery(String userQuery) {
+        if (userQuery == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String token : NON_WORD.split(userQuery)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append('"').append(token).append("*\"");
+        }
+        return builder.length() > 0 ? builder.toString() : null;
+    }
+
+    /**
+     * Преобразует пользовательский ввод в выражение MATCH, ограниченное одной колонкой.
+     * Слова содержат только буквы и цифры, поэтому кавычки не нужны
+     * (FTS4 не принимает фильтр колонки перед фразой в кавычках)
+     * @return выражение вида column:word1* column:word2* или null, если в запросе нет ни одного слова
+     */
+    public static String toColumnMatchQuery(String userQuery, String column) {
+        if (userQuery == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String token : NON_WORD.split(userQuery)) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(column).append(':').append(token).append('*');
+        }
+        return builder.length() > 0 ? builder.toString() : null;
+    }
+
+    /**
+     * Считает оценку релевантности по matchinfo с форматом 'pcx'.
+     * Чем больше значение, тем выше строка в результатах.
+     */
+    public static double score(byte[] matchInfo, double[] weights) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+        // matchinfo - массив 32-битных беззнаковых чисел в порядке байтов платформы
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        if (info.limit() < 2 + 3 * phraseCount * columnCount) {
+            return 0;
+        }
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount && column < weights.length; column++) {
+                int offset = 2 + 3 * (phrase * columnCount + column);
+                int hitsInRow = info.get(offset);
+                int hitsInAllRows = info.get(offset + 1);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    score += weights[column] * (1.0 + (double) hitsInRow / hitsInAllRows);
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Проверяет по matchinfo с форматом 'pcx', что каждое слово запроса встретилось в колонке column.
+     * Так же отбирает строки условие column:word* из toColumnMatchQuery.
+     */
+    public static boolean matchesAllInColumn(byte[] matchInfo, int column) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return false;
+        }
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        if (column >= columnCount || info.limit() < 2 + 3 * phraseCount * columnCount) {
+            return false;
+        }
+
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            if (info.get(2 + 3 * (phrase * columnCount + column)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
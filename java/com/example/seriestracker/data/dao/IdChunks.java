@@ -0,0 +1,36 @@
+package com.example.seriestracker.data.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Разбиение списков ID на части для запросов вида "WHERE id IN (:ids)".
+ *
+ * Каждый ID - отдельный параметр запроса, а число параметров в одном выражении SQLite
+ * ограничено (SQLITE_MAX_VARIABLE_NUMBER, 999 в старых сборках). Пакетные методы SeriesDao
+ * выполняют запрос для каждой части внутри одной транзакции, поэтому для наблюдателей
+ * это по-прежнему одно изменение.
+ */
+public final class IdChunks {
+    // Запас под остальные параметры запроса (значение статуса, флаг, ID коллекции)
+    public static final int MAX_IDS_PER_STATEMENT = 900;
+
+    private IdChunks() {
+    }
+
+    /**
+     * Делит ID на части не длиннее MAX_IDS_PER_STATEMENT, дубликаты сохраняются как есть
+     */
+    public static List<List<Long>> of(Collection<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return chunks;
+        }
+        List<Long> all = new ArrayList<>(ids);
+        for (int start = 0; start < all.size(); start += MAX_IDS_PER_STATEMENT) {
+            chunks.add(all.subList(start, Math.min(start + MAX_IDS_PER_STATEMENT, all.size())));
+        }
+        return chunks;
+    }
+}
\ No newline at end of file
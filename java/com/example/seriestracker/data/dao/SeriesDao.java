@@ -1,20 +1,36 @@
 package com.example.seriestracker.data.dao;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
+import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
 import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
+import com.example.seriestracker.data.entities.ChangeJournalEntry;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.CollectionSearchResult;
+import com.example.seriestracker.data.entities.CollectionSeriesRow;
 import com.example.seriestracker.data.entities.CollectionWithSeries;
 import com.example.seriestracker.data.entities.MediaFile;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesSearchResult;
 import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * SQL запросов, план которых проверяет QueryPlanTest (EXPLAIN QUERY PLAN), вынесен в константы,
+ * общие для @Query и теста, чтобы тест проверял ровно те запросы, которые выполняет приложение.
+ */
 @Dao
 public interface SeriesDao {
 
@@ -38,21 +54,104 @@ public interface SeriesDao {
     @Insert
     void insertCrossRefSync(SeriesCollectionCrossRef crossRef);
 
+    // === Пакетная вставка для восстановления (одна транзакция на список) ===
+    @Insert
+    List<Long> insertCollectionsSync(List<Collection> collections);
+
+    // При конфликте по уникальному title строка пропускается, вместо ID возвращается -1
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertSeriesListSync(List<Series> seriesList);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs);
+
+    @Insert
+    List<Long> insertMediaFilesSync(List<MediaFile> mediaFiles);
+
     // === Обновление данных ===
-    @Query("UPDATE series SET isWatched = :isWatched WHERE id = :seriesId")
-    void updateSeriesWatchedStatus(long seriesId, boolean isWatched);
+    // Условие на текущее значение: если строка не изменилась, триггеры InvalidationTracker
+    // не срабатывают и открытые списки не перезапрашиваются.
+    // Возвращают число измененных строк.
+    @Query("UPDATE series SET isWatched = :isWatched WHERE id = :seriesId AND isWatched != :isWatched")
+    int updateSeriesWatchedStatus(long seriesId, boolean isWatched);
 
-    @Query("UPDATE series_collection_cross_ref SET isWatched = :isWatched WHERE seriesId = :seriesId")
-    void updateCrossRefWatchedStatus(long seriesId, boolean isWatched);
+    @Query("UPDATE series_collection_cross_ref SET isWatched = :isWatched WHERE seriesId = :seriesId AND isWatched != :isWatched")
+    int updateCrossRefWatchedStatus(long seriesId, boolean isWatched);
 
-    @Query("UPDATE series SET isFavorite = :isFavorite WHERE id = :seriesId")
-    void updateSeriesFavoriteStatus(long seriesId, boolean isFavorite);
+    // Обе таблицы меняются в одной транзакции - наблюдатели получают одно уведомление
+    @Transaction
+    default boolean setSeriesWatched(long seriesId, boolean isWatched) {
+        int changed = updateSeriesWatchedStatus(seriesId, isWatched);
+        updateCrossRefWatchedStatus(seriesId, isWatched);
+        return changed > 0;
+    }
+
+    @Query("UPDATE series SET isFavorite = :isFavorite WHERE id = :seriesId AND isFavorite != :isFavorite")
+    int updateSeriesFavoriteStatus(long seriesId, boolean isFavorite);
 
     @Query("UPDATE collections SET isFavorite = :isFavorite WHERE id = :collectionId")
     void updateCollectionFavoriteStatus(long collectionId, boolean isFavorite);
 
-    @Query("UPDATE series SET status = :status WHERE id = :seriesId")
-    void updateSeriesStatus(long seriesId, String status);
+    @Query("UPDATE series SET status = :status WHERE id = :seriesId AND status IS NOT :status")
+    int updateSeriesStatus(long seriesId, String status);
+
+    // === Пакетные изменения выбранных сериалов ===
+    // ID передаются частями (IdChunks), все части выполняются в одной транзакции -
+    // наблюдатели получают одно уведомление на всю операцию
+
+    @Query("UPDATE series SET isFavorite = :isFavorite WHERE id IN (:ids) AND isFavorite != :isFavorite")
+    int updateSeriesFavoriteStatusByIds(List<Long> ids, boolean isFavorite);
+
+    @Query("UPDATE series SET status = :status WHERE id IN (:ids) AND status IS NOT :status")
+    int updateSeriesStatusByIds(List<Long> ids, String status);
+
+    @Query("UPDATE series SET isWatched = :isWatched WHERE id IN (:ids) AND isWatched != :isWatched")
+    int updateSeriesWatchedStatusByIds(List<Long> ids, boolean isWatched);
+
+    @Query("UPDATE series_collection_cross_ref SET isWatched = :isWatched WHERE seriesId IN (:ids) AND isWatched != :isWatched")
+    int updateCrossRefWatchedStatusByIds(List<Long> ids, boolean isWatched);
+
+    @Transaction
+    default int setSeriesFavorite(Set<Long> ids, boolean isFavorite) {
+        int changed = 0;
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            changed += updateSeriesFavoriteStatusByIds(chunk, isFavorite);
+        }
+        return changed;
+    }
+
+    @Transaction
+    default int setSeriesStatus(Set<Long> ids, String status) {
+        int changed = 0;
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            changed += updateSeriesStatusByIds(chunk, status);
+        }
+        return changed;
+    }
+
+    @Transaction
+    default int setSeriesWatched(Set<Long> ids, boolean isWatched) {
+        int changed = 0;
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            changed += updateSeriesWatchedStatusByIds(chunk, isWatched);
+            updateCrossRefWatchedStatusByIds(chunk, isWatched);
+        }
+        return changed;
+    }
+
+    /**
+     * Удаляет сериалы вместе с их медиафайлами (каскадно).
+     * @return ID удаленных медиафайлов - по ним удаляются файлы превью
+     */
+    @Transaction
+    default List<Long> deleteSeriesByIds(Set<Long> ids) {
+        List<Long> mediaIds = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            mediaIds.addAll(getMediaFileIdsForSeriesSync(chunk));
+            deleteSeriesByIdsSync(chunk);
+        }
+        return mediaIds;
+    }
 
     @Update
     void updateSeries(Series series);
@@ -95,6 +194,13 @@ public interface SeriesDao {
     @Query("SELECT * FROM series ORDER BY isFavorite DESC, title COLLATE NOCASE ASC")
     LiveData<List<Series>> getAllSeries();
 
+    // === Постраничная загрузка сериалов (запрос строится SeriesSortOrder) ===
+    @RawQuery(observedEntities = Series.class)
+    PagingSource<Integer, Series> getSeriesPagingSource(SupportSQLiteQuery query);
+
+    @Query("SELECT COUNT(*) FROM series")
+    LiveData<Integer> getSeriesCount();
+
     @Query("SELECT * FROM collections ORDER BY isFavorite DESC, name COLLATE NOCASE ASC")
     LiveData<List<Collection>> getAllCollections();
 
@@ -112,6 +218,20 @@ public interface SeriesDao {
             "ORDER BY s.isFavorite DESC, s.title COLLATE NOCASE ASC")
     LiveData<List<Series>> getSeriesInCollection(long collectionId);
 
+    // Коллекция и все ее сериалы одним запросом (экран коллекции): строка на сериал,
+    // сериалы в том же порядке, что и в getSeriesInCollection
+    @Query("SELECT c.*, s.id AS series_id, s.title AS series_title, s.imageUri AS series_imageUri, " +
+            "s.isWatched AS series_isWatched, s.notes AS series_notes, s.createdAt AS series_createdAt, " +
+            "s.description AS series_description, s.status AS series_status, " +
+            "s.isFavorite AS series_isFavorite, s.rating AS series_rating, s.genre AS series_genre, " +
+            "s.seasons AS series_seasons, s.episodes AS series_episodes " +
+            "FROM collections c " +
+            "LEFT JOIN series_collection_cross_ref sc ON sc.collectionId = c.id " +
+            "LEFT JOIN series s ON s.id = sc.seriesId " +
+            "WHERE c.id = :collectionId " +
+            "ORDER BY s.isFavorite DESC, s.title COLLATE NOCASE ASC")
+    LiveData<List<CollectionSeriesRow>> getCollectionSeriesRows(long collectionId);
+
     // Получение всех коллекций с их сериалами
     @Transaction
     @Query("SELECT * FROM collections ORDER BY isFavorite DESC, name COLLATE NOCASE ASC")
@@ -127,16 +247,46 @@ public interface SeriesDao {
             "WHERE sc.seriesId = :seriesId")
     LiveData<List<Collection>> getCollectionsForSeries(long seriesId);
 
-    // Подсчет сериалов в коллекции
-    @Query("SELECT COUNT(*) FROM series_collection_cross_ref WHERE collectionId = :collectionId")
+    // Количество сериалов в коллекции (счетчик поддерживается триггерами)
+    @Query("SELECT seriesCount FROM collections WHERE id = :collectionId")
     LiveData<Integer> getSeriesCountInCollection(long collectionId);
 
+    // Коллекции с количеством сериалов в порядке, заданном CollectionSortOrder
+    @RawQuery(observedEntities = Collection.class)
+    LiveData<List<Collection>> getCollectionsSorted(SupportSQLiteQuery query);
+
     // Новый метод: получить коллекции с правильным количеством сериалов
-    @Query("SELECT c.*, (SELECT COUNT(*) FROM series_collection_cross_ref sc WHERE sc.collectionId = c.id) AS seriesCount " +
-            "FROM collections c ORDER BY c.isFavorite DESC, c.name COLLATE NOCASE ASC")
+    // seriesCount хранится в таблице и поддерживается триггерами, подсчет при чтении не нужен
+    @Query("SELECT * FROM collections ORDER BY isFavorite DESC, name COLLATE NOCASE ASC")
     LiveData<List<Collection>> getAllCollectionsWithSeriesCount();
 
 
+    // === Полнотекстовый поиск ===
+    // matchQuery строится через FtsSearch.toMatchQuery, порядок внутри одинаковой оценки -
+    // как в остальных списках (избранные первыми, затем по названию).
+    // Результаты читаются страницами: при ORDER BY с LIMIT SQLite держит в сортировке
+    // только limit + offset строк, а не всю библиотеку вместе с matchinfo.
+    // Сериалы, у которых все слова есть в названии (titleMatchQuery из FtsSearch.toColumnMatchQuery),
+    // идут первыми: подзапрос выполняется один раз по тому же индексу
+    String SEARCH_SERIES = "SELECT s.*, matchinfo(series_fts, 'pcx') AS matchInfo FROM series s " +
+            "JOIN series_fts ON s.id = series_fts.docid " +
+            "WHERE series_fts MATCH :matchQuery " +
+            "ORDER BY s.id IN (SELECT docid FROM series_fts WHERE series_fts MATCH :titleMatchQuery) DESC, " +
+            "s.isFavorite DESC, s.title COLLATE NOCASE ASC " +
+            "LIMIT :limit OFFSET :offset";
+
+    @Query(SEARCH_SERIES)
+    List<SeriesSearchResult> searchSeriesSync(String matchQuery, String titleMatchQuery, int limit, int offset);
+
+    String SEARCH_COLLECTIONS = "SELECT c.*, matchinfo(collections_fts, 'pcx') AS matchInfo FROM collections c " +
+            "JOIN collections_fts ON c.id = collections_fts.docid " +
+            "WHERE collections_fts MATCH :matchQuery " +
+            "ORDER BY c.isFavorite DESC, c.name COLLATE NOCASE ASC " +
+            "LIMIT :limit OFFSET :offset";
+
+    @Query(SEARCH_COLLECTIONS)
+    List<CollectionSearchResult> searchCollectionsSync(String matchQuery, int limit, int offset);
+
     // Новые методы для EditSeriesScreen
     @Query("SELECT * FROM series_collection_cross_ref WHERE seriesId = :seriesId AND collectionId = :collectionId")
     SeriesCollectionCrossRef getCrossRef(long seriesId, long collectionId);
@@ -147,11 +297,16 @@ public interface SeriesDao {
     @Query("DELETE FROM series_collection_cross_ref WHERE seriesId = :seriesId AND collectionId = :collectionId")
     void deleteSeriesCollectionCrossRef(long seriesId, long collectionId);
 
-    // Проверка существования коллекции
-    @Query("SELECT COUNT(*) > 0 FROM collections WHERE LOWER(name) = LOWER(:collectionName)")
+    // Проверка существования коллекции. Сравнение через COLLATE NOCASE идет по индексу,
+    // а результат тот же, что у LOWER(x) = LOWER(y): обе операции учитывают регистр только для ASCII
+    String COLLECTION_EXISTS = "SELECT COUNT(*) > 0 FROM collections WHERE name = :collectionName COLLATE NOCASE";
+
+    @Query(COLLECTION_EXISTS)
     LiveData<Boolean> doesCollectionExist(String collectionName);
 
-    @Query("SELECT COUNT(*) > 0 FROM series WHERE LOWER(title) = LOWER(:seriesTitle)")
+    String SERIES_EXISTS = "SELECT COUNT(*) > 0 FROM series WHERE title = :seriesTitle COLLATE NOCASE";
+
+    @Query(SERIES_EXISTS)
     LiveData<Boolean> doesSeriesExist(String seriesTitle);
 
     // === Синхронные методы для резервного копирования ===
@@ -167,9 +322,167 @@ public interface SeriesDao {
     @Query("DELETE FROM series_collection_cross_ref WHERE seriesId = :seriesId")
     void deleteAllSeriesCollectionRelationsForSeries(long seriesId);
 
+    // === Изменение состава коллекций наборами строк ===
+    // Связи создаются одним INSERT ... SELECT: уже существующие пропускаются (OR IGNORE, триггеры
+    // счетчиков и журнала для них не срабатывают), несуществующие ID отбрасываются соединением,
+    // а не обрывают транзакцию ошибкой внешнего ключа. isWatched берется из сериала.
+    @Query("INSERT OR IGNORE INTO series_collection_cross_ref (seriesId, collectionId, isWatched) " +
+            "SELECT s.id, c.id, s.isWatched FROM series s, collections c " +
+            "WHERE s.id = :seriesId AND c.id IN (:collectionIds)")
+    void insertSeriesIntoCollections(long seriesId, List<Long> collectionIds);
+
+    @Query("INSERT OR IGNORE INTO series_collection_cross_ref (seriesId, collectionId, isWatched) " +
+            "SELECT s.id, c.id, s.isWatched FROM series s, collections c " +
+            "WHERE s.id IN (:seriesIds) AND c.id = :collectionId")
+    void insertSeriesListIntoCollection(List<Long> seriesIds, long collectionId);
+
+    @Query("DELETE FROM series_collection_cross_ref WHERE seriesId = :seriesId AND collectionId NOT IN (:collectionIds)")
+    void deleteSeriesFromOtherCollections(long seriesId, List<Long> collectionIds);
+
+    @Transaction
+    default void addSeriesListToCollection(List<Long> seriesIds, long collectionId) {
+        for (List<Long> chunk : IdChunks.of(seriesIds)) {
+            insertSeriesListIntoCollection(chunk, collectionId);
+        }
+    }
+
+    /**
+     * Приводит коллекции сериала к заданному набору: удаляет лишние связи и добавляет недостающие.
+     * Совпадающие связи не трогаются (сохраняется их isWatched).
+     */
+    @Transaction
+    default void setSeriesCollections(long seriesId, List<Long> collectionIds) {
+        if (collectionIds == null || collectionIds.isEmpty()) {
+            deleteAllSeriesCollectionRelationsForSeries(seriesId);
+            return;
+        }
+        deleteSeriesFromOtherCollections(seriesId, collectionIds);
+        insertSeriesIntoCollections(seriesId, collectionIds);
+    }
+
+    @Transaction
+    default long insertSeriesWithCollections(Series series, List<Long> collectionIds) {
+        long seriesId = insertSeries(series);
+        if (collectionIds != null && !collectionIds.isEmpty()) {
+            insertSeriesIntoCollections(seriesId, collectionIds);
+        }
+        return seriesId;
+    }
+
+    // === Постраничная выборка для потокового резервного копирования ===
+    String COLLECTIONS_PAGE = "SELECT * FROM collections WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    @Query(COLLECTIONS_PAGE)
+    List<Collection> getCollectionsPageSync(long afterId, int limit);
+
+    String SERIES_PAGE = "SELECT * FROM series WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    @Query(SERIES_PAGE)
+    List<Series> getSeriesPageSync(long afterId, int limit);
+
+    String RELATIONS_PAGE = "SELECT * FROM series_collection_cross_ref " +
+            "WHERE seriesId > :afterSeriesId OR (seriesId = :afterSeriesId AND collectionId > :afterCollectionId) " +
+            "ORDER BY seriesId, collectionId LIMIT :limit";
+
+    @Query(RELATIONS_PAGE)
+    List<SeriesCollectionCrossRef> getRelationsPageSync(long afterSeriesId, long afterCollectionId, int limit);
+
+    String MEDIA_FILES_PAGE = "SELECT * FROM media_files WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    @Query(MEDIA_FILES_PAGE)
+    List<MediaFile> getMediaFilesPageSync(long afterId, int limit);
+
+    // === Журнал изменений для инкрементального резервного копирования ===
+    @Query("SELECT COALESCE(MAX(id), 0) FROM change_journal")
+    long getLastChangeJournalIdSync();
+
+    String CHANGED_ROW_IDS = "SELECT DISTINCT rowId FROM change_journal " +
+            "WHERE tableName = :tableName AND id > :afterId AND id <= :upToId ORDER BY rowId";
+
+    @Query(CHANGED_ROW_IDS)
+    List<Long> getChangedRowIdsSync(String tableName, long afterId, long upToId);
+
+    String CHANGED_RELATION_KEYS = "SELECT MAX(id) AS id, tableName, rowId, secondaryId FROM change_journal " +
+            "WHERE tableName = 'series_collection_cross_ref' AND id > :afterId AND id <= :upToId " +
+            "GROUP BY rowId, secondaryId ORDER BY rowId, secondaryId";
+
+    @Query(CHANGED_RELATION_KEYS)
+    List<ChangeJournalEntry> getChangedRelationKeysSync(long afterId, long upToId);
+
+    @Query("DELETE FROM change_journal WHERE id <= :upToId")
+    void deleteChangeJournalSync(long upToId);
+
+    @Query("DELETE FROM change_journal")
+    void clearChangeJournalSync();
+
+    // Выборка по списку ID (размер списка не больше BACKUP_PAGE_SIZE)
+    @Query("SELECT id FROM collections WHERE id IN (:ids)")
+    List<Long> getExistingCollectionIdsSync(List<Long> ids);
+
+    @Query("SELECT id FROM series WHERE id IN (:ids)")
+    List<Long> getExistingSeriesIdsSync(List<Long> ids);
+
+    @Query("SELECT id FROM media_files WHERE id IN (:ids)")
+    List<Long> getExistingMediaFileIdsSync(List<Long> ids);
+
+    @Query("SELECT * FROM collections WHERE id IN (:ids) ORDER BY id")
+    List<Collection> getCollectionsByIdsSync(List<Long> ids);
+
+    @Query("SELECT * FROM series WHERE id IN (:ids) ORDER BY id")
+    List<Series> getSeriesByIdsSync(List<Long> ids);
+
+    @Query("SELECT * FROM media_files WHERE id IN (:ids) ORDER BY id")
+    List<MediaFile> getMediaFilesByIdsSync(List<Long> ids);
+
+    @Query("SELECT * FROM series_collection_cross_ref WHERE seriesId IN (:seriesIds)")
+    List<SeriesCollectionCrossRef> getRelationsForSeriesListSync(List<Long> seriesIds);
+
+    // === Применение инкрементальных копий при восстановлении ===
+    @Update
+    int updateCollectionsSync(List<Collection> collections);
+
+    @Update
+    int updateSeriesListSync(List<Series> seriesList);
+
+    @Update
+    int updateMediaFilesSync(List<MediaFile> mediaFiles);
+
+    @Query("UPDATE series_collection_cross_ref SET isWatched = :isWatched " +
+            "WHERE seriesId = :seriesId AND collectionId = :collectionId AND isWatched != :isWatched")
+    int updateCrossRefWatchedSync(long seriesId, long collectionId, boolean isWatched);
+
+    // Не REPLACE: он удаляет старую связь без триггера series_count_relation_delete (recursive_triggers
+    // выключены), а вставка срабатывает, и seriesCount рос бы на каждой повторно выгруженной связи.
+    // Существующие связи обновляются, новые вставляются, совпадающие с уже обновленными пропускаются.
+    @Transaction
+    default void upsertCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs) {
+        for (SeriesCollectionCrossRef crossRef : crossRefs) {
+            updateCrossRefWatchedSync(crossRef.getSeriesId(), crossRef.getCollectionId(), crossRef.getIsWatched());
+        }
+        insertCrossRefsSync(crossRefs);
+    }
+
+    @Delete
+    void deleteCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs);
+
+    @Query("DELETE FROM collections WHERE id IN (:ids)")
+    void deleteCollectionsByIdsSync(List<Long> ids);
+
+    @Query("DELETE FROM series WHERE id IN (:ids)")
+    void deleteSeriesByIdsSync(List<Long> ids);
+
+    @Query("DELETE FROM media_files WHERE id IN (:ids)")
+    void deleteMediaFilesByIdsSync(List<Long> ids);
+
+    @Query("SELECT id FROM media_files WHERE seriesId IN (:seriesIds)")
+    List<Long> getMediaFileIdsForSeriesSync(List<Long> seriesIds);
+
 
     // Проверка существования коллекции с исключением текущего ID (для редактирования)
-    @Query("SELECT COUNT(*) > 0 FROM collections WHERE LOWER(name) = LOWER(:collectionName) AND id != :collectionId")
+    String COLLECTION_EXISTS_EXCLUDE_ID =
+            "SELECT COUNT(*) > 0 FROM collections WHERE name = :collectionName COLLATE NOCASE AND id != :collectionId";
+
+    @Query(COLLECTION_EXISTS_EXCLUDE_ID)
     LiveData<Boolean> doesCollectionExistExcludeId(String collectionName, long collectionId);
 // В SeriesDao.java добавьте:
 
@@ -200,10 +513,25 @@ public interface SeriesDao {
     @Query("SELECT * FROM media_files WHERE id = :mediaId")
     MediaFile getMediaFileSync(long mediaId);
 
-    @Query("SELECT * FROM collections WHERE name = :name")
+    @Query("UPDATE media_files SET thumbnailPath = :thumbnailPath WHERE id = :mediaId AND thumbnailPath IS NOT :thumbnailPath")
+    int updateMediaThumbnailPath(long mediaId, String thumbnailPath);
+
+    // Пути готовых превью записываются одной транзакцией на пачку
+    @Transaction
+    default void updateMediaThumbnailPaths(Map<Long, String> thumbnailPaths) {
+        for (Map.Entry<Long, String> entry : thumbnailPaths.entrySet()) {
+            updateMediaThumbnailPath(entry.getKey(), entry.getValue());
+        }
+    }
+
+    String COLLECTION_BY_NAME = "SELECT * FROM collections WHERE name = :name";
+
+    @Query(COLLECTION_BY_NAME)
     Collection getCollectionByName(String name);
 
-    @Query("SELECT * FROM series WHERE title = :title")
+    String SERIES_BY_TITLE = "SELECT * FROM series WHERE title = :title";
+
+    @Query(SERIES_BY_TITLE)
     Series getSeriesByTitle(String title);
 
     @Query("SELECT * FROM media_files WHERE fileUri = :fileUri AND seriesId = :seriesId")
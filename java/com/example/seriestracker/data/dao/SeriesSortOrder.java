@@ -0,0 +1,63 @@
+package com.example.seriestracker.data.dao;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Порядок сортировки и фильтр списка сериалов, выполняемые в SQLite.
+ * Избранные сериалы всегда идут первыми, как и в остальных запросах SeriesDao.
+ * Сортировкам соответствуют индексы Series (isFavorite + title/episodes), фильтру - индекс по status.
+ * Используется с SeriesDao.getSeriesPagingSource: постраничная загрузка возможна
+ * только если порядок задан в запросе, а не сортировкой списка в памяти.
+ */
+public final class SeriesSortOrder {
+    public static final SeriesSortOrder NAME_ASC =
+            new SeriesSortOrder("title COLLATE NOCASE ASC", null, null);
+    public static final SeriesSortOrder NAME_DESC =
+            new SeriesSortOrder("title COLLATE NOCASE DESC", null, null);
+    public static final SeriesSortOrder EPISODES_ASC =
+            new SeriesSortOrder("episodes ASC, title COLLATE NOCASE ASC", null, null);
+    public static final SeriesSortOrder EPISODES_DESC =
+            new SeriesSortOrder("episodes DESC, title COLLATE NOCASE ASC", null, null);
+
+    private final String orderBy;
+    private final String status;
+    private final String statusFilter;
+
+    private SeriesSortOrder(String orderBy, String status, String statusFilter) {
+        this.orderBy = orderBy;
+        this.status = status;
+        this.statusFilter = statusFilter;
+    }
+
+    /**
+     * Сначала сериалы с указанным статусом, затем остальные, внутри - по названию
+     */
+    public static SeriesSortOrder statusFirst(String status) {
+        return new SeriesSortOrder("status = ? DESC, title COLLATE NOCASE ASC", status, null);
+    }
+
+    /**
+     * Тот же порядок, но только сериалы с указанным статусом (null - без фильтра)
+     */
+    public SeriesSortOrder withStatusFilter(String statusFilter) {
+        return new SeriesSortOrder(orderBy, status, statusFilter);
+    }
+
+    public SupportSQLiteQuery toQuery() {
+        List<Object> args = new ArrayList<>(2);
+        StringBuilder sql = new StringBuilder("SELECT * FROM series");
+        if (statusFilter != null) {
+            sql.append(" WHERE status = ?");
+            args.add(statusFilter);
+        }
+        sql.append(" ORDER BY isFavorite DESC, ").append(orderBy);
+        if (status != null) {
+            args.add(status);
+        }
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+}
\ No newline at end of file
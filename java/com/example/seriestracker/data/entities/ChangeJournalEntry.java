@@ -0,0 +1,31 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Запись журнала изменений. Заполняется триггерами SQLite (см. SeriesDatabase)
+ * при любой вставке, изменении или удалении строк основных таблиц
+ * и используется для инкрементального резервного копирования.
+ */
+@Entity(tableName = "change_journal")
+public class ChangeJournalEntry {
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private String tableName;
+    private long rowId;       // ID строки (для связей - seriesId)
+    private long secondaryId; // Для связей - collectionId, для остальных таблиц 0
+
+    // Геттеры
+    public long getId() { return id; }
+    public String getTableName() { return tableName; }
+    public long getRowId() { return rowId; }
+    public long getSecondaryId() { return secondaryId; }
+
+    // Сеттеры
+    public void setId(long id) { this.id = id; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+    public void setRowId(long rowId) { this.rowId = rowId; }
+    public void setSecondaryId(long secondaryId) { this.secondaryId = secondaryId; }
+}
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.example.seriestracker.data.entities;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -9,17 +11,30 @@ import com.example.seriestracker.data.converters.ColorsConverter;
 import java.util.Arrays;
 import java.util.List;
 
-@Entity(tableName = "collections")
+// Название сравнивается без учета регистра (NOCASE): индекс по name обслуживает проверку
+// существования коллекции, а индексы с isFavorite - сортировки списка (избранные первыми)
+@Entity(tableName = "collections", indices = {
+        @Index(value = {"name"}),
+        @Index(name = "index_collections_favorite_name_asc", value = {"isFavorite", "name"},
+                orders = {Index.Order.DESC, Index.Order.ASC}),
+        @Index(name = "index_collections_favorite_name_desc", value = {"isFavorite", "name"},
+                orders = {Index.Order.DESC, Index.Order.DESC}),
+        @Index(name = "index_collections_favorite_count_asc", value = {"isFavorite", "seriesCount", "name"},
+                orders = {Index.Order.DESC, Index.Order.ASC, Index.Order.ASC}),
+        @Index(name = "index_collections_favorite_count_desc", value = {"isFavorite", "seriesCount", "name"},
+                orders = {Index.Order.DESC, Index.Order.DESC, Index.Order.ASC})
+})
 @TypeConverters(ColorsConverter.class)
 public class Collection {
     @PrimaryKey(autoGenerate = true)
     private long id;
 
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     private String name;
     private long createdAt;
     private boolean isFavorite;
     private List<String> colors; // Изменено на список цветов
-    private int seriesCount; // ДОБАВЛЕНО: поле для количества сериалов
+    private int seriesCount; // Число сериалов в коллекции, поддерживается триггерами (см. SeriesDatabase)
 
     // Предопределенные цвета
     public static final String[] AVAILABLE_COLORS = {
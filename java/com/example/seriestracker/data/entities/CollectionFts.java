@@ -0,0 +1,17 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Полнотекстовый индекс FTS4 по названиям коллекций (content = collections)
+ */
+@Entity(tableName = "collections_fts")
+@Fts4(contentEntity = Collection.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+public class CollectionFts {
+    private String name;
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Embedded;
+
+/**
+ * Коллекция, найденная полнотекстовым поиском, вместе с matchinfo(collections_fts, 'pcx')
+ */
+public class CollectionSearchResult {
+    @Embedded
+    private Collection collection;
+
+    private byte[] matchInfo;
+
+    public Collection getCollection() { return collection; }
+    public byte[] getMatchInfo() { return matchInfo; }
+
+    public void setCollection(Collection collection) { this.collection = collection; }
+    public void setMatchInfo(byte[] matchInfo) { this.matchInfo = matchInfo; }
+}
\ No newline at end of file
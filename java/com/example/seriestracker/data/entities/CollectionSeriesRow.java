@@ -0,0 +1,22 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Embedded;
+
+/**
+ * Строка выборки "коллекция + один из ее сериалов" (LEFT JOIN через series_collection_cross_ref).
+ * Для пустой коллекции приходит одна строка с series == null.
+ * Строки собираются в CollectionWithSeries в SeriesRepository.getCollectionWithSeries.
+ */
+public class CollectionSeriesRow {
+    @Embedded
+    private Collection collection;
+
+    @Embedded(prefix = "series_")
+    private Series series;
+
+    public Collection getCollection() { return collection; }
+    public Series getSeries() { return series; }
+
+    public void setCollection(Collection collection) { this.collection = collection; }
+    public void setSeries(Series series) { this.series = series; }
+}
\ No newline at end of file
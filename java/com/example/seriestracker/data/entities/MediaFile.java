@@ -30,6 +30,8 @@ public class MediaFile {
     private long fileSize;
     private long createdAt;
     private String description;
+    // Путь к превью в кеше приложения (MediaThumbnails), null пока превью не создано
+    private String thumbnailPath;
 
     public MediaFile() {
         this.createdAt = System.currentTimeMillis();
@@ -53,6 +55,7 @@ public class MediaFile {
     public long getFileSize() { return fileSize; }
     public long getCreatedAt() { return createdAt; }
     public String getDescription() { return description; }
+    public String getThumbnailPath() { return thumbnailPath; }
 
     // Сеттеры
     public void setId(long id) { this.id = id; }
@@ -64,4 +67,5 @@ public class MediaFile {
     public void setFileSize(long fileSize) { this.fileSize = fileSize; }
     public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
     public void setDescription(String description) { this.description = description; }
+    public void setThumbnailPath(String thumbnailPath) { this.thumbnailPath = thumbnailPath; }
 }
\ No newline at end of file
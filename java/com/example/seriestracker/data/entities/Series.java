@@ -1,14 +1,32 @@
 package com.example.seriestracker.data.entities;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.Index;
 
-@Entity(tableName = "series", indices = {@Index(value = {"title"}, unique = true)})
+// Индексы повторяют порядок сортировок SeriesSortOrder (избранные первыми), поэтому списки
+// читаются из индекса без сортировки всей таблицы. Название сравнивается без учета регистра
+// (NOCASE), так что индексы по title подходят для ORDER BY title COLLATE NOCASE.
+// Уникальность тоже без учета регистра: сериалы из старых копий, отличающиеся только регистром
+// названия, восстанавливаются с суффиксом " (ID)", как и при MIGRATION_13_14
+@Entity(tableName = "series", indices = {
+        @Index(value = {"title"}, unique = true),
+        @Index(name = "index_series_favorite_title_asc", value = {"isFavorite", "title"},
+                orders = {Index.Order.DESC, Index.Order.ASC}),
+        @Index(name = "index_series_favorite_title_desc", value = {"isFavorite", "title"},
+                orders = {Index.Order.DESC, Index.Order.DESC}),
+        @Index(name = "index_series_favorite_episodes_asc", value = {"isFavorite", "episodes", "title"},
+                orders = {Index.Order.DESC, Index.Order.ASC, Index.Order.ASC}),
+        @Index(name = "index_series_favorite_episodes_desc", value = {"isFavorite", "episodes", "title"},
+                orders = {Index.Order.DESC, Index.Order.DESC, Index.Order.ASC}),
+        @Index(value = {"status"})
+})
 public class Series {
     @PrimaryKey(autoGenerate = true)
     private long id;
 
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     private String title;
     private String imageUri;
     private boolean isWatched;
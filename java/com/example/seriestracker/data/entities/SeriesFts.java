@@ -0,0 +1,33 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Полнотекстовый индекс FTS4 по текстовым полям сериалов.
+ * Таблица хранит только индекс (content = series), данные читаются из series по docid.
+ * Room создает триггеры, синхронизирующие индекс при вставке, изменении и удалении сериалов.
+ *
+ * Порядок колонок важен: на него опираются веса ранжирования FtsSearch.SERIES_WEIGHTS.
+ */
+@Entity(tableName = "series_fts")
+@Fts4(contentEntity = Series.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+public class SeriesFts {
+    private String title;
+    private String notes;
+    private String genre;
+    private String description;
+
+    // Геттеры
+    public String getTitle() { return title; }
+    public String getNotes() { return notes; }
+    public String getGenre() { return genre; }
+    public String getDescription() { return description; }
+
+    // Сеттеры
+    public void setTitle(String title) { this.title = title; }
+    public void setNotes(String notes) { this.notes = notes; }
+    public void setGenre(String genre) { this.genre = genre; }
+    public void setDescription(String description) { this.description = description; }
+}
\ No newline at end of file
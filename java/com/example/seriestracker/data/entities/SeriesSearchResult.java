@@ -0,0 +1,20 @@
+package com.example.seriestracker.data.entities;
+
+import androidx.room.Embedded;
+
+/**
+ * Сериал, найденный полнотекстовым поиском, вместе с matchinfo(series_fts, 'pcx')
+ * для ранжирования (см. FtsSearch)
+ */
+public class SeriesSearchResult {
+    @Embedded
+    private Series series;
+
+    private byte[] matchInfo;
+
+    public Series getSeries() { return series; }
+    public byte[] getMatchInfo() { return matchInfo; }
+
+    public void setSeries(Series series) { this.series = series; }
+    public void setMatchInfo(byte[] matchInfo) { this.matchInfo = matchInfo; }
+}
\ No newline at end of file
@@ -0,0 +1,341 @@
+package com.example.seriestracker.data.media;
+
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ForegroundInfo;
+import androidx.work.WorkInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.seriestracker.data.entities.MediaFile;
+import com.example.seriestracker.data.repository.SeriesRepository;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Копирует один выбранный файл в files/media и добавляет для него MediaFile.
+ *
+ * Копия пишется в "<id работы>.part" частями по COPY_CHUNK_SIZE. После каждых CHECKPOINT_INTERVAL
+ * байт данные сбрасываются на диск (force) и смещение сохраняется как контрольная точка.
+ * Если работу остановила система или процесс был завершен, следующая попытка обрезает
+ * временный файл до контрольной точки и продолжает копирование с нее.
+ * Готовая копия атомарно переименовывается, и только затем добавляется строка в БД.
+ *
+ * Источники без известного размера (pipe) копируются потоком и всегда начинаются заново.
+ *
+ * Вместе с контрольной точкой хранится URI источника работы (MediaImporter.start): по нему
+ * освобождается закрепленное право чтения, когда работа завершена, отменена или удалена.
+ */
+public class MediaImportWorker extends Worker {
+    private static final String TAG = "MediaImportWorker";
+
+    static final String KEY_SERIES_ID = "seriesId";
+    static final String KEY_SOURCE_URI = "sourceUri";
+    public static final String PROGRESS_COPIED_BYTES = "copiedBytes";
+    public static final String PROGRESS_TOTAL_BYTES = "totalBytes";
+
+    private static final String CHECKPOINT_PREFS = "media_import_checkpoints";
+    private static final String KEY_OFFSET_SUFFIX = ".offset";
+    private static final String KEY_SIZE_SUFFIX = ".size";
+    private static final String KEY_URI_SUFFIX = ".uri";
+
+    private static final long COPY_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final long CHECKPOINT_INTERVAL = 64L * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+    // Большие файлы копируются в foreground service, чтобы система не прерывала работу через 10 минут
+    private static final long FOREGROUND_THRESHOLD = 64L * 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final String NOTIFICATION_CHANNEL_ID = "media_import";
+    private static final int NOTIFICATION_ID = 2001;
+
+    public MediaImportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        long seriesId = getInputData().getLong(KEY_SERIES_ID, -1);
+        String sourceUriString = getInputData().getString(KEY_SOURCE_URI);
+        if (seriesId <= 0 || sourceUriString == null) {
+            return Result.failure();
+        }
+
+        Uri sourceUri = Uri.parse(sourceUriString);
+        ContentResolver resolver = context.getContentResolver();
+        String fileType = MediaImporter.determineFileType(resolver, sourceUri);
+        String fileName = MediaImporter.queryDisplayName(resolver, sourceUri);
+
+        File mediaDir = MediaImporter.getInstance(context).getMediaDir();
+        String baseName = getId().toString();
+        File partial = new File(mediaDir, baseName + MediaImporter.PARTIAL_SUFFIX);
+        File target = new File(mediaDir, baseName + MediaImporter.extensionOf(fileName, fileType));
+
+        try {
+            // Файл мог быть скопирован в прошлой попытке, которая не успела добавить строку
+            if (!target.exists()) {
+                if (!mediaDir.exists() && !mediaDir.mkdirs()) {
+                    throw new IOException("Failed to create media directory: " + mediaDir.getAbsolutePath());
+                }
+                copy(resolver, sourceUri, partial, fileName);
+                if (!partial.renameTo(target)) {
+                    throw new IOException("Failed to move imported file into place: " + target.getAbsolutePath());
+                }
+                clearCheckpoint(context, getId());
+            }
+        } catch (InterruptedIOException e) {
+            if (getStopReason() == WorkInfo.STOP_REASON_CANCELLED_BY_APP) {
+                Log.i(TAG, "Import cancelled: " + sourceUri);
+                discard(context, partial);
+            }
+            // Иначе работу остановила система: контрольная точка сохранена, WorkManager повторит ее
+            return Result.retry();
+        } catch (FileNotFoundException | SecurityException e) {
+            // Источник удален или прав на чтение больше нет - повтор не поможет
+            Log.e(TAG, "Source is not readable: " + sourceUri, e);
+            discard(context, partial);
+            return Result.failure();
+        } catch (IOException e) {
+            if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+                Log.w(TAG, "Copy failed, will resume from checkpoint: " + sourceUri, e);
+                return Result.retry();
+            }
+            Log.e(TAG, "Copy failed after " + MAX_ATTEMPTS + " attempts: " + sourceUri, e);
+            discard(context, partial);
+            return Result.failure();
+        }
+
+        if (!insertMediaFile(seriesId, target, fileType, fileName)) {
+            // Сериал удален во время импорта
+            target.delete();
+            MediaImporter.finishImport(context, getId());
+            return Result.failure();
+        }
+
+        MediaImporter.finishImport(context, getId());
+        return Result.success();
+    }
+
+    /**
+     * Копирует источник во временный файл, продолжая с контрольной точки, если она есть
+     */
+    private void copy(ContentResolver resolver, Uri sourceUri, File partial, String fileName) throws IOException {
+        try (ParcelFileDescriptor descriptor = resolver.openFileDescriptor(sourceUri, "r")) {
+            if (descriptor == null) {
+                throw new FileNotFoundException("No file descriptor for " + sourceUri);
+            }
+            long size = descriptor.getStatSize();
+            if (size < 0) {
+                try (InputStream inputStream = new FileInputStream(descriptor.getFileDescriptor())) {
+                    copyStream(inputStream, partial);
+                }
+                return;
+            }
+            if (size >= FOREGROUND_THRESHOLD) {
+                startForeground(fileName);
+            }
+
+            SharedPreferences checkpoints = getCheckpoints(getApplicationContext());
+            String key = getId().toString();
+            long offset = 0;
+            // Контрольная точка действительна, только если источник не изменился
+            if (checkpoints.getLong(key + KEY_SIZE_SUFFIX, -1) == size && partial.exists()) {
+                offset = Math.min(checkpoints.getLong(key + KEY_OFFSET_SUFFIX, 0), partial.length());
+            }
+            if (offset > 0) {
+                Log.i(TAG, "Resuming import of " + sourceUri + " at " + offset + " of " + size + " bytes");
+            }
+
+            try (FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor());
+                 FileChannel source = inputStream.getChannel();
+                 FileChannel target = FileChannel.open(partial.toPath(),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Все, что записано после контрольной точки, могло не дойти до диска
+                target.truncate(offset);
+                target.position(offset);
+
+                long position = offset;
+                long lastCheckpoint = offset;
+                while (position < size) {
+                    if (isStopped()) {
+                        saveCheckpoint(target, checkpoints, key, position, size);
+                        throw new InterruptedIOException("Import stopped");
+                    }
+                    long transferred = source.transferTo(position, Math.min(COPY_CHUNK_SIZE, size - position), target);
+                    if (transferred <= 0) {
+                        throw new IOException("Copy stalled at " + position + " of " + size + " bytes");
+                    }
+                    position += transferred;
+                    if (position - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                        saveCheckpoint(target, checkpoints, key, position, size);
+                        lastCheckpoint = position;
+                    }
+                    setProgressAsync(new Data.Builder()
+                            .putLong(PROGRESS_COPIED_BYTES, position)
+                            .putLong(PROGRESS_TOTAL_BYTES, size)
+                            .build());
+                }
+                target.force(true);
+            }
+        }
+    }
+
+    private void copyStream(InputStream inputStream, File partial) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(partial)) {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                if (isStopped()) {
+                    throw new InterruptedIOException("Import stopped");
+                }
+                outputStream.write(buffer, 0, bytesRead);
+            }
+            outputStream.flush();
+        }
+    }
+
+    private static void saveCheckpoint(FileChannel target, SharedPreferences checkpoints,
+                                       String key, long offset, long size) throws IOException {
+        target.force(false);
+        checkpoints.edit()
+                .putLong(key + KEY_OFFSET_SUFFIX, offset)
+                .putLong(key + KEY_SIZE_SUFFIX, size)
+                .commit();
+    }
+
+    private boolean insertMediaFile(long seriesId, File target, String fileType, String fileName) {
+        SeriesRepository repository = SeriesRepository.getInstance((Application) getApplicationContext());
+        String fileUri = Uri.fromFile(target).toString();
+        if (repository.getMediaFileByUriAndSeriesSync(fileUri, seriesId) != null) {
+            // Строка добавлена в прошлой попытке
+            return true;
+        }
+
+        MediaFile mediaFile = new MediaFile(seriesId, fileUri, fileType, fileName);
+        mediaFile.setFilePath(target.getAbsolutePath());
+        mediaFile.setFileSize(target.length());
+        return repository.insertMediaFileSync(mediaFile) > 0;
+    }
+
+    private void discard(Context context, File partial) {
+        partial.delete();
+        MediaImporter.finishImport(context, getId());
+    }
+
+    /**
+     * Переводит работу в foreground service. Если запуск из фона запрещен, копирование
+     * продолжается как обычная работа: при остановке оно возобновится с контрольной точки.
+     */
+    private void startForeground(String fileName) {
+        Context context = getApplicationContext();
+        NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+        notificationManager.createNotificationChannel(new NotificationChannel(
+                NOTIFICATION_CHANNEL_ID, "Импорт медиафайлов", NotificationManager.IMPORTANCE_LOW));
+
+        Notification notification = new Notification.Builder(context, NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setContentTitle("Импорт медиафайлов")
+                .setContentText(fileName)
+                .setOngoing(true)
+                .build();
+        try {
+            setForegroundAsync(new ForegroundInfo(NOTIFICATION_ID, notification,
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC)).get();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not run import in foreground", e);
+        }
+    }
+
+    private static SharedPreferences getCheckpoints(Context context) {
+        return context.getSharedPreferences(CHECKPOINT_PREFS, Context.MODE_PRIVATE);
+    }
+
+    private static void clearCheckpoint(Context context, UUID workId) {
+        getCheckpoints(context).edit()
+                .remove(workId + KEY_OFFSET_SUFFIX)
+                .remove(workId + KEY_SIZE_SUFFIX)
+                .apply();
+    }
+
+    /**
+     * Запоминает источник работы до постановки ее в очередь
+     */
+    static void saveSourceUri(Context context, UUID workId, Uri sourceUri) {
+        getCheckpoints(context).edit()
+                .putString(workId + KEY_URI_SUFFIX, sourceUri.toString())
+                .commit();
+    }
+
+    /**
+     * Удаляет контрольную точку и источник работы
+     * @return URI источника или null, если работа уже удалена
+     */
+    static Uri removeImport(Context context, UUID workId) {
+        SharedPreferences checkpoints = getCheckpoints(context);
+        String sourceUri = checkpoints.getString(workId + KEY_URI_SUFFIX, null);
+        checkpoints.edit()
+                .remove(workId + KEY_OFFSET_SUFFIX)
+                .remove(workId + KEY_SIZE_SUFFIX)
+                .remove(workId + KEY_URI_SUFFIX)
+                .commit();
+        return sourceUri != null ? Uri.parse(sourceUri) : null;
+    }
+
+    /**
+     * ID работ, источники которых еще сохранены
+     */
+    static List<UUID> getImportIds(Context context) {
+        List<UUID> workIds = new ArrayList<>();
+        for (String key : getCheckpoints(context).getAll().keySet()) {
+            if (key.endsWith(KEY_URI_SUFFIX)) {
+                try {
+                    workIds.add(UUID.fromString(key.substring(0, key.length() - KEY_URI_SUFFIX.length())));
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Ignoring malformed import key: " + key);
+                }
+            }
+        }
+        return workIds;
+    }
+
+    /**
+     * Сколько работ импортирует этот источник (один файл можно выбрать несколько раз)
+     */
+    static int countImportsOf(Context context, Uri sourceUri) {
+        String value = sourceUri.toString();
+        int count = 0;
+        for (Map.Entry<String, ?> entry : getCheckpoints(context).getAll().entrySet()) {
+            if (entry.getKey().endsWith(KEY_URI_SUFFIX) && value.equals(entry.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,289 @@
+package com.example.seriestracker.data.media;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.Operation;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.example.seriestracker.data.DatabaseExecutors;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Импорт выбранных фото и видео во внутреннее хранилище (files/media).
+ *
+ * Каждый файл импортируется отдельной работой WorkManager (MediaImportWorker), поэтому импорт
+ * переживает закрытие экрана и завершение процесса. Имена файлов строятся из ID работы:
+ * "<id>.part" во время копирования и "<id>.<ext>" после атомарного переименования -
+ * каталог не нужно проверять на занятые имена, а недокопированные файлы всегда можно
+ * сопоставить с их работой. Строка MediaFile добавляется только после завершения копирования.
+ *
+ * Работы помечаются тегом сериала, по нему экран следит за ходом импорта и отменяет его.
+ *
+ * Право чтения источника закрепляется один раз на URI и освобождается, когда завершена последняя
+ * работа с этим URI. Работы, отмененные до запуска или во время ожидания повтора, сами ничего
+ * не освобождают - их права и недокопированные файлы удаляет removeStaleImports().
+ */
+public final class MediaImporter {
+    private static final String TAG = "MediaImporter";
+
+    public static final String MEDIA_DIR_NAME = "media";
+    static final String PARTIAL_SUFFIX = ".part";
+
+    static final String TAG_ALL_IMPORTS = "media-import";
+    private static final String TAG_SERIES_PREFIX = "media-import-series-";
+    private static final long RETRY_BACKOFF_SECONDS = 30;
+
+    private static volatile MediaImporter instance;
+
+    private final Context context;
+    private final File mediaDir;
+
+    private MediaImporter(Context context) {
+        this.context = context.getApplicationContext();
+        this.mediaDir = new File(this.context.getFilesDir(), MEDIA_DIR_NAME);
+    }
+
+    public static MediaImporter getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaImporter.class) {
+                if (instance == null) {
+                    instance = new MediaImporter(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ставит файлы в очередь импорта в сериал.
+     * URI должны быть получены через ACTION_OPEN_DOCUMENT: право чтения закрепляется за приложением,
+     * чтобы импорт мог продолжиться после перезапуска процесса.
+     */
+    public void start(long seriesId, List<Uri> uris) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresStorageNotLow(true)
+                .build();
+        WorkManager workManager = WorkManager.getInstance(context);
+
+        for (Uri uri : uris) {
+            Data input = new Data.Builder()
+                    .putLong(MediaImportWorker.KEY_SERIES_ID, seriesId)
+                    .putString(MediaImportWorker.KEY_SOURCE_URI, uri.toString())
+                    .build();
+            OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MediaImportWorker.class)
+                    .setInputData(input)
+                    .setConstraints(constraints)
+                    .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, RETRY_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                    .addTag(TAG_ALL_IMPORTS)
+                    .addTag(tagForSeries(seriesId))
+                    .build();
+            synchronized (MediaImporter.class) {
+                // Источник сохраняется до постановки в очередь, чтобы очистка нашла право даже у незапущенной работы
+                MediaImportWorker.saveSourceUri(context, request.getId(), uri);
+                takeReadPermission(uri);
+            }
+            workManager.enqueue(request);
+        }
+        Log.i(TAG, "Queued " + uris.size() + " media imports for series " + seriesId);
+    }
+
+    /**
+     * Отменяет импорт в сериал. Уже импортированные файлы остаются,
+     * недокопированные удаляет сама работа или очистка при следующем запуске.
+     */
+    public void cancel(long seriesId) {
+        Operation operation = WorkManager.getInstance(context).cancelAllWorkByTag(tagForSeries(seriesId));
+        DatabaseExecutors.getInstance().jobs().execute(() -> {
+            try {
+                operation.getResult().get();
+            } catch (Exception e) {
+                Log.w(TAG, "Could not wait for cancellation of imports for series " + seriesId, e);
+                return;
+            }
+            removeStaleImports();
+        });
+    }
+
+    /**
+     * Работы импорта в сериал (включая недавно завершенные)
+     */
+    public LiveData<List<WorkInfo>> getImports(long seriesId) {
+        return WorkManager.getInstance(context).getWorkInfosByTagLiveData(tagForSeries(seriesId));
+    }
+
+    /**
+     * Удаляет недокопированные файлы и освобождает права чтения, для которых больше нет
+     * незавершенной работы (например, работа отменена, пока ожидала повтора). Выполняется в фоне.
+     */
+    public void cleanupStaleImports() {
+        DatabaseExecutors.getInstance().jobs().execute(this::removeStaleImports);
+    }
+
+    private void removeStaleImports() {
+        // Работы с недокопированным файлом или сохраненным источником
+        Set<String> names = new HashSet<>();
+        File[] partials = mediaDir.listFiles((dir, name) -> name.endsWith(PARTIAL_SUFFIX));
+        if (partials != null) {
+            for (File partial : partials) {
+                String name = partial.getName();
+                names.add(name.substring(0, name.length() - PARTIAL_SUFFIX.length()));
+            }
+        }
+        for (UUID workId : MediaImportWorker.getImportIds(context)) {
+            names.add(workId.toString());
+        }
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (String name : names) {
+            UUID workId;
+            try {
+                workId = UUID.fromString(name);
+            } catch (IllegalArgumentException e) {
+                workId = null;
+            }
+            try {
+                WorkInfo workInfo = workId != null ? workManager.getWorkInfoById(workId).get() : null;
+                if (workInfo == null || workInfo.getState().isFinished()) {
+                    new File(mediaDir, name + PARTIAL_SUFFIX).delete();
+                    if (workId != null) {
+                        finishImport(context, workId);
+                    }
+                    Log.d(TAG, "Removed stale import: " + name);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Could not check import state for " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Удаляет контрольную точку работы и освобождает право чтения ее источника,
+     * если этот URI не импортирует другая работа из очереди. Повторный вызов ничего не делает.
+     */
+    static void finishImport(Context context, UUID workId) {
+        synchronized (MediaImporter.class) {
+            Uri sourceUri = MediaImportWorker.removeImport(context, workId);
+            if (sourceUri != null && MediaImportWorker.countImportsOf(context, sourceUri) == 0) {
+                releaseReadPermission(context, sourceUri);
+            }
+        }
+    }
+
+    File getMediaDir() {
+        return mediaDir;
+    }
+
+    private void takeReadPermission(Uri uri) {
+        if (!ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            return;
+        }
+        try {
+            context.getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Провайдер не выдает постоянных прав: импорт пройдет, пока жив процесс
+            Log.w(TAG, "Persistable read permission is not available for " + uri);
+        }
+    }
+
+    private static void releaseReadPermission(Context context, Uri uri) {
+        if (!ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            return;
+        }
+        try {
+            context.getContentResolver().releasePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Права не были закреплены
+        }
+    }
+
+    private static String tagForSeries(long seriesId) {
+        return TAG_SERIES_PREFIX + seriesId;
+    }
+
+    /**
+     * "image", "video" или "file" по MIME-типу, а если его нет - по расширению
+     */
+    public static String determineFileType(ContentResolver resolver, Uri uri) {
+        String mimeType = resolver.getType(uri);
+        if (mimeType != null) {
+            if (mimeType.startsWith("image/")) {
+                return "image";
+            } else if (mimeType.startsWith("video/")) {
+                return "video";
+            }
+        }
+
+        String uriString = uri.toString().toLowerCase(Locale.ROOT);
+        if (uriString.contains(".jpg") || uriString.contains(".jpeg") ||
+                uriString.contains(".png") || uriString.contains(".gif") ||
+                uriString.contains(".webp") || uriString.contains(".bmp") ||
+                uriString.contains(".heic") || uriString.contains(".heif")) {
+            return "image";
+        } else if (uriString.contains(".mp4") || uriString.contains(".avi") ||
+                uriString.contains(".mkv") || uriString.contains(".mov") ||
+                uriString.contains(".wmv") || uriString.contains(".flv") ||
+                uriString.contains(".3gp") || uriString.contains(".mpeg") ||
+                uriString.contains(".mpg")) {
+            return "video";
+        }
+        return "file";
+    }
+
+    static String queryDisplayName(ContentResolver resolver, Uri uri) {
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                    if (nameIndex != -1 && !cursor.isNull(nameIndex)) {
+                        return cursor.getString(nameIndex);
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Could not query display name for " + uri, e);
+            }
+        }
+        String lastSegment = uri.getLastPathSegment();
+        return lastSegment != null ? lastSegment : "file";
+    }
+
+    /**
+     * Расширение копии: из исходного имени, а если его нет - по типу файла
+     */
+    static String extensionOf(String fileName, String fileType) {
+        if (fileName != null) {
+            int dotIndex = fileName.lastIndexOf('.');
+            if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+                String extension = fileName.substring(dotIndex).toLowerCase(Locale.ROOT);
+                // Расширение попадает в имя файла, лишние символы отбрасываем
+                if (extension.matches("\\.[a-z0-9]{1,8}")) {
+                    return extension;
+                }
+            }
+        }
+        if ("image".equals(fileType)) {
+            return ".jpg";
+        } else if ("video".equals(fileType)) {
+            return ".mp4";
+        }
+        return "";
+    }
+}
\ No newline at end of file
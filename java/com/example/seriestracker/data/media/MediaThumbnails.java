@@ -0,0 +1,287 @@
+package com.example.seriestracker.data.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.media.MediaMetadataRetriever;
+import android.media.ThumbnailUtils;
+import android.net.Uri;
+import android.util.Log;
+import android.util.Size;
+
+import com.example.seriestracker.data.DatabaseExecutors;
+import com.example.seriestracker.data.SeriesDatabase;
+import com.example.seriestracker.data.dao.SeriesDao;
+import com.example.seriestracker.data.entities.MediaFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Превью медиафайлов для сетки. Для каждого изображения и видео один раз создается уменьшенная
+ * копия (для видео - кадр-постер) в формате WebP в кеше приложения, путь к ней записывается
+ * в media_files.thumbnailPath. Адаптеры загружают превью вместо исходного файла, поэтому при
+ * прокрутке не декодируются полноразмерные фото и не извлекаются кадры из целых видео.
+ *
+ * Превью создаются при добавлении медиафайла и при восстановлении из резервной копии.
+ * Если файла превью нет (строка создана до появления превью или кеш очищен системой),
+ * адаптер запрашивает его повторно через request(). Файлы, которые не удалось декодировать,
+ * запоминаются до перезапуска процесса и больше не ставятся в очередь - адаптер показывает исходник.
+ */
+public final class MediaThumbnails {
+    private static final String TAG = "MediaThumbnails";
+
+    public static final String THUMBNAIL_DIR_NAME = "thumbnails";
+    // Сторона превью: с запасом для ячейки сетки на экранах высокой плотности
+    private static final int THUMBNAIL_SIZE = 384;
+    private static final int WEBP_QUALITY = 80;
+    // Декодирование фото и кадров видео нагружает процессор и память, больше двух потоков не нужно
+    private static final int WORKER_COUNT = 2;
+    // Готовые пути записываются в БД пачками: одно обновление списка на пачку, а не на каждый файл
+    private static final int FLUSH_BATCH_SIZE = 20;
+
+    private static volatile MediaThumbnails instance;
+
+    private final Context context;
+    private final File thumbnailDir;
+    private final SeriesDao seriesDao;
+    private final ThreadPoolExecutor workers;
+    // ID медиафайлов, превью которых уже в очереди
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // ID медиафайлов, превью которых создать не удалось
+    private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+    // Готовые, но еще не записанные в БД пути превью
+    private final Map<Long, String> completed = new HashMap<>();
+
+    private MediaThumbnails(Context context) {
+        this.context = context.getApplicationContext();
+        this.thumbnailDir = new File(this.context.getCacheDir(), THUMBNAIL_DIR_NAME);
+        this.seriesDao = SeriesDatabase.getDatabase(this.context).seriesDao();
+        this.workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "media-thumbnails");
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    public static MediaThumbnails getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaThumbnails.class) {
+                if (instance == null) {
+                    instance = new MediaThumbnails(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ставит в очередь создание превью. Пока превью файла в очереди или если его не удалось создать,
+     * повторные запросы игнорируются. Медиафайл должен быть уже сохранен в БД (иметь ID).
+     */
+    public void request(MediaFile mediaFile) {
+        if (mediaFile == null || mediaFile.getId() <= 0 || !isSupported(mediaFile)) {
+            return;
+        }
+        long mediaId = mediaFile.getId();
+        if (failed.contains(mediaId) || !pending.add(mediaId)) {
+            return;
+        }
+        String fileUri = mediaFile.getFileUri();
+        boolean video = isVideo(mediaFile);
+        workers.execute(() -> {
+            try {
+                generate(mediaId, fileUri, video);
+            } finally {
+                pending.remove(mediaId);
+                flushIfIdle();
+            }
+        });
+    }
+
+    public void requestAll(List<MediaFile> mediaFiles) {
+        if (mediaFiles == null) {
+            return;
+        }
+        for (MediaFile mediaFile : mediaFiles) {
+            request(mediaFile);
+        }
+    }
+
+    /**
+     * Превью только что вставленного медиафайла. ID мог достаться от строки из откаченной транзакции
+     * восстановления, поэтому оставшийся от нее файл превью удаляется, а не переиспользуется.
+     */
+    public void requestNew(List<MediaFile> mediaFiles) {
+        for (MediaFile mediaFile : mediaFiles) {
+            delete(mediaFile.getId());
+            request(mediaFile);
+        }
+    }
+
+    /**
+     * Удаляет файл превью медиафайла и отметку о неудачной попытке - следующий request() создаст превью заново
+     */
+    public void delete(long mediaId) {
+        failed.remove(mediaId);
+        deleteFile(getThumbnailFile(mediaId));
+    }
+
+    public void deleteAll(List<Long> mediaIds) {
+        for (Long mediaId : mediaIds) {
+            delete(mediaId);
+        }
+    }
+
+    /**
+     * Удаляет все превью (после удаления всех данных)
+     */
+    public void clear() {
+        failed.clear();
+        File[] files = thumbnailDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            deleteFile(file);
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete thumbnail: " + file.getAbsolutePath());
+        }
+    }
+
+    public File getThumbnailFile(long mediaId) {
+        return new File(thumbnailDir, mediaId + ".webp");
+    }
+
+    public static boolean isSupported(MediaFile mediaFile) {
+        String fileType = mediaFile.getFileType();
+        return mediaFile.getFileUri() != null && !mediaFile.getFileUri().isEmpty()
+                && ("image".equals(fileType) || "video".equals(fileType));
+    }
+
+    private static boolean isVideo(MediaFile mediaFile) {
+        return "video".equals(mediaFile.getFileType());
+    }
+
+    private void generate(long mediaId, String fileUri, boolean video) {
+        File target = getThumbnailFile(mediaId);
+        if (!target.exists()) {
+            Bitmap bitmap = null;
+            try {
+                bitmap = decode(Uri.parse(fileUri), video);
+                if (bitmap == null) {
+                    Log.w(TAG, "No thumbnail could be decoded for media " + mediaId);
+                    failed.add(mediaId);
+                    return;
+                }
+                write(bitmap, target);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error creating thumbnail for media " + mediaId + ": " + fileUri, e);
+                failed.add(mediaId);
+                return;
+            } finally {
+                if (bitmap != null) {
+                    bitmap.recycle();
+                }
+            }
+        }
+
+        boolean flush;
+        synchronized (completed) {
+            completed.put(mediaId, target.getAbsolutePath());
+            flush = completed.size() >= FLUSH_BATCH_SIZE;
+        }
+        if (flush) {
+            flush();
+        }
+    }
+
+    /**
+     * Уменьшенное изображение или кадр видео не больше THUMBNAIL_SIZE по большей стороне
+     */
+    private Bitmap decode(Uri uri, boolean video) throws IOException {
+        Size size = new Size(THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        if (uri.getScheme() == null || "file".equals(uri.getScheme())) {
+            File file = new File(uri.getPath());
+            // ThumbnailUtils декодирует с прореживанием и берет кадр видео в нужном размере
+            return video
+                    ? ThumbnailUtils.createVideoThumbnail(file, size, null)
+                    : ThumbnailUtils.createImageThumbnail(file, size, null);
+        }
+
+        if (video) {
+            try (MediaMetadataRetriever retriever = new MediaMetadataRetriever()) {
+                retriever.setDataSource(context, uri);
+                return retriever.getScaledFrameAtTime(-1, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                        THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            }
+        }
+
+        ImageDecoder.Source source = ImageDecoder.createSource(context.getContentResolver(), uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            int shortSide = Math.min(info.getSize().getWidth(), info.getSize().getHeight());
+            decoder.setTargetSampleSize(Math.max(1, shortSide / THUMBNAIL_SIZE));
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+        });
+    }
+
+    private void write(Bitmap bitmap, File target) throws IOException {
+        if (!thumbnailDir.exists() && !thumbnailDir.mkdirs()) {
+            throw new IOException("Failed to create thumbnail directory: " + thumbnailDir.getAbsolutePath());
+        }
+        // Пишем во временный файл и переименовываем, чтобы адаптер не увидел недописанное превью
+        File tempFile = new File(thumbnailDir, target.getName() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, WEBP_QUALITY, outputStream)) {
+                throw new IOException("WebP encoding failed");
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        if (!tempFile.renameTo(target)) {
+            tempFile.delete();
+            throw new IOException("Failed to move thumbnail into place: " + target.getAbsolutePath());
+        }
+    }
+
+    private void flushIfIdle() {
+        if (workers.getQueue().isEmpty() && pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        Map<Long, String> batch;
+        synchronized (completed) {
+            if (completed.isEmpty()) {
+                return;
+            }
+            batch = new HashMap<>(completed);
+            completed.clear();
+        }
+        DatabaseExecutors.getInstance().writer().execute(() -> {
+            try {
+                seriesDao.updateMediaThumbnailPaths(batch);
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving thumbnail paths for " + batch.size() + " media files", e);
+            }
+        });
+    }
+}
\ No newline at end of file
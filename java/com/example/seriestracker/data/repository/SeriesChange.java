@@ -0,0 +1,82 @@
+package com.example.seriestracker.data.repository;
+
+import com.example.seriestracker.data.entities.Series;
+
+import java.util.Objects;
+
+/**
+ * Изменение одного поля одного сериала. Публикуется SeriesRepository после записи в базу,
+ * чтобы открытые списки обновили одну строку, не дожидаясь перезапроса всего списка.
+ */
+public final class SeriesChange {
+
+    public enum Field {
+        FAVORITE,
+        WATCHED,
+        STATUS
+    }
+
+    private final long seriesId;
+    private final Field field;
+    private final boolean flag;
+    private final String status;
+
+    private SeriesChange(long seriesId, Field field, boolean flag, String status) {
+        this.seriesId = seriesId;
+        this.field = field;
+        this.flag = flag;
+        this.status = status;
+    }
+
+    public static SeriesChange favorite(long seriesId, boolean isFavorite) {
+        return new SeriesChange(seriesId, Field.FAVORITE, isFavorite, null);
+    }
+
+    public static SeriesChange watched(long seriesId, boolean isWatched) {
+        return new SeriesChange(seriesId, Field.WATCHED, isWatched, null);
+    }
+
+    public static SeriesChange status(long seriesId, String status) {
+        return new SeriesChange(seriesId, Field.STATUS, false, status);
+    }
+
+    public long getSeriesId() {
+        return seriesId;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * Применяет изменение к объекту сериала из списка
+     * @return true, если значение поля действительно изменилось
+     */
+    public boolean applyTo(Series series) {
+        if (series == null || series.getId() != seriesId) {
+            return false;
+        }
+        switch (field) {
+            case FAVORITE:
+                if (series.getIsFavorite() == flag) {
+                    return false;
+                }
+                series.setIsFavorite(flag);
+                return true;
+            case WATCHED:
+                if (series.getIsWatched() == flag) {
+                    return false;
+                }
+                series.setIsWatched(flag);
+                return true;
+            case STATUS:
+                if (Objects.equals(series.getStatus(), status)) {
+                    return false;
+                }
+                series.setStatus(status);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
\ No newline at end of file
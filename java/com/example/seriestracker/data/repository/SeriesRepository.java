@@ -8,34 +8,68 @@ import android.os.Looper;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
+import com.example.seriestracker.data.DatabaseExecutors;
 import com.example.seriestracker.data.SeriesDatabase;
+import com.example.seriestracker.data.dao.CollectionSortOrder;
+import com.example.seriestracker.data.dao.FtsSearch;
 import com.example.seriestracker.data.dao.SeriesDao;
+import com.example.seriestracker.data.dao.SeriesSortOrder;
+import com.example.seriestracker.data.entities.ChangeJournalEntry;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.CollectionSearchResult;
+import com.example.seriestracker.data.entities.CollectionSeriesRow;
 import com.example.seriestracker.data.entities.CollectionWithSeries;
 import com.example.seriestracker.data.entities.MediaFile;
 import com.example.seriestracker.data.entities.Series;
 import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
+import com.example.seriestracker.data.entities.SeriesSearchResult;
+import com.example.seriestracker.data.media.MediaThumbnails;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class SeriesRepository {
+    // Размер страницы для постраничной загрузки списка сериалов (несколько экранов списка)
+    private static final int SERIES_PAGE_SIZE = 50;
+    // Размер страницы результатов поиска: следующие страницы подгружаются при прокрутке
+    public static final int SEARCH_PAGE_SIZE = 50;
+
+    private final SeriesDatabase database;
     private SeriesDao seriesDao;
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MediaThumbnails thumbnails;
+    // Действия с превью, отложенные до фиксации транзакции runInTransactionSync (задается в потоке writer)
+    private final ThreadLocal<List<Runnable>> afterCommitActions = new ThreadLocal<>();
+    // Записи выполняются по очереди в одном потоке, чтения - в общем пуле параллельно с ними (WAL)
+    private final ExecutorService writer = DatabaseExecutors.getInstance().writer();
+    private final ExecutorService reader = DatabaseExecutors.getInstance().readers();
     private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<SeriesChangeListener> seriesChangeListeners = new CopyOnWriteArrayList<>();
 
     // Статическое поле для синглтона
     private static SeriesRepository instance;
 
     // Приватный конструктор
     public SeriesRepository(Application application) {
-        SeriesDatabase database = SeriesDatabase.getDatabase(application);
+        database = SeriesDatabase.getDatabase(application);
         seriesDao = database.seriesDao();
+        thumbnails = MediaThumbnails.getInstance(application);
     }
 
     // Статический метод для получения экземпляра с Application
@@ -64,20 +98,25 @@ public class SeriesRepository {
         return seriesDao.getAllCollectionsWithSeriesCount();
     }
 
+    // Коллекции с количеством сериалов, уже отсортированные в БД
+    public LiveData<List<Collection>> getCollectionsSorted(CollectionSortOrder sortOrder) {
+        return seriesDao.getCollectionsSorted(sortOrder.toQuery());
+    }
+
     public LiveData<Collection> getCollectionById(long collectionId) {
         return seriesDao.getCollectionById(collectionId);
     }
 
     public void insertCollection(Collection collection) {
-        executor.execute(() -> seriesDao.insertCollection(collection));
+        writer.execute(() -> seriesDao.insertCollection(collection));
     }
 
     public void deleteCollection(long collectionId) {
-        executor.execute(() -> seriesDao.deleteCollection(collectionId));
+        writer.execute(() -> seriesDao.deleteCollection(collectionId));
     }
 
     public void deleteCollection(Collection collection) {
-        executor.execute(() -> {
+        writer.execute(() -> {
             // Удаляем сначала все связи
             deleteAllSeriesCollectionRelationsForCollection(collection.getId());
             // Затем удаляем саму коллекцию
@@ -86,7 +125,7 @@ public class SeriesRepository {
     }
 
     public void deleteAllSeriesCollectionRelationsForCollection(long collectionId) {
-        executor.execute(() -> {
+        writer.execute(() -> {
             // Удаляем все связи сериалов с этой коллекцией
             seriesDao.deleteAllSeriesCollectionRelationsForCollection(collectionId);
         });
@@ -97,48 +136,163 @@ public class SeriesRepository {
         return seriesDao.getAllSeries();
     }
 
+    /**
+     * Постраничный список сериалов: в памяти только загруженные страницы вокруг видимой области,
+     * при изменении таблицы PagingSource перезапрашивает только их
+     */
+    public LiveData<PagingData<Series>> getSeriesPaged(SeriesSortOrder sortOrder) {
+        Pager<Integer, Series> pager = new Pager<>(
+                new PagingConfig(SERIES_PAGE_SIZE, SERIES_PAGE_SIZE, false),
+                () -> seriesDao.getSeriesPagingSource(sortOrder.toQuery()));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    public LiveData<Integer> getSeriesCount() {
+        return seriesDao.getSeriesCount();
+    }
+
     public LiveData<Series> getSeriesById(long seriesId) {
         return seriesDao.getSeriesById(seriesId);
     }
 
     public void insertSeries(Series series) {
-        executor.execute(() -> seriesDao.insertSeries(series));
+        writer.execute(() -> seriesDao.insertSeries(series));
     }
 
     public void updateSeries(Series series) {
-        executor.execute(() -> seriesDao.updateSeries(series));
+        writer.execute(() -> seriesDao.updateSeries(series));
     }
 
     public void deleteSeries(long seriesId) {
-        executor.execute(() -> seriesDao.deleteSeries(seriesId));
+        writer.execute(() -> {
+            // Медиафайлы удаляются каскадно, их превью - здесь
+            List<Long> mediaIds = seriesDao.getMediaFileIdsForSeriesSync(Collections.singletonList(seriesId));
+            seriesDao.deleteSeries(seriesId);
+            thumbnails.deleteAll(mediaIds);
+        });
     }
 
     public void insertSeriesWithCollections(Series series, List<Long> collectionIds) {
-        executor.execute(() -> {
-            long seriesId = seriesDao.insertSeries(series);
-            if (collectionIds != null) {
-                for (Long collectionId : collectionIds) {
-                    SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                    seriesDao.insertCrossRef(crossRef);
-                }
-            }
-        });
+        // Сериал и его связи вставляются в одной транзакции
+        writer.execute(() -> seriesDao.insertSeriesWithCollections(series, collectionIds));
     }
 
     // === Статусы ===
     public void updateSeriesWatchedStatus(long seriesId, boolean isWatched) {
-        executor.execute(() -> {
-            seriesDao.updateSeriesWatchedStatus(seriesId, isWatched);
-            seriesDao.updateCrossRefWatchedStatus(seriesId, isWatched);
+        writer.execute(() -> {
+            if (seriesDao.setSeriesWatched(seriesId, isWatched)) {
+                publishSeriesChange(SeriesChange.watched(seriesId, isWatched));
+            }
         });
     }
 
     public void updateSeriesFavoriteStatus(long seriesId, boolean isFavorite) {
-        executor.execute(() -> seriesDao.updateSeriesFavoriteStatus(seriesId, isFavorite));
+        writer.execute(() -> {
+            if (seriesDao.updateSeriesFavoriteStatus(seriesId, isFavorite) > 0) {
+                publishSeriesChange(SeriesChange.favorite(seriesId, isFavorite));
+            }
+        });
     }
 
     public void updateSeriesStatus(long seriesId, String status) {
-        executor.execute(() -> seriesDao.updateSeriesStatus(seriesId, status));
+        writer.execute(() -> {
+            if (seriesDao.updateSeriesStatus(seriesId, status) > 0) {
+                publishSeriesChange(SeriesChange.status(seriesId, status));
+            }
+        });
+    }
+
+    // === Пакетные изменения выбранных сериалов ===
+    // Вся операция - одна задача writer и одна транзакция, поэтому списки обновляются один раз
+
+    public void updateSeriesFavoriteStatus(Set<Long> seriesIds, boolean isFavorite) {
+        Set<Long> ids = new HashSet<>(seriesIds);
+        writer.execute(() -> {
+            if (seriesDao.setSeriesFavorite(ids, isFavorite) > 0) {
+                publishSeriesChanges(ids, id -> SeriesChange.favorite(id, isFavorite));
+            }
+        });
+    }
+
+    public void updateSeriesWatchedStatus(Set<Long> seriesIds, boolean isWatched) {
+        Set<Long> ids = new HashSet<>(seriesIds);
+        writer.execute(() -> {
+            if (seriesDao.setSeriesWatched(ids, isWatched) > 0) {
+                publishSeriesChanges(ids, id -> SeriesChange.watched(id, isWatched));
+            }
+        });
+    }
+
+    public void updateSeriesStatus(Set<Long> seriesIds, String status) {
+        Set<Long> ids = new HashSet<>(seriesIds);
+        writer.execute(() -> {
+            if (seriesDao.setSeriesStatus(ids, status) > 0) {
+                publishSeriesChanges(ids, id -> SeriesChange.status(id, status));
+            }
+        });
+    }
+
+    public void deleteSeries(Set<Long> seriesIds) {
+        Set<Long> ids = new HashSet<>(seriesIds);
+        writer.execute(() -> {
+            try {
+                thumbnails.deleteAll(seriesDao.deleteSeriesByIds(ids));
+            } catch (Exception e) {
+                Log.e("SeriesRepository", "Error deleting " + ids.size() + " series", e);
+            }
+        });
+    }
+
+    // === Точечные уведомления об изменении сериала ===
+
+    /**
+     * Получатель изменений отдельных сериалов. Вызывается в главном потоке.
+     */
+    public interface SeriesChangeListener {
+        void onSeriesChanged(SeriesChange change);
+    }
+
+    public void addSeriesChangeListener(SeriesChangeListener listener) {
+        seriesChangeListeners.addIfAbsent(listener);
+    }
+
+    public void removeSeriesChangeListener(SeriesChangeListener listener) {
+        seriesChangeListeners.remove(listener);
+    }
+
+    /**
+     * Рассылает изменение после записи в базу. Событие ставится в очередь главного потока раньше,
+     * чем Room перезапросит LiveData, поэтому списки успевают обновить одну строку,
+     * а пришедший следом список с тем же содержимым не вызывает полной перерисовки.
+     */
+    private void publishSeriesChange(SeriesChange change) {
+        if (seriesChangeListeners.isEmpty()) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (SeriesChangeListener listener : seriesChangeListeners) {
+                listener.onSeriesChanged(change);
+            }
+        });
+    }
+
+    // Для пакетных изменений: события для всех ID рассылаются одной задачей главного потока.
+    // Строки, где значение уже совпадало, адаптер пропускает сам (SeriesChange.applyTo)
+    private void publishSeriesChanges(Set<Long> seriesIds, Function<Long, SeriesChange> toChange) {
+        if (seriesChangeListeners.isEmpty()) {
+            return;
+        }
+        List<SeriesChange> changes = new ArrayList<>(seriesIds.size());
+        for (Long seriesId : seriesIds) {
+            changes.add(toChange.apply(seriesId));
+        }
+        mainHandler.post(() -> {
+            for (SeriesChangeListener listener : seriesChangeListeners) {
+                for (SeriesChange change : changes) {
+                    listener.onSeriesChanged(change);
+                }
+            }
+        });
     }
 
     // === Получение данных ===
@@ -150,19 +304,35 @@ public class SeriesRepository {
         return seriesDao.getCollectionsWithSeries();
     }
 
-    public void addSeriesToCollection(long seriesId, long collectionId) {
-        executor.execute(() -> {
-            // Проверяем, есть ли уже связь
-            int count = seriesDao.isSeriesInCollection(seriesId, collectionId);
-            if (count == 0) {
-                SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                seriesDao.insertCrossRef(crossRef);
+    /**
+     * Коллекция вместе с ее сериалами одним запросом и одним потоком обновлений.
+     * Значение null - коллекция не найдена (например, удалена).
+     */
+    public LiveData<CollectionWithSeries> getCollectionWithSeries(long collectionId) {
+        return Transformations.map(seriesDao.getCollectionSeriesRows(collectionId), rows -> {
+            if (rows == null || rows.isEmpty()) {
+                return null;
+            }
+            List<Series> seriesList = new ArrayList<>(rows.size());
+            for (CollectionSeriesRow row : rows) {
+                if (row.getSeries() != null) {
+                    seriesList.add(row.getSeries());
+                }
             }
+            CollectionWithSeries result = new CollectionWithSeries();
+            result.setCollection(rows.get(0).getCollection());
+            result.setSeriesList(seriesList);
+            return result;
         });
     }
 
+    public void addSeriesToCollection(long seriesId, long collectionId) {
+        // Уже существующая связь пропускается самим INSERT OR IGNORE
+        writer.execute(() -> seriesDao.insertSeriesIntoCollections(seriesId, Collections.singletonList(collectionId)));
+    }
+
     public void removeSeriesFromCollection(long seriesId, long collectionId) {
-        executor.execute(() -> seriesDao.removeSeriesFromCollection(seriesId, collectionId));
+        writer.execute(() -> seriesDao.removeSeriesFromCollection(seriesId, collectionId));
     }
 
     public LiveData<List<Collection>> getCollectionsForSeries(long seriesId) {
@@ -175,17 +345,17 @@ public class SeriesRepository {
 
     // === Методы для EditSeriesScreen ===
     public void insertSeriesCollectionCrossRef(SeriesCollectionCrossRef crossRef) {
-        executor.execute(() -> seriesDao.insertCrossRef(crossRef));
+        writer.execute(() -> seriesDao.insertCrossRef(crossRef));
     }
 
     public void deleteSeriesCollectionCrossRef(long seriesId, long collectionId) {
-        executor.execute(() -> seriesDao.deleteSeriesCollectionCrossRef(seriesId, collectionId));
+        writer.execute(() -> seriesDao.deleteSeriesCollectionCrossRef(seriesId, collectionId));
     }
 
     // Метод для получения связи (если нужен)
     public SeriesCollectionCrossRef getCrossRef(long seriesId, long collectionId) {
         // Внимание: этот метод не может быть вызван из основного потока!
-        // Используйте его в executor.execute()
+        // Используйте его в задаче reader или writer
         return seriesDao.getCrossRef(seriesId, collectionId);
     }
 
@@ -200,13 +370,108 @@ public class SeriesRepository {
 
     // Обновление коллекции
     public void updateCollection(Collection collection) {
-        executor.execute(() -> seriesDao.updateCollection(collection));
+        writer.execute(() -> seriesDao.updateCollection(collection));
+    }
+
+    // === Полнотекстовый поиск ===
+    /**
+     * Ищет сериалы по названию, заметкам, жанру и описанию (префиксное совпадение слов).
+     * Возвращает первую страницу результатов, см. searchSeriesSync(String, int)
+     * @return пустой список, если в запросе нет слов, или null при ошибке
+     */
+    public List<Series> searchSeriesSync(String query) {
+        return searchSeriesSync(query, 0);
+    }
+
+    /**
+     * Возвращает страницу результатов поиска сериалов (не больше SEARCH_PAGE_SIZE).
+     * Сначала идут сериалы, у которых все слова есть в названии, затем остальные;
+     * внутри страницы - по релевантности, при равной - как в общем списке.
+     * @param offset количество уже загруженных результатов
+     * @return пустой список, если в запросе нет слов или результаты закончились, или null при ошибке
+     */
+    public List<Series> searchSeriesSync(String query, int offset) {
+        String matchQuery = FtsSearch.toMatchQuery(query);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+        String titleMatchQuery = FtsSearch.toColumnMatchQuery(query, "title");
+        try {
+            Future<List<SeriesSearchResult>> future = reader.submit(() ->
+                    seriesDao.searchSeriesSync(matchQuery, titleMatchQuery, SEARCH_PAGE_SIZE, offset)
+            );
+            return rankByScore(future.get(), SeriesSearchResult::getMatchInfo,
+                    FtsSearch.SERIES_WEIGHTS, SeriesSearchResult::getSeries);
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Series search failed: " + matchQuery, e);
+            return null;
+        }
+    }
+
+    /**
+     * Ищет коллекции по названию (префиксное совпадение слов).
+     * Возвращает первую страницу результатов, см. searchCollectionsSync(String, int)
+     * @return пустой список, если в запросе нет слов, или null при ошибке
+     */
+    public List<Collection> searchCollectionsSync(String query) {
+        return searchCollectionsSync(query, 0);
+    }
+
+    /**
+     * Возвращает страницу результатов поиска коллекций (не больше SEARCH_PAGE_SIZE)
+     * @param offset количество уже загруженных результатов
+     * @return пустой список, если в запросе нет слов или результаты закончились, или null при ошибке
+     */
+    public List<Collection> searchCollectionsSync(String query, int offset) {
+        String matchQuery = FtsSearch.toMatchQuery(query);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+        try {
+            Future<List<CollectionSearchResult>> future = reader.submit(() ->
+                    seriesDao.searchCollectionsSync(matchQuery, SEARCH_PAGE_SIZE, offset)
+            );
+            return rankByScore(future.get(), CollectionSearchResult::getMatchInfo,
+                    FtsSearch.COLLECTION_WEIGHTS, CollectionSearchResult::getCollection);
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Collection search failed: " + matchQuery, e);
+            return null;
+        }
+    }
+
+    /**
+     * Упорядочивает страницу результатов поиска по убыванию оценки FtsSearch.score.
+     * Строки, где все слова есть в первой колонке (название), остаются впереди, как их отобрал запрос,
+     * иначе порядок расходился бы между страницами.
+     * Сортировка устойчивая: при равной оценке сохраняется порядок из запроса.
+     */
+    private static <R, T> List<T> rankByScore(List<R> results, Function<R, byte[]> matchInfo,
+                                              double[] weights, Function<R, T> item) {
+        int count = results.size();
+        double[] scores = new double[count];
+        boolean[] titleHits = new boolean[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byte[] info = matchInfo.apply(results.get(i));
+            scores[i] = FtsSearch.score(info, weights);
+            titleHits[i] = FtsSearch.matchesAllInColumn(info, 0);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> titleHits[a] != titleHits[b]
+                ? Boolean.compare(titleHits[b], titleHits[a])
+                : Double.compare(scores[b], scores[a]));
+
+        List<T> ranked = new ArrayList<>(count);
+        for (Integer index : order) {
+            ranked.add(item.apply(results.get(index)));
+        }
+        return ranked;
     }
 
     // === Методы для резервного копирования (синхронные версии) ===
     public List<Collection> getAllCollectionsSync() {
         try {
-            Future<List<Collection>> future = executor.submit(() ->
+            Future<List<Collection>> future = reader.submit(() ->
                     seriesDao.getAllCollectionsSync()
             );
             return future.get();
@@ -218,7 +483,7 @@ public class SeriesRepository {
 
     public List<Series> getAllSeriesSync() {
         try {
-            Future<List<Series>> future = executor.submit(() ->
+            Future<List<Series>> future = reader.submit(() ->
                     seriesDao.getAllSeriesSync()
             );
             return future.get();
@@ -230,7 +495,7 @@ public class SeriesRepository {
 
     public List<SeriesCollectionCrossRef> getAllRelationsSync() {
         try {
-            Future<List<SeriesCollectionCrossRef>> future = executor.submit(() ->
+            Future<List<SeriesCollectionCrossRef>> future = reader.submit(() ->
                     seriesDao.getAllRelationsSync()
             );
             return future.get();
@@ -240,14 +505,147 @@ public class SeriesRepository {
         }
     }
 
-    public void deleteAllData() {
-        executor.execute(() -> seriesDao.deleteAllData());
+    // === Постраничное чтение для потокового резервного копирования ===
+    public List<Collection> getCollectionsPageSync(long afterId, int limit) {
+        try {
+            Future<List<Collection>> future = reader.submit(() ->
+                    seriesDao.getCollectionsPageSync(afterId, limit)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting collections page sync", e);
+            return null;
+        }
+    }
+
+    public List<Series> getSeriesPageSync(long afterId, int limit) {
+        try {
+            Future<List<Series>> future = reader.submit(() ->
+                    seriesDao.getSeriesPageSync(afterId, limit)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting series page sync", e);
+            return null;
+        }
+    }
+
+    public List<SeriesCollectionCrossRef> getRelationsPageSync(long afterSeriesId, long afterCollectionId, int limit) {
+        try {
+            Future<List<SeriesCollectionCrossRef>> future = reader.submit(() ->
+                    seriesDao.getRelationsPageSync(afterSeriesId, afterCollectionId, limit)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting relations page sync", e);
+            return null;
+        }
+    }
+
+    public List<MediaFile> getMediaFilesPageSync(long afterId, int limit) {
+        try {
+            Future<List<MediaFile>> future = reader.submit(() ->
+                    seriesDao.getMediaFilesPageSync(afterId, limit)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting media files page sync", e);
+            return null;
+        }
+    }
+
+    // Ждет завершения удаления: чтения идут в другом потоке и не должны увидеть старые данные
+    public boolean deleteAllData() {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.deleteAllData()
+            );
+            future.get();
+            runAfterCommit(thumbnails::clear);
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting all data", e);
+            return false;
+        }
+    }
+
+    /**
+     * Выполняет body одной транзакцией в потоке writer. Вложенные *Sync вызовы записи и чтения
+     * выполняются сразу в этом же потоке, поэтому попадают в ту же транзакцию и видят ее изменения.
+     * Действия с превью вложенных вызовов выполняются только после фиксации (runAfterCommit).
+     * @return false, если body вернул false или выбросил исключение - все изменения при этом откатываются
+     */
+    public boolean runInTransactionSync(Callable<Boolean> body) {
+        try {
+            Future<Boolean> future = writer.submit(() -> {
+                if (afterCommitActions.get() != null) {
+                    // Вложенная транзакция: действия выполнит внешняя после своей фиксации
+                    return runBodyInTransaction(body);
+                }
+
+                List<Runnable> actions = new ArrayList<>();
+                afterCommitActions.set(actions);
+                try {
+                    runBodyInTransaction(body);
+                } finally {
+                    afterCommitActions.remove();
+                }
+
+                // Транзакция зафиксирована
+                for (Runnable action : actions) {
+                    try {
+                        action.run();
+                    } catch (Exception e) {
+                        Log.e("SeriesRepository", "Error in after-commit action", e);
+                    }
+                }
+                return true;
+            });
+            return future.get();
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TransactionRollback)) {
+                Log.e("SeriesRepository", "Transaction rolled back", e.getCause());
+            }
+            return false;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error running transaction", e);
+            return false;
+        }
+    }
+
+    private boolean runBodyInTransaction(Callable<Boolean> body) {
+        return database.runInTransaction(() -> {
+            if (!body.call()) {
+                throw new TransactionRollback();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Выполняет действие с превью после записи. Внутри runInTransactionSync оно откладывается
+     * до фиксации и отбрасывается при откате: превью удаленных строк не должны пропасть,
+     * а задания - создаваться для ID, которых после отката нет.
+     */
+    private void runAfterCommit(Runnable action) {
+        List<Runnable> actions = afterCommitActions.get();
+        if (actions != null) {
+            actions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Откатывает транзакцию runInTransactionSync, когда body вернул false
+     */
+    private static final class TransactionRollback extends RuntimeException {
     }
 
     // === Синхронные методы для восстановления ===
     public long insertCollectionSync(Collection collection) {
         try {
-            Future<Long> future = executor.submit(() ->
+            Future<Long> future = writer.submit(() ->
                     seriesDao.insertCollectionSync(collection)
             );
             return future.get();
@@ -259,7 +657,7 @@ public class SeriesRepository {
 
     public long insertSeriesSync(Series series) {
         try {
-            Future<Long> future = executor.submit(() ->
+            Future<Long> future = writer.submit(() ->
                     seriesDao.insertSeriesSync(series)
             );
             return future.get();
@@ -270,82 +668,383 @@ public class SeriesRepository {
     }
 
     public void insertCrossRefSync(SeriesCollectionCrossRef crossRef) {
-        executor.execute(() -> seriesDao.insertCrossRefSync(crossRef));
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.insertCrossRefSync(crossRef)
+            );
+            future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error inserting cross ref sync", e);
+        }
+    }
+
+    // === Пакетные синхронные методы для восстановления ===
+    // Каждый список вставляется одной задачей writer и одной транзакцией SQLite,
+    // внутри runInTransactionSync - в общей транзакции восстановления
+
+    public List<Long> insertCollectionsSync(List<Collection> collections) {
+        try {
+            Future<List<Long>> future = writer.submit(() ->
+                    seriesDao.insertCollectionsSync(collections)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error inserting collections sync", e);
+            return null;
+        }
+    }
+
+    public List<Long> insertSeriesListSync(List<Series> seriesList) {
+        try {
+            Future<List<Long>> future = writer.submit(() ->
+                    seriesDao.insertSeriesListSync(seriesList)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error inserting series list sync", e);
+            return null;
+        }
+    }
+
+    public boolean insertCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.insertCrossRefsSync(crossRefs)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error inserting relations sync", e);
+            return false;
+        }
+    }
+
+    public List<Long> insertMediaFilesSync(List<MediaFile> mediaFiles) {
+        try {
+            // Путь к превью из резервной копии относится к старому ID, превью создаются заново
+            for (MediaFile mediaFile : mediaFiles) {
+                mediaFile.setThumbnailPath(null);
+            }
+            Future<List<Long>> future = writer.submit(() ->
+                    seriesDao.insertMediaFilesSync(mediaFiles)
+            );
+            List<Long> ids = future.get();
+            for (int i = 0; i < mediaFiles.size() && i < ids.size(); i++) {
+                mediaFiles.get(i).setId(ids.get(i));
+            }
+            List<MediaFile> insertedFiles = new ArrayList<>(mediaFiles);
+            runAfterCommit(() -> thumbnails.requestNew(insertedFiles));
+            return ids;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error inserting media files sync", e);
+            return null;
+        }
+    }
+
+    // === Журнал изменений для инкрементального резервного копирования ===
+    public long getLastChangeJournalIdSync() {
+        try {
+            Future<Long> future = reader.submit(() ->
+                    seriesDao.getLastChangeJournalIdSync()
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting last change journal id sync", e);
+            return -1;
+        }
+    }
+
+    public List<Long> getChangedRowIdsSync(String tableName, long afterId, long upToId) {
+        try {
+            Future<List<Long>> future = reader.submit(() ->
+                    seriesDao.getChangedRowIdsSync(tableName, afterId, upToId)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting changed row ids sync", e);
+            return null;
+        }
+    }
+
+    public List<ChangeJournalEntry> getChangedRelationKeysSync(long afterId, long upToId) {
+        try {
+            Future<List<ChangeJournalEntry>> future = reader.submit(() ->
+                    seriesDao.getChangedRelationKeysSync(afterId, upToId)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting changed relation keys sync", e);
+            return null;
+        }
+    }
+
+    public boolean deleteChangeJournalSync(long upToId) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.deleteChangeJournalSync(upToId)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting change journal sync", e);
+            return false;
+        }
+    }
+
+    // Журнал ведется, только пока включены автоматические копии (см. SeriesDatabase.setChangeJournalEnabled)
+    public boolean setChangeJournalEnabledSync(boolean enabled) {
+        try {
+            Future<Boolean> future = writer.submit(() ->
+                    database.setChangeJournalEnabled(enabled)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error switching change journal sync", e);
+            return false;
+        }
+    }
+
+    public boolean clearChangeJournalSync() {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.clearChangeJournalSync()
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error clearing change journal sync", e);
+            return false;
+        }
+    }
+
+    public List<Long> getExistingCollectionIdsSync(List<Long> ids) {
+        try {
+            Future<List<Long>> future = reader.submit(() ->
+                    seriesDao.getExistingCollectionIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting existing collection ids sync", e);
+            return null;
+        }
+    }
+
+    public List<Long> getExistingSeriesIdsSync(List<Long> ids) {
+        try {
+            Future<List<Long>> future = reader.submit(() ->
+                    seriesDao.getExistingSeriesIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting existing series ids sync", e);
+            return null;
+        }
+    }
+
+    public List<Long> getExistingMediaFileIdsSync(List<Long> ids) {
+        try {
+            Future<List<Long>> future = reader.submit(() ->
+                    seriesDao.getExistingMediaFileIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting existing media file ids sync", e);
+            return null;
+        }
+    }
+
+    public List<Collection> getCollectionsByIdsSync(List<Long> ids) {
+        try {
+            Future<List<Collection>> future = reader.submit(() ->
+                    seriesDao.getCollectionsByIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting collections by ids sync", e);
+            return null;
+        }
+    }
+
+    public List<Series> getSeriesByIdsSync(List<Long> ids) {
+        try {
+            Future<List<Series>> future = reader.submit(() ->
+                    seriesDao.getSeriesByIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting series by ids sync", e);
+            return null;
+        }
+    }
+
+    public List<MediaFile> getMediaFilesByIdsSync(List<Long> ids) {
+        try {
+            Future<List<MediaFile>> future = reader.submit(() ->
+                    seriesDao.getMediaFilesByIdsSync(ids)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting media files by ids sync", e);
+            return null;
+        }
+    }
+
+    public List<SeriesCollectionCrossRef> getRelationsForSeriesListSync(List<Long> seriesIds) {
+        try {
+            Future<List<SeriesCollectionCrossRef>> future = reader.submit(() ->
+                    seriesDao.getRelationsForSeriesListSync(seriesIds)
+            );
+            return future.get();
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error getting relations for series list sync", e);
+            return null;
+        }
+    }
+
+    // === Применение инкрементальных копий при восстановлении ===
+    public boolean updateCollectionsSync(List<Collection> collections) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.updateCollectionsSync(collections)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error updating collections sync", e);
+            return false;
+        }
+    }
+
+    public boolean updateSeriesListSync(List<Series> seriesList) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.updateSeriesListSync(seriesList)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error updating series list sync", e);
+            return false;
+        }
+    }
+
+    public boolean updateMediaFilesSync(List<MediaFile> mediaFiles) {
+        try {
+            // Файл мог измениться, превью пересоздается
+            for (MediaFile mediaFile : mediaFiles) {
+                mediaFile.setThumbnailPath(null);
+                thumbnails.delete(mediaFile.getId());
+            }
+            Future<?> future = writer.submit(() ->
+                    seriesDao.updateMediaFilesSync(mediaFiles)
+            );
+            future.get();
+            thumbnails.requestAll(mediaFiles);
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error updating media files sync", e);
+            return false;
+        }
+    }
+
+    public boolean upsertCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.upsertCrossRefsSync(crossRefs)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error upserting relations sync", e);
+            return false;
+        }
+    }
+
+    public boolean deleteCrossRefsSync(List<SeriesCollectionCrossRef> crossRefs) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.deleteCrossRefsSync(crossRefs)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting relations sync", e);
+            return false;
+        }
+    }
+
+    public boolean deleteCollectionsByIdsSync(List<Long> ids) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.deleteCollectionsByIdsSync(ids)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting collections sync", e);
+            return false;
+        }
+    }
+
+    public boolean deleteSeriesByIdsSync(List<Long> ids) {
+        try {
+            Future<List<Long>> future = writer.submit(() ->
+                    seriesDao.deleteSeriesByIds(new HashSet<>(ids))
+            );
+            List<Long> mediaIds = future.get();
+            runAfterCommit(() -> thumbnails.deleteAll(mediaIds));
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting series sync", e);
+            return false;
+        }
+    }
+
+    public boolean deleteMediaFilesByIdsSync(List<Long> ids) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.deleteMediaFilesByIdsSync(ids)
+            );
+            future.get();
+            List<Long> mediaIds = new ArrayList<>(ids);
+            runAfterCommit(() -> thumbnails.deleteAll(mediaIds));
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error deleting media files sync", e);
+            return false;
+        }
     }
 
     // === Метод для вставки связи ===
     public void insertCrossRef(SeriesCollectionCrossRef crossRef) {
-        executor.execute(() -> seriesDao.insertCrossRef(crossRef));
+        writer.execute(() -> seriesDao.insertCrossRef(crossRef));
     }
 
     public void deleteAllSeriesCollectionRelationsForSeries(long seriesId) {
-        executor.execute(() -> {
+        writer.execute(() -> {
             // Удаляем все связи сериала с коллекциями
             seriesDao.deleteAllSeriesCollectionRelationsForSeries(seriesId);
         });
     }
 
+    /**
+     * Приводит коллекции сериала к newCollectionIds одной транзакцией:
+     * DELETE связей, которых нет в наборе, и INSERT OR IGNORE недостающих
+     */
     public void updateSeriesCollections(long seriesId, List<Long> newCollectionIds) {
-        executor.execute(() -> {
+        List<Long> collectionIds = newCollectionIds != null ? new ArrayList<>(newCollectionIds) : new ArrayList<>();
+        writer.execute(() -> {
             try {
-                // 1. Получаем текущие коллекции сериала
-                List<SeriesCollectionCrossRef> currentRelations = seriesDao.getAllRelationsSync();
-                List<Long> currentCollectionIds = new ArrayList<>();
-
-                for (SeriesCollectionCrossRef relation : currentRelations) {
-                    if (relation.getSeriesId() == seriesId) {
-                        currentCollectionIds.add(relation.getCollectionId());
-                    }
-                }
-
-                // 2. Определяем коллекции для удаления и добавления
-                List<Long> collectionsToRemove = new ArrayList<>(currentCollectionIds);
-                collectionsToRemove.removeAll(newCollectionIds);
-
-                List<Long> collectionsToAdd = new ArrayList<>(newCollectionIds);
-                collectionsToAdd.removeAll(currentCollectionIds);
-
-                // 3. Удаляем старые связи
-                for (Long collectionId : collectionsToRemove) {
-                    seriesDao.deleteSeriesCollectionCrossRef(seriesId, collectionId);
-                }
-
-                // 4. Добавляем новые связи
-                for (Long collectionId : collectionsToAdd) {
-                    SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                    seriesDao.insertCrossRef(crossRef);
-                }
-
+                seriesDao.setSeriesCollections(seriesId, collectionIds);
             } catch (Exception e) {
-                e.printStackTrace();
-                // В случае ошибки просто заменяем все связи
-                if (newCollectionIds != null) {
-                    // Удаляем все текущие связи
-                    seriesDao.deleteAllSeriesCollectionRelationsForSeries(seriesId);
-
-                    // Добавляем новые связи
-                    for (Long collectionId : newCollectionIds) {
-                        SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                        seriesDao.insertCrossRef(crossRef);
-                    }
-                }
+                Log.e("SeriesRepository", "Error updating collections of series " + seriesId, e);
             }
         });
     }
 
     public void replaceSeriesCollections(long seriesId, List<Long> newCollectionIds) {
-        executor.execute(() -> {
-            // 1. Удаляем ВСЕ текущие связи
-            seriesDao.deleteAllSeriesCollectionRelationsForSeries(seriesId);
-
-            // 2. Добавляем новые связи
-            if (newCollectionIds != null && !newCollectionIds.isEmpty()) {
-                for (Long collectionId : newCollectionIds) {
-                    SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                    seriesDao.insertCrossRef(crossRef);
-                }
-            }
-        });
+        // Итоговый набор связей тот же, что при полной замене, но совпадающие связи не пересоздаются
+        updateSeriesCollections(seriesId, newCollectionIds);
     }
 
     // Добавьте эти методы в SeriesRepository:
@@ -356,14 +1055,18 @@ public class SeriesRepository {
     }
 
     public void insertMediaFile(MediaFile mediaFile) {
-        executor.execute(() -> seriesDao.insertMediaFile(mediaFile));
+        writer.execute(() -> {
+            mediaFile.setId(seriesDao.insertMediaFile(mediaFile));
+            thumbnails.requestNew(Collections.singletonList(mediaFile));
+        });
     }
 
     public void deleteMediaFile(long mediaId) {
-        executor.execute(() -> {
+        writer.execute(() -> {
             // Сначала получаем информацию о медиафайле перед удалением
             MediaFile mediaFile = seriesDao.getMediaFileSync(mediaId);
             seriesDao.deleteMediaFile(mediaId);
+            thumbnails.delete(mediaId);
 
             // Удаляем файл из внутреннего хранилища, если он был скопирован туда
             if (mediaFile != null && mediaFile.getFileUri() != null) {
@@ -383,7 +1086,7 @@ public class SeriesRepository {
     }
 
     public void deleteAllMediaFilesForSeries(long seriesId) {
-        executor.execute(() -> {
+        writer.execute(() -> {
             // Сначала получаем все медиафайлы для серии
             List<MediaFile> mediaFiles = seriesDao.getMediaFilesForSeriesSync(seriesId);
             seriesDao.deleteAllMediaFilesForSeries(seriesId);
@@ -391,6 +1094,7 @@ public class SeriesRepository {
             // Удаляем соответствующие файлы из внутреннего хранилища
             if (mediaFiles != null) {
                 for (MediaFile mediaFile : mediaFiles) {
+                    thumbnails.delete(mediaFile.getId());
                     if (mediaFile.getFileUri() != null) {
                         try {
                             Uri fileUri = Uri.parse(mediaFile.getFileUri());
@@ -412,7 +1116,7 @@ public class SeriesRepository {
     // Синхронные методы для резервного копирования
     public List<MediaFile> getMediaFilesForSeriesSync(long seriesId) {
         try {
-            Future<List<MediaFile>> future = executor.submit(() ->
+            Future<List<MediaFile>> future = reader.submit(() ->
                     seriesDao.getMediaFilesForSeriesSync(seriesId)
             );
             return future.get();
@@ -424,7 +1128,7 @@ public class SeriesRepository {
 
     public List<MediaFile> getAllMediaFilesSync() {
         try {
-            Future<List<MediaFile>> future = executor.submit(() ->
+            Future<List<MediaFile>> future = reader.submit(() ->
                     seriesDao.getAllMediaFilesSync()
             );
             return future.get();
@@ -436,14 +1140,16 @@ public class SeriesRepository {
 
 
     public void addMultipleSeriesToCollection(List<Long> seriesIds, long collectionId) {
-        executor.execute(() -> {
-            for (Long seriesId : seriesIds) {
-                // Проверяем, есть ли уже связь
-                int count = seriesDao.isSeriesInCollection(seriesId, collectionId);
-                if (count == 0) {
-                    SeriesCollectionCrossRef crossRef = new SeriesCollectionCrossRef(seriesId, collectionId);
-                    seriesDao.insertCrossRef(crossRef);
-                }
+        if (seriesIds == null || seriesIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(seriesIds);
+        // INSERT ... SELECT частями по IdChunks в одной транзакции: одно уведомление наблюдателей
+        writer.execute(() -> {
+            try {
+                seriesDao.addSeriesListToCollection(ids, collectionId);
+            } catch (Exception e) {
+                Log.e("SeriesRepository", "Error adding series to collection " + collectionId, e);
             }
         });
     }
@@ -455,10 +1161,15 @@ public class SeriesRepository {
     // Синхронный метод для вставки медиафайла (для восстановления из резервной копии)
     public long insertMediaFileSync(MediaFile mediaFile) {
         try {
-            Future<Long> future = executor.submit(() ->
+            // Путь к превью из резервной копии относится к старому ID, превью создается заново
+            mediaFile.setThumbnailPath(null);
+            Future<Long> future = writer.submit(() ->
                     seriesDao.insertMediaFile(mediaFile)
             );
-            return future.get();
+            long mediaId = future.get();
+            mediaFile.setId(mediaId);
+            runAfterCommit(() -> thumbnails.requestNew(Collections.singletonList(mediaFile)));
+            return mediaId;
         } catch (Exception e) {
             Log.e("SeriesRepository", "Error inserting media file sync", e);
             return -1;
@@ -468,7 +1179,8 @@ public class SeriesRepository {
 
     public Collection getCollectionByNameSync(String name) {
         try {
-            Future<Collection> future = executor.submit(() ->
+            // Читаем через writer: проверка перед вставкой должна видеть строки текущей транзакции восстановления
+            Future<Collection> future = writer.submit(() ->
                     seriesDao.getCollectionByName(name)
             );
             return future.get();
@@ -480,7 +1192,8 @@ public class SeriesRepository {
 
     public Series getSeriesByTitleSync(String title) {
         try {
-            Future<Series> future = executor.submit(() ->
+            // Через writer, как и getCollectionByNameSync
+            Future<Series> future = writer.submit(() ->
                     seriesDao.getSeriesByTitle(title)
             );
             return future.get();
@@ -492,7 +1205,7 @@ public class SeriesRepository {
 
     public boolean checkRelationExistsSync(long seriesId, long collectionId) {
         try {
-            Future<Integer> future = executor.submit(() ->
+            Future<Integer> future = reader.submit(() ->
                     seriesDao.isSeriesInCollection(seriesId, collectionId)
             );
             Integer count = future.get();
@@ -505,7 +1218,8 @@ public class SeriesRepository {
 
     public MediaFile getMediaFileByUriAndSeriesSync(String fileUri, long seriesId) {
         try {
-            Future<MediaFile> future = executor.submit(() ->
+            // Через writer, как и getCollectionByNameSync
+            Future<MediaFile> future = writer.submit(() ->
                     seriesDao.getMediaFileByUriAndSeries(fileUri, seriesId)
             );
             return future.get();
@@ -515,7 +1229,16 @@ public class SeriesRepository {
         }
     }
 
-    public void updateSeriesSync(Series series) {
-        executor.execute(() -> seriesDao.updateSeries(series));
+    public boolean updateSeriesSync(Series series) {
+        try {
+            Future<?> future = writer.submit(() ->
+                    seriesDao.updateSeries(series)
+            );
+            future.get();
+            return true;
+        } catch (Exception e) {
+            Log.e("SeriesRepository", "Error updating series sync", e);
+            return false;
+        }
     }
 }
\ No newline at end of file
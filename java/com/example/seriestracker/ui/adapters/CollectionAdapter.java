@@ -9,6 +9,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
@@ -17,24 +19,44 @@ import com.example.seriestracker.utils.GradientUtils;
 import com.google.android.material.card.MaterialCardView;
 
 import java.util.List;
+import java.util.Objects;
 
-public class CollectionAdapter extends RecyclerView.Adapter<CollectionAdapter.CollectionViewHolder> {
+/**
+ * Список коллекций на ListAdapter: новые списки сравниваются в фоновом потоке,
+ * перерисовываются только изменившиеся карточки
+ */
+public class CollectionAdapter extends ListAdapter<Collection, CollectionAdapter.CollectionViewHolder> {
 
     public interface OnCollectionClickListener {
         void onCollectionClick(Collection collection);
         void onFavoriteClick(Collection collection);
     }
 
-    private List<Collection> collections;
+    static final DiffUtil.ItemCallback<Collection> DIFF_CALLBACK = new DiffUtil.ItemCallback<Collection>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Collection oldItem, @NonNull Collection newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Collection oldItem, @NonNull Collection newItem) {
+            // Сравниваем поля, которые отображаются на карточке
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getColors(), newItem.getColors())
+                    && oldItem.isFavorite() == newItem.isFavorite()
+                    && oldItem.getSeriesCount() == newItem.getSeriesCount();
+        }
+    };
+
     private final OnCollectionClickListener listener;
 
     public CollectionAdapter(OnCollectionClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
     public void setCollections(List<Collection> collections) {
-        this.collections = collections;
-        notifyDataSetChanged();
+        submitList(collections);
     }
 
     @NonNull
@@ -47,13 +69,7 @@ public class CollectionAdapter extends RecyclerView.Adapter<CollectionAdapter.Co
 
     @Override
     public void onBindViewHolder(@NonNull CollectionViewHolder holder, int position) {
-        Collection collection = collections.get(position);
-        holder.bind(collection, listener);
-    }
-
-    @Override
-    public int getItemCount() {
-        return collections == null ? 0 : collections.size();
+        holder.bind(getItem(position), listener);
     }
 
     static class CollectionViewHolder extends RecyclerView.ViewHolder {
@@ -13,19 +13,18 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Collection;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class CollectionsManageAdapter extends RecyclerView.Adapter<CollectionsManageAdapter.ViewHolder> {
+public class CollectionsManageAdapter extends ListAdapter<Collection, CollectionsManageAdapter.ViewHolder> {
 
-    private List<Collection> collections = new ArrayList<>();
     private Map<Long, Integer> seriesCountMap = new HashMap<>();
     private final OnCollectionActionListener listener;
     private Context context;
@@ -37,16 +36,21 @@ public class CollectionsManageAdapter extends RecyclerView.Adapter<CollectionsMa
     }
 
     public CollectionsManageAdapter(OnCollectionActionListener listener) {
+        // Новые списки сравниваются в фоновом потоке так же, как в CollectionAdapter
+        super(CollectionAdapter.DIFF_CALLBACK);
         this.listener = listener;
     }
 
     public void setCollections(List<Collection> collections) {
-        this.collections = collections;
-        notifyDataSetChanged();
+        submitList(collections);
     }
 
     public void updateSeriesCount(long collectionId, int count) {
-        seriesCountMap.put(collectionId, count);
+        Integer previous = seriesCountMap.put(collectionId, count);
+        if (previous != null && previous == count) {
+            return;
+        }
+        List<Collection> collections = getCurrentList();
         for (int i = 0; i < collections.size(); i++) {
             if (collections.get(i).getId() == collectionId) {
                 notifyItemChanged(i);
@@ -66,7 +70,7 @@ public class CollectionsManageAdapter extends RecyclerView.Adapter<CollectionsMa
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Collection collection = collections.get(position);
+        Collection collection = getItem(position);
 
         // Устанавливаем цвет коллекции - ИСПРАВЛЕНО: используем getColors() вместо getColor()
         List<String> colors = collection.getColors();
@@ -158,11 +162,6 @@ public class CollectionsManageAdapter extends RecyclerView.Adapter<CollectionsMa
         popupMenu.show();
     }
 
-    @Override
-    public int getItemCount() {
-        return collections.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         CardView collectionCardView;
         TextView collectionNameTextView;
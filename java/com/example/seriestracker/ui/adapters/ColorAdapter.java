@@ -51,8 +51,18 @@ public class ColorAdapter extends RecyclerView.Adapter<ColorAdapter.ColorViewHol
     }
 
     public void setSelectedColor(String color) {
+        // Палитра не меняется, перерисовываем только прежний и новый выбранный цвет
+        int previousIndex = colors.indexOf(selectedColor);
         this.selectedColor = color;
-        notifyDataSetChanged();
+        int index = colors.indexOf(color);
+        if (previousIndex != index) {
+            if (previousIndex >= 0) {
+                notifyItemChanged(previousIndex);
+            }
+            if (index >= 0) {
+                notifyItemChanged(index);
+            }
+        }
     }
 
     public String getSelectedColor() {
@@ -125,7 +135,6 @@ public class ColorAdapter extends RecyclerView.Adapter<ColorAdapter.ColorViewHol
                     listener.onColorClick(color, colorName);
                     // После выбора цвета обновляем адаптер
                     setSelectedColor(color);
-                    notifyDataSetChanged();
                 }
             });
         }
@@ -1,5 +1,6 @@
 package com.example.seriestracker.ui.adapters;
 
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,37 +8,72 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.MediaFile;
+import com.example.seriestracker.data.media.MediaThumbnails;
 
+import java.io.File;
 import java.util.List;
+import java.util.Objects;
 
-public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHolder> {
+/**
+ * Сетка медиафайлов на ListAdapter: новые списки сравниваются в фоновом потоке,
+ * поэтому добавление файла или готовое превью перерисовывают только свою ячейку
+ */
+public class MediaAdapter extends ListAdapter<MediaFile, MediaAdapter.MediaViewHolder> {
 
     public interface OnMediaClickListener {
         void onMediaClick(MediaFile mediaFile, int position);
         void onMediaDelete(MediaFile mediaFile);
     }
 
-    private List<MediaFile> mediaFiles;
+    // Payload смены режима редактирования: меняется только кнопка удаления, превью не перезагружаются
+    private static final Object PAYLOAD_EDIT_MODE = new Object();
+
+    private static final DiffUtil.ItemCallback<MediaFile> DIFF_CALLBACK = new DiffUtil.ItemCallback<MediaFile>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MediaFile oldItem, @NonNull MediaFile newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull MediaFile oldItem, @NonNull MediaFile newItem) {
+            // Сравниваем поля, которые влияют на ячейку
+            return Objects.equals(oldItem.getFileUri(), newItem.getFileUri())
+                    && Objects.equals(oldItem.getFileType(), newItem.getFileType())
+                    && Objects.equals(oldItem.getThumbnailPath(), newItem.getThumbnailPath());
+        }
+    };
+
     private final OnMediaClickListener listener;
     private boolean editMode = false; // По умолчанию режим просмотра (без возможности удаления)
 
     public MediaAdapter(OnMediaClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
     public void setMediaFiles(List<MediaFile> mediaFiles) {
-        this.mediaFiles = mediaFiles;
-        notifyDataSetChanged();
+        submitList(mediaFiles);
     }
 
     public void setEditMode(boolean editMode) {
+        if (this.editMode == editMode) {
+            return;
+        }
         this.editMode = editMode;
-        notifyDataSetChanged(); // Обновляем весь список, чтобы применить изменения
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_EDIT_MODE);
     }
 
     @NonNull
@@ -50,15 +86,16 @@ public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHol
 
     @Override
     public void onBindViewHolder(@NonNull MediaViewHolder holder, int position) {
-        if (mediaFiles != null) {
-            MediaFile mediaFile = mediaFiles.get(position);
-            holder.bind(mediaFile, position, listener);
-        }
+        holder.bind(getItem(position), listener);
     }
 
     @Override
-    public int getItemCount() {
-        return mediaFiles != null ? mediaFiles.size() : 0;
+    public void onBindViewHolder(@NonNull MediaViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_EDIT_MODE)) {
+            holder.bindDeleteButton(getItem(position), listener);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
     }
 
     // Внутренний (не статический) класс ViewHolder
@@ -74,16 +111,43 @@ public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHol
             deleteButton = itemView.findViewById(R.id.deleteButton);
         }
 
-        public void bind(MediaFile mediaFile, int position, OnMediaClickListener listener) {
+        public void bind(MediaFile mediaFile, OnMediaClickListener listener) {
             // Загружаем превью
             if (mediaFile.getFileUri() != null && !mediaFile.getFileUri().isEmpty()) {
                 try {
-                    Glide.with(itemView.getContext())
+                    // Исходный файл - запасной вариант, пока превью не создано или если его удалили из кеша
+                    RequestBuilder<Drawable> original = Glide.with(itemView.getContext())
                             .load(mediaFile.getFileUri())
-                            .placeholder(R.drawable.ic_baseline_image_24)
                             .centerCrop()
-                            .error(R.drawable.ic_baseline_image_24) // Добавляем ошибку плейсхолдера
-                            .into(mediaImageView);
+                            .error(R.drawable.ic_baseline_image_24); // Добавляем ошибку плейсхолдера
+
+                    if (mediaFile.getThumbnailPath() != null) {
+                        Glide.with(itemView.getContext())
+                                .load(new File(mediaFile.getThumbnailPath()))
+                                .placeholder(R.drawable.ic_baseline_image_24)
+                                .centerCrop()
+                                .listener(new RequestListener<Drawable>() {
+                                    @Override
+                                    public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                                                Target<Drawable> target, boolean isFirstResource) {
+                                        // Файл превью пропал (кеш очищен) - создаем заново
+                                        MediaThumbnails.getInstance(itemView.getContext()).request(mediaFile);
+                                        return false;
+                                    }
+
+                                    @Override
+                                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                                                   DataSource dataSource, boolean isFirstResource) {
+                                        return false;
+                                    }
+                                })
+                                .error(original)
+                                .into(mediaImageView);
+                    } else {
+                        MediaThumbnails.getInstance(itemView.getContext()).request(mediaFile);
+                        original.placeholder(R.drawable.ic_baseline_image_24)
+                                .into(mediaImageView);
+                    }
                 } catch (Exception e) {
                     // Если возникла ошибка при загрузке, показываем плейсхолдер
                     mediaImageView.setImageResource(R.drawable.ic_baseline_image_24);
@@ -100,13 +164,19 @@ public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHol
                 videoIconView.setVisibility(View.GONE);
             }
 
-            // Обработчик клика на элемент
+            // Обработчик клика на элемент. Позиция берется в момент клика:
+            // после вставки или удаления соседних файлов строка сдвигается без перерисовки
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
+                int position = getBindingAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
                     listener.onMediaClick(mediaFile, position);
                 }
             });
 
+            bindDeleteButton(mediaFile, listener);
+        }
+
+        void bindDeleteButton(MediaFile mediaFile, OnMediaClickListener listener) {
             // Кнопка удаления - используем editMode из внешнего класса
             if (editMode) { // Теперь это работает, так как ViewHolder не статический
                 deleteButton.setVisibility(View.VISIBLE);
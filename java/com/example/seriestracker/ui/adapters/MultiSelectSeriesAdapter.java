@@ -9,20 +9,42 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.ui.images.CoverImages;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
-public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSeriesAdapter.SeriesViewHolder> {
+/**
+ * Selectable series list backed by ListAdapter: new lists are diffed on a background thread,
+ * and a selection change only rebinds the checkboxes of rows whose state actually changed
+ */
+public class MultiSelectSeriesAdapter extends ListAdapter<Series, MultiSelectSeriesAdapter.SeriesViewHolder> {
+
+    // Payload for rows where only the selection state changed
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    private static final DiffUtil.ItemCallback<Series> DIFF_CALLBACK = new DiffUtil.ItemCallback<Series>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Series oldItem, @NonNull Series newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Series oldItem, @NonNull Series newItem) {
+            // A row only shows the title and the cover
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getImageUri(), newItem.getImageUri());
+        }
+    };
 
-    private List<Series> seriesList;
     private Set<Long> selectedSeriesIds;
     private OnSelectionChangeListener listener;
 
@@ -31,7 +53,8 @@ public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSe
     }
 
     public MultiSelectSeriesAdapter(List<Series> seriesList, Set<Long> initiallySelectedSeriesIds) {
-        this.seriesList = seriesList != null ? seriesList : new ArrayList<>();
+        super(DIFF_CALLBACK);
+        submitList(seriesList);
         this.selectedSeriesIds = initiallySelectedSeriesIds != null ? new HashSet<>(initiallySelectedSeriesIds) : new HashSet<>();
     }
 
@@ -44,13 +67,20 @@ public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSe
     }
 
     public void setSelectedSeriesIds(Set<Long> selectedSeriesIds) {
+        Set<Long> previous = this.selectedSeriesIds;
         this.selectedSeriesIds = selectedSeriesIds != null ? new HashSet<>(selectedSeriesIds) : new HashSet<>();
-        notifyDataSetChanged();
+
+        List<Series> seriesList = getCurrentList();
+        for (int i = 0; i < seriesList.size(); i++) {
+            long seriesId = seriesList.get(i).getId();
+            if (previous.contains(seriesId) != this.selectedSeriesIds.contains(seriesId)) {
+                notifyItemChanged(i, PAYLOAD_SELECTION);
+            }
+        }
     }
 
     public void setSeriesList(List<Series> seriesList) {
-        this.seriesList = seriesList != null ? seriesList : new ArrayList<>();
-        notifyDataSetChanged();
+        submitList(seriesList);
     }
 
     @NonNull
@@ -63,13 +93,16 @@ public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSe
 
     @Override
     public void onBindViewHolder(@NonNull SeriesViewHolder holder, int position) {
-        Series series = seriesList.get(position);
-        holder.bind(series);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return seriesList.size();
+    public void onBindViewHolder(@NonNull SeriesViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_SELECTION)) {
+            holder.bindSelection(getItem(position));
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
     }
 
     class SeriesViewHolder extends RecyclerView.ViewHolder {
@@ -87,32 +120,11 @@ public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSe
         public void bind(Series series) {
             seriesTitleTextView.setText(series.getTitle());
 
-            // Load image with Glide
-            if (series.getImageUri() != null && !series.getImageUri().isEmpty()) {
-                Glide.with(itemView.getContext())
-                        .load(series.getImageUri())
-                        .placeholder(R.drawable.placeholder_image) // assuming you have a placeholder
-                        .error(R.drawable.placeholder_image)
-                        .into(seriesImageView);
-            } else {
-                seriesImageView.setImageResource(R.drawable.placeholder_image);
-            }
-
-            // Set checkbox state based on selection
-            checkBox.setChecked(selectedSeriesIds.contains(series.getId()));
+            // Load cover image
+            CoverImages.show(seriesImageView, series.getImageUri(),
+                    CoverImages.Size.SMALL, R.drawable.placeholder_image);
 
-            // Handle checkbox click
-            checkBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                if (isChecked) {
-                    selectedSeriesIds.add(series.getId());
-                } else {
-                    selectedSeriesIds.remove(series.getId());
-                }
-
-                if (listener != null) {
-                    listener.onSelectionChanged();
-                }
-            });
+            bindSelection(series);
 
             // Also allow clicking on the entire item to toggle selection
             itemView.setOnClickListener(v -> {
@@ -130,5 +142,26 @@ public class MultiSelectSeriesAdapter extends RecyclerView.Adapter<MultiSelectSe
                 }
             });
         }
+
+        void bindSelection(Series series) {
+            // Detach the previous row's listener first, otherwise setChecked would toggle the wrong series
+            checkBox.setOnCheckedChangeListener(null);
+
+            // Set checkbox state based on selection
+            checkBox.setChecked(selectedSeriesIds.contains(series.getId()));
+
+            // Handle checkbox click
+            checkBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (isChecked) {
+                    selectedSeriesIds.add(series.getId());
+                } else {
+                    selectedSeriesIds.remove(series.getId());
+                }
+
+                if (listener != null) {
+                    listener.onSelectionChanged();
+                }
+            });
+        }
     }
 }
\ No newline at end of file
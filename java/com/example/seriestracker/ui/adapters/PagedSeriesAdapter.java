@@ -0,0 +1,68 @@
+package com.example.seriestracker.ui.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+
+import com.example.seriestracker.R;
+import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.ui.images.CoverImages;
+
+import java.util.List;
+
+/**
+ * Постраничный вариант SeriesAdapter: данные приходят страницами из PagingSource,
+ * изменения считаются DiffUtil в фоне, поэтому обновляются только изменившиеся строки
+ */
+public class PagedSeriesAdapter extends PagingDataAdapter<Series, SeriesAdapter.SeriesViewHolder>
+        implements CoverImages.CoverSource {
+
+    private final SeriesAdapter.OnSeriesClickListener listener;
+
+    public PagedSeriesAdapter(SeriesAdapter.OnSeriesClickListener listener) {
+        // Сравнение строк общее с SeriesAdapter
+        super(SeriesAdapter.DIFF_CALLBACK);
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public SeriesAdapter.SeriesViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_series, parent, false);
+        return new SeriesAdapter.SeriesViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SeriesAdapter.SeriesViewHolder holder, int position) {
+        // getItem возвращает null для еще не загруженной позиции
+        Series series = getItem(position);
+        if (series != null) {
+            holder.bind(series, listener);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SeriesAdapter.SeriesViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        Series series = getItem(position);
+        if (series != null && payloads.size() == 1 && payloads.get(0) == SeriesAdapter.PAYLOAD_FAVORITE) {
+            holder.bindFavorite(series, listener);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    @Override
+    public String getCoverUri(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return null;
+        }
+        // peek не запрашивает загрузку страницы, предзагружаются только уже загруженные строки
+        Series series = peek(position);
+        return series != null ? series.getImageUri() : null;
+    }
+}
\ No newline at end of file
@@ -9,15 +9,26 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.repository.SeriesChange;
+import com.example.seriestracker.ui.images.CoverImages;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-public class SeriesAdapter extends RecyclerView.Adapter<SeriesAdapter.SeriesViewHolder> {
+/**
+ * Список сериалов на ListAdapter: новые списки сравниваются AsyncListDiffer в фоновом потоке,
+ * перерисовываются только добавленные, удаленные и изменившиеся строки
+ */
+public class SeriesAdapter extends ListAdapter<Series, SeriesAdapter.SeriesViewHolder>
+        implements CoverImages.CoverSource {
 
     public interface OnSeriesClickListener {
         void onSeriesClick(Series series);
@@ -25,16 +36,81 @@ public class SeriesAdapter extends RecyclerView.Adapter<SeriesAdapter.SeriesView
         void onFavoriteToggle(Series series, boolean isFavorite);
     }
 
-    private List<Series> seriesList;
+    // Payload для строки, у которой изменилось только избранное: обложка и тексты не перерисовываются
+    static final Object PAYLOAD_FAVORITE = new Object();
+
+    static final DiffUtil.ItemCallback<Series> DIFF_CALLBACK = new DiffUtil.ItemCallback<Series>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Series oldItem, @NonNull Series newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Series oldItem, @NonNull Series newItem) {
+            // Сравниваем поля, которые отображаются в строке списка
+            return isSameContent(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Series oldItem, @NonNull Series newItem) {
+            if (oldItem.getIsFavorite() != newItem.getIsFavorite()
+                    && isSameContentIgnoringFavorite(oldItem, newItem)) {
+                return PAYLOAD_FAVORITE;
+            }
+            return null;
+        }
+    };
+
+    // ID сериала -> позиция в текущем списке, для точечного обновления строки
+    private final Map<Long, Integer> positions = new HashMap<>();
     private final OnSeriesClickListener listener;
 
     public SeriesAdapter(OnSeriesClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
     }
 
     public void setSeriesList(List<Series> seriesList) {
-        this.seriesList = seriesList;
-        notifyDataSetChanged();
+        submitList(seriesList);
+    }
+
+    @Override
+    public void onCurrentListChanged(@NonNull List<Series> previousList, @NonNull List<Series> currentList) {
+        positions.clear();
+        for (int i = 0; i < currentList.size(); i++) {
+            positions.put(currentList.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * Применяет изменение одного сериала и перерисовывает только его строку.
+     * Следующий список из БД уже совпадет с исправленной строкой, и DiffUtil ее не тронет.
+     */
+    public void applySeriesChange(SeriesChange change) {
+        Integer position = positions.get(change.getSeriesId());
+        List<Series> currentList = getCurrentList();
+        if (position == null || position >= currentList.size()) {
+            return;
+        }
+        if (change.applyTo(currentList.get(position))) {
+            notifyItemChanged(position,
+                    change.getField() == SeriesChange.Field.FAVORITE ? PAYLOAD_FAVORITE : null);
+        }
+    }
+
+    /**
+     * Совпадают ли поля, которые отображаются в строке списка
+     */
+    public static boolean isSameContent(Series oldItem, Series newItem) {
+        return isSameContentIgnoringFavorite(oldItem, newItem)
+                && oldItem.getIsFavorite() == newItem.getIsFavorite();
+    }
+
+    private static boolean isSameContentIgnoringFavorite(Series oldItem, Series newItem) {
+        return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getNotes(), newItem.getNotes())
+                && Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                && Objects.equals(oldItem.getImageUri(), newItem.getImageUri());
     }
 
     @NonNull
@@ -47,15 +123,25 @@ public class SeriesAdapter extends RecyclerView.Adapter<SeriesAdapter.SeriesView
 
     @Override
     public void onBindViewHolder(@NonNull SeriesViewHolder holder, int position) {
-        if (seriesList != null) {
-            Series series = seriesList.get(position);
-            holder.bind(series, listener);
+        holder.bind(getItem(position), listener);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SeriesViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_FAVORITE) {
+            holder.bindFavorite(getItem(position), listener);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
         }
     }
 
     @Override
-    public int getItemCount() {
-        return seriesList != null ? seriesList.size() : 0;
+    public String getCoverUri(int position) {
+        List<Series> currentList = getCurrentList();
+        if (position < 0 || position >= currentList.size()) {
+            return null;
+        }
+        return currentList.get(position).getImageUri();
     }
 
     static class SeriesViewHolder extends RecyclerView.ViewHolder {
@@ -77,17 +163,6 @@ public class SeriesAdapter extends RecyclerView.Adapter<SeriesAdapter.SeriesView
         public void bind(Series series, OnSeriesClickListener listener) {
             titleTextView.setText(series.getTitle());
 
-            // Кнопка избранного
-            favoriteButton.setImageResource(series.getIsFavorite() ?
-                    R.drawable.ic_baseline_star_24 : R.drawable.ic_baseline_star_border_24);
-
-            // Устанавливаем цвет звезды
-            if (series.getIsFavorite()) {
-                favoriteButton.setColorFilter(itemView.getContext().getResources().getColor(R.color.favorite_star));
-            } else {
-                favoriteButton.setColorFilter(itemView.getContext().getResources().getColor(R.color.text_gray));
-            }
-
             // Отображение статуса
             String statusText = getStatusText(series.getStatus());
             statusTextView.setText(statusText);
@@ -105,13 +180,25 @@ public class SeriesAdapter extends RecyclerView.Adapter<SeriesAdapter.SeriesView
             }
 
             // Загрузка изображения
-            if (series.getImageUri() != null && !series.getImageUri().isEmpty()) {
-                Glide.with(itemView.getContext())
-                        .load(series.getImageUri())
-                        .placeholder(R.drawable.ic_baseline_image_24)
-                        .into(seriesImageView);
+            CoverImages.show(seriesImageView, series.getImageUri(),
+                    CoverImages.Size.SMALL, R.drawable.ic_baseline_image_24);
+
+            bindFavorite(series, listener);
+        }
+
+        /**
+         * Обновляет звезду избранного и обработчики кликов (они ссылаются на актуальный объект сериала)
+         */
+        void bindFavorite(Series series, OnSeriesClickListener listener) {
+            // Кнопка избранного
+            favoriteButton.setImageResource(series.getIsFavorite() ?
+                    R.drawable.ic_baseline_star_24 : R.drawable.ic_baseline_star_border_24);
+
+            // Устанавливаем цвет звезды
+            if (series.getIsFavorite()) {
+                favoriteButton.setColorFilter(itemView.getContext().getResources().getColor(R.color.favorite_star));
             } else {
-                seriesImageView.setImageResource(R.drawable.ic_baseline_image_24);
+                favoriteButton.setColorFilter(itemView.getContext().getResources().getColor(R.color.text_gray));
             }
 
             // Кнопка "Избранное"
@@ -12,8 +12,8 @@ import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.VideoView;
 
-import com.bumptech.glide.Glide;
 import com.example.seriestracker.R;
+import com.example.seriestracker.ui.images.CoverImages;
 
 import java.io.File;
 import java.util.HashMap;
@@ -130,11 +130,7 @@ public class CustomVideoView extends FrameLayout {
     }
 
     public void setThumbnail(String imageUri) {
-        if (imageUri != null && !imageUri.isEmpty()) {
-            Glide.with(getContext())
-                    .load(imageUri)
-                    .into(thumbnailView);
-        }
+        CoverImages.showFullScreen(thumbnailView, imageUri);
     }
 
     public void setOnPreparedListener(MediaPlayer.OnPreparedListener listener) {
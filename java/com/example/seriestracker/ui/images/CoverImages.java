@@ -0,0 +1,208 @@
+package com.example.seriestracker.ui.images;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.signature.EmptySignature;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Единая точка загрузки обложек сериалов.
+ *
+ * Обложки декодируются только в размерах из Size, поэтому одна и та же картинка
+ * в разных списках попадает в кеш памяти и диска один раз. На диск пишется уже уменьшенный
+ * результат (DiskCacheStrategy.RESOURCE): исходники лежат локально, копировать их в кеш незачем.
+ * Для локальных файлов ключ кеша включает время изменения и размер файла - замененный
+ * файл с тем же путем не покажет старую картинку. Эта подпись запоминается по пути, чтобы
+ * привязка строки в главном потоке не обращалась к файловой системе; файлы по прежним путям
+ * заменяет только восстановление из резервной копии, после него вызывается invalidateSignatures().
+ */
+public final class CoverImages {
+
+    /**
+     * Размеры обложек (в dp, пропорции постера 3:4)
+     */
+    public enum Size {
+        // Строки списков сериалов и диалог выбора сериалов
+        SMALL(72, 96),
+        // Экраны добавления и редактирования сериала
+        LARGE(120, 160);
+
+        private final int widthDp;
+        private final int heightDp;
+
+        Size(int widthDp, int heightDp) {
+            this.widthDp = widthDp;
+            this.heightDp = heightDp;
+        }
+
+        public int getWidthPx(Context context) {
+            return Math.round(widthDp * context.getResources().getDisplayMetrics().density);
+        }
+
+        public int getHeightPx(Context context) {
+            return Math.round(heightDp * context.getResources().getDisplayMetrics().density);
+        }
+    }
+
+    /**
+     * Источник обложек для предзагрузки при прокрутке списка
+     */
+    public interface CoverSource {
+        /**
+         * @return URI обложки элемента на позиции или null, если обложки нет (или позиция еще не загружена)
+         */
+        @Nullable
+        String getCoverUri(int position);
+    }
+
+    // Сколько строк вперед по ходу прокрутки загружается заранее
+    private static final int PRELOAD_ITEM_COUNT = 12;
+    private static final int SIGNATURE_CACHE_SIZE = 1000;
+
+    // Подписи локальных файлов по пути
+    private static final LruCache<String, Key> SIGNATURES = new LruCache<>(SIGNATURE_CACHE_SIZE);
+
+    private CoverImages() {
+    }
+
+    /**
+     * Показывает обложку в ImageView. Без обложки показывается placeholder,
+     * а незавершенная загрузка для переиспользованного View отменяется.
+     */
+    public static void show(@NonNull ImageView imageView, @Nullable String imageUri,
+                            @NonNull Size size, @DrawableRes int placeholder) {
+        RequestManager requestManager = Glide.with(imageView);
+        if (imageUri == null || imageUri.isEmpty()) {
+            requestManager.clear(imageView);
+            imageView.setImageResource(placeholder);
+            return;
+        }
+        request(requestManager, imageView.getContext(), imageUri, size)
+                .placeholder(placeholder)
+                .error(placeholder)
+                .into(imageView);
+    }
+
+    public static void show(@NonNull ImageView imageView, @Nullable Uri imageUri,
+                            @NonNull Size size, @DrawableRes int placeholder) {
+        show(imageView, imageUri != null ? imageUri.toString() : null, size, placeholder);
+    }
+
+    /**
+     * Показывает изображение во весь экран (с сохранением пропорций), не больше размера дисплея
+     */
+    public static void showFullScreen(@NonNull ImageView imageView, @Nullable String imageUri) {
+        if (imageUri == null || imageUri.isEmpty()) {
+            return;
+        }
+        DisplayMetrics metrics = imageView.getResources().getDisplayMetrics();
+        Glide.with(imageView)
+                .load(imageUri)
+                .override(metrics.widthPixels, metrics.heightPixels)
+                .fitCenter()
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                .signature(signatureFor(imageUri))
+                .into(imageView);
+    }
+
+    /**
+     * Запрос обложки в размере size. Тот же запрос используется предзагрузкой,
+     * поэтому показ после прокрутки берет картинку из кеша памяти.
+     */
+    @NonNull
+    public static RequestBuilder<Drawable> request(@NonNull RequestManager requestManager, @NonNull Context context,
+                                                   @NonNull String imageUri, @NonNull Size size) {
+        return requestManager
+                .load(imageUri)
+                .override(size.getWidthPx(context), size.getHeightPx(context))
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                .signature(signatureFor(imageUri));
+    }
+
+    /**
+     * Подключает к списку сериалов предзагрузку обложек размера SMALL по ходу прокрутки
+     */
+    public static void attachPreloader(@NonNull Fragment fragment, @NonNull RecyclerView recyclerView,
+                                       @NonNull CoverSource source) {
+        Context context = fragment.requireContext();
+        RequestManager requestManager = Glide.with(fragment);
+
+        ListPreloader.PreloadModelProvider<String> modelProvider = new ListPreloader.PreloadModelProvider<String>() {
+            @NonNull
+            @Override
+            public List<String> getPreloadItems(int position) {
+                String imageUri = source.getCoverUri(position);
+                if (imageUri == null || imageUri.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(imageUri);
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String imageUri) {
+                return request(requestManager, context, imageUri, Size.SMALL);
+            }
+        };
+
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(requestManager, modelProvider,
+                new FixedPreloadSizeProvider<>(Size.SMALL.getWidthPx(context), Size.SMALL.getHeightPx(context)),
+                PRELOAD_ITEM_COUNT));
+    }
+
+    /**
+     * Сбрасывает запомненные подписи локальных файлов (файлы могли быть заменены по тем же путям)
+     */
+    public static void invalidateSignatures() {
+        SIGNATURES.evictAll();
+    }
+
+    /**
+     * Подпись для ключа кеша: у локального файла - время изменения и размер,
+     * у content:// URI ключом служит сам URI
+     */
+    private static Key signatureFor(String imageUri) {
+        File file = null;
+        if (imageUri.startsWith("/")) {
+            file = new File(imageUri);
+        } else if (imageUri.startsWith("file:")) {
+            String path = Uri.parse(imageUri).getPath();
+            if (path != null) {
+                file = new File(path);
+            }
+        }
+        if (file == null) {
+            return EmptySignature.obtain();
+        }
+        Key signature = SIGNATURES.get(file.getPath());
+        if (signature == null) {
+            signature = new ObjectKey(file.lastModified() + ":" + file.length());
+            SIGNATURES.put(file.getPath(), signature);
+        }
+        return signature;
+    }
+}
\ No newline at end of file
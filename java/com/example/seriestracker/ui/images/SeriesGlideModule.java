@@ -0,0 +1,58 @@
+package com.example.seriestracker.ui.images;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.module.AppGlideModule;
+
+/**
+ * Настройка Glide для всего приложения.
+ *
+ * Размер кешей зависит от памяти устройства: кеш декодированных изображений занимает
+ * 1/8 от memoryClass (1/16 на устройствах с малым объемом памяти), пул Bitmap - половину
+ * этого объема. Дисковый кеш хранит уже уменьшенные обложки (см. CoverImages), поэтому
+ * ему хватает нескольких десятков мегабайт.
+ */
+@GlideModule
+public final class SeriesGlideModule extends AppGlideModule {
+    private static final String TAG = "SeriesGlideModule";
+
+    private static final String DISK_CACHE_DIR = "image_cache";
+    private static final long MB = 1024L * 1024;
+    private static final long LOW_RAM_DISK_CACHE_SIZE = 32 * MB;
+    private static final long DISK_CACHE_SIZE = 96 * MB;
+    private static final long LARGE_DISK_CACHE_SIZE = 192 * MB;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = context.getSystemService(ActivityManager.class);
+        boolean lowRam = activityManager.isLowRamDevice();
+        long memoryClassBytes = activityManager.getMemoryClass() * MB;
+
+        long memoryCacheSize = memoryClassBytes / (lowRam ? 16 : 8);
+        long bitmapPoolSize = memoryCacheSize / 2;
+        long diskCacheSize = lowRam ? LOW_RAM_DISK_CACHE_SIZE
+                : activityManager.getMemoryClass() >= 512 ? LARGE_DISK_CACHE_SIZE : DISK_CACHE_SIZE;
+
+        builder.setMemoryCache(new LruResourceCache(memoryCacheSize))
+                .setBitmapPool(new LruBitmapPool(bitmapPoolSize))
+                .setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, diskCacheSize));
+
+        Log.d(TAG, "Image caches: memory " + memoryCacheSize / MB + " MB, bitmap pool "
+                + bitmapPoolSize / MB + " MB, disk " + diskCacheSize / MB + " MB");
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        // Модули из манифеста (Glide v3) не используются
+        return false;
+    }
+}
\ No newline at end of file
@@ -27,9 +27,9 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
-import com.bumptech.glide.Glide;
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 
 import java.util.ArrayList;
@@ -253,10 +253,8 @@ public class AddSeriesScreen extends Fragment {
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == getActivity().RESULT_OK && data != null) {
             selectedImageUri = data.getData();
             if (selectedImageUri != null) {
-                Glide.with(this)
-                        .load(selectedImageUri)
-                        .placeholder(R.drawable.ic_baseline_image_24)
-                        .into(seriesImageView);
+                CoverImages.show(seriesImageView, selectedImageUri,
+                        CoverImages.Size.LARGE, R.drawable.ic_baseline_image_24);
             }
         }
     }
@@ -20,25 +20,21 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
+import com.example.seriestracker.data.dao.SeriesSortOrder;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.ui.adapters.PagedSeriesAdapter;
 import com.example.seriestracker.ui.adapters.SeriesAdapter;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 public class AllSeriesScreen extends Fragment {
 
     private Fragment parentFragment;
     private SeriesViewModel viewModel;
     private RecyclerView seriesRecyclerView;
-    private SeriesAdapter seriesAdapter;
+    private PagedSeriesAdapter seriesAdapter;
     private ImageButton backButton;
     private TextView seriesCountBadge;
-    private List<Series> allSeries = new ArrayList<>();
     private int currentSortOrder = 0;
     private String currentStatusFilter = null; // Для хранения выбранного статуса для сортировки
 
@@ -79,24 +75,18 @@ public class AllSeriesScreen extends Fragment {
         // Настройка RecyclerView
         setupRecyclerView();
 
-        // Загрузка всех сериалов
-        viewModel.getAllSeries().observe(getViewLifecycleOwner(), seriesList -> {
-            if (seriesList != null) {
-                allSeries = seriesList;
-                List<Series> sortedSeries = getSortedSeries(allSeries);
-                // Обновляем адаптер
-                seriesAdapter.setSeriesList(sortedSeries);
-                // ОБНОВЛЯЕМ СЧЕТЧИК
-                seriesCountBadge.setText(String.valueOf(seriesList.size()));
-            } else {
-                // Если список пустой, показываем 0
-                seriesCountBadge.setText("0");
-            }
-        });
+        // Загрузка сериалов страницами, уже отсортированных в БД
+        viewModel.setSeriesSortOrder(getSeriesSortOrder());
+        viewModel.getPagedSeries().observe(getViewLifecycleOwner(), pagingData ->
+                seriesAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData));
+
+        // Счетчик считается отдельным запросом, весь список для него не нужен
+        viewModel.getSeriesCount().observe(getViewLifecycleOwner(), count ->
+                seriesCountBadge.setText(String.valueOf(count != null ? count : 0)));
     }
 
     private void setupRecyclerView() {
-        seriesAdapter = new SeriesAdapter(new SeriesAdapter.OnSeriesClickListener() {
+        seriesAdapter = new PagedSeriesAdapter(new SeriesAdapter.OnSeriesClickListener() {
             @Override
             public void onSeriesClick(Series series) {
                 openEditSeriesScreen(series);
@@ -121,6 +111,8 @@ public class AllSeriesScreen extends Fragment {
 
         seriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         seriesRecyclerView.setAdapter(seriesAdapter);
+        // Обложки следующих строк загружаются заранее по ходу прокрутки
+        CoverImages.attachPreloader(this, seriesRecyclerView, seriesAdapter);
 
         // ВСЁ! Никаких addOnScrollListener больше не нужно
     }
@@ -209,121 +201,31 @@ public class AllSeriesScreen extends Fragment {
         popup.show();
     }
 
-    private List<Series> getSortedSeries(List<Series> seriesList) {
-        List<Series> sorted = new ArrayList<>(seriesList);
-
+    /**
+     * Порядок сортировки для запроса к БД по выбранному пункту меню
+     */
+    private SeriesSortOrder getSeriesSortOrder() {
         switch (currentSortOrder) {
-            case 0: // по имени А-Я
-                Collections.sort(sorted, new Comparator<Series>() {
-                    @Override
-                    public int compare(Series s1, Series s2) {
-                        // Сначала проверяем избранное
-                        if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                            return s2.getIsFavorite() ? 1 : -1;
-                        }
-                        return s1.getTitle().compareToIgnoreCase(s2.getTitle());
-                    }
-                });
-                break;
             case 1: // по имени Я-А
-                Collections.sort(sorted, new Comparator<Series>() {
-                    @Override
-                    public int compare(Series s1, Series s2) {
-                        // Сначала проверяем избранное
-                        if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                            return s2.getIsFavorite() ? 1 : -1;
-                        }
-                        return s2.getTitle().compareToIgnoreCase(s1.getTitle());
-                    }
-                });
-                break;
+                return SeriesSortOrder.NAME_DESC;
             case 2: // по количеству серий (возр.)
-                Collections.sort(sorted, new Comparator<Series>() {
-                    @Override
-                    public int compare(Series s1, Series s2) {
-                        // Сначала проверяем избранное
-                        if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                            return s2.getIsFavorite() ? 1 : -1;
-                        }
-                        int episodes1 = s1.getEpisodes();
-                        int episodes2 = s2.getEpisodes();
-                        return Integer.compare(episodes1, episodes2);
-                    }
-                });
-                break;
+                return SeriesSortOrder.EPISODES_ASC;
             case 3: // по количеству серий (убыв.)
-                Collections.sort(sorted, new Comparator<Series>() {
-                    @Override
-                    public int compare(Series s1, Series s2) {
-                        // Сначала проверяем избранное
-                        if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                            return s2.getIsFavorite() ? 1 : -1;
-                        }
-                        int episodes1 = s1.getEpisodes();
-                        int episodes2 = s2.getEpisodes();
-                        return Integer.compare(episodes2, episodes1);
-                    }
-                });
-                break;
+                return SeriesSortOrder.EPISODES_DESC;
             case 4: // по статусу "Смотрю"
             case 5: // по статусу "Брошено"
             case 6: // по статусу "Планирую"
             case 7: // по статусу "Посмотрел"
-                Collections.sort(sorted, new Comparator<Series>() {
-                    @Override
-                    public int compare(Series s1, Series s2) {
-                        // Сначала проверяем избранное
-                        if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                            return s2.getIsFavorite() ? 1 : -1;
-                        }
-                        // Если выбран конкретный статус для сортировки
-                        if (currentStatusFilter != null) {
-                            boolean s1IsTargetStatus = s1.getStatus().equals(currentStatusFilter);
-                            boolean s2IsTargetStatus = s2.getStatus().equals(currentStatusFilter);
-
-                            // Если только один из сериалов имеет целевой статус, помещаем его первым
-                            if (s1IsTargetStatus && !s2IsTargetStatus) {
-                                return -1;
-                            } else if (!s1IsTargetStatus && s2IsTargetStatus) {
-                                return 1;
-                            }
-                            // Если оба имеют или не имеют целевой статус, сортируем по названию
-                            return s1.getTitle().compareToIgnoreCase(s2.getTitle());
-                        } else {
-                            // Стандартная сортировка по статусу
-                            int statusComparison = getStatusPriority(s1.getStatus()).compareTo(getStatusPriority(s2.getStatus()));
-                            if (statusComparison != 0) {
-                                return statusComparison;
-                            }
-                            // Если статус одинаковый, сортируем по названию
-                            return s1.getTitle().compareToIgnoreCase(s2.getTitle());
-                        }
-                    }
-
-                    private Integer getStatusPriority(String status) {
-                        switch (status) {
-                            case "watching":
-                                return 1;
-                            case "planned":
-                                return 2;
-                            case "dropped":
-                                return 3;
-                            case "completed":
-                                return 4;
-                            default:
-                                return 5; // для любых других значений
-                        }
-                    }
-                });
-                break;
+                // Сериалы с выбранным статусом первыми, затем остальные по названию
+                return SeriesSortOrder.statusFirst(currentStatusFilter);
+            case 0: // по имени А-Я
+            default:
+                return SeriesSortOrder.NAME_ASC;
         }
-
-        return sorted;
     }
 
     private void updateSeriesList() {
-        List<Series> sortedSeries = getSortedSeries(allSeries);
-        seriesAdapter.setSeriesList(sortedSeries);
+        viewModel.setSeriesSortOrder(getSeriesSortOrder());
     }
     private void openEditSeriesScreen(Series series) {
         EditSeriesScreen editScreen = EditSeriesScreen.newInstance(series.getId());
@@ -25,10 +25,12 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.work.WorkInfo;
 
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.backup.AutoBackupManager;
 import com.example.seriestracker.data.repository.SeriesRepository;
+import com.example.seriestracker.ui.images.CoverImages;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -47,6 +49,7 @@ public class BackupSettingsScreen extends Fragment {
     private ImageButton backButton;
     private SeriesRepository repository;
     private AutoBackupManager backupManager;
+    private WorkInfo.State autoBackupState;
 
     private ActivityResultLauncher<String[]> permissionLauncher;
     private ActivityResultLauncher<Intent> filePickerLauncher;
@@ -98,10 +101,18 @@ public class BackupSettingsScreen extends Fragment {
         setupBackupManager();
         loadSettings();
         setupClickListeners();
+        observeAutoBackupState();
 
         return view;
     }
 
+    private void observeAutoBackupState() {
+        backupManager.getAutoBackupState().observe(getViewLifecycleOwner(), state -> {
+            autoBackupState = state;
+            updateLastBackupInfo();
+        });
+    }
+
     private void initViews(View view) {
         autoBackupSwitch = view.findViewById(R.id.auto_backup_switch);
         lastBackupText = view.findViewById(R.id.last_backup_text);
@@ -263,6 +274,8 @@ public class BackupSettingsScreen extends Fragment {
                         boolean success = backupManager.restoreFromFile(backupFile);
 
                         requireActivity().runOnUiThread(() -> {
+                            // Обложки могли быть записаны по прежним путям, даже если восстановление откатилось
+                            CoverImages.invalidateSignatures();
                             hideProgress();
                             if (success) {
                                 Toast.makeText(getContext(), "✅ Данные восстановлены", Toast.LENGTH_SHORT).show();
@@ -304,6 +317,7 @@ public class BackupSettingsScreen extends Fragment {
                         boolean success = backupManager.restoreFromUri(backupUri);
 
                         requireActivity().runOnUiThread(() -> {
+                            CoverImages.invalidateSignatures();
                             hideProgress();
                             if (success) {
                                 Toast.makeText(getContext(), "✅ Данные восстановлены", Toast.LENGTH_SHORT).show();
@@ -321,12 +335,20 @@ public class BackupSettingsScreen extends Fragment {
 
     private void updateLastBackupInfo() {
         long lastBackupTime = backupManager.getLastAutoBackupTime();
+        String text;
         if (lastBackupTime > 0) {
-            lastBackupText.setText("Последний бэкап: " + new SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault())
-                    .format(new Date(lastBackupTime)));
+            text = "Последний бэкап: " + new SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault())
+                    .format(new Date(lastBackupTime));
         } else {
-            lastBackupText.setText("Бэкапов нет");
+            text = "Бэкапов нет";
+        }
+
+        if (autoBackupState == WorkInfo.State.RUNNING) {
+            text += "\nАвтобэкап выполняется...";
+        } else if (autoBackupState == WorkInfo.State.ENQUEUED) {
+            text += "\nАвтобэкап запланирован";
         }
+        lastBackupText.setText(text);
     }
 
     private void updateBackupLocationInfo() {
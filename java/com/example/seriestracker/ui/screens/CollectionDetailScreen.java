@@ -15,15 +15,19 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.CollectionWithSeries;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.repository.SeriesRepository;
 import com.example.seriestracker.ui.adapters.MultiSelectSeriesAdapter;
 import com.example.seriestracker.ui.adapters.SeriesAdapter;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 
 import java.util.ArrayList;
@@ -45,6 +49,16 @@ public class CollectionDetailScreen extends Fragment {
     private ImageButton favoriteButton;
     private ImageButton menuButton;
 
+    // Последнее состояние коллекции и ее сериалов из getCollectionWithSeries
+    private CollectionWithSeries currentCollection;
+
+    // Изменения избранного и статуса применяются к одной строке, без перерисовки списка
+    private final SeriesRepository.SeriesChangeListener seriesChangeListener = change -> {
+        if (seriesAdapter != null) {
+            seriesAdapter.applySeriesChange(change);
+        }
+    };
+
     public CollectionDetailScreen() {
         // Required empty public constructor
     }
@@ -99,6 +113,7 @@ public class CollectionDetailScreen extends Fragment {
 
         // Настройка RecyclerView
         setupRecyclerView();
+        viewModel.addSeriesChangeListener(seriesChangeListener);
 
         // Загрузка данных
         if (collectionId != -1) {
@@ -106,6 +121,12 @@ public class CollectionDetailScreen extends Fragment {
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        viewModel.removeSeriesChangeListener(seriesChangeListener);
+    }
+
     private void setupRecyclerView() {
         seriesAdapter = new SeriesAdapter(new SeriesAdapter.OnSeriesClickListener() {
             @Override
@@ -132,62 +153,57 @@ public class CollectionDetailScreen extends Fragment {
 
         seriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         seriesRecyclerView.setAdapter(seriesAdapter);
+        // Обложки следующих строк загружаются заранее по ходу прокрутки
+        CoverImages.attachPreloader(this, seriesRecyclerView, seriesAdapter);
     }
 
     private void loadData() {
-        // Получаем сериалы в коллекции
-        viewModel.getSeriesInCollection(collectionId).observe(getViewLifecycleOwner(), seriesList -> {
-            if (seriesList != null) {
-                seriesAdapter.setSeriesList(seriesList);
-
-                // Только обновляем количество в бейдже
-                int count = seriesList.size();
-                seriesCountBadge.setText(String.valueOf(count));
+        // Коллекция и ее сериалы приходят одним запросом: один наблюдатель на экран
+        viewModel.getCollectionWithSeries(collectionId).observe(getViewLifecycleOwner(), collectionWithSeries -> {
+            if (collectionWithSeries == null) {
+                return;
             }
-        });
-
-        // Получаем данные коллекции
-        viewModel.getAllCollections().observe(getViewLifecycleOwner(), collections -> {
-            if (collections != null) {
-                for (Collection collection : collections) {
-                    if (collection.getId() == collectionId) {
-                        collectionNameTextView.setText(collection.getName());
-
-                        // Устанавливаем цвет коллекции - ИСПРАВЛЕНО: используем getColors()
-                        List<String> colors = collection.getColors();
-                        if (colors != null && !colors.isEmpty()) {
-                            try {
-                                // Берем первый цвет из списка для индикатора
-                                String firstColor = colors.get(0);
-
-                                // Устанавливаем цвет индикатора
-                                colorIndicator.setBackgroundColor(Color.parseColor(firstColor));
-                                colorIndicator.setVisibility(View.VISIBLE);
-
-                                // Меняем цвет заголовка на цвет коллекции
-                                collectionNameTextView.setTextColor(Color.parseColor(firstColor));
-
-                                // Если есть несколько цветов, можно создать градиент (опционально)
-                                if (colors.size() > 1) {
-                                    // Здесь можно создать и установить градиент
-                                    // Например, с помощью GradientDrawable
-                                }
-
-                            } catch (Exception e) {
-                                // Если цвет некорректный, используем цвет по умолчанию
-                                setDefaultColors();
-                            }
-                        } else {
-                            // Если цвет не установлен, используем цвет по умолчанию
-                            setDefaultColors();
-                        }
-
-                        // Обновляем состояние избранного
-                        updateFavoriteIcon(collection.isFavorite());
-                        break;
+            currentCollection = collectionWithSeries;
+            Collection collection = collectionWithSeries.getCollection();
+            List<Series> seriesList = collectionWithSeries.getSeriesList();
+
+            seriesAdapter.setSeriesList(seriesList);
+            // Только обновляем количество в бейдже
+            seriesCountBadge.setText(String.valueOf(seriesList.size()));
+
+            collectionNameTextView.setText(collection.getName());
+
+            // Устанавливаем цвет коллекции - ИСПРАВЛЕНО: используем getColors()
+            List<String> colors = collection.getColors();
+            if (colors != null && !colors.isEmpty()) {
+                try {
+                    // Берем первый цвет из списка для индикатора
+                    String firstColor = colors.get(0);
+
+                    // Устанавливаем цвет индикатора
+                    colorIndicator.setBackgroundColor(Color.parseColor(firstColor));
+                    colorIndicator.setVisibility(View.VISIBLE);
+
+                    // Меняем цвет заголовка на цвет коллекции
+                    collectionNameTextView.setTextColor(Color.parseColor(firstColor));
+
+                    // Если есть несколько цветов, можно создать градиент (опционально)
+                    if (colors.size() > 1) {
+                        // Здесь можно создать и установить градиент
+                        // Например, с помощью GradientDrawable
                     }
+
+                } catch (Exception e) {
+                    // Если цвет некорректный, используем цвет по умолчанию
+                    setDefaultColors();
                 }
+            } else {
+                // Если цвет не установлен, используем цвет по умолчанию
+                setDefaultColors();
             }
+
+            // Обновляем состояние избранного
+            updateFavoriteIcon(collection.isFavorite());
         });
     }
 
@@ -198,30 +214,22 @@ public class CollectionDetailScreen extends Fragment {
     }
 
     private void toggleFavorite() {
-        // Получаем коллекцию и переключаем статус избранного
-        viewModel.getAllCollections().observe(getViewLifecycleOwner(), collections -> {
-            if (collections != null) {
-                for (Collection collection : collections) {
-                    if (collection.getId() == collectionId) {
-                        boolean newFavoriteStatus = !collection.isFavorite();
-                        collection.setFavorite(newFavoriteStatus);
-                        viewModel.updateCollection(collection);
-
-                        // Обновляем иконку
-                        updateFavoriteIcon(newFavoriteStatus);
-
-                        // Показываем тост
-                        Toast.makeText(getContext(),
-                                newFavoriteStatus ? "Добавлено в избранное" : "Убрано из избранного",
-                                Toast.LENGTH_SHORT).show();
-
-                        // Прерываем наблюдение после обновления
-                        viewModel.getAllCollections().removeObservers(getViewLifecycleOwner());
-                        break;
-                    }
-                }
-            }
-        });
+        // Коллекция уже загружена наблюдателем экрана
+        if (currentCollection == null) {
+            return;
+        }
+        Collection collection = currentCollection.getCollection();
+        boolean newFavoriteStatus = !collection.isFavorite();
+        collection.setFavorite(newFavoriteStatus);
+        viewModel.updateCollection(collection);
+
+        // Обновляем иконку
+        updateFavoriteIcon(newFavoriteStatus);
+
+        // Показываем тост
+        Toast.makeText(getContext(),
+                newFavoriteStatus ? "Добавлено в избранное" : "Убрано из избранного",
+                Toast.LENGTH_SHORT).show();
     }
 
     private void updateFavoriteIcon(boolean isFavorite) {
@@ -249,6 +257,9 @@ public class CollectionDetailScreen extends Fragment {
                 if (itemId == R.id.action_add_series) { // Добавить сериал
                     showSelectSeriesDialog();
                     return true;
+                } else if (itemId == R.id.action_select_series) { // Действия с выбранными сериалами
+                    showBatchActionsDialog();
+                    return true;
                 } else if (itemId == R.id.action_edit) { // Редактировать
                     editCollection();
                     return true;
@@ -306,67 +317,170 @@ public class CollectionDetailScreen extends Fragment {
         Button cancelButton = dialog.findViewById(R.id.cancelButton);
         Button addSelectedButton = dialog.findViewById(R.id.addSelectedButton);
 
-        // Get all series that are not already in this collection
-        viewModel.getAllSeries().observe(this, allSeries -> {
-            if (allSeries != null) {
-                // Get series that are already in this collection
-                viewModel.getSeriesInCollection(collectionId).observe(this, seriesInCollection -> {
-                    if (seriesInCollection != null) {
-                        // Find series that are NOT in this collection
-                        Set<Long> seriesInCollectionIds = new HashSet<>();
-                        for (Series series : seriesInCollection) {
-                            seriesInCollectionIds.add(series.getId());
-                        }
-
-                        List<Series> availableSeries = new ArrayList<>();
-                        for (Series series : allSeries) {
-                            if (!seriesInCollectionIds.contains(series.getId())) {
-                                availableSeries.add(series);
-                            }
-                        }
-
-                        // Initialize adapter with available series
-                        Set<Long> initiallySelected = new HashSet<>(); // Initially none selected
-                        MultiSelectSeriesAdapter adapter = new MultiSelectSeriesAdapter(availableSeries, initiallySelected);
-                        selectSeriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-                        selectSeriesRecyclerView.setAdapter(adapter);
-
-                        // Handle selection changes
-                        adapter.setOnSelectionChangeListener(() -> {
-                            // Update button state based on selection
-                            Set<Long> selectedIds = adapter.getSelectedSeriesIds();
-                            addSelectedButton.setEnabled(!selectedIds.isEmpty());
-                        });
-
-                        // Set up buttons
-                        cancelButton.setOnClickListener(v -> dialog.dismiss());
-
-                        addSelectedButton.setOnClickListener(v -> {
-                            Set<Long> selectedIds = adapter.getSelectedSeriesIds();
-                            if (!selectedIds.isEmpty()) {
-                                List<Long> selectedList = new ArrayList<>(selectedIds);
-                                viewModel.addMultipleSeriesToCollection(selectedList, collectionId);
-
-                                Toast.makeText(getContext(),
-                                        "Добавлено " + selectedList.size() + " сериалов",
-                                        Toast.LENGTH_SHORT).show();
-
-                                dialog.dismiss();
-
-                                // Refresh the series list in the current collection
-                                loadData();
-                            }
-                        });
-
-                        addSelectedButton.setEnabled(false); // Initially disabled
+        // Сериалы, уже входящие в коллекцию, берем из текущего состояния экрана
+        Set<Long> seriesInCollectionIds = new HashSet<>();
+        if (currentCollection != null) {
+            for (Series series : currentCollection.getSeriesList()) {
+                seriesInCollectionIds.add(series.getId());
+            }
+        }
+
+        // Список всех сериалов нужен один раз: наблюдатель снимается после первого значения
+        Observer<List<Series>> allSeriesObserver = new Observer<List<Series>>() {
+            @Override
+            public void onChanged(List<Series> allSeries) {
+                if (allSeries == null) {
+                    return;
+                }
+                viewModel.getAllSeries().removeObserver(this);
+
+                // Find series that are NOT in this collection
+                List<Series> availableSeries = new ArrayList<>();
+                for (Series series : allSeries) {
+                    if (!seriesInCollectionIds.contains(series.getId())) {
+                        availableSeries.add(series);
+                    }
+                }
+
+                // Initialize adapter with available series
+                Set<Long> initiallySelected = new HashSet<>(); // Initially none selected
+                MultiSelectSeriesAdapter adapter = new MultiSelectSeriesAdapter(availableSeries, initiallySelected);
+                selectSeriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+                selectSeriesRecyclerView.setAdapter(adapter);
+
+                // Handle selection changes
+                adapter.setOnSelectionChangeListener(() -> {
+                    // Update button state based on selection
+                    Set<Long> selectedIds = adapter.getSelectedSeriesIds();
+                    addSelectedButton.setEnabled(!selectedIds.isEmpty());
+                });
+
+                // Set up buttons
+                cancelButton.setOnClickListener(v -> dialog.dismiss());
+
+                addSelectedButton.setOnClickListener(v -> {
+                    Set<Long> selectedIds = adapter.getSelectedSeriesIds();
+                    if (!selectedIds.isEmpty()) {
+                        List<Long> selectedList = new ArrayList<>(selectedIds);
+                        viewModel.addMultipleSeriesToCollection(selectedList, collectionId);
+
+                        Toast.makeText(getContext(),
+                                "Добавлено " + selectedList.size() + " сериалов",
+                                Toast.LENGTH_SHORT).show();
+
+                        dialog.dismiss();
                     }
                 });
+
+                addSelectedButton.setEnabled(false); // Initially disabled
+            }
+        };
+        viewModel.getAllSeries().observe(this, allSeriesObserver);
+        dialog.setOnDismissListener(d -> viewModel.getAllSeries().removeObserver(allSeriesObserver));
+
+        dialog.show();
+    }
+
+    /**
+     * Выбор сериалов коллекции для пакетного действия. Действие выполняется одной транзакцией
+     * на всю выборку, строки списка обновляются точечно через SeriesChangeListener.
+     */
+    private void showBatchActionsDialog() {
+        List<Series> seriesList = currentCollection != null ? currentCollection.getSeriesList() : null;
+        if (seriesList == null || seriesList.isEmpty()) {
+            Toast.makeText(getContext(), "В коллекции нет сериалов", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        android.app.Dialog dialog = new android.app.Dialog(requireContext());
+        dialog.setContentView(R.layout.dialog_select_series);
+        dialog.getWindow().setLayout(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+
+        TextView titleTextView = dialog.findViewById(R.id.selectSeriesTitle);
+        RecyclerView selectSeriesRecyclerView = dialog.findViewById(R.id.selectSeriesRecyclerView);
+        Button cancelButton = dialog.findViewById(R.id.cancelButton);
+        Button actionsButton = dialog.findViewById(R.id.addSelectedButton);
+        titleTextView.setText("Выберите сериалы");
+        actionsButton.setText("Действия");
+
+        MultiSelectSeriesAdapter adapter = new MultiSelectSeriesAdapter(new ArrayList<>(seriesList), new HashSet<>());
+        selectSeriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        selectSeriesRecyclerView.setAdapter(adapter);
+        adapter.setOnSelectionChangeListener(() ->
+                actionsButton.setEnabled(!adapter.getSelectedSeriesIds().isEmpty()));
+
+        cancelButton.setOnClickListener(v -> dialog.dismiss());
+        actionsButton.setOnClickListener(v -> {
+            Set<Long> selectedIds = adapter.getSelectedSeriesIds();
+            if (!selectedIds.isEmpty()) {
+                showBatchActionsMenu(selectedIds, dialog);
             }
         });
+        actionsButton.setEnabled(false);
 
         dialog.show();
     }
 
+    private void showBatchActionsMenu(Set<Long> seriesIds, android.app.Dialog selectDialog) {
+        String[] actions = {
+                "Добавить в избранное",
+                "Убрать из избранного",
+                "Отметить просмотренными",
+                "Отметить непросмотренными",
+                "Изменить статус",
+                "Удалить"
+        };
+        new androidx.appcompat.app.AlertDialog.Builder(requireContext())
+                .setTitle("Выбрано сериалов: " + seriesIds.size())
+                .setItems(actions, (dialog, which) -> {
+                    switch (which) {
+                        case 0:
+                        case 1:
+                            viewModel.toggleFavoriteStatus(seriesIds, which == 0);
+                            break;
+                        case 2:
+                        case 3:
+                            viewModel.toggleWatchedStatus(seriesIds, which == 2);
+                            break;
+                        case 4:
+                            showBatchStatusDialog(seriesIds, selectDialog);
+                            return;
+                        case 5:
+                            confirmBatchDelete(seriesIds, selectDialog);
+                            return;
+                        default:
+                            return;
+                    }
+                    selectDialog.dismiss();
+                })
+                .show();
+    }
+
+    private void showBatchStatusDialog(Set<Long> seriesIds, android.app.Dialog selectDialog) {
+        String[] statusTitles = {"Смотрю", "Завершено", "Брошено", "Запланировано"};
+        String[] statusValues = {"watching", "completed", "dropped", "planned"};
+        new androidx.appcompat.app.AlertDialog.Builder(requireContext())
+                .setTitle("Статус")
+                .setItems(statusTitles, (dialog, which) -> {
+                    viewModel.updateSeriesStatus(seriesIds, statusValues[which]);
+                    selectDialog.dismiss();
+                })
+                .show();
+    }
+
+    private void confirmBatchDelete(Set<Long> seriesIds, android.app.Dialog selectDialog) {
+        new androidx.appcompat.app.AlertDialog.Builder(requireContext())
+                .setTitle("Удалить сериалы")
+                .setMessage("Удалить выбранные сериалы (" + seriesIds.size() + ") вместе с их медиафайлами?")
+                .setPositiveButton("Удалить", (dialog, which) -> {
+                    viewModel.deleteSeries(seriesIds);
+                    Toast.makeText(getContext(), "Сериалы удалены", Toast.LENGTH_SHORT).show();
+                    selectDialog.dismiss();
+                })
+                .setNegativeButton("Отмена", null)
+                .show();
+    }
+
     private void openEditSeriesScreen(Series series) {
         EditSeriesScreen editScreen = EditSeriesScreen.newInstance(series.getId());
         requireActivity().getSupportFragmentManager().beginTransaction()
@@ -378,22 +492,18 @@ public class CollectionDetailScreen extends Fragment {
     }
 
     private void showRandomSeriesFromCollection() {
-        // Get series in the current collection and pick one randomly
-        viewModel.getSeriesInCollection(collectionId).observe(getViewLifecycleOwner(), seriesList -> {
-            if (seriesList != null && !seriesList.isEmpty()) {
-                // Generate a random index
-                int randomIndex = (int) (Math.random() * seriesList.size());
-                Series randomSeries = seriesList.get(randomIndex);
-
-                // Show the random series by opening the edit screen
-                openEditSeriesScreen(randomSeries);
-
-                // Remove observer to prevent multiple calls
-                viewModel.getSeriesInCollection(collectionId).removeObservers(getViewLifecycleOwner());
-            } else {
-                // No series in collection
-                Toast.makeText(getContext(), "В коллекции нет сериалов", Toast.LENGTH_SHORT).show();
-            }
-        });
+        // Сериалы коллекции уже загружены наблюдателем экрана
+        List<Series> seriesList = currentCollection != null ? currentCollection.getSeriesList() : null;
+        if (seriesList != null && !seriesList.isEmpty()) {
+            // Generate a random index
+            int randomIndex = (int) (Math.random() * seriesList.size());
+            Series randomSeries = seriesList.get(randomIndex);
+
+            // Show the random series by opening the edit screen
+            openEditSeriesScreen(randomSeries);
+        } else {
+            // No series in collection
+            Toast.makeText(getContext(), "В коллекции нет сериалов", Toast.LENGTH_SHORT).show();
+        }
     }
 }
\ No newline at end of file
@@ -19,15 +19,11 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
+import com.example.seriestracker.data.dao.CollectionSortOrder;
 import com.example.seriestracker.data.entities.Collection;
 import com.example.seriestracker.ui.adapters.CollectionAdapter;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 public class CollectionsListFragment extends Fragment {
 
     private Fragment parentFragment;
@@ -37,7 +33,6 @@ public class CollectionsListFragment extends Fragment {
     private TextView collectionsCount;
     private TextView noCollectionsText;
     private TextView collectionsTitle;
-    private List<Collection> allCollections = new ArrayList<>();
     private int currentSortOrder = 0;
 
     public CollectionsListFragment() {
@@ -113,12 +108,11 @@ public class CollectionsListFragment extends Fragment {
     }
 
     private void observeData() {
-        viewModel.getAllCollectionsWithSeriesCount().observe(getViewLifecycleOwner(), collections -> {
+        // Коллекции приходят уже отсортированными запросом к БД
+        viewModel.setCollectionSortOrder(getCollectionSortOrder());
+        viewModel.getSortedCollections().observe(getViewLifecycleOwner(), collections -> {
             if (collections != null && !collections.isEmpty()) {
-                allCollections = collections;
-
-                List<Collection> sortedCollections = getSortedCollections(allCollections);
-                collectionAdapter.setCollections(sortedCollections);
+                collectionAdapter.setCollections(collections);
 
                 noCollectionsText.setVisibility(View.GONE);
                 collectionsRecyclerView.setVisibility(View.VISIBLE);
@@ -186,67 +180,24 @@ public class CollectionsListFragment extends Fragment {
 
         popup.show();
     }
-    private List<Collection> getSortedCollections(List<Collection> collections) {
-        List<Collection> sorted = new ArrayList<>(collections);
-
+    /**
+     * Порядок сортировки для запроса к БД по выбранному пункту меню
+     */
+    private CollectionSortOrder getCollectionSortOrder() {
         switch (currentSortOrder) {
-            case 0: // по имени А-Я
-                Collections.sort(sorted, new Comparator<Collection>() {
-                    @Override
-                    public int compare(Collection c1, Collection c2) {
-                        if (c1.isFavorite() != c2.isFavorite()) {
-                            return c2.isFavorite() ? 1 : -1;
-                        }
-                        return c1.getName().compareToIgnoreCase(c2.getName());
-                    }
-                });
-                break;
             case 1: // по имени Я-А
-                Collections.sort(sorted, new Comparator<Collection>() {
-                    @Override
-                    public int compare(Collection c1, Collection c2) {
-                        if (c1.isFavorite() != c2.isFavorite()) {
-                            return c2.isFavorite() ? 1 : -1;
-                        }
-                        return c2.getName().compareToIgnoreCase(c1.getName());
-                    }
-                });
-                break;
+                return CollectionSortOrder.NAME_DESC;
             case 2: // по количеству сериалов (возр.)
-                Collections.sort(sorted, new Comparator<Collection>() {
-                    @Override
-                    public int compare(Collection c1, Collection c2) {
-                        if (c1.isFavorite() != c2.isFavorite()) {
-                            return c2.isFavorite() ? 1 : -1;
-                        }
-                        // Сравниваем по количеству сериалов (c1.seriesCount - c2.seriesCount)
-                        int count1 = c1.getSeriesCount(); // Просто получаем значение
-                        int count2 = c2.getSeriesCount(); // Просто получаем значение
-                        return Integer.compare(count1, count2);
-                    }
-                });
-                break;
+                return CollectionSortOrder.SERIES_COUNT_ASC;
             case 3: // по количеству сериалов (убыв.)
-                Collections.sort(sorted, new Comparator<Collection>() {
-                    @Override
-                    public int compare(Collection c1, Collection c2) {
-                        if (c1.isFavorite() != c2.isFavorite()) {
-                            return c2.isFavorite() ? 1 : -1;
-                        }
-                        // Сравниваем по количеству сериалов (c2.seriesCount - c1.seriesCount)
-                        int count1 = c1.getSeriesCount(); // Просто получаем значение
-                        int count2 = c2.getSeriesCount(); // Просто получаем значение
-                        return Integer.compare(count2, count1);
-                    }
-                });
-                break;
+                return CollectionSortOrder.SERIES_COUNT_DESC;
+            case 0: // по имени А-Я
+            default:
+                return CollectionSortOrder.NAME_ASC;
         }
-
-        return sorted;
     }
 
     private void updateCollectionList() {
-        List<Collection> sortedCollections = getSortedCollections(allCollections);
-        collectionAdapter.setCollections(sortedCollections);
+        viewModel.setCollectionSortOrder(getCollectionSortOrder());
     }
 }
\ No newline at end of file
@@ -3,17 +3,13 @@ package com.example.seriestracker.ui.screens;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.content.ContentUris;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
-import android.provider.DocumentsContract;
 import android.provider.MediaStore;
-import android.provider.OpenableColumns;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -26,6 +22,7 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
+import android.text.format.Formatter;
 import android.text.method.LinkMovementMethod;
 import android.text.util.Linkify;
 
@@ -38,27 +35,27 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
 
-import com.bumptech.glide.Glide;
 import com.example.seriestracker.R;
 import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.media.MediaImportWorker;
+import com.example.seriestracker.data.media.MediaImporter;
 import com.example.seriestracker.data.entities.MediaFile;
 import com.example.seriestracker.data.entities.Series;
 import com.example.seriestracker.ui.adapters.MediaAdapter;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 import com.google.android.material.textfield.MaterialAutoCompleteTextView;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 public class EditSeriesScreen extends Fragment {
 
@@ -104,6 +101,10 @@ public class EditSeriesScreen extends Fragment {
     private Uri selectedImageUri;
     private long seriesId;
 
+    // Работы импорта медиафайлов, запущенные, пока открыт экран: по ним считается ход импорта
+    private final Set<UUID> trackedImports = new HashSet<>();
+    private boolean importRunning;
+
     public EditSeriesScreen() {
         // Required empty public constructor
     }
@@ -141,6 +142,12 @@ public class EditSeriesScreen extends Fragment {
             loadMediaFiles(seriesId);
         }
 
+        // Импорт идет в WorkManager и не зависит от экрана, здесь только отображается его ход
+        if (seriesId != -1) {
+            MediaImporter.getInstance(requireContext()).getImports(seriesId)
+                    .observe(getViewLifecycleOwner(), this::onImportsChanged);
+        }
+
         // Настройка статус-спиннера
         setupStatusSpinner();
 
@@ -341,10 +348,8 @@ public class EditSeriesScreen extends Fragment {
 
         // Загрузка основного изображения сериала
         if (series.getImageUri() != null && !series.getImageUri().isEmpty()) {
-            Glide.with(this)
-                    .load(series.getImageUri())
-                    .placeholder(R.drawable.ic_baseline_image_24)
-                    .into(seriesImageView);
+            CoverImages.show(seriesImageView, series.getImageUri(),
+                    CoverImages.Size.LARGE, R.drawable.ic_baseline_image_24);
         }
 
         // Установка статуса
@@ -469,6 +474,11 @@ public class EditSeriesScreen extends Fragment {
 
         // Обработчик для добавления МНОЖЕСТВЕННЫХ МЕДИАФАЙЛОВ
         addMediaButton.setOnClickListener(v -> {
+            if (importRunning) {
+                MediaImporter.getInstance(requireContext()).cancel(seriesId);
+                addMediaButton.setText("Отмена импорта...");
+                return;
+            }
             if (checkMediaPermission()) {
                 openMultipleMediaPicker();
             } else {
@@ -486,7 +496,8 @@ public class EditSeriesScreen extends Fragment {
     }
 
     private void openMultipleMediaPicker() {
-        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        // ACTION_OPEN_DOCUMENT дает постоянное право чтения: импорт продолжится после перезапуска процесса
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.setType("*/*"); // Все типы файлов
         intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[] {
                 "image/*", // Изображения
@@ -496,7 +507,7 @@ public class EditSeriesScreen extends Fragment {
         intent.addCategory(Intent.CATEGORY_OPENABLE);
 
         try {
-            startActivityForResult(Intent.createChooser(intent, "Выберите файлы"), PICK_MULTIPLE_MEDIA_REQUEST);
+            startActivityForResult(intent, PICK_MULTIPLE_MEDIA_REQUEST);
         } catch (Exception e) {
             Toast.makeText(getContext(), "Не удалось открыть файловый менеджер", Toast.LENGTH_SHORT).show();
         }
@@ -748,10 +759,8 @@ public class EditSeriesScreen extends Fragment {
                 // Обработка выбора ОСНОВНОГО изображения сериала
                 selectedImageUri = data.getData();
                 if (selectedImageUri != null) {
-                    Glide.with(this)
-                            .load(selectedImageUri)
-                            .placeholder(R.drawable.ic_baseline_image_24)
-                            .into(seriesImageView);
+                    CoverImages.show(seriesImageView, selectedImageUri,
+                            CoverImages.Size.LARGE, R.drawable.ic_baseline_image_24);
                 }
                 Toast.makeText(getContext(), "Изображение сериала обновлено", Toast.LENGTH_SHORT).show();
 
@@ -783,335 +792,105 @@ public class EditSeriesScreen extends Fragment {
             return;
         }
 
-        // Обрабатываем каждый выбранный файл
-        int successCount = 0;
-        int errorCount = 0;
-
-        for (Uri uri : selectedUris) {
-            try {
-                String fileType = determineFileType(uri);
-                if (addMediaFile(uri, fileType)) {
-                    successCount++;
-                } else {
-                    errorCount++;
-                }
-            } catch (Exception e) {
-                errorCount++;
-                e.printStackTrace();
-            }
+        if (importRunning) {
+            Toast.makeText(getContext(), "Дождитесь окончания текущего импорта", Toast.LENGTH_SHORT).show();
+            return;
         }
 
-        // Показываем результат
-        if (successCount > 0) {
-            String message = "Добавлено файлов: " + successCount;
-            if (errorCount > 0) {
-                message += ", ошибок: " + errorCount;
-            }
-            Toast.makeText(getContext(), message, Toast.LENGTH_LONG).show();
-        } else if (errorCount > 0) {
-            Toast.makeText(getContext(), "Не удалось добавить файлы", Toast.LENGTH_SHORT).show();
-        }
+        // Файлы копируются в фоне, редактор остается отзывчивым
+        MediaImporter.getInstance(requireContext()).start(seriesId, selectedUris);
+        importRunning = true;
+        updateImportButton(0, selectedUris.size(), 0, 0);
     }
 
-    private String determineFileType(Uri uri) {
-        String mimeType = requireContext().getContentResolver().getType(uri);
-
-        if (mimeType != null) {
-            if (mimeType.startsWith("image/")) {
-                return "image";
-            } else if (mimeType.startsWith("video/")) {
-                return "video";
-            }
-        }
-
-        // Попробуем определить по расширению
-        String uriString = uri.toString().toLowerCase();
-        if (uriString.contains(".jpg") || uriString.contains(".jpeg") ||
-                uriString.contains(".png") || uriString.contains(".gif") ||
-                uriString.contains(".webp") || uriString.contains(".bmp") ||
-                uriString.contains(".heic") || uriString.contains(".heif")) {
-            return "image";
-        } else if (uriString.contains(".mp4") || uriString.contains(".avi") ||
-                uriString.contains(".mkv") || uriString.contains(".mov") ||
-                uriString.contains(".wmv") || uriString.contains(".flv") ||
-                uriString.contains(".3gp") || uriString.contains(".mpeg") ||
-                uriString.contains(".mpg")) {
-            return "video";
+    /**
+     * Обновляет ход импорта по состоянию работ WorkManager и сообщает итог, когда все они завершены
+     */
+    private void onImportsChanged(List<WorkInfo> workInfos) {
+        if (workInfos == null) {
+            return;
         }
 
-        return "file"; // Неизвестный тип
-    }
-
-    private boolean addMediaFile(Uri uri, String fileType) {
-        try {
-            String fileName = getFileName(uri);
-
-            // Копируем файл в внутреннее хранилище приложения
-            Uri copiedUri = copyFileToInternalStorage(uri, fileName);
-            if (copiedUri != null) {
-                MediaFile mediaFile = new MediaFile(seriesId,
-                        copiedUri.toString(),
-                        fileType,
-                        fileName);
-
-                // Получаем путь к файлу
-                String filePath = getRealPathFromURI(copiedUri);
-                if (filePath != null) {
-                    mediaFile.setFilePath(filePath);
-                }
-
-                // Получаем размер файла
-                long fileSize = getFileSize(copiedUri);
-                mediaFile.setFileSize(fileSize);
-
-                // Добавляем медиафайл в коллекцию
-                viewModel.addMediaFile(mediaFile);
-                return true;
-            } else {
-                // Если не удалось скопировать, сохраняем оригинальный URI как fallback
-                MediaFile mediaFile = new MediaFile(seriesId,
-                        uri.toString(),
-                        fileType,
-                        fileName);
-
-
-                // Получаем путь к файлу
-                String filePath = getRealPathFromURI(uri);
-                if (filePath != null) {
-                    mediaFile.setFilePath(filePath);
+        int running = 0;
+        // Сумма по копируемым сейчас файлам известного размера
+        long copiedBytes = 0;
+        long totalBytes = 0;
+        for (WorkInfo workInfo : workInfos) {
+            if (!workInfo.getState().isFinished()) {
+                running++;
+                trackedImports.add(workInfo.getId());
+                Data progress = workInfo.getProgress();
+                if (progress != null) {
+                    copiedBytes += progress.getLong(MediaImportWorker.PROGRESS_COPIED_BYTES, 0);
+                    totalBytes += progress.getLong(MediaImportWorker.PROGRESS_TOTAL_BYTES, 0);
                 }
-
-                // Получаем размер файла
-                long fileSize = getFileSize(uri);
-                mediaFile.setFileSize(fileSize);
-
-                // Добавляем медиафайл в коллекцию
-                viewModel.addMediaFile(mediaFile);
-                return true;
             }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
         }
-    }
 
-    private String getFileName(Uri uri) {
-        String fileName = null;
-
-        if (uri.getScheme().equals("content")) {
-            try (Cursor cursor = requireContext().getContentResolver()
-                    .query(uri, null, null, null, null)) {
-                if (cursor != null && cursor.moveToFirst()) {
-                    int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
-                    if (nameIndex != -1) {
-                        fileName = cursor.getString(nameIndex);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+        int processed = 0;
+        int imported = 0;
+        int failed = 0;
+        int cancelled = 0;
+        for (WorkInfo workInfo : workInfos) {
+            if (!trackedImports.contains(workInfo.getId()) || !workInfo.getState().isFinished()) {
+                continue;
             }
-        }
-
-        if (fileName == null) {
-            fileName = uri.getPath();
-            if (fileName != null) {
-                int cut = fileName.lastIndexOf('/');
-                if (cut != -1) {
-                    fileName = fileName.substring(cut + 1);
-                }
+            processed++;
+            if (workInfo.getState() == WorkInfo.State.SUCCEEDED) {
+                imported++;
+            } else if (workInfo.getState() == WorkInfo.State.CANCELLED) {
+                cancelled++;
+            } else {
+                failed++;
             }
         }
 
-        // Если все еще null, генерируем имя
-        if (fileName == null) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            fileName = "file_" + sdf.format(new Date());
-
-            // Добавляем расширение если можем определить тип
-            String fileType = determineFileType(uri);
-            if (fileType.equals("image")) {
-                fileName += ".jpg";
-            } else if (fileType.equals("video")) {
-                fileName += ".mp4";
-            }
+        if (running > 0) {
+            importRunning = true;
+            updateImportButton(processed, trackedImports.size(), copiedBytes, totalBytes);
+            return;
         }
 
-        return fileName;
-    }
-
-    /**
-     * Копирует файл из внешнего источника во внутреннее хранилище приложения
-     */
-    private Uri copyFileToInternalStorage(Uri sourceUri, String fileName) {
-        try {
-            // Создаем подкаталог для медиафайлов внутри внутреннего хранилища
-            File mediaDir = new File(requireContext().getFilesDir(), "media");
-            if (!mediaDir.exists()) {
-                mediaDir.mkdirs();
-            }
-
-            // Создаем уникальное имя файла
-            String uniqueFileName = generateUniqueFileName(fileName, mediaDir);
-            File destinationFile = new File(mediaDir, uniqueFileName);
-
-            // Копируем содержимое из источника в назначение
-            try (InputStream inputStream = requireContext().getContentResolver().openInputStream(sourceUri);
-                 FileOutputStream outputStream = new FileOutputStream(destinationFile)) {
-
-                if (inputStream == null) {
-                    return null;
-                }
-
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-                outputStream.flush();
+        importRunning = false;
+        resetImportButton();
+        if (trackedImports.isEmpty()) {
+            return;
+        }
+        trackedImports.clear();
 
-                // Возвращаем URI для внутреннего файла
-                return Uri.fromFile(destinationFile);
+        String message;
+        if (cancelled > 0) {
+            message = "Импорт отменен, добавлено файлов: " + imported;
+        } else if (imported > 0) {
+            message = "Добавлено файлов: " + imported;
+            if (failed > 0) {
+                message += ", ошибок: " + failed;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+        } else {
+            message = "Не удалось добавить файлы";
         }
+        Toast.makeText(getContext(), message, Toast.LENGTH_LONG).show();
     }
 
     /**
-     * Генерирует уникальное имя файла, если файл с таким именем уже существует
+     * Показывает ход импорта на кнопке добавления медиафайлов (во время импорта она отменяет его)
      */
-    private String generateUniqueFileName(String originalFileName, File directory) {
-        String nameWithoutExtension = originalFileName;
-        String extension = "";
-
-        int dotIndex = originalFileName.lastIndexOf('.');
-        if (dotIndex > 0) {
-            nameWithoutExtension = originalFileName.substring(0, dotIndex);
-            extension = originalFileName.substring(dotIndex);
-        }
-
-        String uniqueFileName = originalFileName;
-        int counter = 1;
-        File testFile = new File(directory, uniqueFileName);
-
-        while (testFile.exists()) {
-            uniqueFileName = nameWithoutExtension + "_" + counter + extension;
-            testFile = new File(directory, uniqueFileName);
-            counter++;
-        }
-
-        return uniqueFileName;
-    }
-    private long getFileSize(Uri uri) {
-        long size = 0;
-
-        if (uri.getScheme().equals("content")) {
-            try (Cursor cursor = requireContext().getContentResolver()
-                    .query(uri, null, null, null, null)) {
-                if (cursor != null && cursor.moveToFirst()) {
-                    int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
-                    if (sizeIndex != -1) {
-                        size = cursor.getLong(sizeIndex);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        return size;
-    }
-
-    private String getRealPathFromURI(Uri uri) {
-        if (uri == null) return null;
-
-        final String scheme = uri.getScheme();
-
-        if (scheme == null) {
-            return uri.getPath();
-        }
-
-        if (scheme.equals("file")) {
-            return uri.getPath();
+    private void updateImportButton(int processed, int total, long copiedBytes, long totalBytes) {
+        if (addMediaButton == null) {
+            return;
         }
-
-        if (scheme.equals("content")) {
-            if (DocumentsContract.isDocumentUri(requireContext(), uri)) {
-                if (isExternalStorageDocument(uri)) {
-                    final String docId = DocumentsContract.getDocumentId(uri);
-                    final String[] split = docId.split(":");
-                    final String type = split[0];
-
-                    if ("primary".equalsIgnoreCase(type)) {
-                        return android.os.Environment.getExternalStorageDirectory() + "/" + split[1];
-                    }
-                } else if (isDownloadsDocument(uri)) {
-                    final String id = DocumentsContract.getDocumentId(uri);
-                    final Uri contentUri = ContentUris.withAppendedId(
-                            Uri.parse("content://downloads/public_downloads"), Long.parseLong(id));
-
-                    return getDataColumn(contentUri, null, null);
-                } else if (isMediaDocument(uri)) {
-                    final String docId = DocumentsContract.getDocumentId(uri);
-                    final String[] split = docId.split(":");
-                    final String type = split[0];
-
-                    Uri contentUri = null;
-                    switch (type) {
-                        case "image":
-                            contentUri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-                            break;
-                        case "video":
-                            contentUri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
-                            break;
-                        case "audio":
-                            contentUri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
-                            break;
-                    }
-
-                    final String selection = "_id=?";
-                    final String[] selectionArgs = new String[]{split[1]};
-
-                    return getDataColumn(contentUri, selection, selectionArgs);
-                }
-            } else if ("content".equalsIgnoreCase(scheme)) {
-                return getDataColumn(uri, null, null);
-            }
+        String text = "Отменить импорт (" + processed + "/" + total;
+        if (totalBytes > 0) {
+            text += ", " + Formatter.formatShortFileSize(requireContext(), copiedBytes)
+                    + " из " + Formatter.formatShortFileSize(requireContext(), totalBytes);
         }
-
-        return null;
+        addMediaButton.setText(text + ")");
     }
 
-    private String getDataColumn(Uri uri, String selection, String[] selectionArgs) {
-        String path = null;
-        final String column = MediaStore.MediaColumns.DATA;
-        final String[] projection = {column};
-
-        try (Cursor cursor = requireContext().getContentResolver().query(
-                uri, projection, selection, selectionArgs, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                int columnIndex = cursor.getColumnIndexOrThrow(column);
-                path = cursor.getString(columnIndex);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void resetImportButton() {
+        if (addMediaButton != null) {
+            addMediaButton.setText("Добавить фото/видео");
         }
-
-        return path;
-    }
-
-    private boolean isExternalStorageDocument(Uri uri) {
-        return "com.android.externalstorage.documents".equals(uri.getAuthority());
-    }
-
-    private boolean isDownloadsDocument(Uri uri) {
-        return "com.android.providers.downloads.documents".equals(uri.getAuthority());
-    }
-
-    private boolean isMediaDocument(Uri uri) {
-        return "com.android.providers.media.documents".equals(uri.getAuthority());
     }
 
     private String getStatusDisplayText(String statusValue) {
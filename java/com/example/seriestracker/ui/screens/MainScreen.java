@@ -24,11 +24,14 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.example.seriestracker.R;
+import com.example.seriestracker.data.DatabaseExecutors;
 import com.example.seriestracker.data.entities.Collection;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.repository.SeriesRepository;
 import com.example.seriestracker.ui.adapters.CollectionAdapter;
 import com.example.seriestracker.ui.adapters.MainPagerAdapter;
 import com.example.seriestracker.ui.adapters.SeriesAdapter;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
@@ -37,6 +40,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class MainScreen extends Fragment {
 
@@ -69,9 +73,20 @@ public class MainScreen extends Fragment {
     private CollectionAdapter collectionsSearchAdapter;
     private SeriesAdapter seriesSearchAdapter;
 
+    // Изменения избранного и статуса применяются к одной строке результатов поиска
+    private final SeriesRepository.SeriesChangeListener seriesChangeListener = change -> {
+        if (seriesSearchAdapter != null) {
+            seriesSearchAdapter.applySeriesChange(change);
+        }
+    };
+
     private boolean isButtonsVisible = false;
     private boolean isContextualSearchActive = false;
 
+    // Поиск выполняется в общем пуле чтения базы данных, результаты показываются только для последнего введенного запроса
+    private final Executor searchExecutor = DatabaseExecutors.getInstance().readers();
+    private volatile String latestContextualQuery = "";
+
     public MainScreen() {
         // Required empty public constructor
     }
@@ -91,6 +106,7 @@ public class MainScreen extends Fragment {
         initViews(view);
         setupViewPagerAndTabs();
         setupEventListeners();
+        viewModel.addSeriesChangeListener(seriesChangeListener);
     }
 
     @Override
@@ -350,6 +366,8 @@ public class MainScreen extends Fragment {
 
         seriesSearchRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         seriesSearchRecyclerView.setAdapter(seriesSearchAdapter);
+        // Обложки следующих строк загружаются заранее по ходу прокрутки
+        CoverImages.attachPreloader(this, seriesSearchRecyclerView, seriesSearchAdapter);
     }
 
     private void openContextualSearch() {
@@ -399,6 +417,9 @@ public class MainScreen extends Fragment {
     }
 
     private void performContextualSearch(String query) {
+        // Запоминаем последний запрос, чтобы не показывать результаты устаревших поисков
+        latestContextualQuery = query;
+
         if (query.trim().isEmpty()) {
             // Если запрос пустой, скрываем результаты поиска и показываем нормальный интерфейс
             hideSearchResults();
@@ -411,105 +432,68 @@ public class MainScreen extends Fragment {
         // Получаем текущую позицию в ViewPager
         int currentPosition = viewPager.getCurrentItem();
 
-        // Выполняем поиск в отдельном потоке, чтобы не нагружать основной поток
-        viewModel.getAllCollections().observe(this, collections -> {
-            viewModel.getAllSeries().observe(this, seriesList -> {
-                // Оба списка получены, теперь выполняем фильтрацию
-
-                List<Collection> filteredCollections = new ArrayList<>();
-                List<Series> filteredSeries = new ArrayList<>();
-
-                // Если находимся на вкладке коллекций - показываем ТОЛЬКО коллекции
-                if (currentPosition == MainPagerAdapter.COLLECTIONS_FRAGMENT_POSITION) {
-                    if (collections != null) {
-                        // Сначала фильтруем коллекции
-                        for (Collection collection : collections) {
-                            if (matchesCollection(collection, query)) {
-                                filteredCollections.add(collection);
-                            }
-                        }
-
-                        // Используем тот же метод, что и в CollectionDetailScreen
-                        // Получаем количество сериалов для каждой коллекции
-                        for (Collection collection : filteredCollections) {
-                            viewModel.getSeriesInCollection(collection.getId()).observe(this, seriesInCollection -> {
-                                if (seriesInCollection != null) {
-                                    collection.setSeriesCount(seriesInCollection.size());
-                                    collectionsSearchAdapter.notifyDataSetChanged(); // Обновить отображение
-                                }
-                            });
-                        }
-                    }
-                    // На вкладке коллекций НЕ показываем сериалы вообще
-                    filteredSeries = new ArrayList<>();
-
-                    // Обновляем UI
-                    if (getContext() != null) {
-                        collectionsSearchAdapter.setCollections(filteredCollections);
-                        seriesSearchAdapter.setSeriesList(filteredSeries);
-
-                        // Показываем/скрываем заголовки и RecyclerView
-                        collectionsSearchTitle.setVisibility(filteredCollections.isEmpty() ? View.GONE : View.VISIBLE);
-                        collectionsSearchRecyclerView.setVisibility(filteredCollections.isEmpty() ? View.GONE : View.VISIBLE);
-
-                        // Скрываем заголовок и список сериалов (так как мы на вкладке коллекций)
-                        seriesSearchTitle.setVisibility(View.GONE);
-                        seriesSearchRecyclerView.setVisibility(View.GONE);
-
-                        // Показываем сообщение "Ничего не найдено", если коллекций не найдено
-                        noSearchResultsText.setVisibility(filteredCollections.isEmpty() ? View.VISIBLE : View.GONE);
-                    }
-                }
-                // Если находимся на вкладке сериалов - показываем ТОЛЬКО сериалы
-                else if (currentPosition == MainPagerAdapter.SERIES_FRAGMENT_POSITION) {
-                    if (seriesList != null) {
-                        for (Series series : seriesList) {
-                            if (matchesSeries(series, query)) {
-                                filteredSeries.add(series);
-                            }
-                        }
-                    }
-                    // На вкладке сериалов НЕ показываем коллекции вообще
-                    filteredCollections = new ArrayList<>();
-
-                    // Обновляем UI
-                    if (getContext() != null) {
-                        collectionsSearchAdapter.setCollections(filteredCollections);
-                        seriesSearchAdapter.setSeriesList(filteredSeries);
+        // Выполняем поиск по полнотекстовому индексу в отдельном потоке, чтобы не нагружать основной поток
+        searchExecutor.execute(() -> {
+            if (!query.equals(latestContextualQuery)) {
+                return;
+            }
 
-                        // Показываем/скрываем заголовки и RecyclerView
-                        seriesSearchTitle.setVisibility(filteredSeries.isEmpty() ? View.GONE : View.VISIBLE);
-                        seriesSearchRecyclerView.setVisibility(filteredSeries.isEmpty() ? View.GONE : View.VISIBLE);
+            List<Collection> foundCollections = null;
+            List<Series> foundSeries = null;
+            // На вкладке коллекций ищем ТОЛЬКО коллекции, на вкладке сериалов - ТОЛЬКО сериалы
+            if (currentPosition == MainPagerAdapter.COLLECTIONS_FRAGMENT_POSITION) {
+                foundCollections = viewModel.searchCollectionsSync(query);
+            } else if (currentPosition == MainPagerAdapter.SERIES_FRAGMENT_POSITION) {
+                foundSeries = viewModel.searchSeriesSync(query);
+            }
 
-                        // Скрываем заголовок и список коллекций (так как мы на вкладке сериалов)
-                        collectionsSearchTitle.setVisibility(View.GONE);
-                        collectionsSearchRecyclerView.setVisibility(View.GONE);
+            List<Collection> filteredCollections = foundCollections != null ? foundCollections : new ArrayList<>();
+            List<Series> filteredSeries = foundSeries != null ? foundSeries : new ArrayList<>();
 
-                        // Показываем сообщение "Ничего не найдено", если сериалов не найдено
-                        noSearchResultsText.setVisibility(filteredSeries.isEmpty() ? View.VISIBLE : View.GONE);
+            if (getActivity() != null) {
+                getActivity().runOnUiThread(() -> {
+                    if (getContext() == null || !query.equals(latestContextualQuery)) {
+                        return;
                     }
-                }
-            });
+                    showContextualSearchResults(currentPosition, filteredCollections, filteredSeries);
+                });
+            }
         });
     }
 
-    private boolean matchesSeries(Series series, String query) {
-        String lowerQuery = query.toLowerCase();
-        if (series.getTitle() != null && series.getTitle().toLowerCase().contains(lowerQuery)) {
-            return true;
-        }
-        if (series.getNotes() != null && series.getNotes().toLowerCase().contains(lowerQuery)) {
-            return true;
+    private void showContextualSearchResults(int currentPosition, List<Collection> filteredCollections,
+                                             List<Series> filteredSeries) {
+        if (currentPosition == MainPagerAdapter.COLLECTIONS_FRAGMENT_POSITION) {
+            // Количество сериалов уже хранится в коллекции (collections.seriesCount),
+            // отдельные наблюдатели на каждую найденную коллекцию не нужны
+            collectionsSearchAdapter.setCollections(filteredCollections);
+            seriesSearchAdapter.setSeriesList(filteredSeries);
+
+            // Показываем/скрываем заголовки и RecyclerView
+            collectionsSearchTitle.setVisibility(filteredCollections.isEmpty() ? View.GONE : View.VISIBLE);
+            collectionsSearchRecyclerView.setVisibility(filteredCollections.isEmpty() ? View.GONE : View.VISIBLE);
+
+            // Скрываем заголовок и список сериалов (так как мы на вкладке коллекций)
+            seriesSearchTitle.setVisibility(View.GONE);
+            seriesSearchRecyclerView.setVisibility(View.GONE);
+
+            // Показываем сообщение "Ничего не найдено", если коллекций не найдено
+            noSearchResultsText.setVisibility(filteredCollections.isEmpty() ? View.VISIBLE : View.GONE);
+        } else if (currentPosition == MainPagerAdapter.SERIES_FRAGMENT_POSITION) {
+            collectionsSearchAdapter.setCollections(filteredCollections);
+            seriesSearchAdapter.setSeriesList(filteredSeries);
+
+            // Показываем/скрываем заголовки и RecyclerView
+            seriesSearchTitle.setVisibility(filteredSeries.isEmpty() ? View.GONE : View.VISIBLE);
+            seriesSearchRecyclerView.setVisibility(filteredSeries.isEmpty() ? View.GONE : View.VISIBLE);
+
+            // Скрываем заголовок и список коллекций (так как мы на вкладке сериалов)
+            collectionsSearchTitle.setVisibility(View.GONE);
+            collectionsSearchRecyclerView.setVisibility(View.GONE);
+
+            // Показываем сообщение "Ничего не найдено", если сериалов не найдено
+            noSearchResultsText.setVisibility(filteredSeries.isEmpty() ? View.VISIBLE : View.GONE);
         }
-        if (series.getGenre() != null && series.getGenre().toLowerCase().contains(lowerQuery)) {
-            return true;
-        }
-        return false;
-    }
-
-    private boolean matchesCollection(Collection collection, String query) {
-        return collection.getName() != null &&
-                collection.getName().toLowerCase().contains(query.toLowerCase());
     }
 
     private void showSearchResults() {
@@ -568,4 +552,10 @@ public class MainScreen extends Fragment {
                 .addToBackStack(null)
                 .commit();
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        viewModel.removeSeriesChangeListener(seriesChangeListener);
+    }
 }
\ No newline at end of file
@@ -18,22 +18,25 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.widget.NestedScrollView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.seriestracker.R;
+import com.example.seriestracker.data.DatabaseExecutors;
 import com.example.seriestracker.data.entities.Collection;
 import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.repository.SeriesRepository;
 import com.example.seriestracker.ui.adapters.CollectionAdapter;
 import com.example.seriestracker.ui.adapters.SeriesAdapter;
+import com.example.seriestracker.ui.images.CoverImages;
 import com.example.seriestracker.ui.viewmodels.SeriesViewModel;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class SearchScreen extends Fragment {
 
@@ -49,16 +52,32 @@ public class SearchScreen extends Fragment {
     private TextView collectionsTitle;
     private RecyclerView seriesRecyclerView;
     private RecyclerView collectionsRecyclerView;
+    private NestedScrollView searchResultsScrollView;
     private TextView noResultsText;
 
     // Адаптеры
     private SeriesAdapter seriesAdapter;
     private CollectionAdapter collectionAdapter;
 
+    // Изменения избранного и статуса применяются к одной строке найденных сериалов
+    private final SeriesRepository.SeriesChangeListener seriesChangeListener = change -> {
+        if (seriesAdapter != null) {
+            seriesAdapter.applySeriesChange(change);
+        }
+    };
+
     // Данные
     private List<Series> allSeries = new ArrayList<>();
     private List<Collection> allCollections = new ArrayList<>();
 
+    // Показанные результаты поиска: следующие страницы подгружаются при прокрутке до конца
+    private String shownQuery = "";
+    private List<Series> shownSeries = new ArrayList<>();
+    private List<Collection> shownCollections = new ArrayList<>();
+    private boolean hasMoreSeries;
+    private boolean hasMoreCollections;
+    private boolean loadingMore;
+
     // Тип поиска: 0=Обычный (все), 1=Поиск в коллекциях, 2=Поиск в сериалах
     private int searchType = 0;
     // Фильтр: 0=Все, 1=Коллекции, 2=Сериалы
@@ -76,8 +95,8 @@ public class SearchScreen extends Fragment {
     private Runnable searchRunnable;
     private static final int SEARCH_DELAY_MS = 300; // 300ms задержка
 
-    // Пул потоков для выполнения поиска
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Поиск выполняется в общем пуле чтения базы данных
+    private final Executor executor = DatabaseExecutors.getInstance().readers();
 
     // Константы для типа поиска
     public static final int SEARCH_TYPE_ALL = 0;
@@ -122,6 +141,7 @@ public class SearchScreen extends Fragment {
         initViews(view);
         setupRecyclerViews();
         setupEventListeners();
+        viewModel.addSeriesChangeListener(seriesChangeListener);
         loadData();
     }
 
@@ -136,6 +156,7 @@ public class SearchScreen extends Fragment {
         seriesRecyclerView = view.findViewById(R.id.seriesRecyclerView);
         collectionsRecyclerView = view.findViewById(R.id.collectionsRecyclerView);
         noResultsText = view.findViewById(R.id.noResultsText);
+        searchResultsScrollView = view.findViewById(R.id.searchResultsScrollView);
     }
 
     private void setupRecyclerViews() {
@@ -159,6 +180,8 @@ public class SearchScreen extends Fragment {
 
         seriesRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         seriesRecyclerView.setAdapter(seriesAdapter);
+        // Обложки следующих строк загружаются заранее по ходу прокрутки
+        CoverImages.attachPreloader(this, seriesRecyclerView, seriesAdapter);
 
         // Настройка адаптера для коллекций - ИСПРАВЛЕНО: добавлен onFavoriteClick
         collectionAdapter = new CollectionAdapter(new CollectionAdapter.OnCollectionClickListener() {
@@ -181,6 +204,14 @@ public class SearchScreen extends Fragment {
 
         collectionsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         collectionsRecyclerView.setAdapter(collectionAdapter);
+
+        // Списки лежат внутри NestedScrollView, поэтому конец результатов отслеживаем по его прокрутке
+        searchResultsScrollView.setOnScrollChangeListener(
+                (NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+                    if (!v.canScrollVertically(1)) {
+                        loadMoreResults();
+                    }
+                });
     }
 
     private void setupEventListeners() {
@@ -312,7 +343,8 @@ public class SearchScreen extends Fragment {
     }
 
     private void performSearch() {
-        String query = currentQuery.toLowerCase().trim();
+        // Регистр не важен: полнотекстовый индекс сам приводит слова к нижнему регистру
+        String query = currentQuery.trim();
 
         // Выполняем поиск в фоновом потоке
         executor.execute(() -> {
@@ -322,96 +354,119 @@ public class SearchScreen extends Fragment {
             List<Series> filteredSeries = new ArrayList<>();
             List<Collection> filteredCollections = new ArrayList<>();
 
+            boolean searchSeries = (searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_SERIES_ONLY) &&
+                    (currentFilter == 0 || currentFilter == 2);
+            boolean searchCollections = (searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_COLLECTIONS_ONLY) &&
+                    (currentFilter == 0 || currentFilter == 1);
+
             // Если запрос пустой, показываем все согласно типу поиска и фильтру
+            // (списки уже упорядочены запросами: избранные сверху, затем по названию)
             if (query.isEmpty()) {
-                if ((searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_SERIES_ONLY) &&
-                        (currentFilter == 0 || currentFilter == 2)) {
-                    // Показываем все сериалы
+                if (searchSeries) {
                     filteredSeries.addAll(allSeries);
                 }
-                if ((searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_COLLECTIONS_ONLY) &&
-                        (currentFilter == 0 || currentFilter == 1)) {
-                    // Показываем все коллекции
+                if (searchCollections) {
                     filteredCollections.addAll(allCollections);
                 }
             } else {
-                // Выполняем поиск по запросу
-                if ((searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_SERIES_ONLY) &&
-                        (currentFilter == 0 || currentFilter == 2)) {
-                    // Ищем в сериалах
-                    for (Series series : allSeries) {
-                        if (!lastProcessedQuery.equals(currentQuery)) {
-                            // Запрос изменился во время поиска, прерываем
-                            return;
-                        }
-
-                        if (matchesSeries(series, query)) {
-                            filteredSeries.add(series);
-                        }
+                // Ищем по полнотекстовому индексу, результаты упорядочены по релевантности
+                if (searchSeries) {
+                    List<Series> foundSeries = viewModel.searchSeriesSync(query);
+                    if (foundSeries != null) {
+                        filteredSeries.addAll(foundSeries);
                     }
                 }
 
-                if ((searchType == SEARCH_TYPE_ALL || searchType == SEARCH_TYPE_COLLECTIONS_ONLY) &&
-                        (currentFilter == 0 || currentFilter == 1)) {
-                    // Ищем в коллекциях
-                    for (Collection collection : allCollections) {
-                        if (!lastProcessedQuery.equals(currentQuery)) {
-                            // Запрос изменился во время поиска, прерываем
-                            return;
-                        }
-
-                        if (matchesCollection(collection, query)) {
-                            filteredCollections.add(collection);
-                        }
+                if (!lastProcessedQuery.equals(currentQuery.trim())) {
+                    // Запрос изменился во время поиска, прерываем
+                    return;
+                }
+
+                if (searchCollections) {
+                    List<Collection> foundCollections = viewModel.searchCollectionsSync(query);
+                    if (foundCollections != null) {
+                        filteredCollections.addAll(foundCollections);
                     }
                 }
             }
             // Проверяем, изменился ли запрос во время поиска
-            if (!lastProcessedQuery.equals(currentQuery)) {
+            if (!lastProcessedQuery.equals(currentQuery.trim())) {
                 // Запрос изменился, не обновляем UI
                 return;
             }
 
-            // Обновляем UI в основном потоке
-            final List<Series> finalFilteredSeries = filteredSeries;
-            final List<Collection> finalFilteredCollections = filteredCollections;
+            // Неполная страница - результаты закончились (пустой запрос показывает списки целиком)
+            boolean moreSeries = !query.isEmpty() && filteredSeries.size() == SeriesRepository.SEARCH_PAGE_SIZE;
+            boolean moreCollections = !query.isEmpty()
+                    && filteredCollections.size() == SeriesRepository.SEARCH_PAGE_SIZE;
 
+            // Обновляем UI в основном потоке
             if (getActivity() != null) {
                 getActivity().runOnUiThread(() -> {
-                    updateUI(finalFilteredSeries, finalFilteredCollections, query);
+                    shownQuery = query;
+                    shownSeries = filteredSeries;
+                    shownCollections = filteredCollections;
+                    hasMoreSeries = moreSeries;
+                    hasMoreCollections = moreCollections;
+                    updateUI(filteredSeries, filteredCollections, query);
                 });
             }
         });
     }
 
-    private boolean matchesSeries(Series series, String query) {
-        if (series.getTitle() != null && series.getTitle().toLowerCase().contains(query)) {
-            return true;
-        }
-        if (series.getNotes() != null && series.getNotes().toLowerCase().contains(query)) {
-            return true;
+    /**
+     * Подгружает следующую страницу результатов поиска к уже показанным
+     */
+    private void loadMoreResults() {
+        if (loadingMore || (!hasMoreSeries && !hasMoreCollections)) {
+            return;
         }
-        if (series.getGenre() != null && series.getGenre().toLowerCase().contains(query)) {
-            return true;
-        }
-        return false;
-    }
+        loadingMore = true;
+
+        String query = shownQuery;
+        boolean loadSeries = hasMoreSeries;
+        boolean loadCollections = hasMoreCollections;
+        int seriesOffset = shownSeries.size();
+        int collectionsOffset = shownCollections.size();
+
+        executor.execute(() -> {
+            List<Series> nextSeries = loadSeries ? viewModel.searchSeriesSync(query, seriesOffset) : null;
+            List<Collection> nextCollections = loadCollections
+                    ? viewModel.searchCollectionsSync(query, collectionsOffset) : null;
+
+            if (getActivity() != null) {
+                getActivity().runOnUiThread(() -> {
+                    loadingMore = false;
+                    if (getView() == null || !query.equals(shownQuery)) {
+                        // Пока страница загружалась, запрос сменился - результаты уже не нужны
+                        return;
+                    }
+
+                    List<Series> series = new ArrayList<>(shownSeries);
+                    if (nextSeries != null) {
+                        series.addAll(nextSeries);
+                        hasMoreSeries = nextSeries.size() == SeriesRepository.SEARCH_PAGE_SIZE;
+                    } else {
+                        hasMoreSeries = false;
+                    }
+                    List<Collection> collections = new ArrayList<>(shownCollections);
+                    if (nextCollections != null) {
+                        collections.addAll(nextCollections);
+                        hasMoreCollections = nextCollections.size() == SeriesRepository.SEARCH_PAGE_SIZE;
+                    } else {
+                        hasMoreCollections = false;
+                    }
 
-    private boolean matchesCollection(Collection collection, String query) {
-        return collection.getName() != null &&
-                collection.getName().toLowerCase().contains(query);
+                    shownSeries = series;
+                    shownCollections = collections;
+                    updateUI(series, collections, query);
+                });
+            }
+        });
     }
 
     private void updateUI(List<Series> filteredSeries, List<Collection> filteredCollections, String query) {
-        // Сортируем сериалы, чтобы избранные были сверху
-        if (!filteredSeries.isEmpty()) {
-            java.util.Collections.sort(filteredSeries, (s1, s2) -> {
-                if (s1.getIsFavorite() != s2.getIsFavorite()) {
-                    return s2.getIsFavorite() ? 1 : -1;
-                }
-                return s1.getTitle().compareToIgnoreCase(s2.getTitle());
-            });
-        }
+        // Порядок сериалов уже задан запросом, повторно не сортируем
 
         // Обновляем сериалы
         if (!filteredSeries.isEmpty()) {
@@ -478,13 +533,10 @@ public class SearchScreen extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        viewModel.removeSeriesChangeListener(seriesChangeListener);
         // Отменяем запланированные задачи поиска
         if (searchRunnable != null) {
             searchHandler.removeCallbacks(searchRunnable);
         }
-        // Закрываем пул потоков
-        if (executor != null) {
-            executor.shutdown();
-        }
     }
 }
\ No newline at end of file
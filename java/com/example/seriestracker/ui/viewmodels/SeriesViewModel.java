@@ -4,7 +4,14 @@
 import android.app.Application;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import com.example.seriestracker.data.dao.CollectionSortOrder;
+import com.example.seriestracker.data.dao.SeriesSortOrder;
 import com.example.seriestracker.data.entities.Collection;
 import com.example.seriestracker.data.entities.CollectionWithSeries;
 import com.example.seriestracker.data.entities.MediaFile;
@@ -14,12 +21,17 @@ import com.example.seriestracker.data.repository.SeriesRepository;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 public class SeriesViewModel extends AndroidViewModel {
     private SeriesRepository repository;
     private LiveData<List<Series>> allSeries;
     private LiveData<List<Collection>> allCollections;
     private LiveData<List<Collection>> collectionsWithSeries;
+    private final MutableLiveData<SeriesSortOrder> seriesSortOrder = new MutableLiveData<>(SeriesSortOrder.NAME_ASC);
+    private final LiveData<PagingData<Series>> pagedSeries;
+    private final MutableLiveData<CollectionSortOrder> collectionSortOrder = new MutableLiveData<>(CollectionSortOrder.NAME_ASC);
+    private final LiveData<List<Collection>> sortedCollections;
 
     public SeriesViewModel(Application application) {
         super(application);
@@ -27,6 +39,11 @@ public class SeriesViewModel extends AndroidViewModel {
         allSeries = repository.getAllSeries();
         allCollections = repository.getAllCollections();
         collectionsWithSeries = repository.getAllCollectionsWithSeriesCount();
+        // Загруженные страницы переживают пересоздание экрана, при смене сортировки создается новый Pager
+        pagedSeries = PagingLiveData.cachedIn(
+                Transformations.switchMap(seriesSortOrder, repository::getSeriesPaged),
+                ViewModelKt.getViewModelScope(this));
+        sortedCollections = Transformations.switchMap(collectionSortOrder, repository::getCollectionsSorted);
     }
 
     // === Коллекции ===
@@ -59,6 +76,15 @@ public class SeriesViewModel extends AndroidViewModel {
         return repository.getAllCollectionsWithSeriesCount();
     }
 
+    // Коллекции в порядке, выбранном через setCollectionSortOrder (сортировка выполняется в БД)
+    public LiveData<List<Collection>> getSortedCollections() {
+        return sortedCollections;
+    }
+
+    public void setCollectionSortOrder(CollectionSortOrder sortOrder) {
+        collectionSortOrder.setValue(sortOrder);
+    }
+
     public void deleteCollection(long collectionId) {
         repository.deleteCollection(collectionId);
     }
@@ -81,6 +107,36 @@ public class SeriesViewModel extends AndroidViewModel {
         return allSeries;
     }
 
+    // === Постраничный список сериалов ===
+    public LiveData<PagingData<Series>> getPagedSeries() {
+        return pagedSeries;
+    }
+
+    public void setSeriesSortOrder(SeriesSortOrder sortOrder) {
+        seriesSortOrder.setValue(sortOrder);
+    }
+
+    public LiveData<Integer> getSeriesCount() {
+        return repository.getSeriesCount();
+    }
+
+    // === Полнотекстовый поиск (блокирующие вызовы, только из фонового потока) ===
+    public List<Series> searchSeriesSync(String query) {
+        return repository.searchSeriesSync(query);
+    }
+
+    public List<Series> searchSeriesSync(String query, int offset) {
+        return repository.searchSeriesSync(query, offset);
+    }
+
+    public List<Collection> searchCollectionsSync(String query) {
+        return repository.searchCollectionsSync(query);
+    }
+
+    public List<Collection> searchCollectionsSync(String query, int offset) {
+        return repository.searchCollectionsSync(query, offset);
+    }
+
     public LiveData<Series> getSeriesById(long seriesId) {
         return repository.getSeriesById(seriesId);
     }
@@ -133,6 +189,32 @@ public class SeriesViewModel extends AndroidViewModel {
         repository.updateSeriesStatus(seriesId, status);
     }
 
+    // === Пакетные изменения выбранных сериалов (одна транзакция на всю выборку) ===
+    public void toggleFavoriteStatus(Set<Long> seriesIds, boolean isFavorite) {
+        repository.updateSeriesFavoriteStatus(seriesIds, isFavorite);
+    }
+
+    public void toggleWatchedStatus(Set<Long> seriesIds, boolean isWatched) {
+        repository.updateSeriesWatchedStatus(seriesIds, isWatched);
+    }
+
+    public void updateSeriesStatus(Set<Long> seriesIds, String status) {
+        repository.updateSeriesStatus(seriesIds, status);
+    }
+
+    public void deleteSeries(Set<Long> seriesIds) {
+        repository.deleteSeries(seriesIds);
+    }
+
+    // Точечные изменения сериалов (избранное, просмотрено, статус) для обновления одной строки списка
+    public void addSeriesChangeListener(SeriesRepository.SeriesChangeListener listener) {
+        repository.addSeriesChangeListener(listener);
+    }
+
+    public void removeSeriesChangeListener(SeriesRepository.SeriesChangeListener listener) {
+        repository.removeSeriesChangeListener(listener);
+    }
+
     // === Коллекции с сериалами ===
     public LiveData<List<Collection>> getCollectionsWithSeries() {
         return collectionsWithSeries;
@@ -143,6 +225,11 @@ public class SeriesViewModel extends AndroidViewModel {
         return repository.getSeriesInCollection(collectionId);
     }
 
+    // Коллекция и ее сериалы одним потоком (один запрос вместо отдельных наблюдателей)
+    public LiveData<CollectionWithSeries> getCollectionWithSeries(long collectionId) {
+        return repository.getCollectionWithSeries(collectionId);
+    }
+
     public void addSeriesToCollection(long seriesId, long collectionId) {
         repository.addSeriesToCollection(seriesId, collectionId);
     }
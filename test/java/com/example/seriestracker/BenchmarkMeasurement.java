@@ -0,0 +1,90 @@
+package com.example.seriestracker;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Замер одного этапа бенчмарка: время, память, выделенная текущим потоком, и пик занятой кучи.
+ * Бенчмарки долгие и в обычный прогон тестов не входят: они выполняются только
+ * с ./gradlew testDebugUnitTest -Pbenchmarks (системное свойство seriestracker.benchmarks).
+ */
+public final class BenchmarkMeasurement {
+    public static final String ENABLED_PROPERTY = "seriestracker.benchmarks";
+
+    private final long startAllocated;
+    private final long startNanos;
+
+    private BenchmarkMeasurement() {
+        // Пик считается от кучи после сборки мусора, а не от остатков прошлого этапа
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        startAllocated = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Пропускает тест, если бенчмарки не включены
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Benchmarks are disabled, run with -Pbenchmarks", Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    public static BenchmarkMeasurement start() {
+        return new BenchmarkMeasurement();
+    }
+
+    /**
+     * Завершает замер
+     * @param itemCount число обработанных записей или файлов, для расчета памяти на одну
+     * @return время, выделенная память и пик кучи для вывода теста
+     */
+    public String stop(long itemCount) {
+        long nanos = System.nanoTime() - startNanos;
+        long allocated = startAllocated >= 0 ? allocatedBytes() - startAllocated : -1;
+        return String.format(Locale.US, "%,d ms, %s, peak heap %,d KB",
+                nanos / 1_000_000, formatAllocation(allocated, itemCount), peakHeapBytes() / 1024);
+    }
+
+    /**
+     * Байты, выделенные текущим потоком, или -1, если JVM не поддерживает замер
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Сумма пиков пулов кучи с начала замера. Пулы достигают пика в разное время,
+     * поэтому это оценка сверху.
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static String formatAllocation(long allocatedBytes, long itemCount) {
+        if (allocatedBytes < 0) {
+            return "allocation n/a";
+        }
+        return String.format(Locale.US, "allocated %,d KB (%,d B each)",
+                allocatedBytes / 1024, allocatedBytes / Math.max(1, itemCount));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.example.seriestracker.data.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.seriestracker.BenchmarkMeasurement;
+import com.example.seriestracker.data.entities.Collection;
+import com.example.seriestracker.data.entities.MediaFile;
+import com.example.seriestracker.data.entities.Series;
+import com.example.seriestracker.data.entities.SeriesCollectionCrossRef;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Замер потоковой записи и чтения резервной копии (BackupJsonWriter, BackupJsonReader)
+ * на сгенерированных библиотеках из 1k, 10k и 100k сериалов и создания и распаковки
+ * ZIP архива (BackupZipWriter, ZipBackupArchive) со 100 и 1000 медиафайлами:
+ * время, размер файла, объем выделенной памяти и пик кучи (BenchmarkMeasurement).
+ * Результаты печатаются в вывод теста, проверяется только, что все записи и файлы прочитаны
+ * и обработчик получает записи пачками, а не всей копией сразу.
+ */
+public class BackupJsonBenchmarkTest {
+    private static final int[] LIBRARY_SIZES = {1_000, 10_000, 100_000};
+    private static final int WARM_UP_SIZE = 1_000;
+    // На каждые SERIES_PER_COLLECTION сериалов одна коллекция, каждый сериал в двух коллекциях
+    private static final int SERIES_PER_COLLECTION = 50;
+    private static final int RELATIONS_PER_SERIES = 2;
+    // Медиафайл у каждого второго сериала
+    private static final int SERIES_PER_MEDIA_FILE = 2;
+    private static final int[] ZIP_FILE_COUNTS = {100, 1_000};
+    private static final int ZIP_WARM_UP_FILE_COUNT = 50;
+    private static final int ZIP_FILE_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Gson gson = new Gson();
+
+    @Before
+    public void assumeBenchmarksEnabled() {
+        BenchmarkMeasurement.assumeEnabled();
+    }
+
+    @Test
+    public void writeAndReadGeneratedLibraries() throws IOException {
+        // Прогрев JIT, чтобы первый замер не включал компиляцию Gson и адаптеров
+        run(WARM_UP_SIZE, false);
+        for (int seriesCount : LIBRARY_SIZES) {
+            run(seriesCount, true);
+        }
+    }
+
+    private void run(int seriesCount, boolean report) throws IOException {
+        int collectionCount = Math.max(1, seriesCount / SERIES_PER_COLLECTION);
+        int relationCount = seriesCount * RELATIONS_PER_SERIES;
+        int mediaCount = seriesCount / SERIES_PER_MEDIA_FILE;
+        long recordCount = (long) collectionCount + seriesCount + relationCount + mediaCount;
+        File backupFile = temporaryFolder.newFile("backup_" + seriesCount + (report ? "" : "_warm_up") + ".json");
+
+        BenchmarkMeasurement write = BenchmarkMeasurement.start();
+        writeLibrary(backupFile, collectionCount, seriesCount, mediaCount);
+        String writeResult = write.stop(recordCount);
+
+        CountingHandler handler = new CountingHandler();
+        BenchmarkMeasurement read = BenchmarkMeasurement.start();
+        try (Reader reader = BackupJsonReader.openReader(new FileInputStream(backupFile))) {
+            assertTrue(new BackupJsonReader(gson).read(reader, handler));
+        }
+        String readResult = read.stop(recordCount);
+
+        assertEquals(collectionCount, handler.collections);
+        assertEquals(seriesCount, handler.series);
+        assertEquals(relationCount, handler.relations);
+        assertEquals(mediaCount, handler.mediaFiles);
+        assertTrue("Batch larger than " + BackupJsonReader.DEFAULT_BATCH_SIZE + ": " + handler.maxBatchSize,
+                handler.maxBatchSize <= BackupJsonReader.DEFAULT_BATCH_SIZE);
+
+        if (report) {
+            System.out.println(String.format(Locale.US,
+                    "%,7d series (%,d records, %,d KB): write %s; read %s",
+                    seriesCount, recordCount, backupFile.length() / 1024, writeResult, readResult));
+        }
+    }
+
+    @Test
+    public void createAndExtractZipArchives() throws IOException {
+        runZip(ZIP_WARM_UP_FILE_COUNT, false);
+        for (int fileCount : ZIP_FILE_COUNTS) {
+            runZip(fileCount, true);
+        }
+    }
+
+    /**
+     * Полный снимок с fileCount медиафайлами: блобы сохраняются в хранилище и добавляются
+     * в архив по ходу записи JSON, как в AutoBackupManager.createFullBackup; затем архив
+     * открывается, JSON читается из него и каждый файл распаковывается
+     */
+    private void runZip(int fileCount, boolean report) throws IOException {
+        int seriesCount = fileCount * SERIES_PER_MEDIA_FILE;
+        int collectionCount = Math.max(1, seriesCount / SERIES_PER_COLLECTION);
+        File workDir = temporaryFolder.newFolder("zip_" + fileCount + (report ? "" : "_warm_up"));
+        List<File> sourceFiles = createMediaFiles(new File(workDir, "media"), fileCount);
+        BackupBlobStore blobStore = new BackupBlobStore(null, new File(workDir, "backups"), gson);
+        File jsonFile = new File(workDir, "backup.json");
+        File zipFile = new File(workDir, "backup.zip");
+
+        List<String> blobPaths = new ArrayList<>(fileCount);
+        BenchmarkMeasurement create = BenchmarkMeasurement.start();
+        try (BackupZipWriter zipWriter = new BackupZipWriter(zipFile, blobStore)) {
+            for (File sourceFile : sourceFiles) {
+                String blobPath = blobStore.putFile(sourceFile, ".jpg");
+                assertNotNull(blobPath);
+                zipWriter.addBlob(blobPath);
+                blobPaths.add(blobPath);
+            }
+            writeLibrary(jsonFile, collectionCount, seriesCount, fileCount);
+            zipWriter.addFile(jsonFile.getName(), jsonFile);
+            assertTrue(zipWriter.finish());
+        }
+        String createResult = create.stop(fileCount);
+
+        File extractDir = new File(workDir, "extracted");
+        assertTrue(extractDir.mkdirs());
+        CountingHandler handler = new CountingHandler();
+        BenchmarkMeasurement extract = BenchmarkMeasurement.start();
+        try (ZipBackupArchive archive = new ZipBackupArchive(zipFile);
+             Reader reader = archive.openManifest()) {
+            assertNotNull(reader);
+            assertTrue(new BackupJsonReader(gson).read(reader, handler));
+            for (int i = 0; i < blobPaths.size(); i++) {
+                assertTrue(archive.extractEntry(blobPaths.get(i), new File(extractDir, i + ".jpg")));
+            }
+        }
+        String extractResult = extract.stop(fileCount);
+
+        assertEquals(seriesCount, handler.series);
+        assertEquals(fileCount, handler.mediaFiles);
+        assertEquals(fileCount, extractDir.list().length);
+
+        if (report) {
+            System.out.println(String.format(Locale.US,
+                    "%,7d files (%,d KB archive): create %s; extract %s",
+                    fileCount, zipFile.length() / 1024, createResult, extractResult));
+        }
+    }
+
+    /**
+     * Медиафайлы со случайным содержимым: как и настоящие JPEG, они не сжимаются
+     * и пишутся в архив без сжатия
+     */
+    private static List<File> createMediaFiles(File directory, int fileCount) throws IOException {
+        assertTrue(directory.mkdirs());
+        Random random = new Random(fileCount);
+        byte[] content = new byte[ZIP_FILE_SIZE];
+        List<File> files = new ArrayList<>(fileCount);
+        for (int i = 1; i <= fileCount; i++) {
+            random.nextBytes(content);
+            File file = new File(directory, "IMG_" + i + ".jpg");
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                outputStream.write(content);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private void writeLibrary(File backupFile, int collectionCount, int seriesCount, int mediaCount)
+            throws IOException {
+        try (BackupJsonWriter writer = new BackupJsonWriter(gson, new FileOutputStream(backupFile))) {
+            writer.beginArray("collections");
+            for (int id = 1; id <= collectionCount; id++) {
+                Collection collection = new Collection("Коллекция " + id, Arrays.asList("#2196F3", "#FF4081"));
+                collection.setId(id);
+                writer.write(collection, Collection.class);
+            }
+            writer.endArray();
+
+            writer.beginArray("series");
+            for (int id = 1; id <= seriesCount; id++) {
+                writer.write(createSeries(id), Series.class);
+            }
+            writer.endArray();
+
+            writer.beginArray("relations");
+            for (int id = 1; id <= seriesCount; id++) {
+                for (int i = 0; i < RELATIONS_PER_SERIES; i++) {
+                    long collectionId = (id + (long) i * collectionCount / RELATIONS_PER_SERIES) % collectionCount + 1;
+                    SeriesCollectionCrossRef relation = new SeriesCollectionCrossRef(id, collectionId);
+                    relation.setIsWatched(id % 3 == 0);
+                    writer.write(relation, SeriesCollectionCrossRef.class);
+                }
+            }
+            writer.endArray();
+
+            writer.beginArray("mediaFiles");
+            for (int id = 1; id <= mediaCount; id++) {
+                long seriesId = (long) id * SERIES_PER_MEDIA_FILE;
+                MediaFile mediaFile = new MediaFile(seriesId, "blobs/" + Long.toHexString(seriesId * 2654435761L) + ".jpg",
+                        "image", "IMG_" + id + ".jpg");
+                mediaFile.setId(id);
+                mediaFile.setFileSize(2_000_000L + id);
+                writer.write(mediaFile, MediaFile.class);
+            }
+            writer.endArray();
+
+            writer.finish(System.currentTimeMillis(), 1);
+        }
+    }
+
+    private static Series createSeries(int id) {
+        Series series = new Series("Сериал " + id);
+        series.setId(id);
+        series.setImageUri("blobs/" + Integer.toHexString(id * 31) + ".webp");
+        series.setNotes("Заметки к сериалу " + id + ": досмотреть второй сезон");
+        series.setGenre(id % 2 == 0 ? "Драма" : "Комедия");
+        series.setStatus(id % 4 == 0 ? "completed" : "watching");
+        series.setIsFavorite(id % 10 == 0);
+        series.setRating(id % 6);
+        series.setSeasons(1 + id % 8);
+        series.setEpisodes(8 + id % 80);
+        return series;
+    }
+
+    /**
+     * Считает записи и наибольшую пачку, ничего не сохраняя
+     */
+    private static final class CountingHandler implements BackupJsonReader.Handler {
+        int collections;
+        int series;
+        int relations;
+        int mediaFiles;
+        int maxBatchSize;
+
+        @Override
+        public void onCollections(List<Collection> batch) {
+            collections += count(batch);
+        }
+
+        @Override
+        public void onSeries(List<Series> batch) {
+            series += count(batch);
+        }
+
+        @Override
+        public void onRelations(List<SeriesCollectionCrossRef> batch) {
+            relations += count(batch);
+        }
+
+        @Override
+        public void onMediaFiles(List<MediaFile> batch) {
+            mediaFiles += count(batch);
+        }
+
+        private int count(List<?> batch) {
+            maxBatchSize = Math.max(maxBatchSize, batch.size());
+            return batch.size();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.seriestracker.data.converters;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.seriestracker.BenchmarkMeasurement;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Замер ColorsConverter: цвета коллекции преобразуются в JSON при каждой записи коллекции
+ * и обратно при каждом чтении. Результаты печатаются в вывод теста.
+ */
+public class ColorsConverterBenchmarkTest {
+    private static final int[] CONVERSION_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int WARM_UP_COUNT = 10_000;
+    private static final List<String> COLORS = Arrays.asList("#2196F3", "#FF4081", "#4CAF50");
+
+    @Before
+    public void assumeBenchmarksEnabled() {
+        BenchmarkMeasurement.assumeEnabled();
+    }
+
+    @Test
+    public void convertCollectionColors() {
+        // Прогрев JIT, чтобы первый замер не включал компиляцию Gson и адаптеров
+        run(WARM_UP_COUNT, false);
+        for (int conversionCount : CONVERSION_COUNTS) {
+            run(conversionCount, true);
+        }
+    }
+
+    private void run(int conversionCount, boolean report) {
+        // Длины результатов суммируются, чтобы JIT не выбросил преобразования
+        long checksum = 0;
+
+        String json = null;
+        BenchmarkMeasurement toJson = BenchmarkMeasurement.start();
+        for (int i = 0; i < conversionCount; i++) {
+            json = ColorsConverter.fromList(COLORS);
+            checksum += json.length();
+        }
+        String toJsonResult = toJson.stop(conversionCount);
+
+        List<String> colors = null;
+        BenchmarkMeasurement fromJson = BenchmarkMeasurement.start();
+        for (int i = 0; i < conversionCount; i++) {
+            colors = ColorsConverter.fromString(json);
+            checksum += colors.size();
+        }
+        String fromJsonResult = fromJson.stop(conversionCount);
+
+        assertEquals(COLORS, colors);
+        assertEquals((long) conversionCount * (json.length() + COLORS.size()), checksum);
+
+        if (report) {
+            System.out.println(String.format(Locale.US, "%,9d conversions: fromList %s; fromString %s",
+                    conversionCount, toJsonResult, fromJsonResult));
+        }
+    }
+}
\ No newline at end of file